@@ -0,0 +1,82 @@
+package com.bulletjournal.ledger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares summing a ledger by payer as boxed doubles, the way summaries were computed before amounts
+ * became minor units, with the calculator over columns of minor units.
+ * <p>
+ * Run with ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LedgerSummaryBenchmark {
+
+    private static final String[] PAYERS = {"Alice", "Bob", "Carol", "Dave", "Erin"};
+    private static final ZonedDateTime START = ZonedDateTime.of(2015, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private final LedgerSummaryCalculator calculator = new LedgerSummaryCalculator();
+
+    private List<Double> amounts;
+    private List<String> payers;
+    private byte[] types;
+    private LedgerColumns columns;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        this.amounts = new ArrayList<>(this.size);
+        this.payers = new ArrayList<>(this.size);
+        this.types = new byte[this.size];
+        this.columns = new LedgerColumns();
+        for (int i = 0; i < this.size; i++) {
+            long minorUnits = random.nextInt(10000000);
+            TransactionType type = random.nextBoolean() ? TransactionType.INCOME : TransactionType.EXPENSE;
+            String payer = PAYERS[random.nextInt(PAYERS.length)];
+            this.amounts.add(Money.toAmount(minorUnits));
+            this.payers.add(payer);
+            this.types[i] = (byte) type.getValue();
+            this.columns.add(LocalDate.of(2015, 1, 1).plusDays(random.nextInt(5 * 365)).toString(),
+                    minorUnits, 1, type, Collections.emptyList(), payer);
+        }
+    }
+
+    @Benchmark
+    public Map<String, double[]> boxedDoubles() {
+        Map<String, double[]> groups = new HashMap<>();
+        double totalIncome = 0;
+        double totalExpense = 0;
+        for (int i = 0; i < this.size; i++) {
+            double amount = this.amounts.get(i);
+            double[] group = groups.computeIfAbsent(this.payers.get(i), k -> new double[3]);
+            if (TransactionType.getType(this.types[i]) == TransactionType.INCOME) {
+                group[0] += amount;
+                totalIncome += amount;
+            } else {
+                group[1] += amount;
+                totalExpense += amount;
+            }
+        }
+        for (double[] group : groups.values()) {
+            group[0] = Math.round(group[0] * 100 / totalIncome * 100.0) / 100.0;
+            group[1] = Math.round(group[1] * 100 / totalExpense * 100.0) / 100.0;
+        }
+        return groups;
+    }
+
+    @Benchmark
+    public LedgerSummary minorUnitColumns() {
+        return this.calculator.getLedgerSummary(LedgerSummaryType.PAYER, START, START.plusYears(5), this.columns,
+                FrequencyType.MONTHLY);
+    }
+}
@@ -0,0 +1,64 @@
+package com.bulletjournal.util;
+
+import org.dmfs.rfc5545.DateTime;
+import org.dmfs.rfc5545.recur.InvalidRecurrenceRuleException;
+import org.dmfs.rfc5545.recur.RecurrenceRuleIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares replaying a rule from DTSTART with skipping ahead to a one week window.
+ * <p>
+ * Run with ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BuJoRecurrenceRuleBenchmark {
+
+    private static final String TIMEZONE = "America/Los_Angeles";
+
+    @Param({"1", "5", "10"})
+    public int ageInYears;
+
+    @Param({"FREQ=DAILY;INTERVAL=1", "FREQ=WEEKLY;BYDAY=MO,WE,FR;INTERVAL=1", "FREQ=MONTHLY;INTERVAL=1"})
+    public String rrule;
+
+    private BuJoRecurrenceRule rule;
+    private DateTime windowStart;
+    private DateTime windowEnd;
+
+    @Setup
+    public void setup() throws InvalidRecurrenceRuleException {
+        int startYear = 2020 - this.ageInYears;
+        this.rule = new BuJoRecurrenceRule("DTSTART:" + startYear + "0106T170000ZRRULE:" + this.rrule, TIMEZONE);
+        this.windowStart = new DateTime(TimeZone.getTimeZone(TIMEZONE), 2020, 0, 6, 0, 0, 0);
+        this.windowEnd = new DateTime(TimeZone.getTimeZone(TIMEZONE), 2020, 0, 12, 23, 59, 59);
+    }
+
+    @Benchmark
+    public int replayFromStart() {
+        return countInWindow(this.rule.getIterator());
+    }
+
+    @Benchmark
+    public int skipAhead() {
+        return countInWindow(this.rule.getIterator(this.windowStart));
+    }
+
+    private int countInWindow(RecurrenceRuleIterator it) {
+        int count = 0;
+        while (it.hasNext()) {
+            DateTime next = it.nextDateTime();
+            if (next.after(this.windowEnd)) {
+                break;
+            }
+            if (!next.before(this.windowStart)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
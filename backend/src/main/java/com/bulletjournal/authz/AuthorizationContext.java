@@ -0,0 +1,38 @@
+package com.bulletjournal.authz;
+
+import com.bulletjournal.contents.ContentType;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshot of what a user can reach besides owned content: the ids of items shared with the user per
+ * content type and the groups the user has accepted.
+ */
+public class AuthorizationContext {
+
+    private final Map<ContentType, Set<Long>> sharedItemIds;
+    private final Set<Long> acceptedGroupIds;
+
+    public AuthorizationContext(Map<ContentType, Set<Long>> sharedItemIds, Set<Long> acceptedGroupIds) {
+        this.sharedItemIds = sharedItemIds;
+        this.acceptedGroupIds = acceptedGroupIds;
+    }
+
+    public boolean isShared(ContentType contentType, Long itemId) {
+        return this.sharedItemIds.getOrDefault(contentType, Collections.emptySet()).contains(itemId);
+    }
+
+    public boolean isInGroup(Long groupId) {
+        return this.acceptedGroupIds.contains(groupId);
+    }
+
+    public Set<Long> getSharedItemIds(ContentType contentType) {
+        return Collections.unmodifiableSet(this.sharedItemIds.getOrDefault(contentType, Collections.emptySet()));
+    }
+
+    public Set<Long> getAcceptedGroupIds() {
+        return Collections.unmodifiableSet(this.acceptedGroupIds);
+    }
+}
@@ -2,19 +2,26 @@ package com.bulletjournal.authz;
 
 import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.exceptions.UnAuthorizedException;
-import com.bulletjournal.repository.SharedProjectItemDaoJpa;
+import com.bulletjournal.repository.SharedProjectItemRepository;
+import com.bulletjournal.repository.UserGroupRepository;
 import com.bulletjournal.repository.models.Project;
 import com.bulletjournal.repository.models.ProjectItemModel;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
-import java.util.Objects;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class AuthorizationService {
@@ -25,14 +32,95 @@ public class AuthorizationService {
 
     public static Set<String> ADMINS = ImmutableSet.of(SUPER_USER);
 
+    private static final String REQUEST_CONTEXTS_KEY = AuthorizationService.class.getName() + ".contexts";
+
+    // bounds staleness of changes bypassing entity listeners, such as bulk deletes
+    private static final long CONTEXT_TTL_SECONDS = 30;
+
+    private final Cache<String, AuthorizationContext> contexts = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(CONTEXT_TTL_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    @Autowired
+    @Lazy
+    private SharedProjectItemRepository sharedProjectItemRepository;
+
     @Autowired
     @Lazy
-    private SharedProjectItemDaoJpa sharedProjectItemDaoJpa;
+    private UserGroupRepository userGroupRepository;
+
+    /**
+     * Get items shared with the user and groups the user has accepted, computed once per request
+     *
+     * @param requester the username of action requester
+     * @return AuthorizationContext - the requester's shared item ids and accepted group ids
+     */
+    public AuthorizationContext getContext(String requester) {
+        Map<String, AuthorizationContext> requestContexts = getRequestContexts();
+        AuthorizationContext context = requestContexts.get(requester);
+        if (context == null) {
+            try {
+                context = this.contexts.get(requester, () -> loadContext(requester));
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Failed to load authorization context of " + requester, ex);
+            }
+            requestContexts.put(requester, context);
+        }
+        return context;
+    }
+
+    /**
+     * Drop the user's context now and again once the current transaction completes, so that no context
+     * loaded from uncommitted or outdated rows survives it
+     *
+     * @param username the user whose shared items or group memberships changed
+     */
+    public void invalidateContext(String username) {
+        this.contexts.invalidate(username);
+        getRequestContexts().remove(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    contexts.invalidate(username);
+                }
+            });
+        }
+    }
+
+    private AuthorizationContext loadContext(String username) {
+        Map<ContentType, Set<Long>> sharedItemIds = new EnumMap<>(ContentType.class);
+        for (Object[] ids : this.sharedProjectItemRepository.findSharedItemIdsByUsername(username)) {
+            if (ids[0] != null) {
+                sharedItemIds.computeIfAbsent(ContentType.TASK, k -> new HashSet<>()).add((Long) ids[0]);
+            } else if (ids[1] != null) {
+                sharedItemIds.computeIfAbsent(ContentType.NOTE, k -> new HashSet<>()).add((Long) ids[1]);
+            } else if (ids[2] != null) {
+                sharedItemIds.computeIfAbsent(ContentType.TRANSACTION, k -> new HashSet<>()).add((Long) ids[2]);
+            }
+        }
+        return new AuthorizationContext(sharedItemIds,
+                new HashSet<>(this.userGroupRepository.findAcceptedGroupIdsByUsername(username)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AuthorizationContext> getRequestContexts() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new HashMap<>();
+        }
+        Map<String, AuthorizationContext> contexts = (Map<String, AuthorizationContext>) attributes.getAttribute(
+                REQUEST_CONTEXTS_KEY, RequestAttributes.SCOPE_REQUEST);
+        if (contexts == null) {
+            contexts = new HashMap<>();
+            attributes.setAttribute(REQUEST_CONTEXTS_KEY, contexts, RequestAttributes.SCOPE_REQUEST);
+        }
+        return contexts;
+    }
 
     public <T extends ProjectItemModel> void validateRequesterInProjectGroup(String requester, T projectItem) {
-        if (this.sharedProjectItemDaoJpa.getSharedProjectItems(requester).stream()
-                .anyMatch(item -> Objects.equals(item.getId(), projectItem.getId()) &&
-                        Objects.equals(item.getContentType(), projectItem.getContentType()))) {
+        if (getContext(requester).isShared(projectItem.getContentType(), projectItem.getId())) {
             return;
         }
         validateRequesterInProjectGroup(requester, projectItem.getProject());
@@ -43,8 +131,7 @@ public class AuthorizationService {
             return;
         }
 
-        if (!project.getGroup().getAcceptedUsers()
-                .stream().anyMatch(u -> Objects.equals(requester, u.getUser().getName()))) {
+        if (!getContext(requester).isInGroup(project.getGroup().getId())) {
             throw new UnAuthorizedException("User " + requester + " not in Project "
                     + project.getName());
         }
@@ -145,9 +232,7 @@ public class AuthorizationService {
         switch (operation) {
             case UPDATE:
                 // contents of project item being shared specifically can be edited
-                if (this.sharedProjectItemDaoJpa.getSharedProjectItems(requester).stream()
-                        .anyMatch(item -> Objects.equals(item.getId(), projectItem.getId()) &&
-                                Objects.equals(item.getContentType(), projectItem.getContentType()))) {
+                if (getContext(requester).isShared(projectItem.getContentType(), projectItem.getId())) {
                     return;
                 }
             case DELETE:
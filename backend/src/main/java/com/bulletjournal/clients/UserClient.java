@@ -10,6 +10,7 @@ import com.bulletjournal.repository.UserAliasDaoJpa;
 import com.bulletjournal.repository.UserDaoJpa;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
@@ -17,13 +18,14 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.LinkedHashMap;
-import java.util.Optional;
+import java.util.*;
 
 @Component
 public class UserClient {
@@ -35,6 +37,7 @@ public class UserClient {
     private static final String THUMBNAIL_SIZE = "37";
     private static final String SIZE_HOLDER = "{size}";
     private static final String DEFAULT_USER_TIME_ZONE = "America/Los_Angeles";
+    private static final String REQUEST_USERS_KEY = UserClient.class.getName() + ".users";
     private final RestTemplate restClient;
     private final URI ssoEndPoint;
     private final String ssoAPIKey;
@@ -101,6 +104,61 @@ public class UserClient {
         return this.userAliasDaoJpa.updateUserAlias(user);
     }
 
+    /**
+     * Resolve users in bulk: cached users are read in one pipelined Redis round trip, requester's aliases
+     * are read once and resolved users are remembered for the rest of the request.
+     * DO NOT wrap this function inside @Transactional
+     *
+     * @param usernames the usernames to resolve
+     * @return Map<String, User> - users keyed by the requested usernames
+     */
+    public Map<String, User> getUsers(Collection<String> usernames) {
+        Map<String, User> requestUsers = getRequestUsers();
+        Map<String, User> users = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String username : usernames) {
+            User user = requestUsers.get(username);
+            if (user != null) {
+                users.put(username, user);
+            } else {
+                missing.add(username);
+            }
+        }
+        if (missing.isEmpty()) {
+            return users;
+        }
+
+        String requester = MDC.get(USER_NAME_KEY);
+        Map<String, String> aliases = requester == null
+                ? Collections.emptyMap() : this.userAliasDaoJpa.getAliases(requester);
+        for (User user : this.redisUserRepository.findAllByNames(missing)) {
+            user.setAlias(aliases.getOrDefault(user.getName(), user.getName()));
+            users.put(user.getName(), user);
+            missing.remove(user.getName());
+        }
+        // not cached yet, fetch from SSO one by one
+        for (String username : missing) {
+            users.put(username, getUser(username));
+        }
+        requestUsers.putAll(users);
+        return users;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, User> getRequestUsers() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new HashMap<>();
+        }
+        Map<String, User> users = (Map<String, User>) attributes.getAttribute(
+                REQUEST_USERS_KEY, RequestAttributes.SCOPE_REQUEST);
+        if (users == null) {
+            users = new HashMap<>();
+            attributes.setAttribute(REQUEST_USERS_KEY, users, RequestAttributes.SCOPE_REQUEST);
+        }
+        return users;
+    }
+
     private String getUserTimeZone(LinkedHashMap userInfo) {
         if (this.ssoAPIKey == null) {
             return DEFAULT_USER_TIME_ZONE;
@@ -8,6 +8,14 @@ import org.springframework.context.annotation.Configuration;
 public class ContentRevisionConfig {
     private Integer maxRevisionNumber;
 
+    // every snapshotInterval-th revision stores the full text
+    private Integer snapshotInterval = 10;
+
+    private Integer diffThreads = 2;
+
+    // revisions whose diff does not fit are kept as snapshots
+    private Integer diffQueueCapacity = 1000;
+
     public Integer getMaxRevisionNumber() {
         return maxRevisionNumber;
     }
@@ -15,4 +23,28 @@ public class ContentRevisionConfig {
     public void setMaxRevisionNumber(Integer maxRevisionNumber) {
         this.maxRevisionNumber = maxRevisionNumber;
     }
+
+    public Integer getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(Integer snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public Integer getDiffThreads() {
+        return diffThreads;
+    }
+
+    public void setDiffThreads(Integer diffThreads) {
+        this.diffThreads = diffThreads;
+    }
+
+    public Integer getDiffQueueCapacity() {
+        return diffQueueCapacity;
+    }
+
+    public void setDiffQueueCapacity(Integer diffQueueCapacity) {
+        this.diffQueueCapacity = diffQueueCapacity;
+    }
 }
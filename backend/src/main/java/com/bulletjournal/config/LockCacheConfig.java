@@ -0,0 +1,73 @@
+package com.bulletjournal.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "lock.cache")
+public class LockCacheConfig {
+
+    // look up locked users and IPs in Redis on every request when disabled
+    private boolean enabled = true;
+
+    // locked ids the Bloom filter is sized for, more raise its false positive rate
+    private int expectedInsertions = 100000;
+
+    private double falsePositiveProbability = 0.01;
+
+    // lookups of ids passing the Bloom filter cached in memory
+    private int maximumSize = 10000;
+
+    private int expireAfterWriteSeconds = 60;
+
+    // rebuild the Bloom filter from Redis, dropping unlocked ids and bounding staleness of missed events
+    private int rebuildSeconds = 300;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public void setExpectedInsertions(int expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public int getExpireAfterWriteSeconds() {
+        return expireAfterWriteSeconds;
+    }
+
+    public void setExpireAfterWriteSeconds(int expireAfterWriteSeconds) {
+        this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+    }
+
+    public int getRebuildSeconds() {
+        return rebuildSeconds;
+    }
+
+    public void setRebuildSeconds(int rebuildSeconds) {
+        this.rebuildSeconds = rebuildSeconds;
+    }
+}
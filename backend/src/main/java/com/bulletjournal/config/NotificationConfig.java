@@ -3,12 +3,19 @@ package com.bulletjournal.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "notification")
 public class NotificationConfig {
 
     private Cleaner cleaner = new Cleaner();
 
+    private Map<String, Pipeline> pipelines = new HashMap<>();
+
+    private Journal journal = new Journal();
+
     public NotificationConfig() {
     }
 
@@ -20,6 +27,181 @@ public class NotificationConfig {
         this.cleaner = cleaner;
     }
 
+    public Map<String, Pipeline> getPipelines() {
+        return pipelines;
+    }
+
+    public void setPipelines(Map<String, Pipeline> pipelines) {
+        this.pipelines = pipelines;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Get the settings of an event type pipeline, falling back to defaults when not configured
+     *
+     * @param type the event type name
+     * @return Pipeline - settings of the pipeline
+     */
+    public Pipeline getPipeline(String type) {
+        return this.pipelines.getOrDefault(type, new Pipeline());
+    }
+
+    public enum Backpressure {
+        // wait up to blockMillis, then drop the event or, in a durable pipeline, spill it to the journal
+        BLOCK,
+        DROP_NEWEST,
+        DROP_OLDEST
+    }
+
+    public static class Pipeline {
+        private int workers = 1;
+        private int capacity = 10000;
+        private int batchSize = 100;
+        private long batchWindowMillis = 0;
+        private Backpressure backpressure = Backpressure.BLOCK;
+        private long blockMillis = 1000;
+        private boolean durable = false;
+        // handler attempts on a batch of a durable pipeline before its failing events are dead-lettered
+        private int maxAttempts = 3;
+        private long retryBackoffMillis = 1000;
+        // run the handler of a durable pipeline in the transaction removing its events from the journal
+        private boolean transactional = false;
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getBatchWindowMillis() {
+            return batchWindowMillis;
+        }
+
+        public void setBatchWindowMillis(long batchWindowMillis) {
+            this.batchWindowMillis = batchWindowMillis;
+        }
+
+        public Backpressure getBackpressure() {
+            return backpressure;
+        }
+
+        public void setBackpressure(Backpressure backpressure) {
+            this.backpressure = backpressure;
+        }
+
+        public long getBlockMillis() {
+            return blockMillis;
+        }
+
+        public void setBlockMillis(long blockMillis) {
+            this.blockMillis = blockMillis;
+        }
+
+        public boolean isDurable() {
+            return durable;
+        }
+
+        public void setDurable(boolean durable) {
+            this.durable = durable;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getRetryBackoffMillis() {
+            return retryBackoffMillis;
+        }
+
+        public void setRetryBackoffMillis(long retryBackoffMillis) {
+            this.retryBackoffMillis = retryBackoffMillis;
+        }
+
+        public boolean isTransactional() {
+            return transactional;
+        }
+
+        public void setTransactional(boolean transactional) {
+            this.transactional = transactional;
+        }
+
+        @Override
+        public String toString() {
+            return "Pipeline{" +
+                    "workers=" + workers +
+                    ", capacity=" + capacity +
+                    ", batchSize=" + batchSize +
+                    ", batchWindowMillis=" + batchWindowMillis +
+                    ", backpressure=" + backpressure +
+                    ", blockMillis=" + blockMillis +
+                    ", durable=" + durable +
+                    ", maxAttempts=" + maxAttempts +
+                    ", retryBackoffMillis=" + retryBackoffMillis +
+                    ", transactional=" + transactional +
+                    '}';
+        }
+    }
+
+    public static class Journal {
+        private int maxBatchSize = 500;
+        // longest a durable offer waits for the group commit, the event is still handled if it times out
+        private long appendTimeoutMillis = 20;
+        private long offsetFlushMillis = 1000;
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public long getAppendTimeoutMillis() {
+            return appendTimeoutMillis;
+        }
+
+        public void setAppendTimeoutMillis(long appendTimeoutMillis) {
+            this.appendTimeoutMillis = appendTimeoutMillis;
+        }
+
+        public long getOffsetFlushMillis() {
+            return offsetFlushMillis;
+        }
+
+        public void setOffsetFlushMillis(long offsetFlushMillis) {
+            this.offsetFlushMillis = offsetFlushMillis;
+        }
+    }
+
     public static class Cleaner {
         private int maxRetentionTimeInDays;
         private int intervalInSeconds;
@@ -12,6 +12,16 @@ public class RateConfig {
     private int user;
     private int publicItem;
 
+    // local keeps buckets per backend instance, redis shares them across instances
+    private String store = "local";
+
+    // tokens taken from Redis at once and served locally, 1 for a Redis round trip per request
+    private int leaseSize = 1;
+
+    private long leaseMillis = 1000;
+
+    private int evictIntervalSeconds = 60;
+
     public int getFileUpload() {
         return fileUpload;
     }
@@ -35,10 +45,46 @@ public class RateConfig {
     public void setPublicItem(int publicItem) {
         this.publicItem = publicItem;
     }
+
+    public String getStore() {
+        return store;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public int getLeaseSize() {
+        return leaseSize;
+    }
+
+    public void setLeaseSize(int leaseSize) {
+        this.leaseSize = leaseSize;
+    }
+
+    public long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    public void setLeaseMillis(long leaseMillis) {
+        this.leaseMillis = leaseMillis;
+    }
+
+    public int getEvictIntervalSeconds() {
+        return evictIntervalSeconds;
+    }
+
+    public void setEvictIntervalSeconds(int evictIntervalSeconds) {
+        this.evictIntervalSeconds = evictIntervalSeconds;
+    }
 }
 
 /*
 rate.limit.fileUpload=5
 rate.limit.user=150
 rate.limit.publicItem=15
+rate.limit.store=local
+rate.limit.leaseSize=1
+rate.limit.leaseMillis=1000
+rate.limit.evictIntervalSeconds=60
 */
\ No newline at end of file
@@ -11,6 +11,10 @@ public class ReminderConfig {
     private Long purgePrevSeconds;
     private Long cronJobSeconds;
     private String timeZone;
+    private Long tickMillis;
+    private Integer wheelSize;
+    private Integer dispatchThreads;
+    private Integer dispatchBatchSize;
 
     public Long getLoadPrevSeconds() {
         return loadPrevSeconds;
@@ -52,6 +56,38 @@ public class ReminderConfig {
         this.cronJobSeconds = cronJobSeconds;
     }
 
+    public Long getTickMillis() {
+        return tickMillis;
+    }
+
+    public void setTickMillis(Long tickMillis) {
+        this.tickMillis = tickMillis;
+    }
+
+    public Integer getWheelSize() {
+        return wheelSize;
+    }
+
+    public void setWheelSize(Integer wheelSize) {
+        this.wheelSize = wheelSize;
+    }
+
+    public Integer getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    public void setDispatchThreads(Integer dispatchThreads) {
+        this.dispatchThreads = dispatchThreads;
+    }
+
+    public Integer getDispatchBatchSize() {
+        return dispatchBatchSize;
+    }
+
+    public void setDispatchBatchSize(Integer dispatchBatchSize) {
+        this.dispatchBatchSize = dispatchBatchSize;
+    }
+
     @Override
     public String toString() {
         return "ReminderConfig{" +
@@ -60,6 +96,10 @@ public class ReminderConfig {
                 ", purgePrevSeconds=" + purgePrevSeconds +
                 ", cronJobSeconds=" + cronJobSeconds +
                 ", timeZone='" + timeZone + '\'' +
+                ", tickMillis=" + tickMillis +
+                ", wheelSize=" + wheelSize +
+                ", dispatchThreads=" + dispatchThreads +
+                ", dispatchBatchSize=" + dispatchBatchSize +
                 '}';
     }
 }
@@ -0,0 +1,62 @@
+package com.bulletjournal.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "search.index")
+public class SearchIndexConfig {
+
+    // operations per _bulk request
+    private Integer bulkActions = 1000;
+
+    // attempts after the first one for operations rejected as overloaded or lost with the connection
+    private Integer bulkMaxRetries = 3;
+
+    // doubled on every retry
+    private Long bulkRetryBackoffMillis = 500L;
+
+    private Integer backfillPageSize = 1000;
+
+    private Integer backfillThreads = 3;
+
+    public Integer getBulkActions() {
+        return bulkActions;
+    }
+
+    public void setBulkActions(Integer bulkActions) {
+        this.bulkActions = bulkActions;
+    }
+
+    public Integer getBulkMaxRetries() {
+        return bulkMaxRetries;
+    }
+
+    public void setBulkMaxRetries(Integer bulkMaxRetries) {
+        this.bulkMaxRetries = bulkMaxRetries;
+    }
+
+    public Long getBulkRetryBackoffMillis() {
+        return bulkRetryBackoffMillis;
+    }
+
+    public void setBulkRetryBackoffMillis(Long bulkRetryBackoffMillis) {
+        this.bulkRetryBackoffMillis = bulkRetryBackoffMillis;
+    }
+
+    public Integer getBackfillPageSize() {
+        return backfillPageSize;
+    }
+
+    public void setBackfillPageSize(Integer backfillPageSize) {
+        this.backfillPageSize = backfillPageSize;
+    }
+
+    public Integer getBackfillThreads() {
+        return backfillThreads;
+    }
+
+    public void setBackfillThreads(Integer backfillThreads) {
+        this.backfillThreads = backfillThreads;
+    }
+}
@@ -2,11 +2,14 @@ package com.bulletjournal.controller;
 
 import com.bulletjournal.authz.Role;
 import com.bulletjournal.clients.UserClient;
+import com.bulletjournal.config.SpringESConfig;
 import com.bulletjournal.config.VersionConfig;
 import com.bulletjournal.controller.models.*;
+import com.bulletjournal.es.SearchIndexRebuilder;
+import com.bulletjournal.exceptions.BadRequestException;
+import com.bulletjournal.exceptions.ConflictException;
 import com.bulletjournal.exceptions.UnAuthorizedException;
-import com.bulletjournal.redis.RedisLockedIPRepository;
-import com.bulletjournal.redis.RedisLockedUserRepository;
+import com.bulletjournal.redis.RedisLockDaoJpa;
 import com.bulletjournal.redis.models.LockedIP;
 import com.bulletjournal.redis.models.LockedUser;
 import com.bulletjournal.repository.UserDaoJpa;
@@ -31,6 +34,7 @@ public class AdminController {
     public static final String UNLOCK_USER_ROUTE = "/api/admin/unlock";
     public static final String LOCK_USER_ROUTE = "/api/admin/lock";
     public static final String VERSION_ROUTE = "/api/version";
+    public static final String REBUILD_SEARCH_INDEX_ROUTE = "/api/admin/searchIndex/rebuild";
 
     @Autowired
     private VersionConfig versionConfig;
@@ -42,10 +46,13 @@ public class AdminController {
     private UserClient userClient;
 
     @Autowired
-    private RedisLockedUserRepository redisLockedUserRepository;
+    private RedisLockDaoJpa redisLockDaoJpa;
 
     @Autowired
-    private RedisLockedIPRepository redisLockedIPRepository;
+    private SpringESConfig springESConfig;
+
+    @Autowired
+    private SearchIndexRebuilder searchIndexRebuilder;
 
     @PostMapping(SET_ROLE_ROUTE)
     public void setRole(@NotBlank @PathVariable String username, @NotNull @RequestBody SetRoleParams setRoleParams) {
@@ -80,8 +87,8 @@ public class AdminController {
         validateRequester();
 
         LockedUsersAndIPs lockedUserAndIPs = new LockedUsersAndIPs();
-        Iterable<LockedIP> ips = redisLockedIPRepository.findAll();
-        Iterable<LockedUser> users = redisLockedUserRepository.findAll();
+        Iterable<LockedIP> ips = redisLockDaoJpa.getLockedIPs();
+        Iterable<LockedUser> users = redisLockDaoJpa.getLockedUsers();
         lockedUserAndIPs.setIps(ips);
         lockedUserAndIPs.setUsers(users);
 
@@ -95,10 +102,10 @@ public class AdminController {
         String name = unlockUserParams.getName();
 
         if (StringUtils.isNotBlank(ip)) {
-            redisLockedIPRepository.delete(new LockedIP(ip, null));
+            redisLockDaoJpa.unlockIP(ip);
         }
         if (StringUtils.isNotBlank(name)) {
-            redisLockedUserRepository.delete(new LockedUser(getUsername(name), null));
+            redisLockDaoJpa.unlockUser(getUsername(name));
         }
     }
 
@@ -110,10 +117,10 @@ public class AdminController {
         String reason = lockUserParams.getReason();
 
         if (StringUtils.isNotBlank(ip)) {
-            redisLockedIPRepository.save(new LockedIP(ip, reason));
+            redisLockDaoJpa.lock(new LockedIP(ip, reason));
         }
         if (StringUtils.isNotBlank(name)) {
-            redisLockedUserRepository.save(new LockedUser(name, reason));
+            redisLockDaoJpa.lock(new LockedUser(name, reason));
         }
     }
 
@@ -158,6 +165,17 @@ public class AdminController {
         return new Myself(self, timezone, before, currency, theme, points);
     }
 
+    @PostMapping(REBUILD_SEARCH_INDEX_ROUTE)
+    public void rebuildSearchIndex() {
+        validateRequester();
+        if (!this.springESConfig.getEnable()) {
+            throw new BadRequestException("Elasticsearch is not enabled");
+        }
+        if (!this.searchIndexRebuilder.rebuild()) {
+            throw new ConflictException("Search index is already being rebuilt");
+        }
+    }
+
     @GetMapping(VERSION_ROUTE)
     public String getVersion() {
         return this.versionConfig.getVersion();
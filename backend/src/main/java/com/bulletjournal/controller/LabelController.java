@@ -3,9 +3,12 @@ package com.bulletjournal.controller;
 import com.bulletjournal.clients.UserClient;
 import com.bulletjournal.controller.models.CreateLabelParams;
 import com.bulletjournal.controller.models.Label;
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.controller.models.ProjectItems;
 import com.bulletjournal.controller.models.UpdateLabelParams;
 import com.bulletjournal.controller.utils.EtagGenerator;
+import com.bulletjournal.notifications.LabelRemoval;
+import com.bulletjournal.notifications.NotificationService;
 import com.bulletjournal.repository.LabelDaoJpa;
 import com.bulletjournal.repository.SystemDaoJpa;
 import com.bulletjournal.repository.UserDaoJpa;
@@ -42,6 +45,9 @@ public class LabelController {
     @Autowired
     private SystemDaoJpa systemDaoJpa;
 
+    @Autowired
+    private NotificationService notificationService;
+
     @PostMapping(LABELS_ROUTE)
     @ResponseStatus(HttpStatus.CREATED)
     public Label createLabel(@Valid @RequestBody CreateLabelParams label) {
@@ -96,14 +102,18 @@ public class LabelController {
     public ResponseEntity<?> deleteLabel(@PathVariable Long labelId) {
         String username = MDC.get(UserClient.USER_NAME_KEY);
         this.labelDaoJpa.delete(username, labelId);
+        this.notificationService.removeLabel(new LabelRemoval(labelId, username));
         return ResponseEntity.ok().build();
     }
 
     @GetMapping(ITEMS_ROUTE)
-    public List<ProjectItems> getItemsByLabels(@Valid @RequestParam List<Long> labels) {
+    public List<ProjectItems> getItemsByLabels(
+            @Valid @RequestParam List<Long> labels,
+            @RequestParam(required = false, defaultValue = "ALL") LabelMatch match) {
         String username = MDC.get(UserClient.USER_NAME_KEY);
         User user = this.userDaoJpa.getByName(username);
-        return ProjectItems.addAvatar(this.labelDaoJpa.getItemsByLabels(user.getTimezone(), labels, username),
+        return ProjectItems.addAvatar(
+                this.labelDaoJpa.getItemsByLabels(user.getTimezone(), labels, match, username),
                 this.userClient);
     }
 
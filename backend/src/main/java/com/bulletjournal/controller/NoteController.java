@@ -4,13 +4,12 @@ import com.bulletjournal.clients.UserClient;
 import com.bulletjournal.contents.ContentAction;
 import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.controller.models.*;
-import com.bulletjournal.controller.utils.EtagGenerator;
 import com.bulletjournal.es.ESUtil;
 import com.bulletjournal.notifications.*;
 import com.bulletjournal.notifications.informed.Informed;
 import com.bulletjournal.notifications.informed.RemoveNoteEvent;
+import com.bulletjournal.redis.RedisProjectVersionDaoJpa;
 import com.bulletjournal.repository.NoteDaoJpa;
-import com.bulletjournal.repository.NoteRepository;
 import com.bulletjournal.repository.ProjectDaoJpa;
 import com.bulletjournal.repository.models.ContentModel;
 import com.bulletjournal.repository.models.NoteContent;
@@ -38,6 +37,7 @@ import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
 public class NoteController {
 
     protected static final String NOTES_ROUTE = "/api/projects/{projectId}/notes";
+    protected static final String NOTES_ORDER_ROUTE = "/api/projects/{projectId}/notes/order";
     protected static final String NOTE_ROUTE = "/api/notes/{noteId}";
     protected static final String NOTE_SET_LABELS_ROUTE = "/api/notes/{noteId}/setLabels";
     protected static final String NOTE_SET_COLOR_ROUTE = "/api/notes/{noteId}/setColor";
@@ -62,10 +62,10 @@ public class NoteController {
     private UserClient userClient;
 
     @Autowired
-    private ProjectDaoJpa projectDaoJpa;
+    private RedisProjectVersionDaoJpa redisProjectVersionDaoJpa;
 
     @Autowired
-    private NoteRepository noteRepository;
+    private ProjectDaoJpa projectDaoJpa;
 
     @GetMapping(NOTES_ROUTE)
     public ResponseEntity<List<Note>> getNotes(@NotNull @PathVariable Long projectId,
@@ -80,12 +80,14 @@ public class NoteController {
         }
 
         String username = MDC.get(UserClient.USER_NAME_KEY);
+        // read version before notes, a concurrent change then only causes one extra fetch
+        String notesEtag = this.redisProjectVersionDaoJpa.getEtag(projectId);
         List<Note> notes = this.noteDaoJpa.getNotes(projectId, username);
-        String notesEtag = EtagGenerator.generateEtag(EtagGenerator.HashAlgorithm.MD5,
-                EtagGenerator.HashType.TO_HASHCODE, notes);
 
         HttpHeaders responseHeader = new HttpHeaders();
         responseHeader.setETag(notesEtag);
+        responseHeader.set(ProjectController.HIERARCHY_VERSION_HEADER,
+                String.valueOf(this.noteDaoJpa.getNotesHierarchyVersion(projectId)));
 
         return ResponseEntity.ok().headers(responseHeader).body(ProjectItem.addAvatar(notes, this.userClient));
     }
@@ -181,7 +183,7 @@ public class NoteController {
             return getNotes(projectId, null, null, null, null, null);
         }
 
-        this.noteRepository.deleteInBatch(noteList);
+        this.noteDaoJpa.deleteInBatch(noteList);
 
         List<String> deleteESDocumentIds = ESUtil.getProjectItemSearchIndexIds(notes, ContentType.TASK);
         this.notificationService.deleteESDocument(new RemoveElasticsearchDocumentEvent(deleteESDocumentIds));
@@ -203,6 +205,15 @@ public class NoteController {
         return getNotes(projectId, null, null, null, null, null);
     }
 
+    @PatchMapping(NOTES_ORDER_ROUTE)
+    public ResponseEntity<?> updateNotesOrder(@NotNull @PathVariable Long projectId,
+            @Valid @RequestBody UpdateOrderParams updateOrderParams) {
+        String username = MDC.get(UserClient.USER_NAME_KEY);
+        Long version = this.noteDaoJpa.updateUserNotesOrder(projectId, updateOrderParams, username);
+        return ResponseEntity.noContent()
+                .header(ProjectController.HIERARCHY_VERSION_HEADER, String.valueOf(version)).build();
+    }
+
     @PutMapping(NOTE_SET_LABELS_ROUTE)
     public Note setLabels(@NotNull @PathVariable Long noteId, @NotNull @RequestBody List<Long> labels) {
         String username = MDC.get(UserClient.USER_NAME_KEY);
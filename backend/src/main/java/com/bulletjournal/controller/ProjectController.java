@@ -4,6 +4,7 @@ import com.bulletjournal.clients.UserClient;
 import com.bulletjournal.contents.ContentAction;
 import com.bulletjournal.controller.models.*;
 import com.bulletjournal.controller.utils.EtagGenerator;
+import com.bulletjournal.es.repository.SearchIndexDaoJpa;
 import com.bulletjournal.notifications.*;
 import com.bulletjournal.notifications.informed.CreateProjectEvent;
 import com.bulletjournal.notifications.informed.JoinProjectEvent;
@@ -42,6 +43,9 @@ public class ProjectController {
     protected static final String PROJECT_SETTINGS_ROUTE = "/api/projects/{projectId}/settings";
     protected static final String PROJECT_HISTORY_ROUTE = "/api/projects/{projectId}/history";
     protected static final String UPDATE_SHARED_PROJECTS_ORDER_ROUTE = "/api/updateSharedProjectsOrder";
+    protected static final String PROJECTS_ORDER_ROUTE = "/api/projects/order";
+    // version of a hierarchy for optimistic single item edits
+    protected static final String HIERARCHY_VERSION_HEADER = "Hierarchy-Version";
     private static final Logger LOGGER = LoggerFactory.getLogger(ProjectController.class);
     @Autowired
     private ProjectDaoJpa projectDaoJpa;
@@ -52,6 +56,9 @@ public class ProjectController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private SearchIndexDaoJpa searchIndexDaoJpa;
+
     @Autowired
     private UserClient userClient;
 
@@ -83,6 +90,8 @@ public class ProjectController {
 
         HttpHeaders responseHeader = new HttpHeaders();
         responseHeader.setETag(ownedProjectsEtag + "|" + sharedProjectsEtag);
+        responseHeader.set(HIERARCHY_VERSION_HEADER,
+                String.valueOf(this.projectDaoJpa.getOwnedProjectsHierarchyVersion(username)));
         return ResponseEntity.ok().headers(responseHeader).body(Projects.addOwnerAvatar(projects, this.userClient));
     }
 
@@ -143,6 +152,11 @@ public class ProjectController {
         if (!removed.isEmpty()) {
             this.notificationService.inform(new RemoveFromProjectEvent(removed, username));
         }
+        if (updateProjectParams.hasGroupId()) {
+            // the acl of the project's items in the search index includes its group
+            this.notificationService.indexESDocument(new IndexElasticsearchDocumentEvent(
+                    this.searchIndexDaoJpa.getProjectItemDocumentIds(projectId)));
+        }
         ProjectDetails project = getProject(projectId);
         this.notificationService.trackActivity(new Auditable(projectId, "updated BuJo ##" + project.getName() + "##",
                 username, null, Timestamp.from(Instant.now()), ContentAction.UPDATE_PROJECT));
@@ -184,6 +198,13 @@ public class ProjectController {
         return getProjects();
     }
 
+    @PatchMapping(PROJECTS_ORDER_ROUTE)
+    public ResponseEntity<?> updateProjectsOrder(@Valid @RequestBody UpdateOrderParams updateOrderParams) {
+        String username = MDC.get(UserClient.USER_NAME_KEY);
+        Long version = this.projectDaoJpa.updateUserOwnedProjectsOrder(username, updateOrderParams);
+        return ResponseEntity.noContent().header(HIERARCHY_VERSION_HEADER, String.valueOf(version)).build();
+    }
+
     @GetMapping(PROJECT_HISTORY_ROUTE)
     public List<Activity> getHistory(@NotNull @PathVariable Long projectId, @NotBlank @RequestParam String timezone,
             @NotBlank @RequestParam String startDate, @NotBlank @RequestParam String endDate,
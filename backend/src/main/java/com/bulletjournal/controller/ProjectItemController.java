@@ -89,26 +89,36 @@ public class ProjectItemController {
             String timezone, List<Project> projects) {
 
         Map<ZonedDateTime, List<Task>> taskMap = null;
+        Map<ZonedDateTime, List<TaskOccurrence>> taskOccurrenceMap = null;
         Map<ZonedDateTime, List<Transaction>> transactionMap = null;
+        Map<ZonedDateTime, List<TransactionOccurrence>> transactionOccurrenceMap = null;
         User user = this.userDaoJpa.getByName(username);
 
         // Task query
         if (types.contains(ProjectType.TODO)) {
             List<Task> tasks = taskDaoJpa.getTasksBetween(user.getName(), startTime, endTime, projects);
+            List<TaskOccurrence> occurrences = taskDaoJpa.getTaskOccurrencesBetween(
+                    user.getName(), startTime, endTime, projects);
             // Group tasks by date
             taskMap = ProjectItemsGrouper.groupTasksByDate(tasks, false, timezone);
+            taskOccurrenceMap = ProjectItemsGrouper.groupTaskOccurrencesByDate(occurrences, timezone);
         }
         // Ledger query
         if (types.contains(ProjectType.LEDGER)) {
             List<Transaction> transactions = transactionDaoJpa.getTransactionsBetween(user.getName(), startTime,
                     endTime, projects);
+            List<TransactionOccurrence> occurrences = transactionDaoJpa.getTransactionOccurrencesBetween(
+                    user.getName(), startTime, endTime, projects);
             // Group transaction by date
             transactionMap = ProjectItemsGrouper.groupTransactionsByDate(transactions, timezone);
+            transactionOccurrenceMap = ProjectItemsGrouper.groupTransactionOccurrencesByDate(occurrences, timezone);
         }
 
         Map<ZonedDateTime, ProjectItems> projectItemsMap = new HashMap<>();
         projectItemsMap = ProjectItemsGrouper.mergeTasksMap(projectItemsMap, taskMap);
+        projectItemsMap = ProjectItemsGrouper.mergeTaskOccurrencesMap(projectItemsMap, taskOccurrenceMap);
         projectItemsMap = ProjectItemsGrouper.mergeTransactionsMap(projectItemsMap, transactionMap);
+        projectItemsMap = ProjectItemsGrouper.mergeTransactionOccurrencesMap(projectItemsMap, transactionOccurrenceMap);
 
         return projectItemsMap;
     }
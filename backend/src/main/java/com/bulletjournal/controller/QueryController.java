@@ -8,12 +8,10 @@ import com.bulletjournal.controller.models.SearchResultItem;
 import com.bulletjournal.es.ESUtil;
 import com.bulletjournal.es.repository.SearchIndexDaoJpa;
 import com.bulletjournal.es.repository.models.SearchIndex;
+import com.bulletjournal.exceptions.UnAuthorizedException;
 import com.bulletjournal.notifications.NotificationService;
 import com.bulletjournal.notifications.RemoveElasticsearchDocumentEvent;
-import com.bulletjournal.redis.RedisShareItemIdRepository;
-import com.bulletjournal.redis.models.ShareItemIds;
 import com.bulletjournal.repository.*;
-import com.bulletjournal.repository.models.ProjectItemModel;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,22 +47,12 @@ public class QueryController {
     private TransactionDaoJpa transactionDaoJpa;
     @Autowired
     private NoteDaoJpa noteDaoJpa;
-    @Autowired
-    private SharedProjectItemDaoJpa sharedProjectItemDaoJpa;
-
-    @Autowired
-    private NoteContentRepository noteContentRepository;
-    @Autowired
-    private TaskContentRepository taskContentRepository;
 
     @Autowired
     private NotificationService notificationService;
     @Autowired
     private SpringESConfig springESConfig;
 
-    @Autowired
-    private RedisShareItemIdRepository redisShareItemIdRepository;
-
     /**
      * Parse Search Index identifier into type and id
      *
@@ -121,31 +109,10 @@ public class QueryController {
 
         String username = MDC.get(UserClient.USER_NAME_KEY);
         SearchScrollHits<SearchIndex> scroll;
-        ShareItemIds shareItemIds;
         if (scrollId == null || scrollId.length() == 0) {
-            List<ProjectItemModel> projectItemModels = sharedProjectItemDaoJpa.
-                    getSharedProjectItems(username, null);
-            Map<ContentType, List<Long>> sharedContentIds = this.getContentIdsFromItems(projectItemModels);
-            List<String> sharedProjectItemIds = generateSharedProjectItemIds(
-                    projectItemModels, sharedContentIds);
-
-            Map<ContentType, Set<Long>> projectItemIdMap = getProjectItemIds(sharedProjectItemIds);
-            scroll = searchIndexDaoJpa.search(username, term, sharedProjectItemIds, pageNo, pageSize);
-            scrollId = scroll.getScrollId();
-            shareItemIds = new ShareItemIds(scrollId, projectItemIdMap.getOrDefault(ContentType.NOTE, Collections.emptySet()),
-                    projectItemIdMap.getOrDefault(ContentType.TASK, Collections.emptySet()));
-            redisShareItemIdRepository.save(shareItemIds);
+            scroll = searchIndexDaoJpa.search(username, term, pageNo, pageSize);
         } else {
             scroll = searchIndexDaoJpa.search(scrollId);
-            Optional<ShareItemIds> option = redisShareItemIdRepository.findById(scrollId);
-            if (!option.isPresent()) {
-                throw new IllegalStateException("ScrollId is not stored");
-            }
-            shareItemIds = option.get();
-            scrollId = scroll.getScrollId();
-            redisShareItemIdRepository.save(new ShareItemIds(
-                    scrollId, shareItemIds.getSharedNoteIds(), shareItemIds.getSharedTaskIds()
-            ));
         }
 
         if (scroll == null) {
@@ -158,15 +125,14 @@ public class QueryController {
         }
 
         List<SearchIndex> invalidResults = new ArrayList<>();
-        List<SearchResultItem> validResults = search(username, invalidResults, searchResultList,
-                shareItemIds.getSharedNoteIds(), shareItemIds.getSharedTaskIds());
+        List<SearchResultItem> validResults = search(username, invalidResults, searchResultList);
 
         // Batch remove all invalid results from ElasticSearch using notification event queue
         notificationService.deleteESDocument(new RemoveElasticsearchDocumentEvent(
                 invalidResults.stream().map(SearchIndex::getId).collect(Collectors.toList())));
 
         SearchResult validSearchResult = new SearchResult();
-        validSearchResult.setScrollId(scrollId);
+        validSearchResult.setScrollId(scroll.getScrollId());
         validSearchResult.setSearchResultItemList(validResults);
         validSearchResult.setTotalHits(scroll.getTotalHits());
         validSearchResult.setHasSearchHits(scroll.hasSearchHits());
@@ -174,65 +140,6 @@ public class QueryController {
         return validSearchResult;
     }
 
-    // input: task 1, task 2, note 5, note 6
-    // task 1 -> content 1 3
-    // task 2 -> 5, 7
-    // note 5 -> 1, 4
-    // note 6 -> 7, 9, 10
-    // => <ContentType.TASK, [1,2]>, <ContentType.NOTE, [5,6]>
-    // => <ContentType.TASK, [1,3,5,7]>, <ContentType.NOTE, [1,4,7,9,10]>
-    private Map<ContentType, List<Long>> getContentIdsFromItems(List<ProjectItemModel> projectItemModels) {
-        Map<ContentType, List<Long>> m = new HashMap<>();
-        projectItemModels.forEach(item ->
-                m.computeIfAbsent(item.getContentType(), k -> new ArrayList<>()).add(item.getId()));
-        m.forEach((k, v) -> {
-            // item.getId() -> content ids
-            switch (k) {
-                case NOTE:
-                    List<Long> noteContentIds = this.noteContentRepository.findAllByNoteIds(v);
-                    v.clear();
-                    v.addAll(noteContentIds);
-                    break;
-                case TASK:
-                    List<Long> taskContentIds = this.taskContentRepository.findAllByTaskIds(v);
-                    v.clear();
-                    v.addAll(taskContentIds);
-                    break;
-                default:
-            }
-        });
-        return m;
-    }
-
-    private List<String> generateSharedProjectItemIds(List<ProjectItemModel> items,
-                                                      Map<ContentType, List<Long>> contents) {
-        List<String> ret = new ArrayList<>();
-        for (ProjectItemModel item : items) {
-            ret.add(item.getContentType().name().toLowerCase() + SEARCH_INDEX_SPLITTER + item.getId());
-        }
-
-        contents.forEach((k, v) -> {
-            for (Long id : v) {
-                ret.add(k.name().toLowerCase() + "_content" + SEARCH_INDEX_SPLITTER + id);
-            }
-        });
-        return ret;
-    }
-
-    private Map<ContentType, Set<Long>> getProjectItemIds(List<String> sharedProjectItemIds) {
-        Map<ContentType, Set<Long>> m = new HashMap<>();
-        sharedProjectItemIds.forEach(id -> {
-                    int index = id.indexOf(SEARCH_INDEX_SPLITTER);
-                     String contentType = id.substring(0, index).toUpperCase();
-                    if (contentType.equals(ContentType.NOTE.name())
-                            ||  contentType.equals(ContentType.TASK.name()))
-                    m.computeIfAbsent(ContentType.valueOf(contentType), k -> new HashSet<>())
-                            .add(Long.valueOf(id.substring(index + 1)));
-                }
-        );
-        return m;
-    }
-
     /**
      * Search requested term in elastic search and add invalid results to invalid list
      *
@@ -243,16 +150,7 @@ public class QueryController {
      */
     private List<SearchResultItem> search(String username,
                                           List<SearchIndex> invalid,
-                                          List<SearchHit<SearchIndex>> searchResultList,
-                                          Set<Long> shareNoteIds, Set<Long> shareTaskIds) {
-        if (shareNoteIds == null) {
-            shareNoteIds = Collections.emptySet();
-        }
-        if (shareTaskIds == null) {
-            shareTaskIds = Collections.emptySet();
-        }
-        final Set<Long> shareNotes = shareNoteIds;
-        final Set<Long> shareTasks = shareTaskIds;
+                                          List<SearchHit<SearchIndex>> searchResultList) {
         // Created a Map to group search result to the same id
         Map<String, SearchResultItem> results = new HashMap<>();
 
@@ -261,8 +159,14 @@ public class QueryController {
             boolean isContent = index.getParentId() != null;
             String projectItemId = isContent ? index.getParentId() : index.getId();
 
-            // If search result is not present in database, add result to invalid results list
-            String projectItemName = validateSearchResult(index, username);
+            // If search result is not present in database, add result to invalid results list.
+            // If it is only unauthorized, the document's acl is outdated and it is skipped without deletion.
+            String projectItemName;
+            try {
+                projectItemName = validateSearchResult(index, username);
+            } catch (UnAuthorizedException ex) {
+                return;
+            }
             if (projectItemName == null) {
                 invalid.add(index);
                 return;
@@ -277,8 +181,7 @@ public class QueryController {
             searchResultItem.setType(ContentType.getType(type));
             searchResultItem.setId(id);
             searchResultItem.setName(projectItemName);
-            if ((ContentType.getType(type).equals(ContentType.NOTE) && shareNotes.contains(id)) ||
-                    (ContentType.getType(type).equals(ContentType.TASK) && shareTasks.contains(id))) {
+            if (index.isSharedWith(username)) {
                 searchResultItem.setShared(true);
             }
 
@@ -308,6 +211,7 @@ public class QueryController {
      * @param searchIndex the target search index
      * @param username    the requester username
      * @return the project item name of the search index
+     * @throws UnAuthorizedException if the search index exists but the requester cannot access it
      */
     private String validateSearchResult(SearchIndex searchIndex, String username) {
         Pair<String, Long> searchIndexPair = parseSearchIndexInfo(searchIndex.getId());
@@ -329,6 +233,8 @@ public class QueryController {
 
             // If ResourceNotFound or NullPointer exception is thrown, return null
             return projectItemDaoJpa.getProjectItem(searchIndexId, username).getName();
+        } catch (UnAuthorizedException ex) {
+            throw ex;
         } catch (Exception ex) {
             return null;
         }
@@ -10,10 +10,12 @@ import com.bulletjournal.daemon.models.ReminderRecord;
 import com.bulletjournal.exceptions.BadRequestException;
 import com.bulletjournal.exceptions.ResourceNotFoundException;
 import com.bulletjournal.exceptions.UnAuthorizedException;
+import com.bulletjournal.notifications.EtagUpdatesChannel;
 import com.bulletjournal.notifications.Event;
 import com.bulletjournal.notifications.NotificationService;
 import com.bulletjournal.notifications.informed.RequestProjectItemWriteAccessEvent;
 import com.bulletjournal.redis.RedisEtagDaoJpa;
+import com.bulletjournal.redis.RedisProjectVersionDaoJpa;
 import com.bulletjournal.redis.models.Etag;
 import com.bulletjournal.redis.models.EtagType;
 import com.bulletjournal.repository.*;
@@ -29,11 +31,14 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import java.net.URI;
@@ -47,6 +52,7 @@ import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
 @RestController
 public class SystemController {
     public static final String UPDATES_ROUTE = "/api/system/updates";
+    public static final String UPDATES_STREAM_ROUTE = "/api/system/updates/stream";
     public static final String PUBLIC_ITEM_ROUTE_PREFIX = "/api/public/items/";
     public static final String PUBLIC_ITEM_ROUTE = PUBLIC_ITEM_ROUTE_PREFIX + "{itemId}";
     private static final String CONTACTS_ROUTE = "/api/contacts";
@@ -79,6 +85,9 @@ public class SystemController {
     @Autowired
     private SharedProjectItemDaoJpa sharedProjectItemDaoJpa;
 
+    @Autowired
+    private AuthorizationService authorizationService;
+
     @Autowired
     private NoteController noteController;
 
@@ -94,6 +103,9 @@ public class SystemController {
     @Autowired
     private RedisEtagDaoJpa redisEtagDaoJpa;
 
+    @Autowired
+    private RedisProjectVersionDaoJpa redisProjectVersionDaoJpa;
+
     @Autowired
     private ProjectItemDaos projectItemDaos;
 
@@ -103,6 +115,20 @@ public class SystemController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private EtagUpdatesChannel etagUpdatesChannel;
+
+    /**
+     * Stream etag changes of requester, {@link #UPDATES_ROUTE} remains as polling fallback
+     */
+    @GetMapping(value = UPDATES_STREAM_ROUTE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUpdates(HttpServletResponse response) {
+        String username = MDC.get(UserClient.USER_NAME_KEY);
+        // disable proxy buffering so events are delivered immediately
+        response.setHeader("X-Accel-Buffering", "no");
+        return this.etagUpdatesChannel.subscribe(username);
+    }
+
     @GetMapping(UPDATES_ROUTE)
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
     public SystemUpdates getUpdates(@RequestParam(name = "targets", required = false) String targets,
@@ -162,16 +188,10 @@ public class SystemController {
                 Project project = this.projectDaoJpa.getProject(projectId, username).toPresentationModel();
                 switch (project.getProjectType()) {
                     case TODO:
-                        List<Task> taskList = this.taskDaoJpa.getTasks(projectId, username);
-                        tasksEtag = EtagGenerator.generateEtag(EtagGenerator.HashAlgorithm.MD5,
-                                EtagGenerator.HashType.TO_HASHCODE,
-                                taskList);
+                        tasksEtag = this.redisProjectVersionDaoJpa.getEtag(projectId);
                         break;
                     case NOTE:
-                        List<Note> noteList = this.noteDaoJpa.getNotes(projectId, username);
-                        notesEtag = EtagGenerator.generateEtag(EtagGenerator.HashAlgorithm.MD5,
-                                EtagGenerator.HashType.TO_HASHCODE,
-                                noteList);
+                        notesEtag = this.redisProjectVersionDaoJpa.getEtag(projectId);
                         break;
                     default:
                         throw new IllegalArgumentException();
@@ -279,8 +299,7 @@ public class SystemController {
         Pair<Long, ContentType> found = getSharedItemIdAndType(itemId);
         Long id = found.getLeft();
         ContentType contentType = found.getRight();
-        if (!this.sharedProjectItemDaoJpa.getSharedProjectItems(requester, contentType)
-                .stream().anyMatch(m -> m.getId().equals(id))) {
+        if (!this.authorizationService.getContext(requester).isShared(contentType, id)) {
             throw new UnAuthorizedException("Item not shared with user " + requester);
         }
 
@@ -4,7 +4,6 @@ import com.bulletjournal.clients.UserClient;
 import com.bulletjournal.contents.ContentAction;
 import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.controller.models.*;
-import com.bulletjournal.controller.utils.EtagGenerator;
 import com.bulletjournal.es.ESUtil;
 import com.bulletjournal.exceptions.UnAuthorizedException;
 import com.bulletjournal.notifications.*;
@@ -12,9 +11,9 @@ import com.bulletjournal.notifications.informed.Informed;
 import com.bulletjournal.notifications.informed.RemoveTaskEvent;
 import com.bulletjournal.notifications.informed.SetTaskStatusEvent;
 import com.bulletjournal.notifications.informed.UpdateTaskAssigneeEvent;
+import com.bulletjournal.redis.RedisProjectVersionDaoJpa;
 import com.bulletjournal.repository.ProjectDaoJpa;
 import com.bulletjournal.repository.TaskDaoJpa;
-import com.bulletjournal.repository.TaskRepository;
 import com.bulletjournal.repository.models.CompletedTask;
 import com.bulletjournal.repository.models.ContentModel;
 import com.bulletjournal.repository.models.ProjectItemModel;
@@ -45,6 +44,7 @@ public class TaskController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TaskController.class);
     public static final String TASKS_ROUTE = "/api/projects/{projectId}/tasks";
+    protected static final String TASKS_ORDER_ROUTE = "/api/projects/{projectId}/tasks/order";
     protected static final String TASK_ROUTE = "/api/tasks/{taskId}";
     protected static final String SET_TASK_STATUS_ROUTE = "/api/tasks/{taskId}/setStatus";
     protected static final String COMPLETED_TASK_ROUTE = "/api/completedTasks/{taskId}";
@@ -72,15 +72,15 @@ public class TaskController {
     @Autowired
     private ProjectDaoJpa projectDaoJpa;
 
-    @Autowired
-    private TaskRepository taskRepository;
-
     @Autowired
     private NotificationService notificationService;
 
     @Autowired
     private UserClient userClient;
 
+    @Autowired
+    private RedisProjectVersionDaoJpa redisProjectVersionDaoJpa;
+
     @GetMapping(TASKS_ROUTE)
     public ResponseEntity<List<Task>> getTasks(@NotNull @PathVariable Long projectId,
             @RequestParam(required = false) String assignee, @RequestParam(required = false) String startDate,
@@ -94,12 +94,14 @@ public class TaskController {
         }
 
         String username = MDC.get(UserClient.USER_NAME_KEY);
+        // read version before tasks, a concurrent change then only causes one extra fetch
+        String tasksEtag = this.redisProjectVersionDaoJpa.getEtag(projectId);
         List<Task> tasks = this.taskDaoJpa.getTasks(projectId, username);
-        String tasksEtag = EtagGenerator.generateEtag(EtagGenerator.HashAlgorithm.MD5,
-                EtagGenerator.HashType.TO_HASHCODE, tasks);
 
         HttpHeaders responseHeader = new HttpHeaders();
         responseHeader.setETag(tasksEtag);
+        responseHeader.set(ProjectController.HIERARCHY_VERSION_HEADER,
+                String.valueOf(this.taskDaoJpa.getTasksHierarchyVersion(projectId)));
 
         return ResponseEntity.ok().headers(responseHeader).body(ProjectItem.addAvatar(tasks, this.userClient));
     }
@@ -172,6 +174,15 @@ public class TaskController {
         return getTasks(projectId, null, null, null, null, null);
     }
 
+    @PatchMapping(TASKS_ORDER_ROUTE)
+    public ResponseEntity<?> updateTasksOrder(@NotNull @PathVariable Long projectId,
+            @Valid @RequestBody UpdateOrderParams updateOrderParams) {
+        String username = MDC.get(UserClient.USER_NAME_KEY);
+        Long version = this.taskDaoJpa.updateUserTasksOrder(projectId, updateOrderParams, username);
+        return ResponseEntity.noContent()
+                .header(ProjectController.HIERARCHY_VERSION_HEADER, String.valueOf(version)).build();
+    }
+
     @PostMapping(COMPLETE_TASK_ROUTE)
     public Task completeTask(@NotNull @PathVariable Long taskId, @RequestBody Optional<String> dateTime) {
         CompletedTask task = completeSingleTask(taskId, dateTime.orElse(null));
@@ -338,7 +349,7 @@ public class TaskController {
             return getTasks(projectId, null, null, null, null, null);
         }
 
-        this.taskRepository.deleteInBatch(taskList);
+        this.taskDaoJpa.deleteInBatch(taskList);
 
         List<String> deleteESDocumentIds = ESUtil.getProjectItemSearchIndexIds(tasks, ContentType.TASK);
         this.notificationService.deleteESDocument(new RemoveElasticsearchDocumentEvent(deleteESDocumentIds));
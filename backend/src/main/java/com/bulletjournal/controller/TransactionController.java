@@ -9,6 +9,7 @@ import com.bulletjournal.controller.utils.ZonedDateTimeHelper;
 import com.bulletjournal.es.ESUtil;
 import com.bulletjournal.exceptions.BadRequestException;
 import com.bulletjournal.ledger.FrequencyType;
+import com.bulletjournal.ledger.LedgerColumns;
 import com.bulletjournal.ledger.LedgerSummary;
 import com.bulletjournal.ledger.LedgerSummaryCalculator;
 import com.bulletjournal.ledger.LedgerSummaryType;
@@ -95,7 +96,8 @@ public class TransactionController {
                                              @RequestParam(required = false) String endDate,
                                              @RequestParam(required = false) String payer,
                                              @RequestParam(required = false) List<Long> labelsToKeep,
-                                             @RequestParam(required = false) List<Long> labelsToRemove) {
+                                             @RequestParam(required = false) List<Long> labelsToRemove,
+                                             @RequestParam(required = false) Boolean summaryOnly) {
 
         Pair<ZonedDateTime, ZonedDateTime> startEndTime = getStartEndTime(frequencyType, timezone, startDate,
                 endDate);
@@ -107,43 +109,41 @@ public class TransactionController {
         }
 
         String username = MDC.get(UserClient.USER_NAME_KEY);
-        List<Transaction> transactions = ProjectItem.addAvatar(
-                this.transactionDaoJpa.getTransactions(projectId, startTime, endTime, username),
-                this.userClient);
+        HttpHeaders responseHeader = new HttpHeaders();
+        if (Boolean.TRUE.equals(summaryOnly)) {
+            LedgerColumns columns = this.transactionDaoJpa.getLedgerSummaryColumns(projectId, startTime, endTime,
+                    username, labelsToKeep, labelsToRemove, ledgerSummaryType, frequencyType);
+            final LedgerSummary ledgerSummary = this.ledgerSummaryCalculator.getLedgerSummary(ledgerSummaryType,
+                    startTime, endTime, columns, frequencyType);
+            responseHeader.setETag(getSummaryEtag(ledgerSummary));
+            return ResponseEntity.ok().headers(responseHeader).body(ledgerSummary);
+        }
 
-        transactions = transactions.stream().filter(
-                t -> includeProjectItem(labelsToKeep, labelsToRemove, t)).collect(Collectors.toList());
+        LedgerColumns columns = this.transactionDaoJpa.getLedgerColumns(projectId, startTime, endTime, username,
+                labelsToKeep, labelsToRemove);
+        List<Transaction> transactions = ProjectItem.addAvatar(columns.toPresentationModels(), this.userClient);
 
         String transactionsEtag = EtagGenerator.generateEtag(EtagGenerator.HashAlgorithm.MD5,
                 EtagGenerator.HashType.TO_HASHCODE, transactions);
-
-        HttpHeaders responseHeader = new HttpHeaders();
         responseHeader.setETag(transactionsEtag);
 
         final LedgerSummary ledgerSummary = this.ledgerSummaryCalculator.getLedgerSummary(ledgerSummaryType,
-                startTime, endTime, transactions, frequencyType);
+                startTime, endTime, columns, frequencyType);
+        ledgerSummary.setTransactions(transactions);
 
         return ResponseEntity.ok().headers(responseHeader).body(ledgerSummary);
     }
 
-    private boolean includeProjectItem(
-            List<Long> labelsToKeep, List<Long> labelsToRemove, Transaction transaction) {
-        List<Long> labels = transaction.getLabels().stream().map(l -> l.getId()).collect(Collectors.toList());
-        final List<Long> keep = labelsToKeep == null ? Collections.emptyList() : labelsToKeep;
-        final List<Long> remove = labelsToRemove == null ? Collections.emptyList() : labelsToRemove;
-        if (labels.stream().anyMatch(l -> remove.contains(l))) {
-            return false;
-        }
-
-        if (keep.isEmpty()) {
-            return true;
-        }
-
-        // labelsToKeep.length > 0
-        if (!labels.stream().anyMatch(l -> keep.contains(l))) {
-            return false;
+    private static String getSummaryEtag(LedgerSummary ledgerSummary) {
+        List<Object> summaries = new ArrayList<>(ledgerSummary.getTransactionsSummaries());
+        if (ledgerSummary.getCurrencySummaries() != null) {
+            for (LedgerSummary currencySummary : ledgerSummary.getCurrencySummaries()) {
+                summaries.add(String.valueOf(currencySummary.getCurrency()));
+                summaries.addAll(currencySummary.getTransactionsSummaries());
+            }
         }
-        return true;
+        return EtagGenerator.generateEtag(EtagGenerator.HashAlgorithm.MD5,
+                EtagGenerator.HashType.TO_HASHCODE, summaries);
     }
 
     private ResponseEntity<List<Transaction>> getTransactionsByPayer(Long projectId, String payer,
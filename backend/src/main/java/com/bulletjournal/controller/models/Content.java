@@ -2,7 +2,6 @@ package com.bulletjournal.controller.models;
 
 import com.bulletjournal.clients.UserClient;
 import com.bulletjournal.controller.utils.EtagGenerator;
-import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,7 +12,6 @@ import java.util.List;
 
 public class Content {
     private static final Logger LOGGER = LoggerFactory.getLogger(Content.class);
-    private static final Gson GSON = new Gson();
 
     @NotNull
     private Long id;
@@ -42,7 +40,7 @@ public class Content {
     public Content(@NotNull Long id, @NotNull User owner,
                    @NotBlank String text, String baseText,
                    @NotNull Long createdAt, @NotNull Long updatedAt,
-                   String revisions) {
+                   List<Revision> revisions) {
         this.id = id;
         this.owner = owner;
         this.text = text;
@@ -52,14 +50,7 @@ public class Content {
         this.baseText = baseText;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
-        try {
-            this.revisions = GSON.fromJson(revisions, Revision[].class);
-        } catch (Exception ex) {
-            LOGGER.error("Fail to deserialize json: " + revisions, ex);
-        }
-        if (this.revisions == null) {
-            this.revisions = new Revision[0];
-        }
+        this.revisions = revisions == null ? new Revision[0] : revisions.toArray(new Revision[0]);
         deleteRevisionDiff();
     }
 
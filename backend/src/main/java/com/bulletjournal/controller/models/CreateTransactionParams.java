@@ -21,6 +21,9 @@ public class CreateTransactionParams {
     @NotNull
     private Double amount;
 
+    @Size(min = 3, max = 3)
+    private String currency; // ISO 4217 code
+
     private String date; // "yyyy-MM-dd"
 
     private String time; // "hh:mm"
@@ -77,6 +80,14 @@ public class CreateTransactionParams {
         this.amount = amount;
     }
 
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
     public String getDate() {
         return date;
     }
@@ -0,0 +1,12 @@
+package com.bulletjournal.controller.models;
+
+public enum LabelMatch {
+    // items having any of the labels
+    ANY,
+    // items having all of the labels
+    ALL;
+
+    public String getOperator() {
+        return this == ALL ? "@>" : "&&";
+    }
+}
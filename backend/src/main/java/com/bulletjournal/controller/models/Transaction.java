@@ -26,6 +26,8 @@ public class Transaction extends ProjectItem {
     @NotNull
     private Double amount;
 
+    private String currency;
+
     private String date;
 
     @NotNull
@@ -51,6 +53,7 @@ public class Transaction extends ProjectItem {
                        @NotNull Project project,
                        @NotNull User payer,
                        @NotNull Double amount,
+                       String currency,
                        String date,
                        String time,
                        @NotNull String timezone,
@@ -64,6 +67,7 @@ public class Transaction extends ProjectItem {
         super(id, name, owner, project, labels, location);
         this.payer = payer;
         this.amount = amount;
+        this.currency = currency;
         this.date = date;
         this.time = time;
         this.timezone = timezone;
@@ -96,6 +100,14 @@ public class Transaction extends ProjectItem {
         this.amount = amount;
     }
 
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
     public String getDate() {
         return date;
     }
@@ -233,6 +245,7 @@ public class Transaction extends ProjectItem {
         Transaction that = (Transaction) o;
         return Objects.equals(getPayer(), that.getPayer()) &&
                 Objects.equals(getAmount(), that.getAmount()) &&
+                Objects.equals(getCurrency(), that.getCurrency()) &&
                 Objects.equals(getDate(), that.getDate()) &&
                 Objects.equals(getTransactionType(), that.getTransactionType()) &&
                 Objects.equals(getTime(), that.getTime()) &&
@@ -244,7 +257,7 @@ public class Transaction extends ProjectItem {
     @Override
     public int hashCode() {
         return Objects.hash(super.hashCode(), getPayer(),
-                getAmount(), getDate(), getTransactionType(),
+                getAmount(), getCurrency(), getDate(), getTransactionType(),
                 getTime(), getTimezone(), getColor());
     }
 
@@ -0,0 +1,84 @@
+package com.bulletjournal.controller.models;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class UpdateOrderParams {
+
+    public enum Action {
+        // place the item under parent at position, inserting it when not in the hierarchy yet
+        MOVE,
+        // take the item out of the hierarchy, its sub items take its place
+        REMOVE
+    }
+
+    @NotNull
+    private Long id;
+
+    // null for top level
+    private Long parentId;
+
+    // index among the parent's sub items, null to append
+    @Min(0)
+    private Integer position;
+
+    private Action action = Action.MOVE;
+
+    // hierarchy version the edit is based on, null to apply to the latest one
+    private Long version;
+
+    public UpdateOrderParams() {
+    }
+
+    public UpdateOrderParams(@NotNull Long id, Long parentId, @Min(0) Integer position, Action action, Long version) {
+        this.id = id;
+        this.parentId = parentId;
+        this.position = position;
+        this.action = action;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public Integer getPosition() {
+        return position;
+    }
+
+    public void setPosition(Integer position) {
+        this.position = position;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public boolean hasVersion() {
+        return version != null;
+    }
+}
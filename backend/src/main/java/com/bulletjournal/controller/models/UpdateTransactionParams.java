@@ -2,6 +2,7 @@ package com.bulletjournal.controller.models;
 
 import org.apache.commons.lang3.StringUtils;
 
+import javax.validation.constraints.Pattern;
 import java.util.List;
 
 public class UpdateTransactionParams {
@@ -12,6 +13,10 @@ public class UpdateTransactionParams {
 
     private Double amount;
 
+    // ISO 4217 code, an empty code resets the transaction to the owner's default currency
+    @Pattern(regexp = "(.{3})?")
+    private String currency;
+
     private String date;
 
     private String time;
@@ -73,6 +78,18 @@ public class UpdateTransactionParams {
         this.amount = amount;
     }
 
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public boolean hasCurrency() {
+        return this.currency != null;
+    }
+
     public String getTime() {
         return time;
     }
@@ -4,50 +4,61 @@ import com.bulletjournal.controller.models.ProjectItems;
 import com.bulletjournal.repository.models.AuditModel;
 import com.bulletjournal.repository.models.Note;
 import com.bulletjournal.repository.models.Task;
+import com.bulletjournal.repository.models.TaskOccurrence;
 import com.bulletjournal.repository.models.Transaction;
+import com.bulletjournal.repository.models.TransactionOccurrence;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.lang.Nullable;
 
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class ProjectItemsGrouper {
 
-    public static final Comparator<Transaction> TRANSACTION_COMPARATOR = (t1, t2) -> {
-        if (!t1.hasDate() && !t2.hasDate()) {
-            return Long.compare(t1.getId(), t2.getId());
-        }
-        if (!t1.hasDate()) {
-            return 1;
-        }
-        if (!t2.hasDate()) {
-            return -1;
-        }
+    public static final Comparator<Transaction> TRANSACTION_COMPARATOR = endTimeComparator(
+            Transaction::getDate, Transaction::getTime, Transaction::getTimezone, Transaction::getId);
+    public static final Comparator<Task> TASK_COMPARATOR = endTimeComparator(
+            Task::getDueDate, Task::getDueTime, Task::getTimezone, Task::getId);
+    public static final Comparator<com.bulletjournal.controller.models.Task> TASK_MODEL_COMPARATOR =
+            endTimeComparator(com.bulletjournal.controller.models.Task::getDueDate,
+                    com.bulletjournal.controller.models.Task::getDueTime,
+                    com.bulletjournal.controller.models.Task::getTimezone,
+                    com.bulletjournal.controller.models.Task::getId);
+    public static final Comparator<com.bulletjournal.controller.models.Transaction> TRANSACTION_MODEL_COMPARATOR =
+            endTimeComparator(com.bulletjournal.controller.models.Transaction::getDate,
+                    com.bulletjournal.controller.models.Transaction::getTime,
+                    com.bulletjournal.controller.models.Transaction::getTimezone,
+                    com.bulletjournal.controller.models.Transaction::getId);
+    public static final Comparator<Note> NOTE_COMPARATOR = Comparator.comparing(AuditModel::getUpdatedAt);
 
-        // Sort transaction by date time
-        ZonedDateTime z1 = ZonedDateTimeHelper.getEndTime(t1.getDate(), t1.getTime(), t1.getTimezone());
-        ZonedDateTime z2 = ZonedDateTimeHelper.getEndTime(t2.getDate(), t2.getTime(), t2.getTimezone());
-        return z1.compareTo(z2);
-    };
-    public static final Comparator<Task> TASK_COMPARATOR = (t1, t2) -> {
-        if (!t1.hasDueDate() && !t2.hasDueDate()) {
-            return Long.compare(t1.getId(), t2.getId());
-        }
-        if (!t1.hasDueDate()) {
-            return 1;
-        }
-        if (!t2.hasDueDate()) {
-            return -1;
-        }
+    /*
+     * Sort items by end time, items without date last in id order
+     */
+    private static <T> Comparator<T> endTimeComparator(Function<T, String> date, Function<T, String> time,
+                                                       Function<T, String> timezone, Function<T, Long> id) {
+        return (t1, t2) -> {
+            boolean noDate1 = StringUtils.isBlank(date.apply(t1));
+            boolean noDate2 = StringUtils.isBlank(date.apply(t2));
+            if (noDate1 && noDate2) {
+                return Long.compare(id.apply(t1), id.apply(t2));
+            }
+            if (noDate1) {
+                return 1;
+            }
+            if (noDate2) {
+                return -1;
+            }
 
-        // Sort task by due time
-        ZonedDateTime z1 = ZonedDateTimeHelper.getEndTime(t1.getDueDate(), t1.getDueTime(), t1.getTimezone());
-        ZonedDateTime z2 = ZonedDateTimeHelper.getEndTime(t2.getDueDate(), t2.getDueTime(), t2.getTimezone());
-        return z1.compareTo(z2);
-    };
-    public static final Comparator<Note> NOTE_COMPARATOR = Comparator.comparing(AuditModel::getUpdatedAt);
+            ZonedDateTime z1 = ZonedDateTimeHelper.getEndTime(date.apply(t1), time.apply(t1), timezone.apply(t1));
+            ZonedDateTime z2 = ZonedDateTimeHelper.getEndTime(date.apply(t2), time.apply(t2), timezone.apply(t2));
+            return z1.compareTo(z2);
+        };
+    }
 
     /*
      * Convert list of transactions to a <ZonedDateTime, Transaction List> Map
@@ -102,6 +113,45 @@ public class ProjectItemsGrouper {
         return map;
     }
 
+    /*
+     * Convert list of task occurrences to a <ZonedDateTime, TaskOccurrence List> Map
+     *
+     * @occurrences Map<ZonedDateTime, List<TaskOccurrence>> - List of TaskOccurrences
+     */
+    public static Map<ZonedDateTime, List<TaskOccurrence>> groupTaskOccurrencesByDate(
+            List<TaskOccurrence> occurrences, String timezone) {
+        Map<ZonedDateTime, List<TaskOccurrence>> map = new HashMap<>();
+        for (TaskOccurrence occurrence : occurrences) {
+            map.computeIfAbsent(getDateInZone(occurrence.getStartTime(), timezone), x -> new ArrayList<>())
+                    .add(occurrence);
+        }
+        return map;
+    }
+
+    /*
+     * Convert list of transaction occurrences to a <ZonedDateTime, TransactionOccurrence List> Map
+     *
+     * @occurrences Map<ZonedDateTime, List<TransactionOccurrence>> - List of TransactionOccurrences
+     */
+    public static Map<ZonedDateTime, List<TransactionOccurrence>> groupTransactionOccurrencesByDate(
+            List<TransactionOccurrence> occurrences, String timezone) {
+        Map<ZonedDateTime, List<TransactionOccurrence>> map = new HashMap<>();
+        for (TransactionOccurrence occurrence : occurrences) {
+            map.computeIfAbsent(getDateInZone(occurrence.getStartTime(), timezone), x -> new ArrayList<>())
+                    .add(occurrence);
+        }
+        return map;
+    }
+
+    /*
+     * Start of the day in target timezone, same as ZonedDateTimeHelper.getDateInDifferentZone
+     */
+    private static ZonedDateTime getDateInZone(long epochMillis, String timezone) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.of(timezone))
+                .withHour(0)
+                .withMinute(0);
+    }
+
     /*
      * Convert list of notes to a <ZonedDateTime, Note List> Map
      *
@@ -169,6 +219,57 @@ public class ProjectItemsGrouper {
         return mergedMap;
     }
 
+    /*
+     * Merge task occurrences map to target projectItems map
+     *
+     * @projectItems Map<ZonedDateTime, List<ProjectItems>> - List of ProjectItems
+     */
+    public static Map<ZonedDateTime, ProjectItems> mergeTaskOccurrencesMap(
+            Map<ZonedDateTime, ProjectItems> mergedMap,
+            @Nullable Map<ZonedDateTime, List<TaskOccurrence>> occurrencesMap) {
+        if (occurrencesMap == null) {
+            return mergedMap;
+        }
+
+        occurrencesMap.forEach((zonedDateTime, occurrences) -> {
+            ProjectItems projectItem = mergedMap.getOrDefault(zonedDateTime, new ProjectItems());
+            projectItem.setDate(ZonedDateTimeHelper.getDate(zonedDateTime));
+            projectItem.setDayOfWeek(zonedDateTime.getDayOfWeek());
+            List<com.bulletjournal.controller.models.Task> tasks = new ArrayList<>(projectItem.getTasks());
+            occurrences.forEach(o -> tasks.add(o.toPresentationModel()));
+            tasks.sort(TASK_MODEL_COMPARATOR);
+            projectItem.setTasks(tasks);
+            mergedMap.put(zonedDateTime, projectItem);
+        });
+        return mergedMap;
+    }
+
+    /*
+     * Merge transaction occurrences map to target projectItems map
+     *
+     * @projectItems Map<ZonedDateTime, List<ProjectItems>> - List of ProjectItems
+     */
+    public static Map<ZonedDateTime, ProjectItems> mergeTransactionOccurrencesMap(
+            Map<ZonedDateTime, ProjectItems> mergedMap,
+            @Nullable Map<ZonedDateTime, List<TransactionOccurrence>> occurrencesMap) {
+        if (occurrencesMap == null) {
+            return mergedMap;
+        }
+
+        occurrencesMap.forEach((zonedDateTime, occurrences) -> {
+            ProjectItems projectItem = mergedMap.getOrDefault(zonedDateTime, new ProjectItems());
+            projectItem.setDate(ZonedDateTimeHelper.getDate(zonedDateTime));
+            projectItem.setDayOfWeek(zonedDateTime.getDayOfWeek());
+            List<com.bulletjournal.controller.models.Transaction> transactions =
+                    new ArrayList<>(projectItem.getTransactions());
+            occurrences.forEach(o -> transactions.add(o.toPresentationModel()));
+            transactions.sort(TRANSACTION_MODEL_COMPARATOR);
+            projectItem.setTransactions(transactions);
+            mergedMap.put(zonedDateTime, projectItem);
+        });
+        return mergedMap;
+    }
+
     /*
      * Merge notes map to target projectItems map
      *
@@ -0,0 +1,56 @@
+package com.bulletjournal.daemon;
+
+import com.bulletjournal.daemon.models.ReminderRecord;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary index of pending reminder records keyed by task assignee and ordered by reminder time,
+ * so a user's reminders in a time range are found without scanning all pending records.
+ */
+public class AssigneeReminderIndex {
+
+    private static final Comparator<ReminderRecord> RECORD_COMPARATOR =
+            Comparator.comparingLong(ReminderRecord::getTimestamp).thenComparingLong(ReminderRecord::getId);
+
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<ReminderRecord>> index = new ConcurrentHashMap<>();
+
+    public void add(ReminderRecord record, Collection<String> assignees) {
+        for (String assignee : assignees) {
+            this.index.computeIfAbsent(assignee, k -> new ConcurrentSkipListSet<>(RECORD_COMPARATOR)).add(record);
+        }
+    }
+
+    public void remove(ReminderRecord record, Collection<String> assignees) {
+        for (String assignee : assignees) {
+            this.index.computeIfPresent(assignee, (k, records) -> {
+                records.remove(record);
+                return records.isEmpty() ? null : records;
+            });
+        }
+    }
+
+    /**
+     * Get assignee's reminder records whose timestamp second is in [startSecond, endSecond]
+     *
+     * @param assignee    the task assignee
+     * @param startSecond the range start in epoch seconds
+     * @param endSecond   the range end in epoch seconds
+     * @return List<ReminderRecord> - reminder records ordered by reminder time
+     */
+    public List<ReminderRecord> getRecords(String assignee, long startSecond, long endSecond) {
+        ConcurrentSkipListSet<ReminderRecord> records = this.index.get(assignee);
+        if (records == null || startSecond > endSecond) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(records.subSet(
+                new ReminderRecord(Long.MIN_VALUE, startSecond * 1000), true,
+                new ReminderRecord(Long.MAX_VALUE, endSecond * 1000 + 999), true));
+    }
+
+    public int size() {
+        return this.index.size();
+    }
+}
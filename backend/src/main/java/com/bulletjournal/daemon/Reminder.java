@@ -9,7 +9,12 @@ import com.bulletjournal.repository.TaskRepository;
 import com.bulletjournal.repository.models.Task;
 import com.bulletjournal.repository.utils.DaoHelper;
 import com.bulletjournal.util.CustomThreadFactory;
+import com.bulletjournal.util.HashedTimingWheel;
 import com.bulletjournal.util.MathUtil;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,10 +29,7 @@ import java.sql.Timestamp;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,8 +42,18 @@ public class Reminder {
 
     private final ScheduledExecutorService executorService;
     private final ConcurrentHashMap<ReminderRecord, Task> concurrentHashMap;
+    private final AssigneeReminderIndex assigneeReminderIndex;
     private final TaskDaoJpa taskDaoJpa;
     private final MessagingService messagingService;
+    private final MeterRegistry meterRegistry;
+    // initLoad and cronJob run on different scheduler threads and must not load into the wheel at once
+    private final Object loadLock = new Object();
+
+    private HashedTimingWheel<ReminderRecord> timingWheel;
+    private ExecutorService dispatchService;
+    private Timer schedulingLag;
+    private Timer verifyLatency;
+    private Counter dispatched;
 
     @Autowired
     private ReminderConfig reminderConfig;
@@ -50,17 +62,35 @@ public class Reminder {
     private TaskRepository taskRepository;
 
     @Autowired
-    Reminder(TaskDaoJpa taskDaoJpa, MessagingService messagingService) {
+    Reminder(TaskDaoJpa taskDaoJpa, MessagingService messagingService, MeterRegistry meterRegistry) {
         this.taskDaoJpa = taskDaoJpa;
         this.messagingService = messagingService;
+        this.meterRegistry = meterRegistry;
         this.concurrentHashMap = new ConcurrentHashMap();
-        this.executorService = Executors.newSingleThreadScheduledExecutor(new CustomThreadFactory("Reminder"));
+        this.assigneeReminderIndex = new AssigneeReminderIndex();
+        this.executorService = Executors.newScheduledThreadPool(2, new CustomThreadFactory("Reminder"));
     }
 
     @PostConstruct
     public void postConstruct() {
         LOGGER.info(reminderConfig.toString());
 
+        this.timingWheel = new HashedTimingWheel<>(
+                reminderConfig.getTickMillis(), reminderConfig.getWheelSize(), System.currentTimeMillis());
+        this.dispatchService = Executors.newFixedThreadPool(
+                reminderConfig.getDispatchThreads(), new CustomThreadFactory("ReminderDispatch"));
+        this.schedulingLag = Timer.builder("reminder.scheduling.lag")
+                .description("Delay between a reminder's scheduled time and its dispatch")
+                .register(this.meterRegistry);
+        this.verifyLatency = Timer.builder("reminder.verify.latency")
+                .description("Time to batch verify due reminders against tasks table")
+                .register(this.meterRegistry);
+        this.dispatched = Counter.builder("reminder.dispatched").register(this.meterRegistry);
+        this.meterRegistry.gauge("reminder.pending", this.timingWheel, HashedTimingWheel::size);
+        this.meterRegistry.gauge("reminder.cached", this.concurrentHashMap, Map::size);
+
+        executorService.scheduleAtFixedRate(this::tick,
+                reminderConfig.getTickMillis(), reminderConfig.getTickMillis(), TimeUnit.MILLISECONDS);
         executorService.schedule(() -> this.initLoad(), 1, TimeUnit.MILLISECONDS);
         executorService.scheduleWithFixedDelay(this::cronJob,
                 SECONDS_OF_DAY - ZonedDateTimeHelper.getPassedSecondsOfDay(reminderConfig.getTimeZone()),
@@ -71,27 +101,41 @@ public class Reminder {
     public List<ReminderRecord> getTasksAssignedThatNeedsWebPopupReminder(
             String requester, ZonedDateTime startTime, ZonedDateTime endTime) {
         // task assignees match requester
-        List<ReminderRecord> res = concurrentHashMap.entrySet().stream()
-                .filter(e -> e.getValue().getAssignees().contains(requester)
-                        && e.getKey().getTimestampSecond() <= endTime.toEpochSecond() &&
-                        startTime.toEpochSecond() <= e.getKey().getTimestampSecond())
-                .map(e -> e.getKey()).distinct().collect(Collectors.toList());
-        return res;
+        return this.assigneeReminderIndex.getRecords(requester, startTime.toEpochSecond(), endTime.toEpochSecond());
+    }
+
+    private void putRecord(ReminderRecord record, Task task) {
+        Task previous = concurrentHashMap.put(record, task);
+        if (previous != null) {
+            this.assigneeReminderIndex.remove(record, previous.getAssignees());
+        }
+        this.assigneeReminderIndex.add(record, task.getAssignees());
+    }
+
+    private void removeRecord(ReminderRecord record) {
+        Task previous = concurrentHashMap.remove(record);
+        if (previous != null) {
+            this.assigneeReminderIndex.remove(record, previous.getAssignees());
+        }
     }
 
     private void initLoad() {
-        LOGGER.info("initLoad");
-        ZonedDateTime start = ZonedDateTime.now().minus(reminderConfig.getLoadPrevSeconds(), ChronoUnit.SECONDS);
-        ZonedDateTime end = ZonedDateTime.now().plus(reminderConfig.getLoadNextSeconds(), ChronoUnit.SECONDS);
-        this.scheduleReminderRecords(Pair.of(start, end));
-        LOGGER.info("initLoad completed");
+        synchronized (this.loadLock) {
+            LOGGER.info("initLoad");
+            ZonedDateTime start = ZonedDateTime.now().minus(reminderConfig.getLoadPrevSeconds(), ChronoUnit.SECONDS);
+            ZonedDateTime end = ZonedDateTime.now().plus(reminderConfig.getLoadNextSeconds(), ChronoUnit.SECONDS);
+            this.scheduleReminderRecords(Pair.of(start, end));
+            LOGGER.info("initLoad completed");
+        }
     }
 
     private void cronJob() {
-        LOGGER.info("This is Reminder daily cronJob");
-        this.purge(this.reminderConfig.getPurgePrevSeconds());
+        synchronized (this.loadLock) {
+            LOGGER.info("This is Reminder daily cronJob");
+            this.purge(this.reminderConfig.getPurgePrevSeconds());
 
-        this.scheduleReminderRecords(this.reminderConfig.getLoadNextSeconds());
+            this.scheduleReminderRecords(this.reminderConfig.getLoadNextSeconds());
+        }
     }
 
     /***
@@ -110,18 +154,21 @@ public class Reminder {
                             long delay = getJitterDelay(e);
                             if (delay > 0) {
                                 LOGGER.info("Schedule New Job:" + e.toString() + "\t delay=" + delay);
-                                executorService.schedule(() -> this.process(e), delay, TimeUnit.MILLISECONDS);
+                                timingWheel.schedule(e, System.currentTimeMillis() + delay);
                             }
                         }
-                        concurrentHashMap.put(e, clonedTask);
+                        putRecord(e, clonedTask);
                     }
             );
         });
     }
 
     private void purge(long expiredSeconds) {
-        concurrentHashMap.entrySet().removeIf(e ->
-                e.getKey().getTimestampSecond() + expiredSeconds < ZonedDateTime.now().toEpochSecond());
+        long now = ZonedDateTime.now().toEpochSecond();
+        concurrentHashMap.keySet().stream()
+                .filter(record -> record.getTimestampSecond() + expiredSeconds < now)
+                .collect(Collectors.toList())
+                .forEach(this::removeRecord);
     }
 
     private void scheduleReminderRecords(Pair<ZonedDateTime, ZonedDateTime> interval) {
@@ -129,8 +176,8 @@ public class Reminder {
             long delay = getJitterDelay(k);
             if (!concurrentHashMap.containsKey(k) && delay > 0) {
                 LOGGER.info("Schedule New Job:" + k.toString() + "\t delay=" + delay);
-                executorService.schedule(() -> this.process(k), delay, TimeUnit.MILLISECONDS);
-                concurrentHashMap.put(k, v);
+                timingWheel.schedule(k, System.currentTimeMillis() + delay);
+                putRecord(k, v);
             }
         });
     }
@@ -147,29 +194,74 @@ public class Reminder {
         this.scheduleReminderRecords(interval);
     }
 
-    private void process(final ReminderRecord record) {
-        LOGGER.info("process record=" + record.toString());
+    /**
+     * Runs on the ticker thread, hands all reminders due in this tick to dispatch workers as one batch
+     */
+    private void tick() {
+        try {
+            List<HashedTimingWheel.Timeout<ReminderRecord>> due = this.timingWheel.advance(System.currentTimeMillis());
+            if (due.isEmpty()) {
+                return;
+            }
+            for (List<HashedTimingWheel.Timeout<ReminderRecord>> batch :
+                    Lists.partition(due, reminderConfig.getDispatchBatchSize())) {
+                this.dispatchService.execute(() -> this.process(batch));
+            }
+        } catch (Exception ex) {
+            // an exception would cancel the periodic ticker
+            LOGGER.error("Reminder tick failed", ex);
+        }
+    }
+
+    private void process(final List<HashedTimingWheel.Timeout<ReminderRecord>> batch) {
+        long now = System.currentTimeMillis();
+        batch.forEach(t -> this.schedulingLag.record(Math.max(0, now - t.getDeadline()), TimeUnit.MILLISECONDS));
+        List<ReminderRecord> records = batch.stream().map(HashedTimingWheel.Timeout::getItem)
+                .collect(Collectors.toList());
+        LOGGER.info("process records={}", records);
+
         Pair<ZonedDateTime, ZonedDateTime> interval = ZonedDateTimeHelper.getInterval(VERIFY_BUFF_SECONDS, reminderConfig.getTimeZone());
-        taskRepository.findById(record.getId()).ifPresent(task -> {
-            if (filterInvalidTask(record, interval.getFirst(), interval.getSecond(), task)) {
+        List<Task> tasks = this.verifyLatency.record(() -> {
+            Map<Long, Task> taskMap = this.taskRepository.findAllById(
+                    records.stream().map(ReminderRecord::getId).distinct().collect(Collectors.toList()))
+                    .stream().collect(Collectors.toMap(Task::getId, t -> t));
+            List<Task> valid = new ArrayList<>();
+            for (ReminderRecord record : records) {
+                Task task = taskMap.get(record.getId());
+                if (task == null || !filterInvalidTask(record, interval.getFirst(), interval.getSecond(), task)) {
+                    continue;
+                }
                 LOGGER.info("Push notification record {}", record);
-                fillDueDateTimeForRecurringTask(task, record);
-                messagingService.sendTaskDueNotificationAndEmailToUsers(Collections.singletonList(task));
+                valid.add(fillDueDateTimeForRecurringTask(task, record));
             }
+            return valid;
         });
+        if (tasks.isEmpty()) {
+            return;
+        }
+        messagingService.sendTaskDueNotificationAndEmailToUsers(tasks);
+        this.dispatched.increment(tasks.size());
     }
 
-    private void fillDueDateTimeForRecurringTask(Task task, ReminderRecord reminderRecord) {
+    private Task fillDueDateTimeForRecurringTask(Task task, ReminderRecord reminderRecord) {
         if (!task.hasRecurrenceRule()) {
-            return;
+            return task;
         }
         Task cachedTask = concurrentHashMap.get(reminderRecord);
         if (cachedTask == null) {
             LOGGER.error("Cached task id {} doesn't exist in ConcurrentHashMap", task.getId());
-            return;
+            return task;
+        }
+        // the same recurring task may have several records in one batch
+        Task occurrence;
+        try {
+            occurrence = (Task) task.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Clone new Task failed");
         }
-        task.setDueDate(cachedTask.getDueDate());
-        task.setDueTime(cachedTask.getDueTime());
+        occurrence.setDueDate(cachedTask.getDueDate());
+        occurrence.setDueTime(cachedTask.getDueTime());
+        return occurrence;
     }
 
     private boolean filterInvalidTask(ReminderRecord record, ZonedDateTime startTime, ZonedDateTime endTime, Task task) {
@@ -177,7 +269,7 @@ public class Reminder {
         if (map.keySet().contains(record)) {
             return true;
         }
-        concurrentHashMap.remove(record);
+        removeRecord(record);
         return false;
     }
 
@@ -190,6 +282,14 @@ public class Reminder {
                 Thread.currentThread().interrupt();
             }
         }
+        if (dispatchService != null) {
+            dispatchService.shutdown();
+            try {
+                dispatchService.awaitTermination(AWAIT_TERMINATION_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
@@ -0,0 +1,164 @@
+package com.bulletjournal.es;
+
+import com.bulletjournal.config.SearchIndexConfig;
+import com.bulletjournal.es.repository.SearchIndexDaoJpa;
+import com.bulletjournal.es.repository.models.SearchIndex;
+import com.bulletjournal.util.CustomThreadFactory;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.bulletjournal.es.repository.SearchIndexDaoJpa.SEARCH_INDEX_NAME;
+
+/**
+ * Rebuilds the project_items index from Postgres into a fresh index and swaps the project_items alias
+ * over to it.
+ * <p>
+ * Each document type is streamed in id order with keyset pagination, types in parallel. Writes made
+ * while rebuilding go to both the live and the fresh index, so that none is lost by the swap. The backfill
+ * only creates documents and drops those deleted meanwhile, so its older copies never win over live writes.
+ */
+@Component
+public class SearchIndexRebuilder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchIndexRebuilder.class);
+    private static final String MAPPING = "elasticsearch/project_items.json";
+
+    @Autowired
+    private SearchIndexDaoJpa searchIndexDaoJpa;
+
+    @Autowired
+    private SearchIndexConfig searchIndexConfig;
+
+    @Autowired(required = false)
+    private RestHighLevelClient client;
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(
+            new CustomThreadFactory("search-index-rebuild"));
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @PreDestroy
+    public void preDestroy() {
+        this.rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Start rebuilding the index in the background
+     *
+     * @return boolean - false if a rebuild is already running
+     */
+    public boolean rebuild() {
+        if (!this.running.compareAndSet(false, true)) {
+            return false;
+        }
+        this.rebuildExecutor.execute(() -> {
+            try {
+                doRebuild();
+            } catch (Exception ex) {
+                LOGGER.error("Error on rebuilding search index", ex);
+            } finally {
+                this.running.set(false);
+            }
+        });
+        return true;
+    }
+
+    private void doRebuild() throws IOException, InterruptedException {
+        String index = SEARCH_INDEX_NAME + "_" + System.currentTimeMillis();
+        LOGGER.info("Rebuilding search index into {}", index);
+        this.client.indices().create(new CreateIndexRequest(index).source(StreamUtils.copyToString(
+                new ClassPathResource(MAPPING).getInputStream(), StandardCharsets.UTF_8), XContentType.JSON),
+                RequestOptions.DEFAULT);
+        this.searchIndexDaoJpa.setRebuildIndex(index);
+        try {
+            backfill(index);
+            swapAlias(index);
+        } catch (Exception ex) {
+            this.client.indices().delete(new DeleteIndexRequest(index), RequestOptions.DEFAULT);
+            throw ex;
+        } finally {
+            this.searchIndexDaoJpa.setRebuildIndex(null);
+        }
+        LOGGER.info("Search index {} is live", index);
+    }
+
+    private void backfill(String index) throws InterruptedException {
+        ExecutorService backfillExecutor = Executors.newFixedThreadPool(this.searchIndexConfig.getBackfillThreads(),
+                new CustomThreadFactory("search-index-backfill"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (SearchIndexType type : SearchIndexType.values()) {
+                futures.add(backfillExecutor.submit(() -> backfill(index, type)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Failed to backfill search index " + index, ex.getCause());
+        } finally {
+            backfillExecutor.shutdownNow();
+        }
+    }
+
+    private void backfill(String index, SearchIndexType type) {
+        int pageSize = this.searchIndexConfig.getBackfillPageSize();
+        long afterId = 0;
+        long count = 0;
+        List<SearchIndex> page;
+        do {
+            page = this.searchIndexDaoJpa.loadAfter(type, afterId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            this.searchIndexDaoJpa.backfill(index, page);
+            afterId = SearchIndexType.parseId(page.get(page.size() - 1).getId());
+            count += page.size();
+        } while (page.size() == pageSize);
+        LOGGER.info("Backfilled {} {} documents into {}", count, type.getName(), index);
+    }
+
+    /**
+     * Point the alias at the fresh index in one atomic request and drop the indices it pointed at before.
+     * An index created with the alias' name before aliases were used is removed in the same request.
+     */
+    private void swapAlias(String index) throws IOException {
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(SEARCH_INDEX_NAME));
+        Set<String> oldIndices = new HashSet<>();
+        GetAliasesRequest getAliases = new GetAliasesRequest(SEARCH_INDEX_NAME);
+        if (this.client.indices().existsAlias(getAliases, RequestOptions.DEFAULT)) {
+            oldIndices.addAll(this.client.indices().getAlias(getAliases, RequestOptions.DEFAULT)
+                    .getAliases().keySet());
+            oldIndices.forEach(old -> request.addAliasAction(
+                    IndicesAliasesRequest.AliasActions.remove().index(old).alias(SEARCH_INDEX_NAME)));
+        } else if (this.client.indices().exists(new GetIndexRequest(SEARCH_INDEX_NAME), RequestOptions.DEFAULT)) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(SEARCH_INDEX_NAME));
+        }
+        this.client.indices().updateAliases(request, RequestOptions.DEFAULT);
+        for (String old : oldIndices) {
+            this.client.indices().delete(new DeleteIndexRequest(old), RequestOptions.DEFAULT);
+        }
+    }
+}
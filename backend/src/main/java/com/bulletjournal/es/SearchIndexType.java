@@ -0,0 +1,125 @@
+package com.bulletjournal.es;
+
+import com.google.common.base.Preconditions;
+
+import static com.bulletjournal.es.repository.SearchIndexDaoJpa.SEARCH_INDEX_SPLITTER;
+
+/**
+ * Kinds of documents in the project_items index and the query selecting their source rows from Postgres.
+ * <p>
+ * Every query returns id, value, parent_id, project_id and acl columns, content documents take project
+ * and acl of their project item.
+ */
+public enum SearchIndexType {
+    TASK("task", "tasks"),
+    NOTE("note", "notes"),
+    TRANSACTION("transaction", "transactions"),
+    TASK_CONTENT("task_content", "task_contents", TASK, "task_id"),
+    NOTE_CONTENT("note_content", "note_contents", NOTE, "note_id"),
+    TRANSACTION_CONTENT("transaction_content", "transaction_contents", TRANSACTION, "transaction_id");
+
+    private final String name;
+    private final String table;
+    private final SearchIndexType parent;
+    private final String select;
+    private final String key;
+
+    SearchIndexType(String name, String table) {
+        this.name = name;
+        this.table = table;
+        this.parent = null;
+        this.select = "SELECT i.id, i.name AS value, NULL AS parent_id, i.project_id, search_acl('" + name
+                + "', i.id, i.project_id) AS acl FROM " + table + " i";
+        this.key = "i.id";
+    }
+
+    SearchIndexType(String name, String table, SearchIndexType parent, String parentColumn) {
+        this.name = name;
+        this.table = table;
+        this.parent = parent;
+        this.select = "SELECT c.id, c.text AS value, c." + parentColumn + " AS parent_id, i.project_id, search_acl('"
+                + parent.name + "', i.id, i.project_id) AS acl FROM " + table + " c JOIN " + parent.table + " i"
+                + " ON i.id = c." + parentColumn;
+        this.key = "c.id";
+    }
+
+    public static SearchIndexType of(String name) {
+        for (SearchIndexType type : values()) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown search index type " + name);
+    }
+
+    /**
+     * Parse the type of a document from its id
+     *
+     * @param documentId the document id, e.g. task_content@12
+     * @return SearchIndexType - the document's type
+     */
+    public static SearchIndexType ofDocument(String documentId) {
+        return of(documentId.substring(0, documentId.indexOf(SEARCH_INDEX_SPLITTER)));
+    }
+
+    public static Long parseId(String documentId) {
+        return Long.parseLong(documentId.substring(documentId.indexOf(SEARCH_INDEX_SPLITTER) + 1));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SearchIndexType getParent() {
+        return parent;
+    }
+
+    /**
+     * @return SearchIndexType - the type of this project item type's contents
+     */
+    public SearchIndexType getContentType() {
+        for (SearchIndexType type : values()) {
+            if (type.parent == this) {
+                return type;
+            }
+        }
+        throw new IllegalStateException(this + " has no contents");
+    }
+
+    public boolean isContent() {
+        return parent != null;
+    }
+
+    public String documentId(Long id) {
+        return this.name + SEARCH_INDEX_SPLITTER + id;
+    }
+
+    /**
+     * @return String - query of the rows with the given :ids
+     */
+    public String selectByIds() {
+        return this.select + " WHERE " + this.key + " IN (:ids)";
+    }
+
+    /**
+     * @return String - query of the contents of the project items with the given :ids
+     */
+    public String selectByParentIds() {
+        return this.select + " WHERE i.id IN (:ids)";
+    }
+
+    /**
+     * @return String - query of the ids of the project items in the project with the given :projectId
+     */
+    public String selectIdsByProjectId() {
+        Preconditions.checkState(!isContent(), "%s is not a project item type", this);
+        return "SELECT i.id FROM " + this.table + " i WHERE i.project_id = :projectId";
+    }
+
+    /**
+     * @return String - query of the next :limit rows with ids greater than :afterId
+     */
+    public String selectAfter() {
+        return this.select + " WHERE " + this.key + " > :afterId ORDER BY " + this.key + " LIMIT :limit";
+    }
+}
@@ -1,14 +1,33 @@
 package com.bulletjournal.es.repository;
 
+import com.bulletjournal.authz.AuthorizationService;
+import com.bulletjournal.config.SearchIndexConfig;
 import com.bulletjournal.config.SpringESConfig;
+import com.bulletjournal.es.SearchIndexType;
 import com.bulletjournal.es.repository.models.SearchIndex;
 import com.bulletjournal.notifications.RemoveElasticsearchDocumentEvent;
-import com.bulletjournal.repository.UserDaoJpa;
-import com.bulletjournal.repository.models.*;
+import com.bulletjournal.repository.models.ContentModel;
+import com.google.common.collect.Lists;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.common.unit.Fuzziness;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,12 +38,15 @@ import org.springframework.data.elasticsearch.core.SearchScrollHits;
 import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Repository
@@ -37,17 +59,21 @@ public class SearchIndexDaoJpa {
     private static final String HIGHLIGHTER_TYPE = "plain";
     private static final String SEARCH_FIELD = "value";
     private static final String FRAGMENTER = "span";
-    private static final String SEARCH_INDEX_NAME = "project_items";
+    public static final String SEARCH_INDEX_NAME = "project_items";
     private static final String CONTENT_TYPE_SUFFIX = "_content";
     private static final String PROJECT_ID = "projectId";
+    private static final String ACL = "acl";
 
 
     private static final Integer FRAGMENT_SIZE = 300;
     private static final Integer NUM_OF_FRAGMENTS = 1;
     private static final long SCROLL_TIME_IN_MILLIS = 3600000;
+    private static final String HTML = "###html###";
+    private static final Set<RestStatus> RETRYABLE_STATUSES = EnumSet.of(
+            RestStatus.TOO_MANY_REQUESTS, RestStatus.SERVICE_UNAVAILABLE, RestStatus.GATEWAY_TIMEOUT);
 
     @Autowired
-    private UserDaoJpa userDaoJpa;
+    private AuthorizationService authorizationService;
 
     @Autowired
     private ElasticsearchRestTemplate elasticsearchRestTemplate;
@@ -55,10 +81,42 @@ public class SearchIndexDaoJpa {
     @Autowired
     private SpringESConfig springESConfig;
 
+    @Autowired(required = false)
+    private RestHighLevelClient client;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SearchIndexConfig searchIndexConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer bulkLatency;
+    private Counter bulkFailed;
+
+    // index being rebuilt, which receives every write besides the live index until it replaces it
+    private volatile String rebuildIndex;
+
+    // documents deleted while rebuilding, which the backfill must not bring back
+    private final Set<String> rebuildTombstones = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void postConstruct() {
+        this.bulkLatency = Timer.builder("search.index.bulk.latency")
+                .description("Time spent on one _bulk request")
+                .register(this.meterRegistry);
+        this.bulkFailed = Counter.builder("search.index.bulk.failed").register(this.meterRegistry);
+    }
+
     /**
      * Search term in ElasticSearch Database. Initialize search pagination with requested page number
      * and page size.
      * <p>
+     * Hits are filtered by their acl. Documents indexed before the acl existed have none and are kept,
+     * leaving them to the authorization of each hit, until the index is rebuilt from Postgres.
+     * <p>
      * Return the search results appeared first page, scrollId and total hits.
      *
      * @param username requested username
@@ -67,19 +125,11 @@ public class SearchIndexDaoJpa {
      * @param pageSize the record count in one page
      * @return SearchScrollHits contains the search results
      */
-    public SearchScrollHits<SearchIndex> search(String username, String term, List<String> sharedItemIds,
-                                                int pageNo, int pageSize) {
-        List<Long> projectIdList = getUserProjects(username);
-
-        BoolQueryBuilder queryBuilder = new BoolQueryBuilder();
-        for (long pid : projectIdList) {
-            queryBuilder.should(QueryBuilders.termQuery(PROJECT_ID, pid));
-        }
-
-        for (String shareItemId : sharedItemIds) {
-            queryBuilder.should(QueryBuilders.termQuery("id", shareItemId));
-        }
-        queryBuilder.minimumShouldMatch(1)
+    public SearchScrollHits<SearchIndex> search(String username, String term, int pageNo, int pageSize) {
+        BoolQueryBuilder queryBuilder = new BoolQueryBuilder()
+                .filter(QueryBuilders.boolQuery()
+                        .should(QueryBuilders.termsQuery(ACL, getAcl(username)))
+                        .should(QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(ACL))))
                 .must(QueryBuilders.matchQuery(SEARCH_FIELD, term)
                         .fuzziness(Fuzziness.AUTO)
                         .prefixLength(3)
@@ -119,19 +169,17 @@ public class SearchIndexDaoJpa {
     }
 
     /**
-     * Get request user's projects
+     * Get acl entries granting the user access: the user's accepted groups and the user itself for items
+     * shared with the user. Accepted groups come from the user's cached authorization context.
      *
      * @param username the requested user's username
-     * @return a list of project Id
+     * @return a list of acl entries
      */
-    private List<Long> getUserProjects(String username) {
-        final Set<Long> set = new HashSet<>();
-        User user = this.userDaoJpa.getByName(username);
-        user.getGroups().stream().filter(UserGroup::isAccepted).forEach((u) -> set.addAll(
-                u.getGroup().getProjects().stream()
-                        .filter(p -> !p.isShared())
-                        .map(Project::getId).collect(Collectors.toList())));
-        return new ArrayList<>(set);
+    private List<String> getAcl(String username) {
+        List<String> acl = this.authorizationService.getContext(username).getAcceptedGroupIds().stream()
+                .map(SearchIndex::groupAcl).collect(Collectors.toList());
+        acl.add(SearchIndex.userAcl(username));
+        return acl;
     }
 
     /**
@@ -193,7 +241,218 @@ public class SearchIndexDaoJpa {
                 CONTENT_TYPE_SUFFIX + SEARCH_INDEX_SPLITTER + content.getId();
     }
 
+    /**
+     * Delete documents of the events in bulk
+     *
+     * @param events the removal events
+     */
     public void delete(List<RemoveElasticsearchDocumentEvent> events) {
-        events.forEach(event -> this.deleteSearchIndexDocuments(event.getDocumentIds()));
+        Set<String> documentIds = events.stream().flatMap(e -> e.getDocumentIds().stream())
+                .collect(Collectors.toSet());
+        addRebuildTombstones(documentIds);
+        for (String index : getWriteIndices()) {
+            bulk(documentIds.stream().map(id -> new DeleteRequest(index, id)).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Refresh documents in bulk from the current rows of their sources: a document is indexed if its row
+     * exists and deleted otherwise. Project items also refresh all their contents, which share their acl.
+     *
+     * @param documentIds ids of the documents to refresh
+     */
+    public void index(Collection<String> documentIds) {
+        Map<SearchIndexType, Set<Long>> ids = new EnumMap<>(SearchIndexType.class);
+        documentIds.forEach(id -> ids.computeIfAbsent(SearchIndexType.ofDocument(id), k -> new HashSet<>())
+                .add(SearchIndexType.parseId(id)));
+        List<SearchIndex> documents = new ArrayList<>();
+        ids.forEach((type, typeIds) -> {
+            documents.addAll(load(type, type.selectByIds(), new MapSqlParameterSource("ids", typeIds)));
+            if (!type.isContent()) {
+                SearchIndexType contentType = type.getContentType();
+                documents.addAll(load(contentType, contentType.selectByParentIds(),
+                        new MapSqlParameterSource("ids", typeIds)));
+            }
+        });
+        Set<String> deleted = new HashSet<>(documentIds);
+        documents.forEach(d -> deleted.remove(d.getId()));
+        addRebuildTombstones(deleted);
+        for (String index : getWriteIndices()) {
+            List<DocWriteRequest<?>> requests = new ArrayList<>();
+            documents.forEach(d -> requests.add(toIndexRequest(index, d)));
+            deleted.forEach(id -> requests.add(new DeleteRequest(index, id)));
+            bulk(requests);
+        }
+    }
+
+    /**
+     * Get ids of the documents of all project items in a project, whose acl includes the project's group
+     *
+     * @param projectId the project id
+     * @return List<String> - the document ids
+     */
+    public List<String> getProjectItemDocumentIds(Long projectId) {
+        List<String> documentIds = new ArrayList<>();
+        for (SearchIndexType type : SearchIndexType.values()) {
+            if (!type.isContent()) {
+                documentIds.addAll(this.jdbcTemplate.query(type.selectIdsByProjectId(),
+                        new MapSqlParameterSource("projectId", projectId),
+                        (rs, rowNum) -> type.documentId(rs.getLong("id"))));
+            }
+        }
+        return documentIds;
+    }
+
+    /**
+     * Backfill documents in bulk into the index being rebuilt. A document is only created, so that it never
+     * overwrites a newer copy from a live write, and removed again if it was deleted meanwhile.
+     *
+     * @param index     the index name
+     * @param documents the documents
+     */
+    public void backfill(String index, List<SearchIndex> documents) {
+        bulk(documents.stream().map(d -> toIndexRequest(index, d).opType(DocWriteRequest.OpType.CREATE))
+                .collect(Collectors.toList()));
+        // a deletion recorded after this check reaches the index after the documents above
+        bulk(documents.stream().map(SearchIndex::getId).filter(this.rebuildTombstones::contains)
+                .map(id -> new DeleteRequest(index, id)).collect(Collectors.toList()));
+    }
+
+    /**
+     * Load the documents of the next rows of one type in id order
+     *
+     * @param type    the document type
+     * @param afterId the last id loaded, 0 to start from the first row
+     * @param limit   the maximum number of documents
+     * @return List<SearchIndex> - the documents
+     */
+    public List<SearchIndex> loadAfter(SearchIndexType type, long afterId, int limit) {
+        return load(type, type.selectAfter(),
+                new MapSqlParameterSource("afterId", afterId).addValue("limit", limit));
+    }
+
+    private List<SearchIndex> load(SearchIndexType type, String sql, MapSqlParameterSource params) {
+        return this.jdbcTemplate.query(sql, params, (rs, rowNum) -> {
+            SearchIndex document = new SearchIndex();
+            document.setId(type.documentId(rs.getLong("id")));
+            document.setType(type.getName());
+            document.setProjectId(rs.getLong("project_id"));
+            if (type.isContent()) {
+                document.setValue(getHtml(rs.getString("value")));
+                document.setParentId(type.getParent().documentId(rs.getLong("parent_id")));
+            } else {
+                document.setValue(rs.getString("value"));
+            }
+            String acl = rs.getString("acl");
+            document.setAcl(StringUtils.isBlank(acl) ? Collections.emptyList() : Arrays.asList(acl.split(",")));
+            return document;
+        });
+    }
+
+    /**
+     * Content text is indexed by its html, the same as it is rendered
+     */
+    private static String getHtml(String text) {
+        try {
+            JsonElement json = JsonParser.parseString(text);
+            if (json.isJsonObject() && json.getAsJsonObject().has(HTML)) {
+                return json.getAsJsonObject().get(HTML).getAsString();
+            }
+        } catch (JsonParseException | IllegalStateException ex) {
+            LOGGER.debug("Content text is not JSON", ex);
+        }
+        return text;
+    }
+
+    private static IndexRequest toIndexRequest(String index, SearchIndex document) {
+        Map<String, Object> source = new HashMap<>();
+        source.put("id", document.getId());
+        source.put("type", document.getType());
+        source.put(PROJECT_ID, document.getProjectId());
+        source.put(SEARCH_FIELD, document.getValue());
+        source.put("parentId", document.getParentId());
+        source.put(ACL, document.getAcl());
+        return new IndexRequest(index).id(document.getId()).source(source);
+    }
+
+    private List<String> getWriteIndices() {
+        String rebuildIndex = this.rebuildIndex;
+        return rebuildIndex == null ? Collections.singletonList(SEARCH_INDEX_NAME)
+                : Arrays.asList(SEARCH_INDEX_NAME, rebuildIndex);
+    }
+
+    public void setRebuildIndex(String rebuildIndex) {
+        this.rebuildTombstones.clear();
+        this.rebuildIndex = rebuildIndex;
+    }
+
+    private void addRebuildTombstones(Collection<String> documentIds) {
+        if (this.rebuildIndex != null) {
+            this.rebuildTombstones.addAll(documentIds);
+        }
+    }
+
+    /**
+     * Send operations in _bulk requests of at most bulkActions each. Operations failing for being
+     * rejected or for a lost connection are retried with exponential backoff, others are only logged.
+     *
+     * @param requests the index and delete operations
+     */
+    private void bulk(List<DocWriteRequest<?>> requests) {
+        for (List<DocWriteRequest<?>> chunk : Lists.partition(requests, this.searchIndexConfig.getBulkActions())) {
+            List<DocWriteRequest<?>> pending = chunk;
+            for (int attempt = 1; !pending.isEmpty(); attempt++) {
+                if (attempt > this.searchIndexConfig.getBulkMaxRetries() + 1) {
+                    LOGGER.error("Giving up {} search index operations after {} attempts",
+                            pending.size(), attempt - 1);
+                    this.bulkFailed.increment(pending.size());
+                    break;
+                }
+                if (attempt > 1) {
+                    try {
+                        Thread.sleep(this.searchIndexConfig.getBulkRetryBackoffMillis() << (attempt - 2));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                pending = execute(pending);
+            }
+        }
+    }
+
+    /**
+     * @return List<DocWriteRequest> - the operations to retry
+     */
+    private List<DocWriteRequest<?>> execute(List<DocWriteRequest<?>> requests) {
+        BulkRequest bulkRequest = new BulkRequest();
+        requests.forEach(bulkRequest::add);
+        long start = System.nanoTime();
+        try {
+            BulkResponse response = this.client.bulk(bulkRequest, RequestOptions.DEFAULT);
+            List<DocWriteRequest<?>> retry = new ArrayList<>();
+            for (BulkItemResponse item : response.getItems()) {
+                if (!item.isFailed()) {
+                    continue;
+                }
+                if (item.getOpType() == DocWriteRequest.OpType.CREATE && item.status() == RestStatus.CONFLICT) {
+                    // a live write created the document first
+                    continue;
+                }
+                if (RETRYABLE_STATUSES.contains(item.status())) {
+                    retry.add(requests.get(item.getItemId()));
+                } else {
+                    LOGGER.error("Failed to {} search index document {}: {}",
+                            item.getOpType(), item.getId(), item.getFailureMessage());
+                    this.bulkFailed.increment();
+                }
+            }
+            return retry;
+        } catch (IOException ex) {
+            LOGGER.error("Error on _bulk request of " + requests.size() + " search index operations", ex);
+            return requests;
+        } finally {
+            this.bulkLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 }
@@ -3,10 +3,15 @@ package com.bulletjournal.es.repository.models;
 import org.springframework.data.elasticsearch.annotations.Document;
 
 import javax.persistence.Id;
+import java.util.List;
 
 @Document(indexName = "project_items")
 public class SearchIndex {
 
+    public static final String GROUP_ACL_PREFIX = "g:";
+
+    public static final String USER_ACL_PREFIX = "u:";
+
     @Id
     private String id;
 
@@ -18,6 +23,20 @@ public class SearchIndex {
 
     private String parentId;
 
+    /**
+     * Group ids of the item's project prefixed with {@link #GROUP_ACL_PREFIX} and usernames the item is
+     * shared with prefixed with {@link #USER_ACL_PREFIX}
+     */
+    private List<String> acl;
+
+    public static String groupAcl(Long groupId) {
+        return GROUP_ACL_PREFIX + groupId;
+    }
+
+    public static String userAcl(String username) {
+        return USER_ACL_PREFIX + username;
+    }
+
     public String getId() {
         return id;
     }
@@ -57,4 +76,16 @@ public class SearchIndex {
     public void setParentId(String parentId) {
         this.parentId = parentId;
     }
+
+    public List<String> getAcl() {
+        return acl;
+    }
+
+    public void setAcl(List<String> acl) {
+        this.acl = acl;
+    }
+
+    public boolean isSharedWith(String username) {
+        return this.acl != null && this.acl.contains(userAcl(username));
+    }
 }
\ No newline at end of file
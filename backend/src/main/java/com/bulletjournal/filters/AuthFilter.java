@@ -5,8 +5,10 @@ import com.bulletjournal.config.AuthConfig;
 import com.bulletjournal.config.VersionConfig;
 import com.bulletjournal.controller.GoogleCalendarController;
 import com.bulletjournal.controller.UserController;
+import com.bulletjournal.exceptions.ResourceNotFoundException;
 import com.bulletjournal.redis.models.LockedUser;
-import com.bulletjournal.redis.RedisLockedUserRepository;
+import com.bulletjournal.redis.RedisLockDaoJpa;
+import com.bulletjournal.repository.UserDaoJpa;
 import com.google.common.collect.ImmutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +34,9 @@ public class AuthFilter implements Filter {
     private static final List<String> BYPASS_WHITE_LIST_ROUTES = ImmutableList.of(
             "/api/public/", GoogleCalendarController.CHANNEL_NOTIFICATIONS_ROUTE,
             GoogleCalendarController.OAUTH_CALL_BACK);
+    // actuator endpoints other than health expose internals and are limited to admins
+    private static final String ACTUATOR_ROUTE = "/actuator/";
+    private static final String HEALTH_ROUTE = "/actuator/health";
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthFilter.class);
 
     @Autowired
@@ -41,7 +46,10 @@ public class AuthFilter implements Filter {
     private VersionConfig versionConfig;
 
     @Autowired
-    private RedisLockedUserRepository redisLockedUserRepository;
+    private RedisLockDaoJpa redisLockDaoJpa;
+
+    @Autowired
+    private UserDaoJpa userDaoJpa;
 
     @Override
     public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
@@ -59,7 +67,7 @@ public class AuthFilter implements Filter {
 
                     username = URLDecoder.decode(val, StandardCharsets.UTF_8.toString());
 
-                    Optional<LockedUser> lockedUserOptional = redisLockedUserRepository.findById(username);
+                    Optional<LockedUser> lockedUserOptional = redisLockDaoJpa.getLockedUser(username);
                     if (lockedUserOptional.isPresent()) {
                         LOGGER.info("User {} remains locked for {} hour(s)", username,
                                 String.format("%.2f", lockedUserOptional.get().getExpirationInHour()));
@@ -88,6 +96,12 @@ public class AuthFilter implements Filter {
             }
         }
 
+        if (isAdminRoute(request.getRequestURI()) && !isAdmin(username)) {
+            LOGGER.error(request.getRequestURI() + ": user " + username + " is not admin");
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
         LOGGER.info(request.getRequestURI());
         if (UserController.LOGOUT_MYSELF_ROUTE.equals(request.getRequestURI())) {
             Cookie cookie = new Cookie("__discourse_proxy", null);
@@ -101,6 +115,22 @@ public class AuthFilter implements Filter {
         chain.doFilter(req, res);
     }
 
+    private static boolean isAdminRoute(String requestURI) {
+        String uri = requestURI.toLowerCase();
+        return uri.startsWith(ACTUATOR_ROUTE) && !uri.startsWith(HEALTH_ROUTE);
+    }
+
+    private boolean isAdmin(String username) {
+        if (username == null) {
+            return false;
+        }
+        try {
+            return this.userDaoJpa.isAdmin(username);
+        } catch (ResourceNotFoundException ex) {
+            return false;
+        }
+    }
+
     public static boolean shouldBypass(String requestURI) {
         for (String route : BYPASS_WHITE_LIST_ROUTES) {
             if (requestURI.toLowerCase().startsWith(route)) {
@@ -3,7 +3,7 @@ package com.bulletjournal.filters;
 import com.bulletjournal.config.AuthConfig;
 import com.bulletjournal.config.MDCConfig;
 import com.bulletjournal.redis.models.LockedIP;
-import com.bulletjournal.redis.RedisLockedIPRepository;
+import com.bulletjournal.redis.RedisLockDaoJpa;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -33,7 +33,7 @@ public class MDCFilter implements Filter {
     AuthConfig authConfig;
 
     @Autowired
-    RedisLockedIPRepository redisLockedIPRepository;
+    RedisLockDaoJpa redisLockDaoJpa;
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -48,7 +48,7 @@ public class MDCFilter implements Filter {
             MDC.put(mdcConfig.getDefaultRequestIdKey(), requestId);
             MDC.put(mdcConfig.getDefaultClientIpKey(), clientIP);
 
-            Optional<LockedIP> lockedIPOptional = redisLockedIPRepository.findById(clientIP);
+            Optional<LockedIP> lockedIPOptional = redisLockDaoJpa.getLockedIP(clientIP);
             if (lockedIPOptional.isPresent()) {
                 LOGGER.info("IP {} remains locked for {} hour(s)", clientIP,
                         String.format("%.2f", lockedIPOptional.get().getExpirationInHour()));
@@ -0,0 +1,108 @@
+package com.bulletjournal.filters.rate.limiting;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets of this backend instance.
+ * <p>
+ * Tokens are taken by compare-and-set of an immutable bucket state. Buckets full again after a whole
+ * refill period are dropped by {@link #evictIdle()}, which retires a bucket by setting its state to
+ * {@link #EVICTED} first, so that a consumer racing with eviction retries on a fresh bucket instead of
+ * taking a token nobody accounts for.
+ */
+public class LocalTokenBucketStore implements TokenBucketStore {
+
+    private static final State EVICTED = new State(0, Long.MIN_VALUE);
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    public LocalTokenBucketStore() {
+        this(() -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    @VisibleForTesting
+    LocalTokenBucketStore(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean tryConsume(String key, int capacity, Duration refillPeriod) {
+        long period = refillPeriod.toMillis();
+        while (true) {
+            long now = this.clock.getAsLong();
+            Bucket bucket = this.buckets.computeIfAbsent(key, k -> new Bucket(period, new State(capacity, now)));
+            State current = bucket.get();
+            if (current == EVICTED) {
+                this.buckets.remove(key, bucket);
+                continue;
+            }
+            State refilled = current.refill(capacity, period, now);
+            if (refilled.tokens < 1) {
+                return false;
+            }
+            if (bucket.compareAndSet(current, new State(refilled.tokens - 1, refilled.refilled))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drop buckets that have not been used for a whole refill period
+     */
+    public void evictIdle() {
+        long now = this.clock.getAsLong();
+        this.buckets.forEach((key, bucket) -> {
+            State current = bucket.get();
+            if (current != EVICTED && now - current.refilled >= bucket.period
+                    && bucket.compareAndSet(current, EVICTED)) {
+                this.buckets.remove(key, bucket);
+            }
+        });
+    }
+
+    @VisibleForTesting
+    int size() {
+        return this.buckets.size();
+    }
+
+    @Override
+    public void clear() {
+        this.buckets.clear();
+    }
+
+    private static class Bucket extends AtomicReference<State> {
+        private final long period;
+
+        private Bucket(long period, State state) {
+            super(state);
+            this.period = period;
+        }
+    }
+
+    private static class State {
+        private final long tokens;
+        // start of the current refill period
+        private final long refilled;
+
+        private State(long tokens, long refilled) {
+            this.tokens = tokens;
+            this.refilled = refilled;
+        }
+
+        private State refill(int capacity, long period, long now) {
+            long periods = (now - this.refilled) / period;
+            if (periods <= 0) {
+                return this;
+            }
+            return new State(capacity, this.refilled + periods * period);
+        }
+    }
+}
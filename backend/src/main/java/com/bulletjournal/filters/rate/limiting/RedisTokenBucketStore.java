@@ -0,0 +1,132 @@
+package com.bulletjournal.filters.rate.limiting;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets shared by all backend instances.
+ * <p>
+ * A bucket is a Redis hash refilled and taken from by one Lua script, timed by the Redis server clock,
+ * so that one round trip consumes atomically whichever instance serves the request. Buckets expire
+ * once idle for a whole refill period.
+ * <p>
+ * With leaseSize above 1, a request empty of local tokens takes up to leaseSize tokens from Redis and
+ * the rest are served locally for leaseMillis. Tokens left when a lease expires are lost, so leasing
+ * trades round trips for limits stricter by up to leaseSize - 1 tokens per instance.
+ * <p>
+ * While Redis cannot be reached, limits fall back to the local buckets of this instance. The failure is
+ * logged once per outage rather than on every request.
+ */
+public class RedisTokenBucketStore implements TokenBucketStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisTokenBucketStore.class);
+    private static final String KEY_PREFIX = "TokenBucket:";
+    private static final int CLEAR_BATCH_SIZE = 1000;
+    // KEYS[1] bucket, ARGV[1] capacity, ARGV[2] refill period in milliseconds, ARGV[3] tokens wanted
+    private static final RedisScript<Long> CONSUME = new DefaultRedisScript<>(
+            "redis.replicate_commands() " +
+                    "local capacity = tonumber(ARGV[1]) " +
+                    "local period = tonumber(ARGV[2]) " +
+                    "local time = redis.call('TIME') " +
+                    "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+                    "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'refilled') " +
+                    "local tokens = tonumber(bucket[1]) " +
+                    "local refilled = tonumber(bucket[2]) " +
+                    "if not tokens then tokens = capacity refilled = now else " +
+                    "local periods = math.floor((now - refilled) / period) " +
+                    "if periods > 0 then tokens = capacity refilled = refilled + periods * period end end " +
+                    "local granted = math.min(tonumber(ARGV[3]), tokens) " +
+                    "redis.call('HMSET', KEYS[1], 'tokens', tokens - granted, 'refilled', refilled) " +
+                    "redis.call('PEXPIRE', KEYS[1], period) " +
+                    "return granted",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TokenBucketStore fallback;
+    private final int leaseSize;
+    private final Cache<String, AtomicLong> leases;
+    private final AtomicBoolean redisDown = new AtomicBoolean();
+
+    public RedisTokenBucketStore(StringRedisTemplate stringRedisTemplate, TokenBucketStore fallback,
+                                 int leaseSize, long leaseMillis) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.fallback = fallback;
+        this.leaseSize = Math.max(1, leaseSize);
+        this.leases = CacheBuilder.newBuilder()
+                .expireAfterWrite(leaseMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public boolean tryConsume(String key, int capacity, Duration refillPeriod) {
+        AtomicLong lease = this.leases.getIfPresent(key);
+        if (lease != null && lease.getAndUpdate(tokens -> Math.max(0, tokens - 1)) > 0) {
+            return true;
+        }
+        long granted;
+        try {
+            Long result = this.stringRedisTemplate.execute(CONSUME, Collections.singletonList(KEY_PREFIX + key),
+                    String.valueOf(capacity), String.valueOf(refillPeriod.toMillis()),
+                    String.valueOf(Math.min(this.leaseSize, capacity)));
+            granted = result == null ? 0 : result;
+        } catch (Exception ex) {
+            if (this.redisDown.compareAndSet(false, true)) {
+                LOGGER.error("Error on consuming token bucket " + key + " in Redis, falling back to local buckets",
+                        ex);
+            } else {
+                LOGGER.debug("Redis still unreachable on consuming token bucket {}: {}", key, ex.toString());
+            }
+            return this.fallback.tryConsume(key, capacity, refillPeriod);
+        }
+        if (this.redisDown.compareAndSet(true, false)) {
+            LOGGER.info("Redis reachable again, token buckets are shared again");
+        }
+        if (granted > 1) {
+            this.leases.put(key, new AtomicLong(granted - 1));
+        }
+        return granted > 0;
+    }
+
+    @Override
+    public void clear() {
+        this.leases.invalidateAll();
+        this.fallback.clear();
+        // SCAN rather than KEYS, which blocks the Redis server while walking the whole keyspace
+        this.stringRedisTemplate.execute((RedisCallback<Void>) connection -> {
+            ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(CLEAR_BATCH_SIZE).build();
+            List<byte[]> keys = new ArrayList<>();
+            try (Cursor<byte[]> cursor = connection.scan(options)) {
+                while (cursor.hasNext()) {
+                    keys.add(cursor.next());
+                    if (keys.size() == CLEAR_BATCH_SIZE) {
+                        connection.del(keys.toArray(new byte[0][]));
+                        keys.clear();
+                    }
+                }
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to close scan of token buckets", ex);
+            }
+            if (!keys.isEmpty()) {
+                connection.del(keys.toArray(new byte[0][]));
+            }
+            return null;
+        });
+    }
+}
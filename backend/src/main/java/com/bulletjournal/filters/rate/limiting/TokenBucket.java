@@ -3,42 +3,63 @@ package com.bulletjournal.filters.rate.limiting;
 import com.bulletjournal.clients.UserClient;
 import com.bulletjournal.config.MDCConfig;
 import com.bulletjournal.config.RateConfig;
-import com.bulletjournal.config.RedisConfig;
 import com.bulletjournal.redis.models.LockedIP;
 import com.bulletjournal.redis.models.LockedUser;
-import com.bulletjournal.redis.RedisLockedIPRepository;
-import com.bulletjournal.redis.RedisLockedUserRepository;
-import io.github.bucket4j.*;
+import com.bulletjournal.redis.RedisLockDaoJpa;
+import com.bulletjournal.util.CustomThreadFactory;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class TokenBucket {
 
-    private final Map<String, Bucket> bucketsUser = new ConcurrentHashMap<>();
-    private final Map<String, Bucket> bucketsFileUpload = new ConcurrentHashMap<>();
-    private final Map<String, Bucket> bucketsPublicItem = new ConcurrentHashMap<>();
+    private static final String REDIS_STORE = "redis";
+    private static final Duration REFILL_PERIOD = Duration.ofMinutes(1);
+
     @Autowired
     private MDCConfig mdcConfig;
     @Autowired
     private RateConfig rateConfig;
     @Autowired
-    private UserClient userClient;
-    @Autowired
-    private RedisConfig redisConfig;
-    @Autowired
-    private RedisLockedUserRepository redisLockedUserRepository;
+    private RedisLockDaoJpa redisLockDaoJpa;
     @Autowired
-    private RedisLockedIPRepository redisLockedIPRepository;
+    private StringRedisTemplate stringRedisTemplate;
+
+    private TokenBucketStore store;
+
+    private final ScheduledExecutorService evictExecutor = Executors.newSingleThreadScheduledExecutor(
+            new CustomThreadFactory("token-bucket-evict"));
 
     public TokenBucket() {
     }
 
+    @PostConstruct
+    public void postConstruct() {
+        LocalTokenBucketStore localStore = new LocalTokenBucketStore();
+        this.evictExecutor.scheduleWithFixedDelay(localStore::evictIdle, this.rateConfig.getEvictIntervalSeconds(),
+                this.rateConfig.getEvictIntervalSeconds(), TimeUnit.SECONDS);
+        if (REDIS_STORE.equals(this.rateConfig.getStore())) {
+            this.store = new RedisTokenBucketStore(this.stringRedisTemplate, localStore,
+                    this.rateConfig.getLeaseSize(), this.rateConfig.getLeaseMillis());
+        } else {
+            this.store = localStore;
+        }
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        this.evictExecutor.shutdownNow();
+    }
+
     public boolean isLimitExceeded(TokenBucketType type) {
         switch (type) {
             case USER:
@@ -54,10 +75,10 @@ public class TokenBucket {
 
     private boolean isLimitExceededByPublicItem() {
         String ip = MDC.get(this.mdcConfig.getDefaultClientIpKey());
-        boolean consumed = consumeToken(ip, bucketsPublicItem, rateConfig.getPublicItem());
+        boolean consumed = consumeToken(TokenBucketType.PUBLIC_ITEM, ip, rateConfig.getPublicItem());
 
         if (!consumed) {
-            redisLockedIPRepository.save(new LockedIP(ip, "Get public item requests exceeded limit"));
+            redisLockDaoJpa.lock(new LockedIP(ip, "Get public item requests exceeded limit"));
         }
 
         return !consumed;
@@ -65,10 +86,10 @@ public class TokenBucket {
 
     private boolean isLimitExceededByFileUpload() {
         String username = MDC.get(UserClient.USER_NAME_KEY);
-        boolean consumed = consumeToken(username, bucketsUser, rateConfig.getFileUpload());
+        boolean consumed = consumeToken(TokenBucketType.FILE_UPLOAD, username, rateConfig.getFileUpload());
 
         if (!consumed) {
-            redisLockedUserRepository.save(new LockedUser(username, "User file upload requests exceeded limit"));
+            redisLockDaoJpa.lock(new LockedUser(username, "User file upload requests exceeded limit"));
         }
         return !consumed;
     }
@@ -79,33 +100,23 @@ public class TokenBucket {
         String username = MDC.get(UserClient.USER_NAME_KEY);
 
         int limit = this.rateConfig.getUser();
-        boolean consumed = consumeToken(username, bucketsUser, limit);
+        boolean consumed = consumeToken(TokenBucketType.USER, username, limit);
 
         if (!consumed) {
-            redisLockedUserRepository.save(new LockedUser(username, "User API requests exceeded limit"));
+            redisLockDaoJpa.lock(new LockedUser(username, "User API requests exceeded limit"));
         }
 
         return !consumed;
     }
 
-    private boolean consumeToken(String subject, Map<String, Bucket> buckets, int limit) {
+    private boolean consumeToken(TokenBucketType type, String subject, int limit) {
         if (subject == null) {
             return true;
         }
-        Bucket requestBucket = buckets.computeIfAbsent(subject, key -> standardBucket(limit));
-        ConsumptionProbe probe = requestBucket.tryConsumeAndReturnRemaining(1);
-        return probe.isConsumed();
-    }
-
-    private Bucket standardBucket(int limit) {
-        return Bucket4j.builder()
-                .addLimit(Bandwidth.classic(limit, Refill.intervally(limit, Duration.ofMinutes(1))))
-                .build();
+        return this.store.tryConsume(type + ":" + subject, limit, REFILL_PERIOD);
     }
 
     public void clearBucket() {
-        bucketsUser.clear();
-        bucketsFileUpload.clear();
-        bucketsPublicItem.clear();
+        this.store.clear();
     }
-}
\ No newline at end of file
+}
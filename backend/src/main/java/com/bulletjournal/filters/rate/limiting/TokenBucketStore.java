@@ -0,0 +1,24 @@
+package com.bulletjournal.filters.rate.limiting;
+
+import java.time.Duration;
+
+/**
+ * Token buckets keyed by rate limited subject.
+ * <p>
+ * A bucket starts full with capacity tokens and is refilled to capacity once every refill period,
+ * counted from its first use. A bucket idle for a whole period is full again, so stores may drop it.
+ */
+public interface TokenBucketStore {
+
+    /**
+     * Take one token from a bucket
+     *
+     * @param key          the bucket key
+     * @param capacity     tokens in a full bucket
+     * @param refillPeriod period of refilling the bucket to capacity
+     * @return boolean - false if the bucket is empty
+     */
+    boolean tryConsume(String key, int capacity, Duration refillPeriod);
+
+    void clear();
+}
@@ -0,0 +1,299 @@
+package com.bulletjournal.hierarchy;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Binary encoding of an item hierarchy.
+ * <p>
+ * The tree is stored as its preorder traversal, each node being its id followed by its depth, both as
+ * unsigned LEB128 varints. Decoding is a single pass over the bytes with a stack of the last node seen
+ * at every depth, so presentation nodes are attached to their parent as soon as they are read.
+ * <p>
+ * Single item edits work on the flat (id, depth) arrays: a subtree is the contiguous run of nodes deeper
+ * than its root, so moving it is one cut and one splice.
+ */
+public class HierarchyCodec {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    public static byte[] encode(List<HierarchyItem> items) {
+        return encode(items, HierarchyItem::getId, HierarchyItem::getS);
+    }
+
+    /**
+     * Encode a tree of any node type
+     *
+     * @param roots    the top level nodes in order
+     * @param id       the id of a node
+     * @param children the ordered sub nodes of a node
+     * @return byte[] - preorder (id, depth) varints
+     */
+    public static <T> byte[] encode(List<T> roots, Function<T, Long> id, Function<T, List<T>> children) {
+        if (roots == null || roots.isEmpty()) {
+            return EMPTY;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(roots.size() * 4);
+        Deque<Pair<T, Integer>> stack = new ArrayDeque<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            stack.push(Pair.of(roots.get(i), 0));
+        }
+        while (!stack.isEmpty()) {
+            Pair<T, Integer> cur = stack.pop();
+            T node = cur.getLeft();
+            writeVarLong(out, id.apply(node));
+            writeVarLong(out, cur.getRight());
+            List<T> subNodes = children.apply(node);
+            if (subNodes == null) {
+                continue;
+            }
+            for (int i = subNodes.size() - 1; i >= 0; i--) {
+                stack.push(Pair.of(subNodes.get(i), cur.getRight() + 1));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Build a tree of any node type in one pass.
+     * <p>
+     * A node missing from existingIds is dropped together with its whole subtree.
+     *
+     * @param hierarchy   the encoded hierarchy
+     * @param existingIds the ids allowed in the tree, null to keep all
+     * @param create      creates the node of an id
+     * @param addChild    appends a child to its parent
+     * @return Pair<List<T>, Set<Long>> - top level nodes and ids of all nodes kept in the tree
+     */
+    public static <T> Pair<List<T>, Set<Long>> decode(byte[] hierarchy, Set<Long> existingIds,
+                                                      LongFunction<T> create, BiConsumer<T, T> addChild) {
+        List<T> roots = new ArrayList<>();
+        Set<Long> processedIds = new HashSet<>();
+        // last node seen at each depth, null when dropped
+        List<T> path = new ArrayList<>();
+        int[] pos = {0};
+        while (hierarchy != null && pos[0] < hierarchy.length) {
+            long id = readVarLong(hierarchy, pos);
+            int depth = (int) readVarLong(hierarchy, pos);
+            if (depth > path.size()) {
+                throw new IllegalArgumentException("Corrupted hierarchy at byte " + pos[0]);
+            }
+            T parent = depth == 0 ? null : path.get(depth - 1);
+            T node = null;
+            if ((depth == 0 || parent != null) && (existingIds == null || existingIds.contains(id))) {
+                node = create.apply(id);
+                processedIds.add(id);
+                if (parent == null) {
+                    roots.add(node);
+                } else {
+                    addChild.accept(parent, node);
+                }
+            }
+            if (depth == path.size()) {
+                path.add(node);
+            } else {
+                path.set(depth, node);
+            }
+        }
+        return Pair.of(roots, processedIds);
+    }
+
+    public static List<HierarchyItem> decode(byte[] hierarchy) {
+        return HierarchyCodec.<HierarchyItem>decode(hierarchy, null, HierarchyItem::new,
+                (parent, child) -> parent.getS().add(child)).getLeft();
+    }
+
+    /**
+     * Convert a hierarchy stored in the legacy JSON format
+     *
+     * @param relations the JSON hierarchy
+     * @return byte[] - the encoded hierarchy
+     */
+    public static byte[] fromJson(String relations) {
+        HierarchyItem[] items = relations == null ? null : HierarchyProcessor.GSON.fromJson(
+                relations, HierarchyItem[].class);
+        return items == null ? EMPTY : encode(Arrays.asList(items));
+    }
+
+    /**
+     * Place an item with its sub items under a parent without building the tree, inserting it when absent
+     *
+     * @param hierarchy the encoded hierarchy
+     * @param id        the item id
+     * @param parentId  the new parent id, null for top level
+     * @param position  index among the parent's sub items, null to append
+     * @return byte[] - the edited hierarchy
+     */
+    public static byte[] move(byte[] hierarchy, long id, Long parentId, Integer position) {
+        Nodes nodes = Nodes.read(hierarchy);
+        nodes.move(id, parentId, position);
+        return nodes.write();
+    }
+
+    /**
+     * Take an item out of a hierarchy without building the tree, its sub items take its place
+     *
+     * @param hierarchy the encoded hierarchy
+     * @param id        the item id
+     * @return byte[] - the edited hierarchy
+     */
+    public static byte[] remove(byte[] hierarchy, long id) {
+        Nodes nodes = Nodes.read(hierarchy);
+        nodes.remove(id);
+        return nodes.write();
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] bytes, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated hierarchy");
+            }
+            byte b = bytes[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at byte " + pos[0]);
+    }
+
+    private static class Nodes {
+        private long[] ids;
+        private int[] depths;
+        private int size;
+
+        private Nodes(int capacity) {
+            this.ids = new long[Math.max(capacity, 4)];
+            this.depths = new int[this.ids.length];
+        }
+
+        static Nodes read(byte[] hierarchy) {
+            Nodes nodes = new Nodes(hierarchy == null ? 0 : hierarchy.length / 2);
+            int[] pos = {0};
+            while (hierarchy != null && pos[0] < hierarchy.length) {
+                long id = readVarLong(hierarchy, pos);
+                nodes.insert(nodes.size, new long[]{id}, new int[]{(int) readVarLong(hierarchy, pos)});
+            }
+            return nodes;
+        }
+
+        byte[] write() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(this.size * 4);
+            for (int i = 0; i < this.size; i++) {
+                writeVarLong(out, this.ids[i]);
+                writeVarLong(out, this.depths[i]);
+            }
+            return out.toByteArray();
+        }
+
+        void remove(long id) {
+            int i = indexOf(id);
+            if (i < 0) {
+                return;
+            }
+            int end = subtreeEnd(i);
+            for (int k = i + 1; k < end; k++) {
+                this.depths[k]--;
+            }
+            delete(i, i + 1);
+        }
+
+        void move(long id, Long parentId, Integer position) {
+            int i = indexOf(id);
+            long[] subIds = {id};
+            int[] subDepths = {0};
+            if (i >= 0) {
+                int end = subtreeEnd(i);
+                int p = parentId == null ? -1 : indexOf(parentId);
+                if (p >= i && p < end) {
+                    throw new IllegalArgumentException("Cannot move " + id + " under its own sub item " + parentId);
+                }
+                subIds = Arrays.copyOfRange(this.ids, i, end);
+                subDepths = Arrays.copyOfRange(this.depths, i, end);
+                int rootDepth = this.depths[i];
+                for (int d = 0; d < subDepths.length; d++) {
+                    subDepths[d] -= rootDepth;
+                }
+                delete(i, end);
+            }
+
+            int parentDepth = -1;
+            int k = 0;
+            if (parentId != null) {
+                int p = indexOf(parentId);
+                if (p < 0) {
+                    throw new IllegalArgumentException("Parent " + parentId + " is not in hierarchy");
+                }
+                parentDepth = this.depths[p];
+                k = p + 1;
+            }
+            // walk the parent's subtree up to the sub item at position
+            int count = 0;
+            while (k < this.size && this.depths[k] > parentDepth) {
+                if (this.depths[k] == parentDepth + 1) {
+                    if (position != null && count == position) {
+                        break;
+                    }
+                    count++;
+                }
+                k++;
+            }
+            for (int d = 0; d < subDepths.length; d++) {
+                subDepths[d] += parentDepth + 1;
+            }
+            insert(k, subIds, subDepths);
+        }
+
+        private int indexOf(long id) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // exclusive end of the subtree rooted at i
+        private int subtreeEnd(int i) {
+            int end = i + 1;
+            while (end < this.size && this.depths[end] > this.depths[i]) {
+                end++;
+            }
+            return end;
+        }
+
+        private void delete(int from, int to) {
+            System.arraycopy(this.ids, to, this.ids, from, this.size - to);
+            System.arraycopy(this.depths, to, this.depths, from, this.size - to);
+            this.size -= to - from;
+        }
+
+        private void insert(int at, long[] newIds, int[] newDepths) {
+            int required = this.size + newIds.length;
+            if (required > this.ids.length) {
+                int capacity = Math.max(required, this.ids.length * 2);
+                this.ids = Arrays.copyOf(this.ids, capacity);
+                this.depths = Arrays.copyOf(this.depths, capacity);
+            }
+            System.arraycopy(this.ids, at, this.ids, at + newIds.length, this.size - at);
+            System.arraycopy(this.depths, at, this.depths, at + newIds.length, this.size - at);
+            System.arraycopy(newIds, 0, this.ids, at, newIds.length);
+            System.arraycopy(newDepths, 0, this.depths, at, newDepths.length);
+            this.size = required;
+        }
+    }
+}
@@ -3,10 +3,12 @@ package com.bulletjournal.hierarchy;
 import com.bulletjournal.controller.models.Note;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class NoteRelationsProcessor {
 
@@ -39,6 +41,26 @@ public class NoteRelationsProcessor {
         return cur;
     }
 
+    /**
+     * Build the presentation tree straight from the encoded hierarchy
+     *
+     * @param noteMap   all notes of the project by id
+     * @param relations the encoded hierarchy
+     * @return Pair<List<Note>, Set<Long>> - top level notes and ids of all notes in the tree
+     */
+    public static Pair<List<Note>, Set<Long>> processRelations(
+            Map<Long, com.bulletjournal.repository.models.Note> noteMap, byte[] relations) {
+        return HierarchyCodec.decode(relations, noteMap.keySet(), id -> {
+            Note note = new Note();
+            note.clone(noteMap.get(id).toPresentationModel());
+            return note;
+        }, Note::addSubNote);
+    }
+
+    public static byte[] encode(List<Note> notes) {
+        return HierarchyCodec.encode(notes, Note::getId, Note::getSubNotes);
+    }
+
     public static String processRelations(List<Note> notes) {
         String jsonString = GSON.toJson(notes);
         // replace "subNotes" with "s" to save space
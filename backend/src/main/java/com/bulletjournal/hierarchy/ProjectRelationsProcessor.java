@@ -4,6 +4,7 @@ import com.bulletjournal.controller.models.Project;
 import com.bulletjournal.controller.models.ProjectType;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +39,28 @@ public class ProjectRelationsProcessor {
         return projects;
     }
 
+    /**
+     * Build the presentation tree straight from the encoded hierarchy
+     *
+     * @param projectMap       all projects of the owner by id
+     * @param projectRelations the encoded hierarchy
+     * @param selectedProjects the projects to show in full, null to show all
+     * @return Pair<List<Project>, Set<Long>> - top level projects and ids of all projects in the tree
+     */
+    public static Pair<List<Project>, Set<Long>> processRelations(
+            Map<Long, com.bulletjournal.repository.models.Project> projectMap, byte[] projectRelations,
+            Set<Long> selectedProjects) {
+        Pair<List<Project>, Set<Long>> hierarchy = HierarchyCodec.<Project>decode(
+                projectRelations, projectMap.keySet(), Project::new, Project::addSubProject);
+        List<Project> projects = new ArrayList<>();
+        for (Project project : hierarchy.getLeft()) {
+            if (merge(projectMap, project, selectedProjects) > 0) {
+                projects.add(project);
+            }
+        }
+        return Pair.of(projects, hierarchy.getRight());
+    }
+
     private static int merge(
             Map<Long, com.bulletjournal.repository.models.Project> m,
             Project project,
@@ -66,6 +89,10 @@ public class ProjectRelationsProcessor {
         return count;
     }
 
+    public static byte[] encode(List<Project> projects) {
+        return HierarchyCodec.encode(projects, Project::getId, Project::getSubProjects);
+    }
+
     public static String processRelations(List<Project> projects) {
         String jsonString = GSON.toJson(projects);
         // replace "subProjects" with "s" to save space
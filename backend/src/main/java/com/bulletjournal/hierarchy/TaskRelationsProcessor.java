@@ -3,10 +3,12 @@ package com.bulletjournal.hierarchy;
 import com.bulletjournal.controller.models.Task;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class TaskRelationsProcessor {
 
@@ -39,6 +41,26 @@ public class TaskRelationsProcessor {
         return cur;
     }
 
+    /**
+     * Build the presentation tree straight from the encoded hierarchy
+     *
+     * @param taskMap   all tasks of the project by id
+     * @param relations the encoded hierarchy
+     * @return Pair<List<Task>, Set<Long>> - top level tasks and ids of all tasks in the tree
+     */
+    public static Pair<List<Task>, Set<Long>> processRelations(
+            Map<Long, com.bulletjournal.repository.models.Task> taskMap, byte[] relations) {
+        return HierarchyCodec.decode(relations, taskMap.keySet(), id -> {
+            Task task = new Task();
+            task.clone(taskMap.get(id).toPresentationModel());
+            return task;
+        }, Task::addSubTask);
+    }
+
+    public static byte[] encode(List<Task> tasks) {
+        return HierarchyCodec.encode(tasks, Task::getId, Task::getSubTasks);
+    }
+
     public static String processRelations(List<Task> tasks) {
         String jsonString = GSON.toJson(tasks);
         // replace "subTasks" with "s" to save space
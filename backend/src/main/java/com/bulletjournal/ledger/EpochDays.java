@@ -0,0 +1,75 @@
+package com.bulletjournal.ledger;
+
+/**
+ * Allocation free calendar arithmetic on days since 1970-01-01 in the proleptic Gregorian calendar
+ */
+final class EpochDays {
+
+    private EpochDays() {
+    }
+
+    /**
+     * @return int - epoch day of a date
+     */
+    static int of(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @param date date as yyyy-MM-dd
+     * @return int - epoch day of the date
+     */
+    static int parse(String date) {
+        return of(digits(date, 0, 4), digits(date, 5, 7), digits(date, 8, 10));
+    }
+
+    private static int digits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return int - the date of an epoch day packed as year * 10000 + month * 100 + day
+     */
+    static int toYearMonthDay(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * @return int - day of week of an epoch day, 0 for Sunday to 6 for Saturday
+     */
+    static int dayOfWeek(int epochDay) {
+        // 1970-01-01 is a Thursday
+        return Math.floorMod(epochDay + 4, 7);
+    }
+
+    /**
+     * Week of month of a date for weeks starting on Sunday, where the first week is the first one
+     * having at least 4 days in the month and days before it are in week 0, the same as
+     * {@link java.util.Calendar#WEEK_OF_MONTH} of a calendar from {@link java.util.GregorianCalendar#from}
+     * with first day of week set to Sunday.
+     *
+     * @return int - week of month from 0 to 5
+     */
+    static int weekOfMonth(int epochDay, int dayOfMonth) {
+        int firstDayOfWeek = dayOfWeek(epochDay - dayOfMonth + 1);
+        return (dayOfMonth - 1 + firstDayOfWeek) / 7 + (7 - firstDayOfWeek >= 4 ? 1 : 0);
+    }
+}
@@ -0,0 +1,244 @@
+package com.bulletjournal.ledger;
+
+import com.bulletjournal.controller.models.Label;
+import com.bulletjournal.repository.models.Transaction;
+import com.bulletjournal.repository.models.TransactionOccurrence;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Columnar view of the transactions of a ledger, one primitive array per attribute aggregated by
+ * {@link LedgerSummaryCalculator}: epoch day of the transaction date, amount in minor units, type, label and
+ * payer. Labels, payers and currencies are dictionary encoded into dense indices, so that amounts of
+ * different currencies are summarized apart.
+ * <p>
+ * Rows keep a reference to their transaction so that presentation models are only built when the
+ * transactions themselves are returned. A row may also stand for several transactions already summed up
+ * in the database, counted by the count column and left out of presentation models.
+ */
+public class LedgerColumns {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int[] NO_LABELS = new int[0];
+
+    private int size = 0;
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[][] labels = new int[INITIAL_CAPACITY][];
+    private int[] payers = new int[INITIAL_CAPACITY];
+    private int[] currencies = new int[INITIAL_CAPACITY];
+
+    private Transaction[] transactions = new Transaction[INITIAL_CAPACITY];
+    private long[] startTimes = new long[INITIAL_CAPACITY];
+    private long[] endTimes = new long[INITIAL_CAPACITY];
+    private boolean[] occurrences = new boolean[INITIAL_CAPACITY];
+
+    private final List<String> payerNames = new ArrayList<>();
+    private final Map<String, Integer> payerIndices = new HashMap<>();
+    private final List<Long> labelIds = new ArrayList<>();
+    private final Map<Long, Integer> labelIndices = new HashMap<>();
+    private final Map<String, ZoneRules> zoneRules = new HashMap<>();
+    // null for the owner's default currency
+    private final List<String> currencyCodes = new ArrayList<>();
+    private final Map<String, Integer> currencyIndices = new HashMap<>();
+    private Label[] labelDictionary = new Label[0];
+
+    /**
+     * Add a non-recurring transaction
+     *
+     * @param transaction the transaction
+     */
+    public void add(Transaction transaction) {
+        add(transaction, EpochDays.parse(transaction.getDate()), transaction.getStartTime().getTime(),
+                transaction.getEndTime().getTime(), false);
+    }
+
+    /**
+     * Add one occurrence of a recurring transaction, dated by its start time in the transaction's timezone
+     *
+     * @param occurrence the occurrence
+     */
+    public void add(TransactionOccurrence occurrence) {
+        Transaction transaction = occurrence.getTransaction();
+        long startTime = occurrence.getStartTime();
+        int offsetSeconds = this.zoneRules.computeIfAbsent(transaction.getTimezone(), tz -> ZoneId.of(tz).getRules())
+                .getOffset(Instant.ofEpochMilli(startTime)).getTotalSeconds();
+        int epochDay = (int) Math.floorDiv(startTime + offsetSeconds * 1000L, 86400000L);
+        add(transaction, epochDay, startTime, occurrence.getEndTime(), true);
+    }
+
+    /**
+     * Add transactions summed up in the database
+     *
+     * @param date     date as yyyy-MM-dd of one of the transactions
+     * @param amount   sum of the transactions' amounts in minor units
+     * @param count    number of transactions
+     * @param type     type of the transactions
+     * @param labels   labels of the transactions
+     * @param payer    payer of the transactions
+     * @param currency currency of the transactions
+     */
+    public void add(String date, long amount, int count, TransactionType type, List<Long> labels, String payer,
+                    String currency) {
+        int i = addRow(EpochDays.parse(date), amount, count, type, labels, payer, currency);
+        this.transactions[i] = null;
+        this.occurrences[i] = false;
+    }
+
+    private void add(Transaction transaction, int epochDay, long startTime, long endTime, boolean occurrence) {
+        int i = addRow(epochDay, transaction.getAmountMinor(), 1, transaction.getTransactionType(),
+                transaction.isShared() ? transaction.getSharedItemLabels() : transaction.getLabels(),
+                transaction.getPayer(), transaction.getCurrency());
+        this.transactions[i] = transaction;
+        this.startTimes[i] = startTime;
+        this.endTimes[i] = endTime;
+        this.occurrences[i] = occurrence;
+    }
+
+    private int addRow(int epochDay, long amount, int count, TransactionType type, List<Long> labels, String payer,
+                       String currency) {
+        if (this.size == this.epochDays.length) {
+            grow();
+        }
+        int i = this.size++;
+        this.epochDays[i] = epochDay;
+        this.amounts[i] = amount;
+        this.counts[i] = count;
+        this.types[i] = (byte) type.getValue();
+        this.labels[i] = encodeLabels(labels);
+        this.payers[i] = this.payerIndices.computeIfAbsent(payer, p -> {
+            this.payerNames.add(p);
+            return this.payerNames.size() - 1;
+        });
+        this.currencies[i] = this.currencyIndices.computeIfAbsent(currency, c -> {
+            this.currencyCodes.add(c);
+            return this.currencyCodes.size() - 1;
+        });
+        return i;
+    }
+
+    private int[] encodeLabels(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return NO_LABELS;
+        }
+        int[] encoded = new int[ids.size()];
+        for (int j = 0; j < encoded.length; j++) {
+            encoded[j] = this.labelIndices.computeIfAbsent(ids.get(j), id -> {
+                this.labelIds.add(id);
+                return this.labelIds.size() - 1;
+            });
+        }
+        return encoded;
+    }
+
+    private void grow() {
+        int capacity = this.epochDays.length * 2;
+        this.epochDays = Arrays.copyOf(this.epochDays, capacity);
+        this.amounts = Arrays.copyOf(this.amounts, capacity);
+        this.counts = Arrays.copyOf(this.counts, capacity);
+        this.types = Arrays.copyOf(this.types, capacity);
+        this.labels = Arrays.copyOf(this.labels, capacity);
+        this.payers = Arrays.copyOf(this.payers, capacity);
+        this.currencies = Arrays.copyOf(this.currencies, capacity);
+        this.transactions = Arrays.copyOf(this.transactions, capacity);
+        this.startTimes = Arrays.copyOf(this.startTimes, capacity);
+        this.endTimes = Arrays.copyOf(this.endTimes, capacity);
+        this.occurrences = Arrays.copyOf(this.occurrences, capacity);
+    }
+
+    /**
+     * Resolve the label dictionary, labels not found are left out of summaries and presentation models
+     *
+     * @param loader loads labels by ids
+     */
+    public void resolveLabels(Function<List<Long>, List<Label>> loader) {
+        this.labelDictionary = new Label[this.labelIds.size()];
+        for (Label label : loader.apply(this.labelIds)) {
+            Integer index = this.labelIndices.get(label.getId());
+            if (index != null) {
+                this.labelDictionary[index] = label;
+            }
+        }
+    }
+
+    /**
+     * Build the presentation models of all rows ordered by start time and id
+     *
+     * @return List<Transaction> - the transactions
+     */
+    public List<com.bulletjournal.controller.models.Transaction> toPresentationModels() {
+        List<Integer> rows = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            if (this.transactions[i] != null) {
+                rows.add(i);
+            }
+        }
+        Integer[] order = rows.toArray(new Integer[0]);
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> this.startTimes[i])
+                .thenComparingLong(i -> this.transactions[i].getId()));
+        List<com.bulletjournal.controller.models.Transaction> result = new ArrayList<>(order.length);
+        for (int i : order) {
+            List<Label> rowLabels = new ArrayList<>(this.labels[i].length);
+            for (int label : this.labels[i]) {
+                if (this.labelDictionary[label] != null) {
+                    rowLabels.add(this.labelDictionary[label]);
+                }
+            }
+            result.add(this.occurrences[i]
+                    ? new TransactionOccurrence(this.transactions[i], this.startTimes[i], this.endTimes[i])
+                    .toPresentationModel(rowLabels)
+                    : this.transactions[i].toPresentationModel(rowLabels));
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    int[] getEpochDays() {
+        return epochDays;
+    }
+
+    long[] getAmounts() {
+        return amounts;
+    }
+
+    int[] getCounts() {
+        return counts;
+    }
+
+    byte[] getTypes() {
+        return types;
+    }
+
+    int[][] getLabels() {
+        return labels;
+    }
+
+    int[] getPayers() {
+        return payers;
+    }
+
+    List<String> getPayerNames() {
+        return payerNames;
+    }
+
+    int[] getCurrencies() {
+        return currencies;
+    }
+
+    List<String> getCurrencyCodes() {
+        return currencyCodes;
+    }
+
+    Label[] getLabelDictionary() {
+        return labelDictionary;
+    }
+}
@@ -23,6 +23,11 @@ public class LedgerSummary {
 
     private String endDate; // "yyyy-MM-dd"
 
+    private String currency; // ISO 4217 code, null for the owner's default currency
+
+    // set instead of the totals and transactionsSummaries when the ledger mixes currencies
+    private List<LedgerSummary> currencySummaries;
+
     public LedgerSummary() {
     }
 
@@ -49,7 +54,7 @@ public class LedgerSummary {
     }
 
     public Double getBalance() {
-        return MathUtil.round(balance, 2);
+        return balance == null ? null : MathUtil.round(balance, 2);
     }
 
     public void setBalance(Double balance) {
@@ -57,7 +62,7 @@ public class LedgerSummary {
     }
 
     public Double getIncome() {
-        return MathUtil.round(income, 2);
+        return income == null ? null : MathUtil.round(income, 2);
     }
 
     public void setIncome(Double income) {
@@ -65,7 +70,7 @@ public class LedgerSummary {
     }
 
     public Double getExpense() {
-        return MathUtil.round(expense, 2);
+        return expense == null ? null : MathUtil.round(expense, 2);
     }
 
     public void setExpense(Double expense) {
@@ -87,4 +92,20 @@ public class LedgerSummary {
     public void setTransactionsSummaries(List<TransactionsSummary> transactionsSummaries) {
         this.transactionsSummaries = transactionsSummaries;
     }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public List<LedgerSummary> getCurrencySummaries() {
+        return currencySummaries;
+    }
+
+    public void setCurrencySummaries(List<LedgerSummary> currencySummaries) {
+        this.currencySummaries = currencySummaries;
+    }
 }
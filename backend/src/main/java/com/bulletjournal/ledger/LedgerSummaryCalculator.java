@@ -1,187 +1,302 @@
 package com.bulletjournal.ledger;
 
 import com.bulletjournal.controller.models.Label;
-import com.bulletjournal.controller.models.Transaction;
 import com.bulletjournal.controller.utils.ZonedDateTimeHelper;
+import com.bulletjournal.exceptions.BadRequestException;
 import org.springframework.stereotype.Component;
 
+import java.time.Month;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.function.Consumer;
 import java.util.function.Function;
 
+/**
+ * Aggregates the columns of a ledger in one pass over primitive arrays.
+ * <p>
+ * Every row is mapped to a dense group index computed arithmetically from its epoch day, label or payer,
+ * and amounts are summed as {@link Money} minor units into per group accumulators, failing rather than
+ * overflowing. Names and metadata are only formatted
+ * once per group. A ledger mixing currencies gets one summary per currency, since their amounts cannot be
+ * added up.
+ */
 @Component
 public class LedgerSummaryCalculator {
 
+    private static final int WEEKS_PER_MONTH = 6;
+    private static final int ALL_CURRENCIES = -1;
+
+    /**
+     * Summarize a ledger. A ledger in a single currency is summarized at the top level, a ledger mixing
+     * currencies only gets a summary per currency, listed with the default currency first.
+     *
+     * @return LedgerSummary - the summary, without transactions
+     */
     public LedgerSummary getLedgerSummary(
             LedgerSummaryType ledgerSummaryType,
-            ZonedDateTime startTime, ZonedDateTime endTime, List<Transaction> transactions, FrequencyType frequencyType) {
-        final LedgerSummary ledgerSummary = new LedgerSummary(transactions,
+            ZonedDateTime startTime, ZonedDateTime endTime, LedgerColumns columns, FrequencyType frequencyType) {
+        List<String> currencies = columns.getCurrencyCodes();
+        try {
+            if (currencies.size() <= 1) {
+                LedgerSummary ledgerSummary = summarize(
+                        ledgerSummaryType, startTime, endTime, columns, frequencyType, ALL_CURRENCIES);
+                ledgerSummary.setCurrency(currencies.isEmpty() ? null : currencies.get(0));
+                return ledgerSummary;
+            }
+            LedgerSummary ledgerSummary = new LedgerSummary(null,
+                    ZonedDateTimeHelper.getDate(startTime),
+                    ZonedDateTimeHelper.getDate(endTime));
+            ledgerSummary.setTransactionsSummaries(new ArrayList<>());
+            List<LedgerSummary> currencySummaries = new ArrayList<>(currencies.size());
+            for (int c = 0; c < currencies.size(); c++) {
+                LedgerSummary currencySummary = summarize(
+                        ledgerSummaryType, startTime, endTime, columns, frequencyType, c);
+                currencySummary.setCurrency(currencies.get(c));
+                currencySummaries.add(currencySummary);
+            }
+            currencySummaries.sort(Comparator.comparing(LedgerSummary::getCurrency,
+                    Comparator.nullsFirst(Comparator.naturalOrder())));
+            ledgerSummary.setCurrencySummaries(currencySummaries);
+            return ledgerSummary;
+        } catch (ArithmeticException ex) {
+            throw new BadRequestException("Ledger amounts exceed the supported range", ex);
+        }
+    }
+
+    private LedgerSummary summarize(
+            LedgerSummaryType ledgerSummaryType, ZonedDateTime startTime, ZonedDateTime endTime,
+            LedgerColumns columns, FrequencyType frequencyType, int currency) {
+        final LedgerSummary ledgerSummary = new LedgerSummary(null,
                 ZonedDateTimeHelper.getDate(startTime),
                 ZonedDateTimeHelper.getDate(endTime));
 
-        final Total total = new Total();
-        Map<String, Transactions> m = new HashMap<>();
-
+        final Groups groups;
         Function<? super TransactionsSummary, ? extends String> transactionsSummariesComparator =
                 TransactionsSummary::getName;
 
         switch (ledgerSummaryType) {
             case DEFAULT:
                 transactionsSummariesComparator = TransactionsSummary::getMetadata;
-                final Function<Transaction, String> name;
-                final Function<Transaction, String> metadata;
-                switch (frequencyType) {
-                    case MONTHLY:
-                        name = (t) -> t.getReadableYearMonth();
-                        metadata = (t) -> t.getYearMonth();
-                        break;
-                    case YEARLY:
-                        name = (t) -> t.getYear();
-                        metadata = (t) -> t.getYear();
-                        break;
-                    case WEEKLY:
-                        name = (t) -> t.getReadableWeek();
-                        metadata = (t) -> t.getWeek();
-                        break;
-                    default:
-                        throw new IllegalArgumentException();
-                }
-
-                processTransaction(transactions, total, (t -> {
-                    double amount = t.getAmount();
-                    Transactions tran = m.computeIfAbsent(name.apply(t), k -> new Transactions());
-                    tran.setMeta(metadata.apply(t));
-                    switch (TransactionType.getType(t.getTransactionType())) {
-                        case INCOME:
-                            tran.addIncome(amount);
-                            break;
-                        case EXPENSE:
-                            tran.addExpense(amount);
-                            break;
-                    }
-                }));
+                groups = groupByPeriod(columns, frequencyType, currency);
                 break;
             case LABEL:
-                processTransaction(transactions, total, (t -> {
-                    double amount = t.getAmount();
-                    for (Label l : t.getLabels()) {
-                        Transactions tran = m.computeIfAbsent(l.getValue(), k -> new Transactions());
-                        switch (TransactionType.getType(t.getTransactionType())) {
-                            case INCOME:
-                                tran.addIncome(amount);
-                                break;
-                            case EXPENSE:
-                                tran.addExpense(amount);
-                                break;
-                        }
-                    }
-                }));
+                groups = groupByLabel(columns, currency);
                 break;
             case PAYER:
-                processTransaction(transactions, total, (t -> {
-                    Transactions tran = m.computeIfAbsent(t.getPayer().getName(), k -> new Transactions());
-                    double amount = t.getAmount();
-                    switch (TransactionType.getType(t.getTransactionType())) {
-                        case INCOME:
-                            tran.addIncome(amount);
-                            break;
-                        case EXPENSE:
-                            tran.addExpense(amount);
-                            break;
-                    }
-                }));
+                groups = groupByPayer(columns, currency);
                 break;
             default:
                 throw new IllegalArgumentException("Invalid LedgerSummaryType " + ledgerSummaryType);
         }
 
-        ledgerSummary.setIncome(total.totalIncome);
-        ledgerSummary.setExpense(total.totalExpense);
-        ledgerSummary.setBalance(total.totalIncome - total.totalExpense);
-        final List<TransactionsSummary> transactionsSummaries = new ArrayList<>();
-        m.forEach((k, v) -> {
-            double balance = v.getIncome() - v.getExpense();
+        long totalIncome = 0;
+        long totalExpense = 0;
+        long[] amounts = columns.getAmounts();
+        byte[] types = columns.getTypes();
+        for (int i = 0; i < columns.size(); i++) {
+            if (!inCurrency(columns, i, currency)) {
+                continue;
+            }
+            if (types[i] == TransactionType.INCOME.getValue()) {
+                totalIncome = Money.add(totalIncome, amounts[i]);
+            } else {
+                totalExpense = Money.add(totalExpense, amounts[i]);
+            }
+        }
+        long totalBalance = Math.subtractExact(totalIncome, totalExpense);
+
+        ledgerSummary.setIncome(Money.toAmount(totalIncome));
+        ledgerSummary.setExpense(Money.toAmount(totalExpense));
+        ledgerSummary.setBalance(Money.toAmount(totalBalance));
+        final List<TransactionsSummary> transactionsSummaries = new ArrayList<>(groups.size());
+        for (int g = 0; g < groups.size(); g++) {
+            if (groups.incomeCounts[g] == 0 && groups.expenseCounts[g] == 0) {
+                continue;
+            }
+            long balance = Math.subtractExact(groups.incomes[g], groups.expenses[g]);
             transactionsSummaries.add(new TransactionsSummary(
-                    k,
-                    v.getMeta(),
-                    v.getIncome(),
-                    Math.round((v.getIncome() * 100 / total.totalIncome) * 100.0) / 100.0,
-                    v.getExpense(),
-                    Math.round(v.getExpense() * 100 / total.totalExpense * 100.0) / 100.0,
-                    balance,
-                    Math.round(balance * 100 / ledgerSummary.getBalance() * 100.0) / 100.0,
-                    v.getIncomeCount(),
-                    v.getExpenseCount()
+                    groups.names.apply(g),
+                    groups.metadata.apply(g),
+                    Money.toAmount(groups.incomes[g]),
+                    Money.percentage(groups.incomes[g], totalIncome),
+                    Money.toAmount(groups.expenses[g]),
+                    Money.percentage(groups.expenses[g], totalExpense),
+                    Money.toAmount(balance),
+                    Money.percentage(balance, totalBalance),
+                    groups.incomeCounts[g],
+                    groups.expenseCounts[g]
             ));
-        });
+        }
         transactionsSummaries.sort(Comparator.comparing(transactionsSummariesComparator));
         ledgerSummary.setTransactionsSummaries(transactionsSummaries);
         return ledgerSummary;
     }
 
-    private void processTransaction(List<Transaction> transactions, Total total,
-                                    Consumer<Transaction> transactionHandler) {
-        for (Transaction t : transactions) {
-            transactionHandler.accept(t);
-            TransactionType transactionType = TransactionType.getType(t.getTransactionType());
-            double amount = t.getAmount();
-
-            switch (transactionType) {
-                case INCOME:
-                    total.totalIncome += amount;
+    /**
+     * Group rows by year, month or week of month of their date. Period keys are consecutive integers, so
+     * groups are indexed by the key's offset from the smallest key.
+     */
+    private Groups groupByPeriod(LedgerColumns columns, FrequencyType frequencyType, int currency) {
+        int size = columns.size();
+        int[] epochDays = columns.getEpochDays();
+        int[] keys = new int[size];
+        int minKey = Integer.MAX_VALUE;
+        int maxKey = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (!inCurrency(columns, i, currency)) {
+                continue;
+            }
+            int date = EpochDays.toYearMonthDay(epochDays[i]);
+            int year = date / 10000;
+            int month = date / 100 % 100;
+            switch (frequencyType) {
+                case YEARLY:
+                    keys[i] = year;
+                    break;
+                case MONTHLY:
+                    keys[i] = year * 12 + month - 1;
                     break;
-                case EXPENSE:
-                    total.totalExpense += amount;
+                case WEEKLY:
+                    keys[i] = (year * 12 + month - 1) * WEEKS_PER_MONTH
+                            + EpochDays.weekOfMonth(epochDays[i], date % 100);
                     break;
+                default:
+                    throw new IllegalArgumentException();
             }
+            minKey = Math.min(minKey, keys[i]);
+            maxKey = Math.max(maxKey, keys[i]);
         }
-    }
-
-    private static class Transactions {
-        double income = 0.0;
-        double expense = 0.0;
-        int incomeCount = 0;
-        int expenseCount = 0;
-        String meta = null;
 
-        void addIncome(double amount) {
-            this.income += amount;
-            this.incomeCount++;
+        final int base = minKey;
+        Groups groups = new Groups(minKey > maxKey ? 0 : maxKey - base + 1);
+        // a day of each group, all days of a group share the group's name and metadata
+        int[] days = new int[groups.size()];
+        for (int i = 0; i < size; i++) {
+            if (!inCurrency(columns, i, currency)) {
+                continue;
+            }
+            int g = keys[i] - base;
+            days[g] = epochDays[i];
+            groups.add(g, columns, i);
         }
 
-        void addExpense(double amount) {
-            this.expense += amount;
-            this.expenseCount++;
+        switch (frequencyType) {
+            case YEARLY:
+                groups.names = g -> String.format("%04d", g + base);
+                groups.metadata = groups.names;
+                break;
+            case MONTHLY:
+                groups.names = g -> {
+                    int key = g + base;
+                    return String.format("%04d %s", key / 12, Month.of(key % 12 + 1).name());
+                };
+                groups.metadata = g -> {
+                    int key = g + base;
+                    return String.format("%04d-%02d", key / 12, key % 12 + 1);
+                };
+                break;
+            case WEEKLY:
+                groups.names = g -> {
+                    int key = g + base;
+                    int monthKey = key / WEEKS_PER_MONTH;
+                    return String.format("%04d %s Week %d", monthKey / 12, Month.of(monthKey % 12 + 1).name(),
+                            key % WEEKS_PER_MONTH);
+                };
+                groups.metadata = g -> {
+                    int weekStart = days[g] - EpochDays.dayOfWeek(days[g]);
+                    return formatDate(weekStart) + " " + formatDate(weekStart + 6);
+                };
+                break;
         }
+        return groups;
+    }
 
-        public double getIncome() {
-            return income;
-        }
+    private static String formatDate(int epochDay) {
+        int date = EpochDays.toYearMonthDay(epochDay);
+        return String.format("%04d-%02d-%02d", date / 10000, date / 100 % 100, date % 100);
+    }
 
-        public double getExpense() {
-            return expense;
+    /**
+     * Group rows by the value of each of their labels, labels having the same value share one group
+     */
+    private Groups groupByLabel(LedgerColumns columns, int currency) {
+        Label[] dictionary = columns.getLabelDictionary();
+        Map<String, Integer> groupIndices = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int[] labelGroups = new int[dictionary.length];
+        for (int l = 0; l < dictionary.length; l++) {
+            if (dictionary[l] == null) {
+                labelGroups[l] = -1;
+                continue;
+            }
+            labelGroups[l] = groupIndices.computeIfAbsent(dictionary[l].getValue(), value -> {
+                names.add(value);
+                return names.size() - 1;
+            });
         }
 
-        public String getMeta() {
-            return meta;
+        Groups groups = new Groups(names.size());
+        int[][] labels = columns.getLabels();
+        for (int i = 0; i < columns.size(); i++) {
+            if (!inCurrency(columns, i, currency)) {
+                continue;
+            }
+            for (int label : labels[i]) {
+                if (labelGroups[label] >= 0) {
+                    groups.add(labelGroups[label], columns, i);
+                }
+            }
         }
+        groups.names = names::get;
+        groups.metadata = g -> null;
+        return groups;
+    }
 
-        public void setMeta(String meta) {
-            this.meta = meta;
+    private Groups groupByPayer(LedgerColumns columns, int currency) {
+        List<String> names = columns.getPayerNames();
+        Groups groups = new Groups(names.size());
+        int[] payers = columns.getPayers();
+        for (int i = 0; i < columns.size(); i++) {
+            if (!inCurrency(columns, i, currency)) {
+                continue;
+            }
+            groups.add(payers[i], columns, i);
         }
+        groups.names = names::get;
+        groups.metadata = g -> null;
+        return groups;
+    }
+
+    private static boolean inCurrency(LedgerColumns columns, int row, int currency) {
+        return currency == ALL_CURRENCIES || columns.getCurrencies()[row] == currency;
+    }
+
+    private static class Groups {
+        final long[] incomes;
+        final long[] expenses;
+        final int[] incomeCounts;
+        final int[] expenseCounts;
+        Function<Integer, String> names;
+        Function<Integer, String> metadata;
 
-        public int getIncomeCount() {
-            return incomeCount;
+        Groups(int size) {
+            this.incomes = new long[size];
+            this.expenses = new long[size];
+            this.incomeCounts = new int[size];
+            this.expenseCounts = new int[size];
         }
 
-        public int getExpenseCount() {
-            return expenseCount;
+        void add(int group, LedgerColumns columns, int row) {
+            if (columns.getTypes()[row] == TransactionType.INCOME.getValue()) {
+                this.incomes[group] = Money.add(this.incomes[group], columns.getAmounts()[row]);
+                this.incomeCounts[group] += columns.getCounts()[row];
+            } else {
+                this.expenses[group] = Money.add(this.expenses[group], columns.getAmounts()[row]);
+                this.expenseCounts[group] += columns.getCounts()[row];
+            }
         }
-    }
 
-    private static class Total {
-        double totalIncome = 0.0;
-        double totalExpense = 0.0;
+        int size() {
+            return this.incomes.length;
+        }
     }
 }
@@ -0,0 +1,53 @@
+package com.bulletjournal.ledger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point ledger amounts, stored as a long count of minor units of {@link #SCALE} decimal places
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    private static final long MINOR_UNITS = 100L;
+
+    private Money() {
+    }
+
+    /**
+     * @param amount decimal amount, rounded half up to {@link #SCALE} decimal places
+     * @return long - the amount in minor units
+     * @throws ArithmeticException if the amount does not fit in a long count of minor units
+     */
+    public static long toMinorUnits(double amount) {
+        return BigDecimal.valueOf(amount).setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @return double - the decimal amount nearest to the given minor units
+     */
+    public static double toAmount(long minorUnits) {
+        return minorUnits / (double) MINOR_UNITS;
+    }
+
+    /**
+     * Add two amounts in minor units
+     *
+     * @throws ArithmeticException if the sum overflows
+     */
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Share of a part in a total, as a percentage rounded to two decimal places
+     *
+     * @return double - the percentage, 0 if the total is zero
+     */
+    public static double percentage(long part, long total) {
+        if (total == 0) {
+            return 0;
+        }
+        return Math.round(part * 10000.0 / total) / 100.0;
+    }
+}
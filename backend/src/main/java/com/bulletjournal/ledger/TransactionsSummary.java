@@ -3,6 +3,8 @@ package com.bulletjournal.ledger;
 import com.bulletjournal.util.MathUtil;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
+import java.util.Objects;
+
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class TransactionsSummary {
 
@@ -124,4 +126,23 @@ public class TransactionsSummary {
     public void setExpenseCount(Integer expenseCount) {
         this.expenseCount = expenseCount;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TransactionsSummary)) return false;
+        TransactionsSummary that = (TransactionsSummary) o;
+        return Objects.equals(getName(), that.getName()) &&
+                Objects.equals(getMetadata(), that.getMetadata()) &&
+                Objects.equals(getIncome(), that.getIncome()) &&
+                Objects.equals(getExpense(), that.getExpense()) &&
+                Objects.equals(getIncomeCount(), that.getIncomeCount()) &&
+                Objects.equals(getExpenseCount(), that.getExpenseCount());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getName(), getMetadata(), getIncome(), getExpense(), getIncomeCount(),
+                getExpenseCount());
+    }
 }
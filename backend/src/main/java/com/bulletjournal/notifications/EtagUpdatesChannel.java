@@ -0,0 +1,166 @@
+package com.bulletjournal.notifications;
+
+import com.bulletjournal.controller.models.SystemUpdates;
+import com.bulletjournal.redis.models.Etag;
+import com.bulletjournal.redis.models.EtagType;
+import com.bulletjournal.util.CustomThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Per-user server-sent events channel pushing etag changes, so that clients only re-fetch what changed
+ * instead of polling {@link com.bulletjournal.controller.SystemController#UPDATES_ROUTE}.
+ * <p>
+ * Changed etags are published to a Redis channel and every backend instance forwards them to the
+ * emitters of its own connected users. Each event carries a {@link SystemUpdates} with only the changed
+ * etag set.
+ */
+@Component
+public class EtagUpdatesChannel implements MessageListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EtagUpdatesChannel.class);
+    private static final String TOPIC = "etag-updates";
+    private static final String EVENT_NAME = "updates";
+    private static final long EMITTER_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final long HEARTBEAT_SECONDS = 25;
+
+    private final Map<String, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    public EtagUpdatesChannel() {
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(new CustomThreadFactory("etag-updates"));
+    }
+
+    @PostConstruct
+    public void postConstruct() {
+        this.redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(TOPIC));
+        // keep idle connections open through proxies
+        this.heartbeat.scheduleWithFixedDelay(this::sendHeartbeat,
+                HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Open a channel for the user
+     *
+     * @param username the requester's username
+     * @return SseEmitter - emitter receiving the user's etag changes
+     */
+    public SseEmitter subscribe(String username) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        Set<SseEmitter> userEmitters = this.emitters.computeIfAbsent(username, k -> new CopyOnWriteArraySet<>());
+        userEmitters.add(emitter);
+        Runnable remove = () -> unsubscribe(username, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * Publish changed etags to the users connected to any backend instance
+     *
+     * @param etags the etags just cached
+     */
+    public void publish(List<Etag> etags) {
+        for (Etag etag : etags) {
+            try {
+                this.redisTemplate.convertAndSend(TOPIC, etag.getIndex() + '\n' + etag.getEtag());
+            } catch (Exception ex) {
+                LOGGER.error("Error on publishing etag " + etag.getIndex(), ex);
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int newline = body.indexOf('\n');
+        // index is username@EtagType
+        int at = body.lastIndexOf('@', newline);
+        if (newline < 0 || at < 0) {
+            LOGGER.error("Malformed etag update {}", body);
+            return;
+        }
+        String username = body.substring(0, at);
+        Set<SseEmitter> userEmitters = this.emitters.get(username);
+        if (userEmitters == null || userEmitters.isEmpty()) {
+            return;
+        }
+        SystemUpdates updates = toSystemUpdates(EtagType.of(body.substring(at + 1, newline)),
+                body.substring(newline + 1));
+        if (updates == null) {
+            return;
+        }
+        for (SseEmitter emitter : userEmitters) {
+            try {
+                emitter.send(SseEmitter.event().name(EVENT_NAME).data(updates));
+            } catch (Exception ex) {
+                emitter.completeWithError(ex);
+                unsubscribe(username, emitter);
+            }
+        }
+    }
+
+    private static SystemUpdates toSystemUpdates(EtagType type, String etag) {
+        SystemUpdates updates = new SystemUpdates();
+        switch (type) {
+            case NOTIFICATION:
+                updates.setNotificationsEtag(etag);
+                break;
+            case GROUP:
+                updates.setGroupsEtag(etag);
+                break;
+            default:
+                return null;
+        }
+        return updates;
+    }
+
+    private void unsubscribe(String username, SseEmitter emitter) {
+        this.emitters.computeIfPresent(username, (k, userEmitters) -> {
+            userEmitters.remove(emitter);
+            return userEmitters.isEmpty() ? null : userEmitters;
+        });
+    }
+
+    private void sendHeartbeat() {
+        this.emitters.forEach((username, userEmitters) -> {
+            for (SseEmitter emitter : userEmitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (Exception ex) {
+                    emitter.completeWithError(ex);
+                    unsubscribe(username, emitter);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        this.heartbeat.shutdownNow();
+        this.emitters.values().forEach(userEmitters -> userEmitters.forEach(SseEmitter::complete));
+        this.emitters.clear();
+    }
+}
@@ -0,0 +1,372 @@
+package com.bulletjournal.notifications;
+
+import com.bulletjournal.config.NotificationConfig;
+import com.bulletjournal.util.CustomThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded queue of one event type drained by its own worker pool.
+ * <p>
+ * Each worker takes an event, keeps collecting until the batch is full or the batch window elapses
+ * and hands the batch to the handler, so a slow handler only holds back events of its own type.
+ * <p>
+ * A durable pipeline writes each event to the {@link NotificationJournal} before accepting it and acks
+ * it once handled, so that events pending on shutdown or crash are replayed on the next startup. Events
+ * whose handler keeps failing after maxAttempts are dead-lettered and acked. A transactional pipeline
+ * removes its events from the journal in its handler's transaction, so that a replay never repeats
+ * committed writes. Handlers of other durable pipelines must tolerate redelivery.
+ * <p>
+ * When the queue stays full beyond blockMillis, a durable pipeline spills the event: only its journal
+ * sequence is kept and the event is read back from the journal once the queue has room again.
+ */
+public class EventPipeline<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventPipeline.class);
+    private static final long POLL_MILLIS = 500;
+
+    private final String name;
+    private final NotificationConfig.Pipeline config;
+    private final Consumer<List<T>> handler;
+    private final BlockingQueue<Envelope<T>> queue;
+    private final ExecutorService workers;
+    private final Timer handlerLatency;
+    private final Counter dropped;
+    private final Counter deadLettered;
+    private final Counter spilledCount;
+    // journal sequences of spilled events, in spill order
+    private final Queue<CompletableFuture<Long>> spilled = new ConcurrentLinkedQueue<>();
+    private volatile boolean stop = false;
+    private volatile NotificationJournal journal;
+
+    public EventPipeline(String name, NotificationConfig.Pipeline config, Consumer<List<T>> handler,
+                         MeterRegistry meterRegistry) {
+        this.name = name;
+        this.config = config;
+        this.handler = handler;
+        this.queue = new LinkedBlockingQueue<>(config.getCapacity());
+        this.workers = Executors.newFixedThreadPool(config.getWorkers(),
+                new CustomThreadFactory("notification-" + name));
+        this.handlerLatency = Timer.builder("notification.handler.latency")
+                .tag("type", name)
+                .description("Time spent by the handler on one batch of events")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("notification.dropped").tag("type", name).register(meterRegistry);
+        this.deadLettered = Counter.builder("notification.dead.lettered").tag("type", name)
+                .register(meterRegistry);
+        this.spilledCount = Counter.builder("notification.spilled").tag("type", name).register(meterRegistry);
+        meterRegistry.gauge("notification.queue.depth", Tags.of("type", name),
+                this.queue, BlockingQueue::size);
+    }
+
+    /**
+     * Start workers, a durable pipeline first re-enqueues the events left unhandled by the last run
+     *
+     * @param journal the journal of durable pipelines, null to keep events in memory only
+     */
+    @SuppressWarnings("unchecked")
+    public void start(NotificationJournal journal) {
+        for (int i = 0; i < this.config.getWorkers(); i++) {
+            this.workers.submit(this::work);
+        }
+        if (journal == null || !this.config.isDurable()) {
+            return;
+        }
+        this.journal = journal;
+        for (Pair<Long, Object> entry : journal.replay(this.name)) {
+            try {
+                this.queue.put(new Envelope<>((T) entry.getValue(),
+                        CompletableFuture.completedFuture(entry.getKey())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Enqueue an event according to the backpressure policy of this pipeline
+     *
+     * @param event the event to handle
+     * @return boolean - whether the event has been accepted
+     */
+    public boolean offer(T event) {
+        Envelope<T> envelope = new Envelope<>(event, journal(event));
+        boolean accepted;
+        switch (this.config.getBackpressure()) {
+            case DROP_NEWEST:
+                accepted = this.queue.offer(envelope);
+                break;
+            case DROP_OLDEST:
+                accepted = this.queue.offer(envelope);
+                while (!accepted) {
+                    Envelope<T> oldest = this.queue.poll();
+                    if (oldest != null) {
+                        this.dropped.increment();
+                        ack(oldest);
+                    }
+                    accepted = this.queue.offer(envelope);
+                }
+                return true;
+            default:
+                try {
+                    accepted = this.queue.offer(envelope, this.config.getBlockMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    accepted = false;
+                }
+                if (!accepted && envelope.seq != null) {
+                    this.spilledCount.increment();
+                    this.spilled.add(envelope.seq);
+                    LOGGER.warn("Pipeline {} is full, spilling event {} to the journal", this.name, event);
+                    return true;
+                }
+        }
+        if (!accepted) {
+            this.dropped.increment();
+            ack(envelope);
+            LOGGER.error("Pipeline {} is full, dropping event {}", this.name, event);
+        }
+        return accepted;
+    }
+
+    private CompletableFuture<Long> journal(T event) {
+        NotificationJournal journal = this.journal;
+        if (journal == null) {
+            return null;
+        }
+        CompletableFuture<Long> seq = journal.append(this.name, event);
+        try {
+            // shares the commit with concurrent appends, a slow journal only costs durability
+            seq.get(journal.getAppendTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            // the append still commits with its batch and is acked once both are done
+        } catch (Exception ex) {
+            LOGGER.error("Pipeline {} failed to journal event {}", this.name, event);
+        }
+        return seq;
+    }
+
+    private void ack(Envelope<T> envelope) {
+        if (envelope.seq != null) {
+            envelope.seq.thenAccept(seq -> this.journal.ack(this.name, seq));
+        }
+    }
+
+    public int size() {
+        return this.queue.size();
+    }
+
+    private void work() {
+        Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+        // keep draining after stop so that accepted events are not lost on shutdown
+        while (!this.stop || !this.queue.isEmpty()) {
+            List<Envelope<T>> batch = new ArrayList<>();
+            unspill();
+            try {
+                Envelope<T> first = this.queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            handle(batch);
+        }
+    }
+
+    /**
+     * Hand a batch to the handler and ack it. A journaled batch is retried with exponential backoff, then
+     * its events are retried one by one and those still failing are dead-lettered, so that no event holds
+     * back the journal. A batch failing on shutdown is left unacked for replay.
+     */
+    private void handle(List<Envelope<T>> batch) {
+        NotificationJournal journal = this.journal;
+        if (journal == null) {
+            Exception error = attempt(batch, null);
+            if (error != null) {
+                LOGGER.error("Error on handling " + batch.size() + " " + this.name + " events", error);
+            }
+            return;
+        }
+        batch.forEach(Envelope::awaitSeq);
+        int maxAttempts = Math.max(1, this.config.getMaxAttempts());
+        long backoff = this.config.getRetryBackoffMillis();
+        Exception error;
+        for (int attempt = 1; ; attempt++) {
+            error = attempt(batch, journal);
+            if (error == null) {
+                batch.forEach(this::ack);
+                return;
+            }
+            if (this.stop) {
+                LOGGER.error("Error on handling " + batch.size() + " " + this.name
+                        + " events, leaving them in the journal for replay", error);
+                return;
+            }
+            if (attempt >= maxAttempts) {
+                break;
+            }
+            LOGGER.warn("Error on handling " + this.name + " events, attempt " + attempt + " of "
+                    + maxAttempts, error);
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff *= 2;
+        }
+        for (Envelope<T> envelope : batch) {
+            Exception eventError = batch.size() == 1 ? error : attempt(Collections.singletonList(envelope), journal);
+            if (eventError == null) {
+                ack(envelope);
+                continue;
+            }
+            this.deadLettered.increment();
+            LOGGER.error("Dead-lettering " + this.name + " event " + envelope.event, eventError);
+            if (envelope.resolvedSeq != null) {
+                journal.deadLetter(this.name, envelope.resolvedSeq, eventError);
+            }
+        }
+    }
+
+    /**
+     * Run the handler once on a batch, a transactional pipeline removes the batch from the journal in
+     * the handler's transaction
+     *
+     * @return Exception - the handler's error, null if it succeeded
+     */
+    private Exception attempt(List<Envelope<T>> batch, NotificationJournal journal) {
+        List<T> events = batch.stream().map(e -> e.event).collect(Collectors.toList());
+        long start = System.nanoTime();
+        try {
+            if (journal != null && this.config.isTransactional()) {
+                journal.consume(batch.stream().map(e -> e.resolvedSeq).filter(Objects::nonNull)
+                        .collect(Collectors.toList()), () -> this.handler.accept(events));
+            } else {
+                this.handler.accept(events);
+            }
+            return null;
+        } catch (Exception ex) {
+            return ex;
+        } finally {
+            this.handlerLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Move spilled events back from the journal into the queue as far as it has room
+     */
+    private synchronized void unspill() {
+        List<Long> seqs = new ArrayList<>();
+        int room = this.queue.remainingCapacity();
+        while (seqs.size() < room && !this.spilled.isEmpty()) {
+            CompletableFuture<Long> seq = this.spilled.peek();
+            if (!seq.isDone()) {
+                break;
+            }
+            this.spilled.poll();
+            if (seq.isCompletedExceptionally()) {
+                LOGGER.error("Pipeline {} lost a spilled event whose journal append failed", this.name);
+                continue;
+            }
+            seqs.add(seq.join());
+        }
+        if (seqs.isEmpty()) {
+            return;
+        }
+        List<Pair<Long, Object>> entries;
+        try {
+            entries = this.journal.read(seqs);
+        } catch (Exception ex) {
+            LOGGER.error("Pipeline " + this.name + " failed to read spilled events, retrying later", ex);
+            seqs.forEach(seq -> this.spilled.add(CompletableFuture.completedFuture(seq)));
+            return;
+        }
+        for (Pair<Long, Object> entry : entries) {
+            @SuppressWarnings("unchecked")
+            T event = (T) entry.getValue();
+            if (!this.queue.offer(new Envelope<>(event, CompletableFuture.completedFuture(entry.getKey())))) {
+                this.spilled.add(CompletableFuture.completedFuture(entry.getKey()));
+            }
+        }
+    }
+
+    private void collect(List<Envelope<T>> batch) throws InterruptedException {
+        int batchSize = this.config.getBatchSize();
+        this.queue.drainTo(batch, batchSize - batch.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.config.getBatchWindowMillis());
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Envelope<T> next = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            this.queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    public void shutdown(long timeoutMillis) {
+        this.stop = true;
+        this.workers.shutdown();
+        try {
+            if (!this.workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Pipeline {} stopped with {} pending events", this.name, this.queue.size());
+                this.workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Envelope<T> {
+        private static final long SEQ_TIMEOUT_SECONDS = 5;
+
+        private final T event;
+        // null when the event is not journaled
+        private final CompletableFuture<Long> seq;
+        // set by awaitSeq, null when the event is not journaled or its append failed
+        private Long resolvedSeq;
+
+        Envelope(T event, CompletableFuture<Long> seq) {
+            this.event = event;
+            this.seq = seq;
+        }
+
+        void awaitSeq() {
+            if (this.seq == null) {
+                return;
+            }
+            try {
+                this.resolvedSeq = this.seq.get(SEQ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                LOGGER.warn("Handling event {} whose journal append did not complete", this.event);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.bulletjournal.notifications;
+
+import java.util.List;
+
+/**
+ * Documents to refresh from their current rows, indexed if the row exists and deleted otherwise
+ */
+public class IndexElasticsearchDocumentEvent {
+    private List<String> documentIds;
+
+    public IndexElasticsearchDocumentEvent(List<String> documentIds) {
+        this.documentIds = documentIds;
+    }
+
+    public List<String> getDocumentIds() {
+        return documentIds;
+    }
+
+    public void setDocumentIds(List<String> documentIds) {
+        this.documentIds = documentIds;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexElasticsearchDocumentEvent{" +
+                "documentIds=" + documentIds +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+package com.bulletjournal.notifications;
+
+public class LabelRemoval {
+    private Long labelId;
+    private String owner;
+
+    public LabelRemoval() {
+    }
+
+    public LabelRemoval(Long labelId, String owner) {
+        this.labelId = labelId;
+        this.owner = owner;
+    }
+
+    public Long getLabelId() {
+        return labelId;
+    }
+
+    public void setLabelId(Long labelId) {
+        this.labelId = labelId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    @Override
+    public String toString() {
+        return "LabelRemoval{" +
+                "labelId=" + labelId +
+                ", owner='" + owner + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,328 @@
+package com.bulletjournal.notifications;
+
+import com.bulletjournal.config.NotificationConfig;
+import com.bulletjournal.repository.models.Project;
+import com.bulletjournal.util.CustomThreadFactory;
+import com.google.gson.*;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Append-only outbox of notification events backed by the notification_journal table.
+ * <p>
+ * Appends are queued and group committed by a single writer thread, one transaction per batch, so
+ * concurrent requests share the commit instead of paying one each. Every event type is a consumer with
+ * its own offset: the highest sequence below which all of its events have been handled. Offsets are
+ * flushed periodically and journal rows at or below the offset are truncated. On startup the tail
+ * beyond each offset is replayed.
+ * <p>
+ * Events whose handler keeps failing are moved to notification_journal_dead_letters. A transactional
+ * consumer deletes its events in the transaction of its handler, so that committed writes are never
+ * replayed.
+ * <p>
+ * Offsets assume a single backend instance owns the journal.
+ */
+@Component
+public class NotificationJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationJournal.class);
+    private static final long POLL_MILLIS = 100;
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Timestamp.class,
+                    (JsonSerializer<Timestamp>) (src, type, context) -> new JsonPrimitive(src.getTime()))
+            .registerTypeAdapter(Timestamp.class,
+                    (JsonDeserializer<Timestamp>) (json, type, context) -> new Timestamp(json.getAsLong()))
+            // completed tasks only keep the reference to their project
+            .registerTypeHierarchyAdapter(Project.class,
+                    (JsonSerializer<Project>) (src, type, context) -> new JsonPrimitive(src.getId()))
+            .registerTypeHierarchyAdapter(Project.class, (JsonDeserializer<Project>) (json, type, context) -> {
+                Project project = new Project();
+                project.setId(json.getAsLong());
+                return project;
+            })
+            .create();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationConfig.Journal config;
+    private final BlockingQueue<PendingAppend> appendQueue = new LinkedBlockingQueue<>();
+    private final Map<String, ConsumerOffset> consumers = new ConcurrentHashMap<>();
+    private final ExecutorService writer;
+    private volatile boolean stop = false;
+
+    @Autowired
+    public NotificationJournal(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               NotificationConfig notificationConfig) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = notificationConfig.getJournal();
+        this.writer = Executors.newSingleThreadExecutor(new CustomThreadFactory("notification-journal"));
+    }
+
+    @PostConstruct
+    public void postConstruct() {
+        this.writer.submit(this::write);
+    }
+
+    public long getAppendTimeoutMillis() {
+        return this.config.getAppendTimeoutMillis();
+    }
+
+    /**
+     * Queue an event for the next group commit
+     *
+     * @param consumer the event type consuming the event
+     * @param event    the event to persist
+     * @return CompletableFuture<Long> - completed with the sequence number once the event is committed
+     */
+    public CompletableFuture<Long> append(String consumer, Object event) {
+        PendingAppend pendingAppend = new PendingAppend(
+                consumer, event.getClass().getName(), GSON.toJson(event));
+        if (this.stop) {
+            pendingAppend.future.completeExceptionally(new IllegalStateException("Journal is stopped"));
+        } else {
+            this.appendQueue.offer(pendingAppend);
+        }
+        return pendingAppend.future;
+    }
+
+    /**
+     * Mark an event as handled so the consumer offset can move past it
+     *
+     * @param consumer the event type consuming the event
+     * @param seq      the sequence number of the event
+     */
+    public void ack(String consumer, long seq) {
+        getConsumer(consumer).ack(seq);
+    }
+
+    /**
+     * Run a handler in the transaction deleting the events it handles from the journal, so that they are
+     * not replayed once its writes commit
+     *
+     * @param seqs    the sequence numbers of the events
+     * @param handler the handler, joining the transaction
+     */
+    public void consume(List<Long> seqs, Runnable handler) {
+        this.transactionTemplate.execute(status -> {
+            handler.run();
+            List<Object[]> rows = new ArrayList<>(seqs.size());
+            seqs.forEach(seq -> rows.add(new Object[]{seq}));
+            return this.jdbcTemplate.batchUpdate("delete from notification_journal where seq = ?", rows);
+        });
+    }
+
+    /**
+     * Move an event whose handler keeps failing to the dead letters and ack it
+     *
+     * @param consumer the event type consuming the event
+     * @param seq      the sequence number of the event
+     * @param error    the last error of the handler
+     */
+    public void deadLetter(String consumer, long seq, Exception error) {
+        try {
+            this.transactionTemplate.execute(status -> {
+                this.jdbcTemplate.update("insert into notification_journal_dead_letters " +
+                        "(seq, event_type, event_class, payload, error) " +
+                        "select seq, event_type, event_class, payload, ? from notification_journal where seq = ? " +
+                        "on conflict (seq) do nothing", String.valueOf(error), seq);
+                return this.jdbcTemplate.update("delete from notification_journal where seq = ?", seq);
+            });
+            ack(consumer, seq);
+        } catch (Exception ex) {
+            LOGGER.error("Error on dead-lettering journal entry " + seq + ", leaving it for replay", ex);
+        }
+    }
+
+    /**
+     * Read events still in the journal by their sequence numbers
+     *
+     * @param seqs the sequence numbers
+     * @return List<Pair<Long, Object>> - sequence number and event in ascending sequence order
+     */
+    public List<Pair<Long, Object>> read(Collection<Long> seqs) {
+        List<Pair<Long, Object>> events = new ArrayList<>();
+        if (seqs.isEmpty()) {
+            return events;
+        }
+        new NamedParameterJdbcTemplate(this.jdbcTemplate).query(
+                "select seq, event_class, payload from notification_journal where seq in (:seqs) order by seq",
+                new MapSqlParameterSource("seqs", seqs), (RowCallbackHandler) rs -> readEvent(rs, events));
+        return events;
+    }
+
+    /**
+     * Read the unacknowledged tail of a consumer, all returned events are in flight until acked
+     *
+     * @param consumer the event type consuming the events
+     * @return List<Pair<Long, Object>> - sequence number and event in ascending sequence order
+     */
+    public List<Pair<Long, Object>> replay(String consumer) {
+        List<Long> offsets = this.jdbcTemplate.queryForList(
+                "select acked_seq from notification_journal_offsets where consumer = ?", Long.class, consumer);
+        long offset = offsets.isEmpty() ? 0L : offsets.get(0);
+        List<Pair<Long, Object>> events = new ArrayList<>();
+        this.jdbcTemplate.query(
+                "select seq, event_class, payload from notification_journal " +
+                        "where event_type = ? and seq > ? order by seq",
+                (RowCallbackHandler) rs -> readEvent(rs, events), consumer, offset);
+        ConsumerOffset c = getConsumer(consumer);
+        synchronized (c) {
+            c.persistedOffset = offset;
+            c.lastAppended = Math.max(c.lastAppended, offset);
+            events.forEach(e -> c.inFlight.add(e.getKey()));
+            if (!events.isEmpty()) {
+                c.lastAppended = Math.max(c.lastAppended, events.get(events.size() - 1).getKey());
+            }
+        }
+        if (!events.isEmpty()) {
+            LOGGER.info("Replaying {} {} events from notification journal", events.size(), consumer);
+        }
+        return events;
+    }
+
+    private static void readEvent(ResultSet rs, List<Pair<Long, Object>> events) throws SQLException {
+        long seq = rs.getLong(1);
+        try {
+            events.add(Pair.of(seq, GSON.fromJson(rs.getString(3), Class.forName(rs.getString(2)))));
+        } catch (Exception ex) {
+            LOGGER.error("Skipping unreadable journal entry " + seq, ex);
+        }
+    }
+
+    private ConsumerOffset getConsumer(String consumer) {
+        return this.consumers.computeIfAbsent(consumer, k -> new ConsumerOffset());
+    }
+
+    private void write() {
+        long lastFlush = System.currentTimeMillis();
+        while (!this.stop || !this.appendQueue.isEmpty()) {
+            try {
+                PendingAppend first = this.appendQueue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    List<PendingAppend> batch = new ArrayList<>();
+                    batch.add(first);
+                    this.appendQueue.drainTo(batch, this.config.getMaxBatchSize() - 1);
+                    commit(batch);
+                }
+                if (System.currentTimeMillis() - lastFlush >= this.config.getOffsetFlushMillis()) {
+                    flushOffsets();
+                    lastFlush = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOGGER.error("Error on writing notification journal", ex);
+            }
+        }
+        flushOffsets();
+    }
+
+    private void commit(List<PendingAppend> batch) {
+        try {
+            List<Long> seqs = this.transactionTemplate.execute(status -> {
+                List<Long> allocated = this.jdbcTemplate.queryForList(
+                        "select nextval('notification_journal_sequence') from generate_series(1, ?)",
+                        Long.class, batch.size());
+                List<Object[]> rows = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    PendingAppend pendingAppend = batch.get(i);
+                    rows.add(new Object[]{allocated.get(i), pendingAppend.consumer,
+                            pendingAppend.eventClass, pendingAppend.payload});
+                }
+                this.jdbcTemplate.batchUpdate(
+                        "insert into notification_journal (seq, event_type, event_class, payload) values (?, ?, ?, ?)",
+                        rows);
+                return allocated;
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                PendingAppend pendingAppend = batch.get(i);
+                long seq = seqs.get(i);
+                ConsumerOffset c = getConsumer(pendingAppend.consumer);
+                synchronized (c) {
+                    c.inFlight.add(seq);
+                    c.lastAppended = Math.max(c.lastAppended, seq);
+                }
+                pendingAppend.future.complete(seq);
+            }
+        } catch (Exception ex) {
+            LOGGER.error("Error on committing " + batch.size() + " journal entries", ex);
+            batch.forEach(p -> p.future.completeExceptionally(ex));
+        }
+    }
+
+    private void flushOffsets() {
+        this.consumers.forEach((name, c) -> {
+            long offset;
+            synchronized (c) {
+                offset = c.inFlight.isEmpty() ? c.lastAppended : c.inFlight.first() - 1;
+            }
+            if (offset <= c.persistedOffset) {
+                return;
+            }
+            try {
+                this.transactionTemplate.execute(status -> {
+                    this.jdbcTemplate.update("insert into notification_journal_offsets (consumer, acked_seq) " +
+                            "values (?, ?) on conflict (consumer) do update set acked_seq = excluded.acked_seq",
+                            name, offset);
+                    return this.jdbcTemplate.update(
+                            "delete from notification_journal where event_type = ? and seq <= ?", name, offset);
+                });
+                c.persistedOffset = offset;
+            } catch (Exception ex) {
+                LOGGER.error("Error on flushing journal offset of " + name, ex);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        this.stop = true;
+        this.writer.shutdown();
+        try {
+            this.writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class PendingAppend {
+        private final String consumer;
+        private final String eventClass;
+        private final String payload;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        PendingAppend(String consumer, String eventClass, String payload) {
+            this.consumer = consumer;
+            this.eventClass = eventClass;
+            this.payload = payload;
+        }
+    }
+
+    private static class ConsumerOffset {
+        private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+        private long lastAppended;
+        private volatile long persistedOffset;
+
+        synchronized void ack(long seq) {
+            this.inFlight.remove(seq);
+        }
+    }
+}
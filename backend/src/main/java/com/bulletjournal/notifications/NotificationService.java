@@ -1,5 +1,6 @@
 package com.bulletjournal.notifications;
 
+import com.bulletjournal.config.NotificationConfig;
 import com.bulletjournal.config.SpringESConfig;
 import com.bulletjournal.daemon.Reminder;
 import com.bulletjournal.es.repository.SearchIndexDaoJpa;
@@ -7,7 +8,8 @@ import com.bulletjournal.notifications.informed.Informed;
 import com.bulletjournal.redis.RedisEtagDaoJpa;
 import com.bulletjournal.repository.*;
 import com.bulletjournal.templates.repository.SampleTaskDaoJpa;
-import com.bulletjournal.util.CustomThreadFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,23 +20,45 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Dispatches asynchronous events to one {@link EventPipeline} per event type, so that e.g. slow content
+ * batches or sample project creation never delay etag updates and in-app notifications. Pipelines
+ * configured as durable survive restarts through the {@link NotificationJournal}.
+ */
 @Service
 public class NotificationService {
     private static final Logger LOGGER = LoggerFactory.getLogger(NotificationService.class);
-    private final ExecutorService executorService;
-    private final BlockingQueue<Object> eventQueue;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
     private final NotificationDaoJpa notificationDaoJpa;
     private final AuditableDaoJpa auditableDaoJpa;
     private final SearchIndexDaoJpa searchIndexDaoJpa;
     private final RedisEtagDaoJpa redisEtagDaoJpa;
-    private volatile boolean stop = false;
+    private final NotificationConfig notificationConfig;
+    private final MeterRegistry meterRegistry;
+    private final List<EventPipeline<?>> pipelines = new ArrayList<>();
+
+    private final EventPipeline<Informed> informedPipeline;
+    private final EventPipeline<Auditable> auditablePipeline;
+    private final EventPipeline<Remindable> remindablePipeline;
+    private final EventPipeline<RemoveElasticsearchDocumentEvent> removeESDocumentPipeline;
+    private final EventPipeline<IndexElasticsearchDocumentEvent> indexESDocumentPipeline;
+    private final EventPipeline<SaveCompleteTasksEvent> saveCompleteTasksPipeline;
+    private final EventPipeline<EtagEvent> etagPipeline;
+    private final EventPipeline<ContentBatch> contentBatchPipeline;
+    private final EventPipeline<SampleProjectsCreation> sampleProjectsCreationPipeline;
+    private final EventPipeline<SampleTaskChange> sampleTaskChangePipeline;
+    private final EventPipeline<ImportSampleTasksEvent> importSampleTasksPipeline;
+    private final EventPipeline<LabelRemoval> labelRemovalPipeline;
 
     @Autowired
     private SpringESConfig springESConfig;
 
+    @Autowired
+    private NotificationJournal notificationJournal;
+
     @Autowired
     @Lazy
     private Reminder reminder;
@@ -46,6 +70,10 @@ public class NotificationService {
     @Autowired
     private ProjectDaoJpa projectDaoJpa;
 
+    @Autowired
+    @Lazy
+    private LabelDaoJpa labelDaoJpa;
+
     @Lazy
     @Autowired
     private SampleTaskDaoJpa sampleTaskDaoJpa;
@@ -53,20 +81,85 @@ public class NotificationService {
     @Autowired
     private CompletedTaskRepository completedTaskRepository;
 
-    @Autowired
     public NotificationService(NotificationDaoJpa notificationDaoJpa, AuditableDaoJpa auditableDaoJpa,
                                SearchIndexDaoJpa searchIndexDaoJpa, RedisEtagDaoJpa redisEtagDaoJpa) {
+        this(notificationDaoJpa, auditableDaoJpa, searchIndexDaoJpa, redisEtagDaoJpa,
+                new NotificationConfig(), new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public NotificationService(NotificationDaoJpa notificationDaoJpa, AuditableDaoJpa auditableDaoJpa,
+                               SearchIndexDaoJpa searchIndexDaoJpa, RedisEtagDaoJpa redisEtagDaoJpa,
+                               NotificationConfig notificationConfig, MeterRegistry meterRegistry) {
         this.notificationDaoJpa = notificationDaoJpa;
         this.auditableDaoJpa = auditableDaoJpa;
         this.searchIndexDaoJpa = searchIndexDaoJpa;
         this.redisEtagDaoJpa = redisEtagDaoJpa;
-        this.executorService = Executors.newSingleThreadExecutor(new CustomThreadFactory("notification-service"));
-        this.eventQueue = new LinkedBlockingQueue<>();
+        this.notificationConfig = notificationConfig;
+        this.meterRegistry = meterRegistry;
+
+        this.informedPipeline = pipeline("informed", this.notificationDaoJpa::create);
+        this.auditablePipeline = pipeline("auditable", this.auditableDaoJpa::create);
+        this.remindablePipeline = pipeline("remindable", remindables -> this.reminder.generateTaskReminder(
+                remindables.stream().map(Remindable::getTask).collect(Collectors.toList())));
+        this.removeESDocumentPipeline = pipeline("removeESDocument", events -> {
+            if (this.springESConfig.getEnable()) {
+                this.searchIndexDaoJpa.delete(events);
+            }
+        });
+        this.indexESDocumentPipeline = pipeline("indexESDocument", events -> {
+            if (this.springESConfig.getEnable()) {
+                this.searchIndexDaoJpa.index(events.stream().flatMap(e -> e.getDocumentIds().stream())
+                        .collect(Collectors.toSet()));
+            }
+        });
+        this.saveCompleteTasksPipeline = pipeline("saveCompleteTasks", events -> events.forEach(
+                e -> this.completedTaskRepository.saveAll(e.getCompletedTaskList())));
+        this.etagPipeline = pipeline("etag", this.redisEtagDaoJpa::create);
+        // batch contents is only for tasks
+        this.contentBatchPipeline = pipeline("contentBatch", batches -> batches.forEach(
+                batch -> this.taskDaoJpa.addContent(batch.getProjectItems(), batch.getOwners(), batch.getContents())));
+        this.sampleProjectsCreationPipeline = pipeline("sampleProjectsCreation", creations -> creations.forEach(
+                creation -> this.projectDaoJpa.createSampleProjects(creation)));
+        this.sampleTaskChangePipeline = pipeline("sampleTaskChange", changes -> changes.forEach(change -> {
+            try {
+                this.sampleTaskDaoJpa.handleSampleTaskChange(change.getId());
+            } catch (Exception ex) {
+                LOGGER.error("Error on SampleTaskChange", ex);
+            }
+        }));
+        this.importSampleTasksPipeline = pipeline("importSampleTasks", events -> events.forEach(event -> {
+            try {
+                this.taskDaoJpa.createTaskFromSampleTask(
+                        event.getImportTasksParams().getProjectId(),
+                        event.getRequester(),
+                        event.getSampleTasks(),
+                        event.getRepoSampleTasks(),
+                        event.getImportTasksParams().getReminderBefore(),
+                        event.getImportTasksParams().getAssignees(),
+                        event.getImportTasksParams().getLabels());
+            } catch (Exception ex) {
+                LOGGER.error("Error on ImportSampleTasksEvent", ex);
+            }
+        }));
+        // failures propagate so that the pipeline retries the idempotent removal, a removal that keeps
+        // failing is dead-lettered instead of holding back later ones
+        this.labelRemovalPipeline = pipeline("labelRemoval", removals -> removals.forEach(removal ->
+                this.labelDaoJpa.removeLabelFromItems(removal.getLabelId(), (table, count) ->
+                        LOGGER.info("{}: removed from {} rows of {}", removal, count, table))));
+    }
+
+    private <T> EventPipeline<T> pipeline(String type, Consumer<List<T>> handler) {
+        NotificationConfig.Pipeline config = this.notificationConfig.getPipeline(type);
+        LOGGER.info("Notification pipeline {}: {}", type, config);
+        EventPipeline<T> pipeline = new EventPipeline<>(type, config, handler, this.meterRegistry);
+        this.pipelines.add(pipeline);
+        return pipeline;
     }
 
     @PostConstruct
     public void postConstruct() {
-        this.executorService.submit(() -> this.handleNotifications());
+        this.pipelines.forEach(p -> p.start(this.notificationJournal));
     }
 
     public void inform(Informed informed) {
@@ -74,7 +167,7 @@ public class NotificationService {
         if (informed.getEvents().isEmpty()) {
             return;
         }
-        this.eventQueue.offer(informed);
+        this.informedPipeline.offer(informed);
     }
 
     public void trackActivity(Auditable auditable) {
@@ -82,7 +175,7 @@ public class NotificationService {
         if (auditable == null) {
             return;
         }
-        this.eventQueue.offer(auditable);
+        this.auditablePipeline.offer(auditable);
     }
 
     public void remind(Remindable remindable) {
@@ -90,7 +183,7 @@ public class NotificationService {
         if (remindable == null) {
             return;
         }
-        this.eventQueue.offer(remindable);
+        this.remindablePipeline.offer(remindable);
     }
 
     public void deleteESDocument(RemoveElasticsearchDocumentEvent removeElasticsearchDocumentEvent) {
@@ -98,7 +191,15 @@ public class NotificationService {
         if (removeElasticsearchDocumentEvent == null) {
             return;
         }
-        this.eventQueue.offer(removeElasticsearchDocumentEvent);
+        this.removeESDocumentPipeline.offer(removeElasticsearchDocumentEvent);
+    }
+
+    public void indexESDocument(IndexElasticsearchDocumentEvent indexElasticsearchDocumentEvent) {
+        LOGGER.info("Received indexESDocument: " + indexElasticsearchDocumentEvent);
+        if (indexElasticsearchDocumentEvent == null) {
+            return;
+        }
+        this.indexESDocumentPipeline.offer(indexElasticsearchDocumentEvent);
     }
 
     public void saveCompleteTasks(SaveCompleteTasksEvent saveCompleteTasksEvent) {
@@ -106,7 +207,7 @@ public class NotificationService {
         if (saveCompleteTasksEvent == null) {
             return;
         }
-        this.eventQueue.offer(saveCompleteTasksEvent);
+        this.saveCompleteTasksPipeline.offer(saveCompleteTasksEvent);
     }
 
     public void cacheEtag(EtagEvent etagEvent) {
@@ -114,7 +215,7 @@ public class NotificationService {
         if (etagEvent == null) {
             return;
         }
-        this.eventQueue.offer(etagEvent);
+        this.etagPipeline.offer(etagEvent);
     }
 
     public void addContentBatch(ContentBatch contentBatch) {
@@ -122,7 +223,7 @@ public class NotificationService {
             return;
         }
         LOGGER.info("Received contentBatch: {}", contentBatch.getContents().size());
-        this.eventQueue.offer(contentBatch);
+        this.contentBatchPipeline.offer(contentBatch);
     }
 
     public void createSampleProjects(SampleProjectsCreation sampleProjectsCreation) {
@@ -130,7 +231,7 @@ public class NotificationService {
         if (sampleProjectsCreation == null) {
             return;
         }
-        this.eventQueue.offer(sampleProjectsCreation);
+        this.sampleProjectsCreationPipeline.offer(sampleProjectsCreation);
     }
 
     public void addSampleTaskChange(SampleTaskChange sampleTaskChange) {
@@ -138,7 +239,7 @@ public class NotificationService {
         if (sampleTaskChange == null) {
             return;
         }
-        this.eventQueue.offer(sampleTaskChange);
+        this.sampleTaskChangePipeline.offer(sampleTaskChange);
     }
 
     public void handleImportSampleTasksEvent(ImportSampleTasksEvent event) {
@@ -146,157 +247,19 @@ public class NotificationService {
         if (event == null) {
             return;
         }
-        this.eventQueue.offer(event);
+        this.importSampleTasksPipeline.offer(event);
     }
 
-    public void handleNotifications() {
-        Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
-        List<Object> events = new ArrayList<>();
-
-        while (!stop) {
-            try {
-                // waiting until an element becomes available
-                events.add(this.eventQueue.take());
-            } catch (Exception ex) {
-                LOGGER.error("Error on taking from eventQueue", ex);
-            }
-            try {
-                this.eventQueue.drainTo(events);
-            } catch (Exception ex) {
-                LOGGER.error("Error on draining from eventQueue", ex);
-            }
-            List<Informed> informeds = new ArrayList<>();
-            List<Auditable> auditables = new ArrayList<>();
-            List<RemoveElasticsearchDocumentEvent> removeElasticsearchDocumentEvents = new ArrayList<>();
-            List<SaveCompleteTasksEvent> saveCompleteTasksEvents = new ArrayList<>();
-            List<EtagEvent> etagEvents = new ArrayList<>();
-            List<Remindable> remindables = new ArrayList<>();
-            List<ContentBatch> contentBatches = new ArrayList<>();
-            List<SampleProjectsCreation> sampleProjectsCreations = new ArrayList<>();
-            List<SampleTaskChange> sampleTaskChanges = new ArrayList<>();
-            List<ImportSampleTasksEvent> importSampleTasksEvents = new ArrayList<>();
-            events.forEach((e) -> {
-                if (e instanceof Informed) {
-                    informeds.add((Informed) e);
-                } else if (e instanceof Auditable) {
-                    auditables.add((Auditable) e);
-                } else if (e instanceof RemoveElasticsearchDocumentEvent) {
-                    removeElasticsearchDocumentEvents.add((RemoveElasticsearchDocumentEvent) e);
-                } else if (e instanceof SaveCompleteTasksEvent) {
-                    saveCompleteTasksEvents.add((SaveCompleteTasksEvent) e);
-                } else if (e instanceof EtagEvent) {
-                    etagEvents.add((EtagEvent) e);
-                } else if (e instanceof Remindable) {
-                    remindables.add((Remindable) e);
-                } else if (e instanceof ContentBatch) {
-                    contentBatches.add((ContentBatch) e);
-                } else if (e instanceof SampleProjectsCreation) {
-                    sampleProjectsCreations.add((SampleProjectsCreation) e);
-                } else if (e instanceof SampleTaskChange) {
-                    sampleTaskChanges.add((SampleTaskChange) e);
-                } else if (e instanceof ImportSampleTasksEvent) {
-                    importSampleTasksEvents.add((ImportSampleTasksEvent) e);
-                }
-            });
-            try {
-                if (!informeds.isEmpty()) {
-                    this.notificationDaoJpa.create(informeds);
-                }
-            } catch (Exception ex) {
-                LOGGER.error("Error on creating records in notificationDaoJpa", ex);
-            }
-            try {
-                if (!auditables.isEmpty()) {
-                    this.auditableDaoJpa.create(auditables);
-                }
-            } catch (Exception ex) {
-                LOGGER.error("Error on creating records in AuditableDaoJpa", ex);
-            }
-            try {
-                if (!removeElasticsearchDocumentEvents.isEmpty() && this.springESConfig.getEnable()) {
-                    this.searchIndexDaoJpa.delete(removeElasticsearchDocumentEvents);
-                }
-            } catch (Exception ex) {
-                LOGGER.error("Error on deleting records in SearchIndexDaoJpa", ex);
-            }
-            try {
-                if (!saveCompleteTasksEvents.isEmpty()) {
-                    saveCompleteTasksEvents.forEach(saveCompleteTasksEvent -> {
-                        this.completedTaskRepository.saveAll(saveCompleteTasksEvent.getCompletedTaskList());
-                    });
-                }
-            } catch (Exception ex) {
-                LOGGER.error("Error on saving completeTasks", ex);
-            }
-            try {
-                if (!etagEvents.isEmpty()) {
-                    this.redisEtagDaoJpa.create(etagEvents);
-                }
-            } catch (Exception ex) {
-                LOGGER.error("Error on deleting records in RedisEtagDaoJpa", ex);
-            }
-
-            try {
-                if (!remindables.isEmpty()) {
-                    this.reminder.generateTaskReminder(remindables.stream().map(e -> e.getTask()).collect(Collectors.toList()));
-                }
-            } catch (Exception ex) {
-                LOGGER.error("Error on Reminder", ex);
-            }
-
-            try {
-                // batch contents is only for tasks
-                for (ContentBatch batch : contentBatches) {
-                    this.taskDaoJpa.addContent(batch.getProjectItems(), batch.getOwners(), batch.getContents());
-                }
-            } catch (Exception ex) {
-                LOGGER.error("Error on Reminder", ex);
-            }
-
-            try {
-                for (SampleProjectsCreation sampleProjectsCreation : sampleProjectsCreations) {
-                    this.projectDaoJpa.createSampleProjects(sampleProjectsCreation);
-                }
-            } catch (Exception ex) {
-                LOGGER.error("Error on Reminder", ex);
-            }
-
-            for (SampleTaskChange sampleTaskChange : sampleTaskChanges) {
-                try {
-                    this.sampleTaskDaoJpa.handleSampleTaskChange(sampleTaskChange.getId());
-                } catch (Exception ex) {
-                    LOGGER.error("Error on SampleTaskChange", ex);
-                }
-            }
-
-            for (ImportSampleTasksEvent importSampleTasksEvent : importSampleTasksEvents) {
-                try {
-                    this.taskDaoJpa.createTaskFromSampleTask(
-                            importSampleTasksEvent.getImportTasksParams().getProjectId(),
-                            importSampleTasksEvent.getRequester(),
-                            importSampleTasksEvent.getSampleTasks(),
-                            importSampleTasksEvent.getRepoSampleTasks(),
-                            importSampleTasksEvent.getImportTasksParams().getReminderBefore(),
-                            importSampleTasksEvent.getImportTasksParams().getAssignees(),
-                            importSampleTasksEvent.getImportTasksParams().getLabels());
-                } catch (Exception ex) {
-                    LOGGER.error("Error on SampleTaskChange", ex);
-                }
-            }
-            events = new ArrayList<>();
+    public void removeLabel(LabelRemoval labelRemoval) {
+        LOGGER.info("Received labelRemoval: " + labelRemoval);
+        if (labelRemoval == null) {
+            return;
         }
+        this.labelRemovalPipeline.offer(labelRemoval);
     }
 
     @PreDestroy
     public void preDestroy() {
-        this.stop = true;
-        if (executorService != null) {
-            try {
-                // wait 5 seconds for closing all threads
-                executorService.awaitTermination(5, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
+        this.pipelines.forEach(p -> p.shutdown(SHUTDOWN_TIMEOUT_MILLIS));
     }
 }
@@ -0,0 +1,115 @@
+package com.bulletjournal.redis;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-process near-cache of lookups of one kind of lock stored in Redis.
+ * <p>
+ * A Bloom filter holds every locked id, so ids it does not contain are answered as not locked without
+ * going to Redis. Ids it may contain are looked up and kept in a small LRU cache. Writes to a lock add
+ * its id to the filter and drop its cached lookup. Since ids cannot be removed from a Bloom filter,
+ * unlocked ids stay in it until the next {@link #rebuild(Supplier)}, costing a cached lookup only.
+ */
+class LockNearCache<T> {
+
+    private final Function<String, Optional<T>> loader;
+    private final int expectedInsertions;
+    private final double falsePositiveProbability;
+    private final Cache<String, Optional<T>> lookups;
+    // bumped on every write so that lookups racing with it are not cached
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile BloomFilter<String> filter;
+    // filter being rebuilt, receiving writes made while its ids are read
+    private volatile BloomFilter<String> rebuilding;
+
+    LockNearCache(Function<String, Optional<T>> loader, int expectedInsertions, double falsePositiveProbability,
+                  int maximumSize, int expireAfterWriteSeconds) {
+        this.loader = loader;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.lookups = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .build();
+        this.filter = newFilter();
+    }
+
+    private BloomFilter<String> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                this.expectedInsertions, this.falsePositiveProbability);
+    }
+
+    /**
+     * @param id the locked user's name or IP
+     * @return Optional<T> - the lock, empty if not locked
+     */
+    Optional<T> get(String id) {
+        if (!this.filter.mightContain(id)) {
+            return Optional.empty();
+        }
+        Optional<T> cached = this.lookups.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        long before = this.version.get();
+        Optional<T> lock = this.loader.apply(id);
+        this.lookups.put(id, lock);
+        if (this.version.get() != before) {
+            // a write happened while loading, the lookup may be stale
+            this.lookups.invalidate(id);
+        }
+        return lock;
+    }
+
+    /**
+     * Record that a lock was created or updated, after it is written to Redis
+     */
+    void onWrite(String id) {
+        this.filter.put(id);
+        BloomFilter<String> next = this.rebuilding;
+        if (next != null) {
+            next.put(id);
+        }
+        invalidate(id);
+    }
+
+    /**
+     * Record that a lock was removed or expired
+     */
+    void onRemove(String id) {
+        invalidate(id);
+    }
+
+    private void invalidate(String id) {
+        this.version.incrementAndGet();
+        this.lookups.invalidate(id);
+    }
+
+    /**
+     * Replace the Bloom filter by one holding only the currently locked ids
+     *
+     * @param ids reads the ids currently locked from Redis, called after writes start reaching the new filter
+     */
+    void rebuild(Supplier<Collection<String>> ids) {
+        BloomFilter<String> next = newFilter();
+        this.rebuilding = next;
+        try {
+            ids.get().forEach(next::put);
+            this.filter = next;
+        } finally {
+            this.rebuilding = null;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.bulletjournal.redis;
 
 import com.bulletjournal.messaging.MessagingService;
 import com.bulletjournal.notifications.EtagEvent;
+import com.bulletjournal.notifications.EtagUpdatesChannel;
 import com.bulletjournal.redis.models.Etag;
 import com.bulletjournal.redis.models.EtagType;
 import com.bulletjournal.repository.factory.Etaggable;
@@ -30,6 +31,9 @@ public class RedisEtagDaoJpa {
     @Autowired
     private MessagingService messagingService;
 
+    @Autowired
+    private EtagUpdatesChannel etagUpdatesChannel;
+
     /**
      * Batch cache a list of etags instance into Redis.
      *
@@ -49,6 +53,7 @@ public class RedisEtagDaoJpa {
         // Now EtagType only have GROUP, GROUP_DELETE, NOTIFICATION and NOTIFICATION_DELETE
         List<Etag> etags = computeEtags(aggregateMap);
         this.batchCache(etags);
+        this.etagUpdatesChannel.publish(etags);
     }
 
     public void singleCache(String username, EtagType type, String etag) {
@@ -0,0 +1,231 @@
+package com.bulletjournal.redis;
+
+import com.bulletjournal.config.LockCacheConfig;
+import com.bulletjournal.redis.models.LockedIP;
+import com.bulletjournal.redis.models.LockedUser;
+import com.bulletjournal.util.CustomThreadFactory;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locked users and IPs, checked by the filters on every request.
+ * <p>
+ * Lookups go through a {@link LockNearCache} per kind of lock, so that the usual lookup of an id that is
+ * not locked does no network I/O. Caches are kept current by Redis keyspace notifications of the lock
+ * keys, from writes of any backend instance, and their Bloom filters are rebuilt from Redis every
+ * rebuildSeconds in case notifications were missed while the subscription was down. Until the first
+ * rebuild, or if notifications cannot be enabled, lookups go to Redis directly.
+ */
+@Repository
+public class RedisLockDaoJpa implements MessageListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisLockDaoJpa.class);
+    private static final String LOCKED_IP_KEYSPACE = "LockedIP";
+    private static final String LOCKED_USER_KEYSPACE = "LockedUser";
+    private static final String KEYSPACE_CHANNEL_PREFIX = "__keyspace@";
+    private static final String PHANTOM_KEY_SUFFIX = ":phantom";
+    private static final String KEYSPACE_EVENTS_PARAMETER = "notify-keyspace-events";
+    // keyspace channel, generic (del, expire), hash (hset) and expired events
+    private static final String KEYSPACE_EVENTS = "Kghx";
+    private static final String HASH_SET_EVENT = "hset";
+
+    @Autowired
+    private RedisLockedIPRepository redisLockedIPRepository;
+
+    @Autowired
+    private RedisLockedUserRepository redisLockedUserRepository;
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private LockCacheConfig lockCacheConfig;
+
+    private volatile LockNearCache<LockedIP> lockedIPs;
+    private volatile LockNearCache<LockedUser> lockedUsers;
+    private volatile boolean cacheReady = false;
+
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(
+            new CustomThreadFactory("lock-cache-rebuild"));
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startCache() {
+        if (!this.lockCacheConfig.isEnabled()) {
+            return;
+        }
+        try {
+            enableKeyspaceEvents();
+        } catch (Exception ex) {
+            LOGGER.error("Cannot enable Redis keyspace events, locks are looked up in Redis", ex);
+            return;
+        }
+        this.lockedIPs = new LockNearCache<>(this.redisLockedIPRepository::findById,
+                this.lockCacheConfig.getExpectedInsertions(), this.lockCacheConfig.getFalsePositiveProbability(),
+                this.lockCacheConfig.getMaximumSize(), this.lockCacheConfig.getExpireAfterWriteSeconds());
+        this.lockedUsers = new LockNearCache<>(this.redisLockedUserRepository::findById,
+                this.lockCacheConfig.getExpectedInsertions(), this.lockCacheConfig.getFalsePositiveProbability(),
+                this.lockCacheConfig.getMaximumSize(), this.lockCacheConfig.getExpireAfterWriteSeconds());
+        this.redisMessageListenerContainer.addMessageListener(this, Arrays.asList(
+                new PatternTopic(KEYSPACE_CHANNEL_PREFIX + "*__:" + LOCKED_IP_KEYSPACE + ":*"),
+                new PatternTopic(KEYSPACE_CHANNEL_PREFIX + "*__:" + LOCKED_USER_KEYSPACE + ":*")));
+        this.rebuildExecutor.scheduleWithFixedDelay(this::rebuild, 0,
+                this.lockCacheConfig.getRebuildSeconds(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        this.rebuildExecutor.shutdownNow();
+    }
+
+    private void enableKeyspaceEvents() {
+        RedisConnection connection = this.redisConnectionFactory.getConnection();
+        try {
+            Properties config = connection.getConfig(KEYSPACE_EVENTS_PARAMETER);
+            String current = config == null ? "" : config.getProperty(KEYSPACE_EVENTS_PARAMETER, "");
+            String events = mergeKeyspaceEvents(current, KEYSPACE_EVENTS);
+            if (!events.equals(current)) {
+                connection.setConfig(KEYSPACE_EVENTS_PARAMETER, events);
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Add event classes to the notify-keyspace-events setting of Redis, keeping those already enabled
+     *
+     * @return String - the setting enabling both current and required classes
+     */
+    @VisibleForTesting
+    static String mergeKeyspaceEvents(String current, String required) {
+        StringBuilder events = new StringBuilder(current);
+        for (char c : required.toCharArray()) {
+            // A is an alias for all event classes but key-miss and new-key
+            boolean coveredByAll = current.indexOf('A') >= 0 && "g$lshzxet".indexOf(c) >= 0;
+            if (events.indexOf(String.valueOf(c)) < 0 && !coveredByAll) {
+                events.append(c);
+            }
+        }
+        return events.toString();
+    }
+
+    private void rebuild() {
+        try {
+            this.lockedIPs.rebuild(() -> getIds(LOCKED_IP_KEYSPACE));
+            this.lockedUsers.rebuild(() -> getIds(LOCKED_USER_KEYSPACE));
+            this.cacheReady = true;
+        } catch (Exception ex) {
+            LOGGER.error("Error on rebuilding lock cache", ex);
+        }
+    }
+
+    private Collection<String> getIds(String keyspace) {
+        RedisConnection connection = this.redisConnectionFactory.getConnection();
+        try {
+            Set<byte[]> members = connection.sMembers(keyspace.getBytes(StandardCharsets.UTF_8));
+            List<String> ids = new ArrayList<>();
+            if (members != null) {
+                members.forEach(m -> ids.add(new String(m, StandardCharsets.UTF_8)));
+            }
+            return ids;
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // channel is __keyspace@<db>__:<keyspace>:<id>
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String key = channel.substring(channel.indexOf("__:") + 3);
+        int separator = key.indexOf(':');
+        if (separator < 0 || key.endsWith(PHANTOM_KEY_SUFFIX)) {
+            return;
+        }
+        String keyspace = key.substring(0, separator);
+        String id = key.substring(separator + 1);
+        LockNearCache<?> cache = LOCKED_IP_KEYSPACE.equals(keyspace) ? this.lockedIPs
+                : LOCKED_USER_KEYSPACE.equals(keyspace) ? this.lockedUsers : null;
+        if (cache == null) {
+            return;
+        }
+        if (HASH_SET_EVENT.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+            cache.onWrite(id);
+        } else {
+            cache.onRemove(id);
+        }
+    }
+
+    /**
+     * @param ip the client IP
+     * @return Optional<LockedIP> - the IP's lock, empty if not locked
+     */
+    public Optional<LockedIP> getLockedIP(String ip) {
+        return this.cacheReady ? this.lockedIPs.get(ip) : this.redisLockedIPRepository.findById(ip);
+    }
+
+    /**
+     * @param username the user's name
+     * @return Optional<LockedUser> - the user's lock, empty if not locked
+     */
+    public Optional<LockedUser> getLockedUser(String username) {
+        return this.cacheReady ? this.lockedUsers.get(username) : this.redisLockedUserRepository.findById(username);
+    }
+
+    public Iterable<LockedIP> getLockedIPs() {
+        return this.redisLockedIPRepository.findAll();
+    }
+
+    public Iterable<LockedUser> getLockedUsers() {
+        return this.redisLockedUserRepository.findAll();
+    }
+
+    public void lock(LockedIP lockedIP) {
+        this.redisLockedIPRepository.save(lockedIP);
+        if (this.lockedIPs != null) {
+            this.lockedIPs.onWrite(lockedIP.getIP());
+        }
+    }
+
+    public void lock(LockedUser lockedUser) {
+        this.redisLockedUserRepository.save(lockedUser);
+        if (this.lockedUsers != null) {
+            this.lockedUsers.onWrite(lockedUser.getName());
+        }
+    }
+
+    public void unlockIP(String ip) {
+        this.redisLockedIPRepository.delete(new LockedIP(ip, null));
+        if (this.lockedIPs != null) {
+            this.lockedIPs.onRemove(ip);
+        }
+    }
+
+    public void unlockUser(String username) {
+        this.redisLockedUserRepository.delete(new LockedUser(username, null));
+        if (this.lockedUsers != null) {
+            this.lockedUsers.onRemove(username);
+        }
+    }
+}
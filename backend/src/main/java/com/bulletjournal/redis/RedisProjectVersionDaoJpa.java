@@ -0,0 +1,149 @@
+package com.bulletjournal.redis;
+
+import com.bulletjournal.repository.ProjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of project item versions used as tasks and notes etags.
+ * <p>
+ * project_item_versions is bumped once per changed project right before a transaction changing its
+ * tasks, notes or their hierarchy commits, so that writers in one project only wait on each other for
+ * the version row during their commit, and a committed change always comes with its bump. Bulk writes
+ * bypassing entity listeners call {@link #bumpOnCommit(Long)} themselves. The new version is cached
+ * after the commit. Cached versions only move forward, so a reader populating the cache with a version
+ * read before a bump cannot overwrite the bumped version.
+ */
+@Repository
+public class RedisProjectVersionDaoJpa {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisProjectVersionDaoJpa.class);
+    private static final String KEY_PREFIX = "ProjectItemsVersion:";
+    // a version lost by Redis is reloaded from Postgres once the entry expires
+    private static final long TTL_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+    private static final String BUMP_VERSION = "insert into project_item_versions (project_id, version) " +
+            "values (?, 1) on conflict (project_id) do update set version = project_item_versions.version + 1 " +
+            "returning version";
+    private static final RedisScript<Long> SET_MAX = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1]) " +
+                    "if current and tonumber(current) > tonumber(ARGV[1]) then " +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[2]) return tonumber(current) end " +
+                    "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) return tonumber(ARGV[1])",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Get etag of the tasks or notes in a project without touching item tables
+     *
+     * @param projectId the project id
+     * @return String - etag derived from project item version
+     */
+    public String getEtag(Long projectId) {
+        return projectId + "-" + getVersion(projectId);
+    }
+
+    public long getVersion(Long projectId) {
+        try {
+            String cached = this.stringRedisTemplate.opsForValue().get(KEY_PREFIX + projectId);
+            if (cached != null) {
+                return Long.parseLong(cached);
+            }
+        } catch (Exception ex) {
+            LOGGER.error("Error on reading project version from Redis", ex);
+            return loadVersion(projectId);
+        }
+        return cacheVersion(projectId, loadVersion(projectId));
+    }
+
+    /**
+     * Bump the version of a project when the current transaction commits and refresh its cached version
+     * once it has committed
+     *
+     * @param projectId the project whose items changed
+     */
+    @SuppressWarnings("unchecked")
+    public void bumpOnCommit(Long projectId) {
+        if (projectId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cacheVersion(projectId, bumpVersion(projectId));
+            return;
+        }
+        Set<Long> projectIds = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (projectIds == null) {
+            // sorted so that concurrent commits lock version rows in the same order
+            Set<Long> changed = new TreeSet<>();
+            Map<Long, Long> versions = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, changed);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // run the entity listeners of pending changes before bumping
+                    if (entityManager.isJoinedToTransaction()) {
+                        entityManager.flush();
+                    }
+                    changed.forEach(id -> versions.put(id, bumpVersion(id)));
+                }
+
+                @Override
+                public void afterCommit() {
+                    versions.forEach(RedisProjectVersionDaoJpa.this::cacheVersion);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RedisProjectVersionDaoJpa.this);
+                }
+            });
+            projectIds = changed;
+        }
+        projectIds.add(projectId);
+    }
+
+    private long bumpVersion(Long projectId) {
+        // runs in the writing transaction, a failed bump rolls back the change
+        return this.jdbcTemplate.queryForObject(BUMP_VERSION, Long.class, projectId);
+    }
+
+    private long loadVersion(Long projectId) {
+        Long version = this.projectRepository.getItemVersion(projectId);
+        return version == null ? 0L : version;
+    }
+
+    private long cacheVersion(Long projectId, long version) {
+        try {
+            Long cached = this.stringRedisTemplate.execute(SET_MAX,
+                    Collections.singletonList(KEY_PREFIX + projectId),
+                    String.valueOf(version), String.valueOf(TTL_SECONDS));
+            return cached == null ? version : cached;
+        } catch (Exception ex) {
+            LOGGER.error("Error on caching project version in Redis", ex);
+            return version;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.bulletjournal.redis;
+
+import com.bulletjournal.controller.models.User;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RedisUserRepositoryCustom {
+
+    /**
+     * Read cached users in one pipelined round trip
+     *
+     * @param names the usernames
+     * @return List<User> - cached users, names not in cache are skipped
+     */
+    List<User> findAllByNames(Collection<String> names);
+}
@@ -0,0 +1,58 @@
+package com.bulletjournal.redis;
+
+import com.bulletjournal.controller.models.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.data.redis.core.convert.RedisData;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public class RedisUserRepositoryImpl implements RedisUserRepositoryCustom {
+
+    // keyspace of @RedisHash User
+    private static final String KEY_PREFIX = "User:";
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private RedisConverter redisConverter;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<User> findAllByNames(Collection<String> names) {
+        List<String> keys = new ArrayList<>(names);
+        List<Object> hashes;
+        RedisConnection connection = this.redisConnectionFactory.getConnection();
+        try {
+            connection.openPipeline();
+            for (String name : keys) {
+                connection.hGetAll((KEY_PREFIX + name).getBytes(StandardCharsets.UTF_8));
+            }
+            hashes = connection.closePipeline();
+        } finally {
+            connection.close();
+        }
+
+        List<User> users = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Map<byte[], byte[]> hash = (Map<byte[], byte[]>) hashes.get(i);
+            if (hash == null || hash.isEmpty()) {
+                continue;
+            }
+            RedisData data = new RedisData(hash);
+            data.setId(keys.get(i));
+            User user = this.redisConverter.read(User.class, data);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+}
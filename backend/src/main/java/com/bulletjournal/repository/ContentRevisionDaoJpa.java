@@ -0,0 +1,302 @@
+package com.bulletjournal.repository;
+
+import com.bulletjournal.config.ContentRevisionConfig;
+import com.bulletjournal.contents.ContentType;
+import com.bulletjournal.controller.models.Revision;
+import com.bulletjournal.controller.models.User;
+import com.bulletjournal.exceptions.BadRequestException;
+import com.bulletjournal.repository.models.ContentModel;
+import com.bulletjournal.repository.models.ContentRevision;
+import com.bulletjournal.util.ContentDiffTool;
+import com.bulletjournal.util.CustomThreadFactory;
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Content revisions stored one row per revision.
+ * <p>
+ * Each row holds the diff from the previous revision and every snapshotInterval-th row also holds the
+ * full text, so a revision is rebuilt from the nearest snapshot at or before it by applying at most
+ * snapshotInterval diffs. The oldest retained row is always a snapshot since pruning only drops whole
+ * runs of revisions ahead of a scheduled snapshot.
+ * <p>
+ * A new row is written with its full text and no diff. The diff is computed by a dedicated executor
+ * once the edit commits and only then is the full text dropped from rows not scheduled as snapshots,
+ * so a row whose diff is late or dropped still rebuilds correctly as a snapshot.
+ * <p>
+ * Appends lock the content row so concurrent edits of one content take consecutive revision ids. Contents
+ * still holding the legacy revisions JSON are moved into rows on their next append and decoded in memory
+ * when only read.
+ */
+@Repository
+public class ContentRevisionDaoJpa {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentRevisionDaoJpa.class);
+    private static final Gson GSON = new Gson();
+
+    @Autowired
+    private ContentRevisionRepository contentRevisionRepository;
+
+    @Autowired
+    private ContentRevisionConfig revisionConfig;
+
+    @Autowired
+    private ContentDiffTool contentDiffTool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private ThreadPoolExecutor diffExecutor;
+    private Timer diffLatency;
+    private DistributionSummary patchSize;
+    private Counter diffDropped;
+
+    @PostConstruct
+    public void postConstruct() {
+        this.diffExecutor = new ThreadPoolExecutor(
+                this.revisionConfig.getDiffThreads(), this.revisionConfig.getDiffThreads(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(this.revisionConfig.getDiffQueueCapacity()),
+                new CustomThreadFactory("content-diff"), (task, executor) -> this.diffDropped.increment());
+        this.diffLatency = Timer.builder("content.diff.latency")
+                .description("Time spent computing the diff of one content revision")
+                .register(this.meterRegistry);
+        this.patchSize = DistributionSummary.builder("content.diff.patch.size")
+                .baseUnit("chars")
+                .description("Size of the patch text of one content revision")
+                .register(this.meterRegistry);
+        this.diffDropped = Counter.builder("content.diff.dropped").register(this.meterRegistry);
+        this.meterRegistry.gauge("content.diff.queue.depth", this.diffExecutor.getQueue(), Queue::size);
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        this.diffExecutor.shutdown();
+        try {
+            if (!this.diffExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                // revisions left without a diff keep their full text
+                LOGGER.warn("Content diff executor stopped with {} pending diffs",
+                        this.diffExecutor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Append a revision to a saved content
+     *
+     * @param contentType the type of the content's project item
+     * @param content     the content
+     * @param requester   the user making the change
+     * @param oldText     text before the change
+     * @param newText     text after the change
+     */
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public <T extends ContentModel<?>> void append(ContentType contentType, T content, String requester,
+                                                   String oldText, String newText) {
+        // serialize appends to one content, otherwise both take the same revision id;
+        // flush first so that a content saved in this transaction has a row to lock
+        this.entityManager.flush();
+        this.entityManager.lock(content, LockModeType.PESSIMISTIC_WRITE);
+        migrate(contentType, content);
+        Optional<ContentRevision> latest = this.contentRevisionRepository
+                .findFirstByContentTypeAndContentIdOrderByRevisionIdDesc(contentType, content.getId());
+        if (!latest.isPresent()) {
+            content.setBaseText(oldText);
+        }
+        long revisionId = latest.map(r -> r.getRevisionId() + 1).orElse(1L);
+        boolean snapshot = !latest.isPresent() || revisionId % this.revisionConfig.getSnapshotInterval() == 0;
+        ContentRevision revision = this.contentRevisionRepository.save(new ContentRevision(contentType,
+                content.getId(), revisionId, null, newText, requester, Timestamp.from(Instant.now())));
+        if (snapshot) {
+            prune(contentType, content.getId(), revisionId);
+        }
+        Runnable computeDiff = () -> this.diffExecutor.execute(
+                () -> computeDiff(revision.getId(), oldText, newText, snapshot));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            computeDiff.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                computeDiff.run();
+            }
+        });
+    }
+
+    private void computeDiff(Long id, String oldText, String newText, boolean snapshot) {
+        try {
+            long start = System.nanoTime();
+            String diff = this.contentDiffTool.computeDiff(oldText, newText);
+            this.diffLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            this.patchSize.record(diff.length());
+            this.contentRevisionRepository.setDiff(id, diff, snapshot ? newText : null);
+        } catch (Exception ex) {
+            LOGGER.error("Error on computing diff of content revision " + id, ex);
+        }
+    }
+
+    private void prune(ContentType contentType, Long contentId, long latestRevisionId) {
+        // keep from the scheduled snapshot at or before the oldest revision to retain
+        int interval = this.revisionConfig.getSnapshotInterval();
+        long oldestKept = latestRevisionId - this.revisionConfig.getMaxRevisionNumber() + 1;
+        long keepFrom = oldestKept / interval * interval;
+        if (keepFrom > 1) {
+            this.contentRevisionRepository.deleteRevisionsBefore(contentType, contentId, keepFrom);
+        }
+    }
+
+    /**
+     * Rebuild the text of one revision from its nearest snapshot
+     *
+     * @param contentType the type of the content's project item
+     * @param content     the content
+     * @param revisionId  the revision id
+     * @return Revision - the revision with its full text as content
+     */
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public <T extends ContentModel<?>> Revision getRevision(ContentType contentType, T content, Long revisionId) {
+        Revision[] legacy = getLegacyRevisions(content);
+        if (legacy != null) {
+            return getLegacyRevision(content, legacy, revisionId);
+        }
+        ContentRevision snapshot = this.contentRevisionRepository
+                .findNearestSnapshot(contentType, content.getId(), revisionId)
+                .orElseThrow(() -> invalidRevision(content, revisionId));
+        List<ContentRevision> revisions = this.contentRevisionRepository
+                .findByContentTypeAndContentIdAndRevisionIdBetweenOrderByRevisionId(
+                        contentType, content.getId(), snapshot.getRevisionId(), revisionId);
+        ContentRevision target = revisions.get(revisions.size() - 1);
+        if (!target.getRevisionId().equals(revisionId)) {
+            throw invalidRevision(content, revisionId);
+        }
+        String text = snapshot.getSnapshot();
+        for (ContentRevision revision : revisions.subList(1, revisions.size())) {
+            text = this.contentDiffTool.applyDiff(text, revision.getDiff());
+        }
+        Revision ret = target.toPresentationModel();
+        ret.setContent(text);
+        return ret;
+    }
+
+    private Revision getLegacyRevision(ContentModel<?> content, Revision[] legacy, Long revisionId) {
+        String text = content.getBaseText();
+        for (Revision revision : legacy) {
+            text = this.contentDiffTool.applyDiff(text, revision.getDiff());
+            if (revision.getId().equals(revisionId)) {
+                Revision ret = new Revision(
+                        revision.getId(), null, revision.getCreatedAt(), new User(revision.getUser().getName()));
+                ret.setContent(text);
+                return ret;
+            }
+        }
+        throw invalidRevision(content, revisionId);
+    }
+
+    private static BadRequestException invalidRevision(ContentModel<?> content, Long revisionId) {
+        return new BadRequestException("Invalid revisionId: " + revisionId + " for content: " + content.getId());
+    }
+
+    /**
+     * Attach the latest revisions, without diffs, to contents of one type in one query
+     *
+     * @param contentType the type of the contents' project item
+     * @param contents    the contents
+     */
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public <T extends ContentModel<?>> void attachRevisions(ContentType contentType, List<T> contents) {
+        List<T> saved = contents.stream().filter(c -> c.getId() != null).collect(Collectors.toList());
+        if (saved.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Revision>> revisions = new HashMap<>();
+        Set<Long> migrated = new HashSet<>();
+        for (T content : saved) {
+            Revision[] legacy = getLegacyRevisions(content);
+            if (legacy == null) {
+                migrated.add(content.getId());
+                continue;
+            }
+            revisions.put(content.getId(), Arrays.stream(legacy)
+                    .map(r -> new Revision(r.getId(), null, r.getCreatedAt(), new User(r.getUser().getName())))
+                    .collect(Collectors.toList()));
+        }
+        if (!migrated.isEmpty()) {
+            for (Object[] row : this.contentRevisionRepository.findRevisionsByContentIds(contentType, migrated)) {
+                revisions.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add(new Revision(
+                        (Long) row[1], null, ((Timestamp) row[2]).getTime(), new User((String) row[3])));
+            }
+        }
+        int max = this.revisionConfig.getMaxRevisionNumber();
+        saved.forEach(c -> {
+            List<Revision> list = revisions.getOrDefault(c.getId(), Collections.emptyList());
+            c.setRevisionHistory(list.subList(Math.max(0, list.size() - max), list.size()));
+        });
+    }
+
+    /**
+     * Decode the legacy revisions JSON of a content not yet moved into rows
+     *
+     * @return Revision[] - the legacy revisions, or null if the content has none
+     */
+    private static Revision[] getLegacyRevisions(ContentModel<?> content) {
+        // the JSON is cleared in the same transaction that writes the rows
+        String json = content.getRevisions();
+        if (StringUtils.isBlank(json)) {
+            return null;
+        }
+        Revision[] revisions = GSON.fromJson(json, Revision[].class);
+        return revisions == null || revisions.length == 0 ? null : revisions;
+    }
+
+    /**
+     * Move revisions of a content from the legacy revisions JSON into rows
+     */
+    private void migrate(ContentType contentType, ContentModel<?> content) {
+        if (content.getRevisions() == null) {
+            return;
+        }
+        Revision[] revisions = getLegacyRevisions(content);
+        if (revisions != null && !this.contentRevisionRepository.existsByContentTypeAndContentId(contentType, content.getId())) {
+            List<ContentRevision> rows = new ArrayList<>();
+            String text = content.getBaseText();
+            for (Revision revision : revisions) {
+                text = this.contentDiffTool.applyDiff(text, revision.getDiff());
+                boolean snapshot = rows.isEmpty() || revision.getId() % this.revisionConfig.getSnapshotInterval() == 0;
+                rows.add(new ContentRevision(contentType, content.getId(), revision.getId(), revision.getDiff(),
+                        snapshot ? text : null, revision.getUser().getName(), new Timestamp(revision.getCreatedAt())));
+            }
+            this.contentRevisionRepository.saveAll(rows);
+        }
+        content.setRevisions(null);
+    }
+}
@@ -0,0 +1,52 @@
+package com.bulletjournal.repository;
+
+import com.bulletjournal.contents.ContentType;
+import com.bulletjournal.repository.models.ContentRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ContentRevisionRepository extends JpaRepository<ContentRevision, Long> {
+
+    Optional<ContentRevision> findFirstByContentTypeAndContentIdOrderByRevisionIdDesc(
+            ContentType contentType, Long contentId);
+
+    // latest snapshot at or before a revision
+    @Query("SELECT r FROM ContentRevision r WHERE r.contentType = :contentType AND r.contentId = :contentId " +
+            "AND r.revisionId = (SELECT MAX(s.revisionId) FROM ContentRevision s WHERE s.contentType = :contentType " +
+            "AND s.contentId = :contentId AND s.revisionId <= :revisionId AND s.snapshot IS NOT NULL)")
+    Optional<ContentRevision> findNearestSnapshot(@Param("contentType") ContentType contentType,
+                                                  @Param("contentId") Long contentId,
+                                                  @Param("revisionId") Long revisionId);
+
+    List<ContentRevision> findByContentTypeAndContentIdAndRevisionIdBetweenOrderByRevisionId(
+            ContentType contentType, Long contentId, Long fromRevisionId, Long toRevisionId);
+
+    boolean existsByContentTypeAndContentId(ContentType contentType, Long contentId);
+
+    // revision metadata without diffs and snapshots
+    @Query("SELECT r.contentId, r.revisionId, r.createdAt, r.username FROM ContentRevision r " +
+            "WHERE r.contentType = :contentType AND r.contentId IN (:contentIds) ORDER BY r.contentId, r.revisionId")
+    List<Object[]> findRevisionsByContentIds(@Param("contentType") ContentType contentType,
+                                             @Param("contentIds") Collection<Long> contentIds);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ContentRevision r SET r.diff = :diff, r.snapshot = :snapshot WHERE r.id = :id")
+    void setDiff(@Param("id") Long id, @Param("diff") String diff, @Param("snapshot") String snapshot);
+
+    @Modifying
+    @Query("DELETE FROM ContentRevision r " +
+            "WHERE r.contentType = :contentType AND r.contentId = :contentId AND r.revisionId < :revisionId")
+    void deleteRevisionsBefore(@Param("contentType") ContentType contentType,
+                               @Param("contentId") Long contentId,
+                               @Param("revisionId") Long revisionId);
+}
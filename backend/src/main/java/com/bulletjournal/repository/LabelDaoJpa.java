@@ -3,27 +3,33 @@ package com.bulletjournal.repository;
 import com.bulletjournal.authz.AuthorizationService;
 import com.bulletjournal.authz.Operation;
 import com.bulletjournal.contents.ContentType;
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.controller.models.ProjectItem;
 import com.bulletjournal.controller.models.ProjectItems;
 import com.bulletjournal.controller.models.UpdateLabelParams;
 import com.bulletjournal.controller.utils.ProjectItemsGrouper;
+import com.bulletjournal.redis.RedisProjectVersionDaoJpa;
 import com.bulletjournal.exceptions.ResourceAlreadyExistException;
 import com.bulletjournal.exceptions.ResourceNotFoundException;
 import com.bulletjournal.repository.models.*;
 import com.bulletjournal.repository.utils.DaoHelper;
-import com.google.common.collect.ImmutableList;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.function.IntSupplier;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 
 @Repository
 public class LabelDaoJpa {
 
+    private static final int REMOVE_LABEL_CHUNK = 1000;
+
     private static final Map<String, String> DEFAULT_LABELS = new HashMap<String, String>() {
         {
             put("Utility", "BankOutlined");
@@ -54,6 +60,12 @@ public class LabelDaoJpa {
     @Autowired
     private AuthorizationService authorizationService;
 
+    @Autowired
+    private RedisProjectVersionDaoJpa redisProjectVersionDaoJpa;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
     public void createDefaultLabels(String owner) {
         List<Label> defaultLabels = DEFAULT_LABELS.entrySet().stream().map(l -> {
@@ -102,6 +114,9 @@ public class LabelDaoJpa {
 
         DaoHelper.updateIfPresent(updateLabelParams.hasIcon(), updateLabelParams.getIcon(), label::setIcon);
 
+        // tasks and notes are returned with their labels
+        this.taskRepository.findProjectIdsByLabel(labelId).forEach(this.redisProjectVersionDaoJpa::bumpOnCommit);
+        this.noteRepository.findProjectIdsByLabel(labelId).forEach(this.redisProjectVersionDaoJpa::bumpOnCommit);
         return this.labelRepository.save(label);
     }
 
@@ -128,30 +143,42 @@ public class LabelDaoJpa {
                 Operation.DELETE, labelId);
 
         this.labelRepository.delete(label);
+    }
 
-        List<Task> tasks = this.taskRepository.findTasksByLabelId(labelId);
-        tasks.stream().forEach(task -> task
-                .setLabels(task.getLabels().stream().filter(id -> !Objects.equals(id, labelId))
-                        .collect(Collectors.toList())));
-        this.taskRepository.saveAll(tasks);
-
-        List<Transaction> transactions = this.transactionRepository.findTransactionsByLabelId(labelId);
-        transactions.stream().forEach(transaction -> transaction
-                .setLabels(transaction.getLabels().stream().filter(id -> !Objects.equals(id, labelId))
-                        .collect(Collectors.toList())));
-        this.transactionRepository.saveAll(transactions);
+    /**
+     * Remove a deleted label from all items carrying it.
+     * <p>
+     * Each chunk is a single array_remove UPDATE per table committed on its own together with the
+     * version bump of its projects, so no item is loaded and row locks are only held for one chunk.
+     *
+     * @param labelId  the deleted label
+     * @param progress called after each chunk with the table and its rows updated so far
+     */
+    public void removeLabelFromItems(Long labelId, ObjIntConsumer<String> progress) {
+        removeLabelInChunks("tasks", progress, () -> this.transactionTemplate.execute(status ->
+                refreshProjectVersions(this.taskRepository.removeLabelFromTasks(labelId, REMOVE_LABEL_CHUNK))));
+        removeLabelInChunks("notes", progress, () -> this.transactionTemplate.execute(status ->
+                refreshProjectVersions(this.noteRepository.removeLabelFromNotes(labelId, REMOVE_LABEL_CHUNK))));
+        removeLabelInChunks("transactions", progress, () -> this.transactionRepository
+                .removeLabelFromTransactions(labelId, REMOVE_LABEL_CHUNK));
+        removeLabelInChunks("shared_project_items", progress, () -> this.sharedProjectItemRepository
+                .removeLabelFromSharedProjectItems(labelId, REMOVE_LABEL_CHUNK));
+    }
 
-        List<Note> notes = this.noteRepository.findNotesByLabelId(labelId);
-        notes.stream().forEach(note -> note
-                .setLabels(note.getLabels().stream().filter(id -> !Objects.equals(id, labelId))
-                        .collect(Collectors.toList())));
-        this.noteRepository.saveAll(notes);
+    private void removeLabelInChunks(String table, ObjIntConsumer<String> progress, IntSupplier chunk) {
+        int total = 0;
+        int updated;
+        do {
+            updated = chunk.getAsInt();
+            total += updated;
+            progress.accept(table, total);
+        } while (updated == REMOVE_LABEL_CHUNK);
+    }
 
-        List<SharedProjectItem> sharedProjectItems = this.sharedProjectItemRepository
-                .findSharedProjectItemsByLabelIds(requester, ImmutableList.of(labelId));
-        sharedProjectItems.forEach(item -> item.setLabels(item.getLabels()
-                .stream().filter(id -> !Objects.equals(id, labelId)).collect(Collectors.toList())));
-        this.sharedProjectItemRepository.saveAll(sharedProjectItems);
+    private int refreshProjectVersions(List<Long> projectIds) {
+        // bulk updates bypass entity listeners
+        new HashSet<>(projectIds).forEach(this.redisProjectVersionDaoJpa::bumpOnCommit);
+        return projectIds.size();
     }
 
     /**
@@ -162,26 +189,26 @@ public class LabelDaoJpa {
      * labels to themselves 5. Convert to presentation model and return
      *
      * @param timezone  the timezone of requester
-     * @param labels    a list of labels
-     * @param requester request user
+     * @param labels     a list of labels
+     * @param labelMatch whether items need all or any of the labels
+     * @param requester  request user
      * @return List<ProjectItems> - a list of sorted project items with labels
      */
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
-    public List<ProjectItems> getItemsByLabels(String timezone, List<Long> labels, String requester) {
+    public List<ProjectItems> getItemsByLabels(
+            String timezone, List<Long> labels, LabelMatch labelMatch, String requester) {
         Map<ZonedDateTime, ProjectItems> projectItemsMap = new HashMap<>();
 
-        // Query project items from its own repository
-        List<Task> tasks = this.taskRepository.findTasksByLabelIds(labels);
-        List<Transaction> transactions = this.transactionRepository.findTransactionsByLabelIds(labels);
-        List<Note> notes = this.noteRepository.findNotesByLabelIds(labels);
-
-        Map<Long, Boolean> cache = new HashMap<>();
-        tasks = filter(tasks, requester, cache);
-        transactions = filter(transactions, requester, cache);
-        notes = filter(notes, requester, cache);
+        // Query project items in requester's groups from its own repository
+        Set<Long> groupIds = this.authorizationService.getContext(requester).getAcceptedGroupIds();
+        List<Task> tasks = this.taskRepository.findTasksByLabelIds(labels, labelMatch, groupIds);
+        List<Transaction> transactions = this.transactionRepository
+                .findTransactionsByLabelIds(labels, labelMatch, groupIds);
+        List<Note> notes = this.noteRepository.findNotesByLabelIds(labels, labelMatch, groupIds);
 
         List<ProjectItemModel> sharedProjectItems = SharedProjectItemDaoJpa.getProjectItemModelsFromSharedItems(
-                null, this.sharedProjectItemRepository.findSharedProjectItemsByLabelIds(requester, labels));
+                null, this.sharedProjectItemRepository.findSharedProjectItemsByLabelIds(
+                        requester, labels, labelMatch));
         for (ProjectItemModel projectItemModel : sharedProjectItems) {
             if (projectItemModel instanceof Task &&
                     tasks.stream().noneMatch(t -> Objects.equals(t.getId(), projectItemModel.getId()))) {
@@ -205,15 +232,6 @@ public class LabelDaoJpa {
         return getLabelsForProjectItems(projectItems);
     }
 
-    private <T extends ProjectItemModel> List<T> filter(List<T> projectItems, String requester,
-            Map<Long, Boolean> cache) {
-        return projectItems.stream().filter(item -> {
-            Long projectId = item.getProject().getId();
-            return cache.computeIfAbsent(projectId, k -> item.getProject().getGroup().getAcceptedUsers().stream()
-                    .anyMatch(u -> requester.equals(u.getUser().getName())));
-        }).collect(Collectors.toList());
-    }
-
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
     public List<ProjectItems> getLabelsForProjectItems(List<ProjectItems> projectItems) {
         List<ProjectItem> items = new ArrayList<>();
@@ -6,15 +6,16 @@ import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.controller.models.CreateNoteParams;
 import com.bulletjournal.controller.models.ProjectType;
 import com.bulletjournal.controller.models.UpdateNoteParams;
+import com.bulletjournal.controller.models.UpdateOrderParams;
 import com.bulletjournal.controller.utils.ProjectItemsGrouper;
 import com.bulletjournal.controller.utils.ZonedDateTimeHelper;
 import com.bulletjournal.es.ESUtil;
 import com.bulletjournal.es.repository.SearchIndexDaoJpa;
 import com.bulletjournal.exceptions.BadRequestException;
-import com.bulletjournal.hierarchy.HierarchyItem;
-import com.bulletjournal.hierarchy.HierarchyProcessor;
+import com.bulletjournal.hierarchy.HierarchyCodec;
 import com.bulletjournal.hierarchy.NoteRelationsProcessor;
 import com.bulletjournal.notifications.Event;
+import com.bulletjournal.redis.RedisProjectVersionDaoJpa;
 import com.bulletjournal.repository.models.*;
 import com.bulletjournal.repository.utils.DaoHelper;
 import org.apache.commons.lang3.StringUtils;
@@ -53,6 +54,8 @@ public class NoteDaoJpa extends ProjectItemDaoJpa<NoteContent> {
     private SharedProjectItemDaoJpa sharedProjectItemDaoJpa;
     @Autowired
     private SearchIndexDaoJpa searchIndexDaoJpa;
+    @Autowired
+    private RedisProjectVersionDaoJpa redisProjectVersionDaoJpa;
 
     @Override
     public JpaRepository getJpaRepository() {
@@ -75,20 +78,15 @@ public class NoteDaoJpa extends ProjectItemDaoJpa<NoteContent> {
         List<com.bulletjournal.controller.models.Note> ret = new ArrayList<>();
         if (projectNotesOptional.isPresent()) {
             ProjectNotes projectNotes = projectNotesOptional.get(); // this might have notes that has been deleted
-            Set<Long> existingIds = notes.stream().map(note -> note.getId()).collect(Collectors.toSet());
+            final Map<Long, Note> noteMap = notes.stream().collect(Collectors.toMap(n -> n.getId(), n -> n));
 
             // left is real hierarchy but missing orphaned ones, right is processed ones
-            Pair<List<HierarchyItem>, Set<Long>> hierarchy =
-                    HierarchyProcessor.findAllIds(projectNotes.getNotes(), existingIds);
-
-            List<HierarchyItem> keptHierarchy = hierarchy.getLeft();
+            Pair<List<com.bulletjournal.controller.models.Note>, Set<Long>> hierarchy =
+                    NoteRelationsProcessor.processRelations(noteMap, getHierarchy(projectNotes));
             Set<Long> processedIds = hierarchy.getRight();
 
             // add processed ones
-            final Map<Long, Note> noteMap = notes.stream().filter(n -> processedIds.contains(n.getId()))
-                    .collect(Collectors.toMap(n -> n.getId(), n -> n));
-
-            ret.addAll(NoteRelationsProcessor.processRelations(noteMap, keptHierarchy).stream()
+            ret.addAll(hierarchy.getLeft().stream()
                     .map(note -> addLabels(note, noteMap)).collect(Collectors.toList()));
 
             // add orphaned ones(not processed means orphaned)
@@ -101,6 +99,14 @@ public class NoteDaoJpa extends ProjectItemDaoJpa<NoteContent> {
         return ret;
     }
 
+    /**
+     * Decode a legacy JSON hierarchy without persisting it, it is stored in binary by the next update
+     */
+    private static byte[] getHierarchy(ProjectNotes projectNotes) {
+        return projectNotes.getNotesHierarchy() == null
+                ? HierarchyCodec.fromJson(projectNotes.getNotes()) : projectNotes.getNotesHierarchy();
+    }
+
     private com.bulletjournal.controller.models.Note addLabels(com.bulletjournal.controller.models.Note note,
                                                                Map<Long, Note> notesMap) {
         List<com.bulletjournal.controller.models.Label> labels = getLabelsToProjectItem(notesMap.get(note.getId()));
@@ -205,9 +211,27 @@ public class NoteDaoJpa extends ProjectItemDaoJpa<NoteContent> {
         Optional<ProjectNotes> projectNotesOptional = this.projectNotesRepository.findById(projectId);
         final ProjectNotes projectNotes = projectNotesOptional.orElseGet(ProjectNotes::new);
 
-        projectNotes.setNotes(NoteRelationsProcessor.processRelations(notes));
+        projectNotes.setNotesHierarchy(NoteRelationsProcessor.encode(notes));
+        projectNotes.setNotes(null);
         projectNotes.setProjectId(projectId);
-        this.projectNotesRepository.save(projectNotes);
+        DaoHelper.saveHierarchy(this.projectNotesRepository, projectNotes);
+    }
+
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public Long updateUserNotesOrder(Long projectId, UpdateOrderParams params, String requester) {
+        this.projectDaoJpa.getProject(projectId, requester);
+        final ProjectNotes projectNotes = this.projectNotesRepository.findById(projectId)
+                .orElseGet(() -> new ProjectNotes(projectId));
+        byte[] hierarchy = getHierarchy(projectNotes);
+
+        projectNotes.setNotesHierarchy(DaoHelper.editHierarchy(hierarchy, projectNotes.getHierarchyVersion(), params));
+        projectNotes.setNotes(null);
+        return DaoHelper.saveHierarchy(this.projectNotesRepository, projectNotes).getHierarchyVersion();
+    }
+
+    public Long getNotesHierarchyVersion(Long projectId) {
+        Long version = this.projectNotesRepository.getHierarchyVersion(projectId);
+        return version == null ? 0L : version;
     }
 
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
@@ -230,6 +254,19 @@ public class NoteDaoJpa extends ProjectItemDaoJpa<NoteContent> {
         return events;
     }
 
+    /**
+     * Delete notes in one statement
+     *
+     * @param noteList the notes
+     */
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public void deleteInBatch(List<Note> noteList) {
+        this.noteRepository.deleteInBatch(noteList);
+        // bulk deletes bypass entity listeners
+        noteList.stream().map(note -> note.getProject().getId()).distinct()
+                .forEach(this.redisProjectVersionDaoJpa::bumpOnCommit);
+    }
+
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
     public Pair<Note, Project> move(String requester, Long noteId, Long targetProject) {
         final Project project = this.projectDaoJpa.getProject(targetProject, requester);
@@ -243,6 +280,8 @@ public class NoteDaoJpa extends ProjectItemDaoJpa<NoteContent> {
         this.authorizationService.checkAuthorizedToOperateOnContent(note.getOwner(), requester, ContentType.NOTE,
                 Operation.UPDATE, project.getId(), project.getOwner());
 
+        // the listener only sees the target project
+        this.redisProjectVersionDaoJpa.bumpOnCommit(note.getProject().getId());
         note.setProject(project);
         noteRepository.save(note);
         return Pair.of(note, project);
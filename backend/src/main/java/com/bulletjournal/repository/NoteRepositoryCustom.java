@@ -1,11 +1,36 @@
 package com.bulletjournal.repository;
 
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.repository.models.Note;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface NoteRepositoryCustom {
-    List<Note> findNotesByLabelIds(List<Long> labelIds);
+    /**
+     * Find items carrying the labels in projects of the given groups
+     *
+     * @param labelIds   the label ids
+     * @param labelMatch whether items need all or any of the labels
+     * @param groupIds   the groups whose projects are searched
+     * @return List<Note> - matching items
+     */
+    List<Note> findNotesByLabelIds(List<Long> labelIds, LabelMatch labelMatch, Collection<Long> groupIds);
 
-    List<Note> findNotesByLabelId(Long labelId);
+    /**
+     * Remove a label from at most limit items in one statement
+     *
+     * @param labelId the label id
+     * @param limit   the maximum number of items updated
+     * @return List<Long> - project id of every updated item
+     */
+    List<Long> removeLabelFromNotes(Long labelId, int limit);
+
+    /**
+     * Find the projects of items carrying a label
+     *
+     * @param labelId the label id
+     * @return List<Long> - distinct project ids
+     */
+    List<Long> findProjectIdsByLabel(Long labelId);
 }
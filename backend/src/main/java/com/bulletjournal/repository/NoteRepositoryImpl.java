@@ -1,14 +1,17 @@
 package com.bulletjournal.repository;
 
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.repository.models.Note;
-import com.google.common.collect.ImmutableList;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Repository
 @Transactional
@@ -18,20 +21,37 @@ public class NoteRepositoryImpl implements NoteRepositoryCustom {
     EntityManager entityManager;
 
     @Override
-    public List<Note> findNotesByLabelIds(List<Long> labelIds) {
-        StringBuilder queryString = new StringBuilder("SELECT * FROM notes WHERE ? = ANY(notes.labels)");
-        for (int i = 1; i < labelIds.size(); i++) {
-            queryString.append(" and ? = ANY(notes.labels)");
-        }
-        Query query = entityManager.createNativeQuery(queryString.toString(), Note.class);
-        for (int i = 1; i <= labelIds.size(); i++) {
-            query.setParameter(i, labelIds.get(i - 1));
+    public List<Note> findNotesByLabelIds(List<Long> labelIds, LabelMatch labelMatch, Collection<Long> groupIds) {
+        if (labelIds.isEmpty() || groupIds.isEmpty()) {
+            // callers append shared items to the result
+            return new ArrayList<>();
         }
+        Query query = entityManager.createNativeQuery("SELECT * FROM notes WHERE notes.labels "
+                + labelMatch.getOperator() + " CAST(ARRAY[:labelIds] AS bigint[]) AND notes.project_id IN "
+                + "(SELECT projects.id FROM projects WHERE projects.group_id IN (:groupIds))", Note.class);
+        query.setParameter("labelIds", labelIds);
+        query.setParameter("groupIds", groupIds);
         return query.getResultList();
     }
 
     @Override
-    public List<Note> findNotesByLabelId(Long labelId) {
-        return findNotesByLabelIds(ImmutableList.of(labelId));
+    public List<Long> removeLabelFromNotes(Long labelId, int limit) {
+        Query query = entityManager.createNativeQuery("WITH updated AS (UPDATE notes "
+                + "SET labels = array_remove(notes.labels, CAST(:labelId AS bigint)) WHERE notes.id IN "
+                + "(SELECT id FROM notes WHERE notes.labels @> CAST(ARRAY[:labelId] AS bigint[]) LIMIT :limit) "
+                + "RETURNING notes.project_id) SELECT project_id FROM updated");
+        query.setParameter("labelId", labelId);
+        query.setParameter("limit", limit);
+        List<?> projectIds = query.getResultList();
+        return projectIds.stream().map(id -> ((Number) id).longValue()).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Long> findProjectIdsByLabel(Long labelId) {
+        Query query = entityManager.createNativeQuery("SELECT DISTINCT notes.project_id FROM notes "
+                + "WHERE notes.labels @> CAST(ARRAY[:labelId] AS bigint[])");
+        query.setParameter("labelId", labelId);
+        List<?> projectIds = query.getResultList();
+        return projectIds.stream().map(id -> ((Number) id).longValue()).collect(Collectors.toList());
     }
 }
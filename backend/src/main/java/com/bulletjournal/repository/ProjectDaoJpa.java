@@ -4,10 +4,10 @@ import com.bulletjournal.authz.AuthorizationService;
 import com.bulletjournal.authz.Operation;
 import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.controller.models.*;
+import com.bulletjournal.exceptions.BadRequestException;
 import com.bulletjournal.exceptions.ResourceAlreadyExistException;
 import com.bulletjournal.exceptions.ResourceNotFoundException;
-import com.bulletjournal.hierarchy.HierarchyItem;
-import com.bulletjournal.hierarchy.HierarchyProcessor;
+import com.bulletjournal.hierarchy.HierarchyCodec;
 import com.bulletjournal.hierarchy.ProjectRelationsProcessor;
 import com.bulletjournal.notifications.Event;
 import com.bulletjournal.notifications.SampleProjectsCreation;
@@ -61,7 +61,7 @@ public class ProjectDaoJpa {
             userProjects = userProjectsOptional.get();
         } else {
             userProjects = new UserProjects(owner);
-            this.userProjectsRepository.save(userProjects);
+            DaoHelper.saveHierarchy(this.userProjectsRepository, userProjects);
         }
 
         result.setOwned(getOwnerProjects(userProjects, owner));
@@ -143,21 +143,15 @@ public class ProjectDaoJpa {
         if (projectFilter != null) {
             projects = projects.stream().filter(p -> projectFilter.contains(p.getId())).collect(Collectors.toList());
         }
-        if (userProjects.getOwnedProjects() != null) {
-            Set<Long> existingIds = projects.stream().map(p -> p.getId()).collect(Collectors.toSet());
+        if (userProjects.getOwnedProjectsHierarchy() != null || userProjects.getOwnedProjects() != null) {
+            final Map<Long, Project> projectMap = projects.stream().collect(Collectors.toMap(p -> p.getId(), p -> p));
             // left is real hierarchy but missing orphaned ones, right is processed ones
-            Pair<List<HierarchyItem>, Set<Long>> hierarchy =
-                    HierarchyProcessor.findAllIds(userProjects.getOwnedProjects(), existingIds);
-
-            List<HierarchyItem> keptHierarchy = hierarchy.getLeft();
+            Pair<List<com.bulletjournal.controller.models.Project>, Set<Long>> hierarchy =
+                    ProjectRelationsProcessor.processRelations(projectMap, getHierarchy(userProjects), null);
             Set<Long> processedIds = hierarchy.getRight();
 
             // add processed ones
-            final Map<Long, Project> projectMap = projects.stream().filter(p -> processedIds.contains(p.getId()))
-                    .collect(Collectors.toMap(p -> p.getId(), p -> p));
-
-            ret.addAll(ProjectRelationsProcessor.processRelations(
-                    projectMap, keptHierarchy, null));
+            ret.addAll(hierarchy.getLeft());
 
             // add orphaned ones(not processed means orphaned)
             projects = projects.stream().filter(p -> !processedIds.contains(p.getId())).collect(Collectors.toList());
@@ -285,16 +279,48 @@ public class ProjectDaoJpa {
         }
     }
 
+    /**
+     * Decode a legacy JSON hierarchy without persisting it, it is stored in binary by the next update
+     */
+    private static byte[] getHierarchy(UserProjects userProjects) {
+        return userProjects.getOwnedProjectsHierarchy() == null
+                ? HierarchyCodec.fromJson(userProjects.getOwnedProjects()) : userProjects.getOwnedProjectsHierarchy();
+    }
+
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
     public void updateUserOwnedProjects(String user, List<com.bulletjournal.controller.models.Project> projects) {
         Optional<UserProjects> userProjectsOptional = this.userProjectsRepository.findById(user);
         final UserProjects userProjects = userProjectsOptional.isPresent() ? userProjectsOptional.get()
                 : new UserProjects();
 
-        userProjects.setOwnedProjects(ProjectRelationsProcessor.processRelations(projects));
+        userProjects.setOwnedProjectsHierarchy(ProjectRelationsProcessor.encode(projects));
+        userProjects.setOwnedProjects(null);
         userProjects.setOwner(user);
 
-        this.userProjectsRepository.save(userProjects);
+        DaoHelper.saveHierarchy(this.userProjectsRepository, userProjects);
+    }
+
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public Long updateUserOwnedProjectsOrder(String user, UpdateOrderParams params) {
+        final UserProjects userProjects = this.userProjectsRepository.findById(user)
+                .orElseGet(() -> new UserProjects(user));
+        if (params.getAction() != UpdateOrderParams.Action.REMOVE) {
+            Project project = getProject(params.getId(), user);
+            if (!Objects.equals(project.getOwner(), user)) {
+                throw new BadRequestException("Project " + params.getId() + " is not owned by " + user);
+            }
+        }
+        byte[] hierarchy = getHierarchy(userProjects);
+
+        userProjects.setOwnedProjectsHierarchy(
+                DaoHelper.editHierarchy(hierarchy, userProjects.getHierarchyVersion(), params));
+        userProjects.setOwnedProjects(null);
+        return DaoHelper.saveHierarchy(this.userProjectsRepository, userProjects).getHierarchyVersion();
+    }
+
+    public Long getOwnedProjectsHierarchyVersion(String owner) {
+        Long version = this.userProjectsRepository.getHierarchyVersion(owner);
+        return version == null ? 0L : version;
     }
 
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
@@ -306,7 +332,7 @@ public class ProjectDaoJpa {
         DaoHelper.updateIfPresent(update.hasProjectOwners(), update.getProjectOwners(),
                 (value) -> userProjects.setSharedProjects(GSON.toJson(value)));
         userProjects.setOwner(owner);
-        this.userProjectsRepository.save(userProjects);
+        DaoHelper.saveHierarchy(this.userProjectsRepository, userProjects);
     }
 
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
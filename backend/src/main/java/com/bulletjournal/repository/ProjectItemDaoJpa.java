@@ -2,12 +2,10 @@ package com.bulletjournal.repository;
 
 import com.bulletjournal.authz.AuthorizationService;
 import com.bulletjournal.authz.Operation;
-import com.bulletjournal.config.ContentRevisionConfig;
 import com.bulletjournal.contents.ContentAction;
 import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.controller.models.*;
 import com.bulletjournal.controller.utils.EtagGenerator;
-import com.bulletjournal.exceptions.BadRequestException;
 import com.bulletjournal.exceptions.ResourceNotFoundException;
 import com.bulletjournal.exceptions.UnAuthorizedException;
 import com.bulletjournal.notifications.Auditable;
@@ -21,10 +19,8 @@ import com.bulletjournal.repository.models.ContentModel;
 import com.bulletjournal.repository.models.Group;
 import com.bulletjournal.repository.models.ProjectItemModel;
 import com.bulletjournal.repository.models.UserGroup;
-import com.bulletjournal.util.ContentDiffTool;
 import com.bulletjournal.util.DeltaContent;
 import com.google.common.base.Preconditions;
-import com.google.gson.Gson;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -34,6 +30,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
 import java.math.BigInteger;
 import java.sql.Timestamp;
 import java.time.Instant;
@@ -43,7 +42,6 @@ import java.util.stream.Collectors;
 public abstract class ProjectItemDaoJpa<K extends ContentModel> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ProjectItemDaoJpa.class);
-    private static final Gson GSON = new Gson();
 
     private static final int CONTENT_BATCH_SIZE = 18;
 
@@ -58,9 +56,9 @@ public abstract class ProjectItemDaoJpa<K extends ContentModel> {
     @Autowired
     private PublicProjectItemDaoJpa publicProjectItemDaoJpa;
     @Autowired
-    private ContentRevisionConfig revisionConfig;
-    @Autowired
-    private ContentDiffTool contentDiffTool;
+    private ContentRevisionDaoJpa contentRevisionDaoJpa;
+    @PersistenceContext
+    private EntityManager entityManager;
     @Autowired
     private ProjectRepository projectRepository;
     @Autowired
@@ -199,15 +197,13 @@ public abstract class ProjectItemDaoJpa<K extends ContentModel> {
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
     public <T extends ProjectItemModel> Pair<ContentModel, T> addContent(Long projectItemId, String owner, K content) {
         T projectItem = getProjectItem(projectItemId, owner);
-        populateContent(owner, content, projectItem);
-        this.getContentJpaRepository().save(content);
-        return Pair.of(content, projectItem);
-    }
-
-    private <T extends ProjectItemModel> void populateContent(String owner, K content, T projectItem) {
         content.setProjectItem(projectItem);
         content.setOwner(owner);
-        updateRevision(content, owner, content.getText(), content.getText());
+        this.getContentJpaRepository().save(content);
+        this.contentRevisionDaoJpa.append(
+                projectItem.getContentType(), content, owner, content.getText(), content.getText());
+        this.contentRevisionDaoJpa.attachRevisions(projectItem.getContentType(), Collections.singletonList(content));
+        return Pair.of(content, projectItem);
     }
 
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
@@ -215,8 +211,10 @@ public abstract class ProjectItemDaoJpa<K extends ContentModel> {
         T projectItem = getProjectItem(projectItemId, owner);
         content.setProjectItem(projectItem);
         content.setOwner(owner);
-        updateRevision(content, owner, content.getText(), content.getText());
         this.getContentJpaRepository().save(content);
+        this.contentRevisionDaoJpa.append(
+                projectItem.getContentType(), content, owner, content.getText(), content.getText());
+        this.contentRevisionDaoJpa.attachRevisions(projectItem.getContentType(), Collections.singletonList(content));
         return Pair.of(content, projectItem);
     }
 
@@ -239,6 +237,9 @@ public abstract class ProjectItemDaoJpa<K extends ContentModel> {
                 Operation.UPDATE, content.getId(), projectItem.getOwner(), projectItem.getProject().getOwner(),
                 projectItem);
 
+        // lock and reload before reading the old text, so that a concurrent edit is diffed against
+        // the text it committed rather than the one this transaction loaded before it
+        this.entityManager.refresh(content, LockModeType.PESSIMISTIC_WRITE);
         String oldText = content.getText();
 
         if (etag.isPresent()) {
@@ -260,8 +261,10 @@ public abstract class ProjectItemDaoJpa<K extends ContentModel> {
         DeltaContent newContent = new DeltaContent(updateContentParams.getText());
         content.setText(newContent.toJSON());
 
-        updateRevision(content, requester, content.getText(), oldText);
         this.getContentJpaRepository().save(content);
+        this.contentRevisionDaoJpa.append(
+                projectItem.getContentType(), content, requester, oldText, content.getText());
+        this.contentRevisionDaoJpa.attachRevisions(projectItem.getContentType(), Collections.singletonList(content));
         return Pair.of(content, projectItem);
     }
 
@@ -316,52 +319,7 @@ public abstract class ProjectItemDaoJpa<K extends ContentModel> {
         K content = getContent(contentId, requester);
         Preconditions.checkState(Objects.equals(projectItem.getId(), content.getProjectItem().getId()),
                 "ProjectItem ID mismatch");
-        Revision[] revisions = GSON.fromJson(content.getRevisions(), Revision[].class);
-        Preconditions.checkNotNull(revisions, "Revisions for Content: {} is null", contentId);
-        if (!Arrays.stream(revisions).anyMatch(revision -> Objects.equals(revision.getId(), revisionId))) {
-            throw new BadRequestException("Invalid revisionId: " + revisionId + " for content: " + contentId);
-        }
-
-        if (revisionId.equals(revisions[revisions.length - 1].getId())) {
-            revisions[revisions.length - 1].setContent(content.getText());
-            return revisions[revisions.length - 1];
-        }
-
-        String ret = content.getBaseText();
-        for (Revision revision : revisions) {
-            ret = contentDiffTool.applyDiff(ret, revision.getDiff());
-            if (revision.getId().equals(revisionId)) {
-                revision.setContent(ret);
-                return revision;
-            }
-        }
-        throw new IllegalStateException("Cannot reach here");
-    }
-
-    private void updateRevision(K content, String requester, String newText, String oldText) {
-        String revisionsJson = content.getRevisions();
-        if (revisionsJson == null) {
-            revisionsJson = "[]";
-        }
-        LinkedList<Revision> revisionList = new LinkedList<>(
-                Arrays.asList(GSON.fromJson(revisionsJson, Revision[].class)));
-        int maxRevisionNumber = revisionConfig.getMaxRevisionNumber();
-        long nextRevisionId;
-        if (revisionList.isEmpty()) {
-            content.setBaseText(oldText);
-            nextRevisionId = 1;
-        } else {
-            nextRevisionId = revisionList.getLast().getId() + 1;
-            if (revisionList.size() == maxRevisionNumber) {
-                String oldBaseText = content.getBaseText();
-                String diffToMerge = revisionList.pollFirst().getDiff();
-                content.setBaseText(contentDiffTool.applyDiff(oldBaseText, diffToMerge));
-            }
-        }
-        String diff = contentDiffTool.computeDiff(oldText, newText);
-        Revision newRevision = new Revision(nextRevisionId, diff, Instant.now().toEpochMilli(), new User(requester));
-        revisionList.offerLast(newRevision);
-        content.setRevisions(GSON.toJson(revisionList));
+        return this.contentRevisionDaoJpa.getRevision(projectItem.getContentType(), content, revisionId);
     }
 
     /**
@@ -373,8 +331,11 @@ public abstract class ProjectItemDaoJpa<K extends ContentModel> {
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
     public <T extends ProjectItemModel> List<K> getContents(Long projectItemId, String requester) {
         T projectItem = getProjectItem(projectItemId, requester);
-        return this.findContents(projectItem).stream().sorted((a, b) -> b.getUpdatedAt().compareTo(a.getUpdatedAt()))
+        List<K> contents = this.findContents(projectItem).stream()
+                .sorted((a, b) -> b.getUpdatedAt().compareTo(a.getUpdatedAt()))
                 .collect(Collectors.toList());
+        this.contentRevisionDaoJpa.attachRevisions(projectItem.getContentType(), contents);
+        return contents;
     }
 
     abstract <T extends ProjectItemModel> List<T> findRecentProjectItemsBetween(Timestamp startTime, Timestamp endTime, List projects);
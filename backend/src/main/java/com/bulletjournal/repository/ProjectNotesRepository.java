@@ -2,8 +2,12 @@ package com.bulletjournal.repository;
 
 import com.bulletjournal.repository.models.ProjectNotes;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ProjectNotesRepository extends JpaRepository<ProjectNotes, Long> {
-}
\ No newline at end of file
+    @Query("SELECT projectNotes.hierarchyVersion FROM ProjectNotes projectNotes WHERE projectNotes.projectId = :projectId")
+    Long getHierarchyVersion(@Param("projectId") Long projectId);
+}
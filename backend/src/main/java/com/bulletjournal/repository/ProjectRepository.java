@@ -2,6 +2,8 @@ package com.bulletjournal.repository;
 
 import com.bulletjournal.repository.models.Project;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,4 +15,10 @@ public interface ProjectRepository extends JpaRepository<Project, Long> {
     List<Project> findByNameAndOwner(String name, String owner);
 
     List<Project> findByOwnerAndSharedTrue(String owner);
+
+    /**
+     * Item versions are bumped on commit by RedisProjectVersionDaoJpa
+     */
+    @Query(value = "SELECT version FROM project_item_versions WHERE project_id = :projectId", nativeQuery = true)
+    Long getItemVersion(@Param("projectId") Long projectId);
 }
\ No newline at end of file
@@ -2,8 +2,12 @@ package com.bulletjournal.repository;
 
 import com.bulletjournal.repository.models.ProjectTasks;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ProjectTasksRepository extends JpaRepository<ProjectTasks, Long> {
-}
\ No newline at end of file
+    @Query("SELECT projectTasks.hierarchyVersion FROM ProjectTasks projectTasks WHERE projectTasks.projectId = :projectId")
+    Long getHierarchyVersion(@Param("projectId") Long projectId);
+}
@@ -1,5 +1,6 @@
 package com.bulletjournal.repository;
 
+import com.bulletjournal.authz.AuthorizationService;
 import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.controller.models.ProjectType;
 import com.bulletjournal.exceptions.ResourceNotFoundException;
@@ -40,6 +41,9 @@ public class SharedProjectItemDaoJpa {
     @Autowired
     private TaskContentRepository taskContentRepository;
 
+    @Autowired
+    private AuthorizationService authorizationService;
+
     @Autowired
     private NoteContentRepository noteContentRepository;
 
@@ -90,10 +94,7 @@ public class SharedProjectItemDaoJpa {
             if (Objects.equals(user, requester)) {
                 continue;
             }
-            List<ProjectItemModel> existingItems = this.getSharedProjectItems(user);
-            if (existingItems.stream().anyMatch(existingItem ->
-                    Objects.equals(existingItem.getContentType(), projectItem.getContentType()) &&
-                            Objects.equals(existingItem.getId(), projectItem.getId()))) {
+            if (this.authorizationService.getContext(user).isShared(projectItem.getContentType(), projectItem.getId())) {
                 LOGGER.error(projectItem.getClass().getSimpleName() + " " + projectItem.getName() +
                         " (ID " + projectItem.getId() +
                         ") is already shared with User " + user);
@@ -4,6 +4,8 @@ import com.bulletjournal.repository.models.Note;
 import com.bulletjournal.repository.models.SharedProjectItem;
 import com.bulletjournal.repository.models.Task;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,6 +15,11 @@ public interface SharedProjectItemRepository extends JpaRepository<SharedProject
         SharedProjectItemRepositoryCustom {
     List<SharedProjectItem> findByUsername(String username);
 
+    // task id, note id and transaction id of each item shared with the user, without loading the items
+    @Query("SELECT task.id, note.id, tx.id FROM SharedProjectItem item LEFT JOIN item.task task "
+            + "LEFT JOIN item.note note LEFT JOIN item.transaction tx WHERE item.username = :username")
+    List<Object[]> findSharedItemIdsByUsername(@Param("username") String username);
+
     List<SharedProjectItem> findByTask(Task task);
 
     List<SharedProjectItem> findByNote(Note note);
@@ -1,9 +1,20 @@
 package com.bulletjournal.repository;
 
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.repository.models.SharedProjectItem;
 
 import java.util.List;
 
 public interface SharedProjectItemRepositoryCustom {
-    List<SharedProjectItem> findSharedProjectItemsByLabelIds(String username, List<Long> labelIds);
+    List<SharedProjectItem> findSharedProjectItemsByLabelIds(
+            String username, List<Long> labelIds, LabelMatch labelMatch);
+
+    /**
+     * Remove a label from at most limit shared items in one statement
+     *
+     * @param labelId the label id
+     * @param limit   the maximum number of shared items updated
+     * @return int - number of updated shared items
+     */
+    int removeLabelFromSharedProjectItems(Long labelId, int limit);
 }
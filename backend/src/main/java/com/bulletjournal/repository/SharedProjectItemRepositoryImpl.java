@@ -1,6 +1,6 @@
 package com.bulletjournal.repository;
 
-
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.repository.models.SharedProjectItem;
 import org.springframework.stereotype.Repository;
 
@@ -8,6 +8,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.transaction.Transactional;
+import java.util.ArrayList;
 import java.util.List;
 
 @Repository
@@ -18,16 +19,28 @@ public class SharedProjectItemRepositoryImpl implements SharedProjectItemReposit
     EntityManager entityManager;
 
     @Override
-    public List<SharedProjectItem> findSharedProjectItemsByLabelIds(String username, List<Long> labelIds) {
-        StringBuilder queryString = new StringBuilder("SELECT * FROM shared_project_items WHERE " +
-                "shared_project_items.username = '" + username + "' AND ? = ANY(shared_project_items.labels)");
-        for (int i = 1; i < labelIds.size(); i++) {
-            queryString.append(" and ? = ANY(shared_project_items.labels)");
-        }
-        Query query = entityManager.createNativeQuery(queryString.toString(), SharedProjectItem.class);
-        for (int i = 1; i <= labelIds.size(); i++) {
-            query.setParameter(i, labelIds.get(i - 1));
+    public List<SharedProjectItem> findSharedProjectItemsByLabelIds(
+            String username, List<Long> labelIds, LabelMatch labelMatch) {
+        if (labelIds.isEmpty()) {
+            // callers append shared items to the result
+            return new ArrayList<>();
         }
+        Query query = entityManager.createNativeQuery("SELECT * FROM shared_project_items WHERE "
+                + "shared_project_items.username = :username AND shared_project_items.labels "
+                + labelMatch.getOperator() + " CAST(ARRAY[:labelIds] AS bigint[])", SharedProjectItem.class);
+        query.setParameter("username", username);
+        query.setParameter("labelIds", labelIds);
         return query.getResultList();
     }
+
+    @Override
+    public int removeLabelFromSharedProjectItems(Long labelId, int limit) {
+        Query query = entityManager.createNativeQuery("UPDATE shared_project_items "
+                + "SET labels = array_remove(shared_project_items.labels, CAST(:labelId AS bigint)) "
+                + "WHERE shared_project_items.id IN (SELECT id FROM shared_project_items "
+                + "WHERE shared_project_items.labels @> CAST(ARRAY[:labelId] AS bigint[]) LIMIT :limit)");
+        query.setParameter("labelId", labelId);
+        query.setParameter("limit", limit);
+        return query.executeUpdate();
+    }
 }
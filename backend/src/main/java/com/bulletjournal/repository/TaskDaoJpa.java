@@ -11,12 +11,12 @@ import com.bulletjournal.es.ESUtil;
 import com.bulletjournal.es.repository.SearchIndexDaoJpa;
 import com.bulletjournal.exceptions.BadRequestException;
 import com.bulletjournal.exceptions.ResourceNotFoundException;
-import com.bulletjournal.hierarchy.HierarchyItem;
-import com.bulletjournal.hierarchy.HierarchyProcessor;
+import com.bulletjournal.hierarchy.HierarchyCodec;
 import com.bulletjournal.hierarchy.TaskRelationsProcessor;
 import com.bulletjournal.notifications.ContentBatch;
 import com.bulletjournal.notifications.Event;
 import com.bulletjournal.notifications.informed.UpdateTaskAssigneeEvent;
+import com.bulletjournal.redis.RedisProjectVersionDaoJpa;
 import com.bulletjournal.repository.models.Project;
 import com.bulletjournal.repository.models.Task;
 import com.bulletjournal.repository.models.UserGroup;
@@ -87,6 +87,9 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
     @Autowired
     private SearchIndexDaoJpa searchIndexDaoJpa;
 
+    @Autowired
+    private RedisProjectVersionDaoJpa redisProjectVersionDaoJpa;
+
     @Lazy
     @Autowired
     private UserDaoJpa userDaoJpa;
@@ -176,18 +179,13 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
         List<com.bulletjournal.controller.models.Task> ret = new ArrayList<>();
         if (projectTasksOptional.isPresent()) {
             ProjectTasks projectTasks = projectTasksOptional.get();
-            Set<Long> existingIds = tasks.stream().map(task -> task.getId()).collect(Collectors.toSet());
+            final Map<Long, Task> taskMap = tasks.stream().collect(Collectors.toMap(n -> n.getId(), n -> n));
 
-            Pair<List<HierarchyItem>, Set<Long>> hierarchy =
-                    HierarchyProcessor.findAllIds(projectTasks.getTasks(), existingIds);
-
-            List<HierarchyItem> keptHierarchy = hierarchy.getLeft();
+            Pair<List<com.bulletjournal.controller.models.Task>, Set<Long>> hierarchy =
+                    TaskRelationsProcessor.processRelations(taskMap, getHierarchy(projectTasks));
             Set<Long> processedIds = hierarchy.getRight();
 
-            final Map<Long, Task> taskMap = tasks.stream().filter(t -> processedIds.contains(t.getId()))
-                    .collect(Collectors.toMap(n -> n.getId(), n -> n));
-
-            ret.addAll(TaskRelationsProcessor.processRelations(taskMap, keptHierarchy).stream()
+            ret.addAll(hierarchy.getLeft().stream()
                     .map(task -> addLabels(task, taskMap)).collect(Collectors.toList()));
 
             tasks = tasks.stream().filter(t -> !processedIds.contains(t.getId())).collect(Collectors.toList());
@@ -199,6 +197,14 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
         return ret;
     }
 
+    /**
+     * Decode a legacy JSON hierarchy without persisting it, it is stored in binary by the next update
+     */
+    private static byte[] getHierarchy(ProjectTasks projectTasks) {
+        return projectTasks.getTasksHierarchy() == null
+                ? HierarchyCodec.fromJson(projectTasks.getTasks()) : projectTasks.getTasksHierarchy();
+    }
+
     /**
      * Retrieve assignee's task by project id
      * <p>
@@ -313,7 +319,8 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
     }
 
     /**
-     * Get user's tasks between the request start time and request end time.
+     * Get user's non-recurring tasks between the request start time and request end time.
+     * Occurrences of recurring tasks are returned by {@link #getTaskOccurrencesBetween}.
      *
      * @param assignee  the username of task assignee
      * @param startTime the ZonedDateTime object of start time
@@ -326,18 +333,34 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
         List<Long> projectIds = projects.stream().map(Project::getId).collect(Collectors.toList());
         List<Task> tasks = this.taskRepository.findTasksOfAssigneeBetween(assignee,
                 ZonedDateTimeHelper.toDBTimestamp(startTime), ZonedDateTimeHelper.toDBTimestamp(endTime), projectIds);
-        tasks = tasks.stream().filter(t -> {
+        return tasks.stream().filter(t -> {
             if (Objects.isNull(t.getRecurrenceRule())) {
                 return true;
             }
             LOGGER.error("Recurring Task {} with Due DateTime.", t.getId());
             return false;
         }).collect(Collectors.toList());
+    }
 
-        List<Task> recurrentTasks = this.getRecurringTaskOfAssigneeInProjects(assignee, projectIds, startTime, endTime);
-
-        tasks.addAll(recurrentTasks);
-        return tasks;
+    /**
+     * Get occurrences of user's recurring tasks between the request start time and request end time.
+     *
+     * @param assignee  the username of task assignee
+     * @param startTime the ZonedDateTime object of start time
+     * @param endTime   the ZonedDateTime object of end time
+     * @return List<TaskOccurrence> - a list of occurrences referencing their recurring tasks
+     */
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public List<TaskOccurrence> getTaskOccurrencesBetween(
+            String assignee, ZonedDateTime startTime, ZonedDateTime endTime, List<Project> projects) {
+        List<Long> projectIds = projects.stream().map(Project::getId).collect(Collectors.toList());
+        List<Task> recurringTasks = this.taskRepository
+                .findTasksInProjectsByAssigneeAndRecurrenceRuleNotNull(assignee, projectIds);
+        List<TaskOccurrence> occurrences = new ArrayList<>();
+        for (Task t : recurringTasks) {
+            occurrences.addAll(DaoHelper.getTaskOccurrences(t, startTime, endTime));
+        }
+        return occurrences;
     }
 
     /**
@@ -400,20 +423,6 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
         return getRecurringTasks(recurringTasks, startTime, endTime);
     }
 
-    /**
-     * Get all recurrent tasks of an assignee in [startTime, endTime]
-     *
-     * @param assignee  the assignee of recurrent task
-     * @param startTime the requested range start time
-     * @param endTime   the requested range end time
-     * @return List<Task> - a list of recurrent tasks within the time range
-     */
-    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
-    public List<Task> getRecurringTaskOfAssigneeInProjects(String assignee, List<Long> projectIds, ZonedDateTime startTime, ZonedDateTime endTime) {
-        List<Task> recurringTasks = this.taskRepository.findTasksInProjectsByAssigneeAndRecurrenceRuleNotNull(assignee, projectIds);
-        return getRecurringTasks(recurringTasks, startTime, endTime);
-    }
-
     /**
      * Get all recurrent tasks in [startTime, endTime]
      *
@@ -777,11 +786,25 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
         });
 
         LOGGER.info("Start deleteInBatch {}", taskList.size());
-        this.taskRepository.deleteInBatch(taskList);
+        deleteInBatch(taskList);
+        taskList.forEach(task -> DaoHelper.invalidateTaskOccurrences(task.getId()));
         LOGGER.info("Finish deleteInBatch {}", taskList.size());
         return completedTaskList;
     }
 
+    /**
+     * Delete tasks in one statement
+     *
+     * @param taskList the tasks
+     */
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public void deleteInBatch(List<Task> taskList) {
+        this.taskRepository.deleteInBatch(taskList);
+        // bulk deletes bypass entity listeners
+        taskList.stream().map(task -> task.getProject().getId()).distinct()
+                .forEach(this.redisProjectVersionDaoJpa::bumpOnCommit);
+    }
+
     /**
      * Set a task to complete
      * <p>
@@ -809,6 +832,7 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
         }
 
         this.taskRepository.delete(task);
+        DaoHelper.invalidateTaskOccurrences(task.getId());
         CompletedTask completedTask = new CompletedTask(task, contents);
         this.completedTaskRepository.save(completedTask);
         return completedTask;
@@ -858,10 +882,36 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
         Optional<ProjectTasks> projectTasksOptional = this.projectTasksRepository.findById(projectId);
         final ProjectTasks projectTasks = projectTasksOptional.orElseGet(ProjectTasks::new);
 
-        projectTasks.setTasks(TaskRelationsProcessor.processRelations(tasks));
+        projectTasks.setTasksHierarchy(TaskRelationsProcessor.encode(tasks));
+        projectTasks.setTasks(null);
         projectTasks.setProjectId(projectId);
 
-        this.projectTasksRepository.save(projectTasks);
+        DaoHelper.saveHierarchy(this.projectTasksRepository, projectTasks);
+    }
+
+    /**
+     * Move a task within or into the sub tasks relation, or take it out
+     *
+     * @param projectId the project id
+     * @param params    the edit of a single task
+     * @param requester the username of action requester
+     * @return Long - the new hierarchy version
+     */
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public Long updateUserTasksOrder(Long projectId, UpdateOrderParams params, String requester) {
+        this.projectDaoJpa.getProject(projectId, requester);
+        final ProjectTasks projectTasks = this.projectTasksRepository.findById(projectId)
+                .orElseGet(() -> new ProjectTasks(projectId));
+        byte[] hierarchy = getHierarchy(projectTasks);
+
+        projectTasks.setTasksHierarchy(DaoHelper.editHierarchy(hierarchy, projectTasks.getHierarchyVersion(), params));
+        projectTasks.setTasks(null);
+        return DaoHelper.saveHierarchy(this.projectTasksRepository, projectTasks).getHierarchyVersion();
+    }
+
+    public Long getTasksHierarchyVersion(Long projectId) {
+        Long version = this.projectTasksRepository.getHierarchyVersion(projectId);
+        return version == null ? 0L : version;
     }
 
     /**
@@ -875,6 +925,7 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
     public Pair<List<Event>, Task> deleteTask(String requester, Long taskId) {
         Task task = this.getProjectItem(taskId, requester);
         this.taskRepository.delete(task);
+        DaoHelper.invalidateTaskOccurrences(task.getId());
         return Pair.of(generateEvents(task, requester, task.getProject()), task);
     }
 
@@ -1024,6 +1075,8 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
         this.authorizationService.checkAuthorizedToOperateOnContent(task.getOwner(), requester, ContentType.TASK,
                 Operation.UPDATE, project.getId(), project.getOwner());
 
+        // the listener only sees the target project
+        this.redisProjectVersionDaoJpa.bumpOnCommit(task.getProject().getId());
         task.setProject(project);
         this.taskRepository.save(task);
         return Pair.of(task, project);
@@ -1063,7 +1116,6 @@ public class TaskDaoJpa extends ProjectItemDaoJpa<TaskContent> {
             taskContent.setUpdatedAt(Timestamp.from(Instant.now()));
             taskContent.setBaseText(sampleTaskContent);
             taskContent.setOwner(task.getOwner());
-            taskContent.setRevisions("");
             contents.add(0, taskContent);
         }
         return contents;
@@ -1,12 +1,37 @@
 package com.bulletjournal.repository;
 
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.repository.models.Task;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TaskRepositoryCustom {
 
-    List<Task> findTasksByLabelId(Long labelId);
+    /**
+     * Remove a label from at most limit items in one statement
+     *
+     * @param labelId the label id
+     * @param limit   the maximum number of items updated
+     * @return List<Long> - project id of every updated item
+     */
+    List<Long> removeLabelFromTasks(Long labelId, int limit);
 
-    List<Task> findTasksByLabelIds(List<Long> labelIds);
+    /**
+     * Find items carrying the labels in projects of the given groups
+     *
+     * @param labelIds   the label ids
+     * @param labelMatch whether items need all or any of the labels
+     * @param groupIds   the groups whose projects are searched
+     * @return List<Task> - matching items
+     */
+    List<Task> findTasksByLabelIds(List<Long> labelIds, LabelMatch labelMatch, Collection<Long> groupIds);
+
+    /**
+     * Find the projects of items carrying a label
+     *
+     * @param labelId the label id
+     * @return List<Long> - distinct project ids
+     */
+    List<Long> findProjectIdsByLabel(Long labelId);
 }
@@ -1,14 +1,17 @@
 package com.bulletjournal.repository;
 
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.repository.models.Task;
-import com.google.common.collect.ImmutableList;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Repository
 @Transactional
@@ -18,20 +21,37 @@ public class TaskRepositoryImpl implements TaskRepositoryCustom {
     EntityManager entityManager;
 
     @Override
-    public List<Task> findTasksByLabelId(Long labelId) {
-        return findTasksByLabelIds(ImmutableList.of(labelId));
+    public List<Long> removeLabelFromTasks(Long labelId, int limit) {
+        Query query = entityManager.createNativeQuery("WITH updated AS (UPDATE tasks "
+                + "SET labels = array_remove(tasks.labels, CAST(:labelId AS bigint)) WHERE tasks.id IN "
+                + "(SELECT id FROM tasks WHERE tasks.labels @> CAST(ARRAY[:labelId] AS bigint[]) LIMIT :limit) "
+                + "RETURNING tasks.project_id) SELECT project_id FROM updated");
+        query.setParameter("labelId", labelId);
+        query.setParameter("limit", limit);
+        List<?> projectIds = query.getResultList();
+        return projectIds.stream().map(id -> ((Number) id).longValue()).collect(Collectors.toList());
     }
 
     @Override
-    public List<Task> findTasksByLabelIds(List<Long> labelIds) {
-        StringBuilder queryString = new StringBuilder("SELECT * FROM tasks WHERE ? = ANY(tasks.labels)");
-        for (int i = 1; i < labelIds.size(); i++) {
-            queryString.append(" and ? = ANY(tasks.labels)");
-        }
-        Query query = entityManager.createNativeQuery(queryString.toString(), Task.class);
-        for (int i = 1; i <= labelIds.size(); i++) {
-            query.setParameter(i, labelIds.get(i - 1));
+    public List<Task> findTasksByLabelIds(List<Long> labelIds, LabelMatch labelMatch, Collection<Long> groupIds) {
+        if (labelIds.isEmpty() || groupIds.isEmpty()) {
+            // callers append shared items to the result
+            return new ArrayList<>();
         }
+        Query query = entityManager.createNativeQuery("SELECT * FROM tasks WHERE tasks.labels "
+                + labelMatch.getOperator() + " CAST(ARRAY[:labelIds] AS bigint[]) AND tasks.project_id IN "
+                + "(SELECT projects.id FROM projects WHERE projects.group_id IN (:groupIds))", Task.class);
+        query.setParameter("labelIds", labelIds);
+        query.setParameter("groupIds", groupIds);
         return query.getResultList();
     }
+
+    @Override
+    public List<Long> findProjectIdsByLabel(Long labelId) {
+        Query query = entityManager.createNativeQuery("SELECT DISTINCT tasks.project_id FROM tasks "
+                + "WHERE tasks.labels @> CAST(ARRAY[:labelId] AS bigint[])");
+        query.setParameter("labelId", labelId);
+        List<?> projectIds = query.getResultList();
+        return projectIds.stream().map(id -> ((Number) id).longValue()).collect(Collectors.toList());
+    }
 }
@@ -12,6 +12,9 @@ import com.bulletjournal.controller.utils.ZonedDateTimeHelper;
 import com.bulletjournal.es.ESUtil;
 import com.bulletjournal.es.repository.SearchIndexDaoJpa;
 import com.bulletjournal.exceptions.BadRequestException;
+import com.bulletjournal.ledger.FrequencyType;
+import com.bulletjournal.ledger.LedgerColumns;
+import com.bulletjournal.ledger.LedgerSummaryType;
 import com.bulletjournal.ledger.TransactionType;
 import com.bulletjournal.notifications.Event;
 import com.bulletjournal.repository.models.*;
@@ -22,12 +25,15 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.dmfs.rfc5545.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.sql.Array;
 import java.sql.Timestamp;
 import java.time.ZonedDateTime;
 import java.util.*;
@@ -48,6 +54,8 @@ public class TransactionDaoJpa extends ProjectItemDaoJpa<TransactionContent> {
     private TransactionContentRepository transactionContentRepository;
     @Autowired
     private SearchIndexDaoJpa searchIndexDaoJpa;
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
 
     @Override
     public JpaRepository getJpaRepository() {
@@ -55,37 +63,134 @@ public class TransactionDaoJpa extends ProjectItemDaoJpa<TransactionContent> {
     }
 
     /**
-     * Retrieve transactions list from project within the range
+     * Get the columns of transactions in a project between a time range, including occurrences of
+     * recurring transactions
      * <p>
      * Parameter:
      *
-     * @param projectId - Project identifier to retrieve project from project
-     *                  repository
-     * @param startTime - Range start time
-     * @param endTime   - Range end time
-     * @retVal List<Transaction> - List of transaction
+     * @param projectId      - Project identifier to retrieve project from project
+     *                       repository
+     * @param startTime      - Range start time
+     * @param endTime        - Range end time
+     * @param labelsToKeep   - Only keep transactions having one of these labels, if not empty
+     * @param labelsToRemove - Leave out transactions having one of these labels
+     * @retVal LedgerColumns - Columns of transactions
      */
     @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
-    public List<com.bulletjournal.controller.models.Transaction> getTransactions(
+    public LedgerColumns getLedgerColumns(
             Long projectId,
             ZonedDateTime startTime,
             ZonedDateTime endTime,
-            String requester) {
+            String requester,
+            List<Long> labelsToKeep,
+            List<Long> labelsToRemove) {
         Project project = this.projectDaoJpa.getProject(projectId, requester);
 
         List<Transaction> transactions = this.transactionRepository
                 .findTransactionsByProjectBetween(project, Timestamp.from(startTime.toInstant()),
                         Timestamp.from(endTime.toInstant()));
-        transactions.addAll(
-                this.getRecurringTransactions(startTime, endTime, ImmutableList.of(project), Optional.empty()));
-        return transactions
-                .stream().sorted((a, b) -> {
-                    if (Objects.equals(a.getStartTime(), b.getStartTime())) {
-                        return Long.compare(a.getId(), b.getId());
-                    }
-
-                    return a.getStartTime().compareTo(b.getStartTime());
-                }).map(transaction -> addLabels(transaction)).collect(Collectors.toList());
+
+        Set<Long> keep = labelsToKeep == null ? Collections.emptySet() : new HashSet<>(labelsToKeep);
+        Set<Long> remove = labelsToRemove == null ? Collections.emptySet() : new HashSet<>(labelsToRemove);
+        LedgerColumns columns = new LedgerColumns();
+        transactions.stream().filter(t -> hasLabels(t, keep, remove)).forEach(columns::add);
+        addOccurrences(columns, project, startTime, endTime, keep, remove);
+        return columns;
+    }
+
+    /**
+     * Get the columns of a ledger summary of a project between a time range. Non-recurring transactions
+     * are summed up in the database by the groups of the summary and occurrences of recurring
+     * transactions are added one by one, so no transaction is returned.
+     * <p>
+     * Parameter:
+     *
+     * @param projectId         - Project identifier to retrieve project from project
+     *                          repository
+     * @param startTime         - Range start time
+     * @param endTime           - Range end time
+     * @param labelsToKeep      - Only keep transactions having one of these labels, if not empty
+     * @param labelsToRemove    - Leave out transactions having one of these labels
+     * @param ledgerSummaryType - Type of the summary
+     * @param frequencyType     - Period of the summary groups for default summary type
+     * @retVal LedgerColumns - Columns of summed up transactions
+     */
+    @Transactional(rollbackFor = Exception.class, propagation = Propagation.REQUIRED)
+    public LedgerColumns getLedgerSummaryColumns(
+            Long projectId,
+            ZonedDateTime startTime,
+            ZonedDateTime endTime,
+            String requester,
+            List<Long> labelsToKeep,
+            List<Long> labelsToRemove,
+            LedgerSummaryType ledgerSummaryType,
+            FrequencyType frequencyType) {
+        Project project = this.projectDaoJpa.getProject(projectId, requester);
+
+        // group by whole label arrays rather than unnest them, so that totals count each transaction once
+        String groupBy;
+        switch (ledgerSummaryType) {
+            case DEFAULT:
+                groupBy = frequencyType == FrequencyType.YEARLY ? "LEFT(date, 4)"
+                        : frequencyType == FrequencyType.MONTHLY ? "LEFT(date, 7)" : "date";
+                break;
+            case LABEL:
+                groupBy = "labels";
+                break;
+            case PAYER:
+                groupBy = "payer";
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid LedgerSummaryType " + ledgerSummaryType);
+        }
+        StringBuilder sql = new StringBuilder("SELECT MIN(date) AS date, ")
+                .append(ledgerSummaryType == LedgerSummaryType.LABEL ? "labels" : "NULL").append(" AS labels, ")
+                .append(ledgerSummaryType == LedgerSummaryType.PAYER ? "payer" : "NULL").append(" AS payer, ")
+                .append("transaction_type, currency, SUM(amount_minor) AS amount, COUNT(*) AS count ")
+                .append("FROM transactions WHERE project_id = :projectId AND ")
+                .append("((start_time >= :startTime AND start_time <= :endTime) OR ")
+                .append("(end_time >= :startTime AND end_time <= :endTime))");
+        MapSqlParameterSource params = new MapSqlParameterSource("projectId", project.getId())
+                .addValue("startTime", Timestamp.from(startTime.toInstant()))
+                .addValue("endTime", Timestamp.from(endTime.toInstant()));
+        if (labelsToKeep != null && !labelsToKeep.isEmpty()) {
+            sql.append(" AND labels && CAST(ARRAY[:labelsToKeep] AS bigint[])");
+            params.addValue("labelsToKeep", labelsToKeep);
+        }
+        if (labelsToRemove != null && !labelsToRemove.isEmpty()) {
+            sql.append(" AND NOT COALESCE(labels, '{}') && CAST(ARRAY[:labelsToRemove] AS bigint[])");
+            params.addValue("labelsToRemove", labelsToRemove);
+        }
+        // never add up amounts of different currencies, the calculator summarizes each currency apart
+        sql.append(" GROUP BY ").append(groupBy).append(", transaction_type, currency");
+
+        LedgerColumns columns = new LedgerColumns();
+        this.jdbcTemplate.query(sql.toString(), params, rs -> {
+            Array labels = rs.getArray("labels");
+            columns.add(rs.getString("date"), rs.getLong("amount"), rs.getInt("count"),
+                    TransactionType.getType(rs.getInt("transaction_type")),
+                    labels == null ? Collections.emptyList() : Arrays.asList((Long[]) labels.getArray()),
+                    rs.getString("payer"), rs.getString("currency"));
+        });
+        addOccurrences(columns, project, startTime, endTime,
+                labelsToKeep == null ? Collections.emptySet() : new HashSet<>(labelsToKeep),
+                labelsToRemove == null ? Collections.emptySet() : new HashSet<>(labelsToRemove));
+        return columns;
+    }
+
+    private void addOccurrences(LedgerColumns columns, Project project, ZonedDateTime startTime,
+                                ZonedDateTime endTime, Set<Long> keep, Set<Long> remove) {
+        this.getTransactionOccurrences(startTime, endTime, ImmutableList.of(project), Optional.empty()).stream()
+                .filter(o -> hasLabels(o.getTransaction(), keep, remove)).forEach(columns::add);
+        columns.resolveLabels(this.labelDaoJpa::getLabels);
+    }
+
+    private static boolean hasLabels(Transaction transaction, Set<Long> keep, Set<Long> remove) {
+        List<Long> labels = transaction.isShared() ? transaction.getSharedItemLabels() : transaction.getLabels();
+        if (labels.stream().anyMatch(remove::contains)) {
+            return false;
+        }
+        return keep.isEmpty() || labels.stream().anyMatch(keep::contains);
     }
 
     /**
@@ -108,7 +213,7 @@ public class TransactionDaoJpa extends ProjectItemDaoJpa<TransactionContent> {
     }
 
     /**
-     * Get transactions based on owner and interval from Ledger Repository
+     * Get non-recurring transactions based on owner and interval from Ledger Repository
      * <p>
      * Parameter:
      *
@@ -120,10 +225,37 @@ public class TransactionDaoJpa extends ProjectItemDaoJpa<TransactionContent> {
      */
     public List<Transaction> getTransactionsBetween(
             String payer, ZonedDateTime startTime, ZonedDateTime endTime, List<Project> projects) {
-        List<Transaction> result = this.transactionRepository.findTransactionsOfPayerBetween(payer, Timestamp.from(startTime.toInstant()),
+        return this.transactionRepository.findTransactionsOfPayerBetween(payer, Timestamp.from(startTime.toInstant()),
                 Timestamp.from(endTime.toInstant()), projects);
-        result.addAll(this.getRecurringTransactions(startTime, endTime, projects, Optional.of(payer)));
-        return result;
+    }
+
+    /**
+     * Get occurrences of recurring transactions based on payer and interval from Ledger Repository
+     *
+     * @param payer     - Payer identifier to retrieve transaction from ledger repository
+     * @param startTime - Start Time to retrieve transaction from ledger repository
+     * @param endTime   - End Time to retrieve transaction from ledger repository
+     * @return List of TransactionOccurrence
+     */
+    public List<TransactionOccurrence> getTransactionOccurrencesBetween(
+            String payer, ZonedDateTime startTime, ZonedDateTime endTime, List<Project> projects) {
+        return this.getTransactionOccurrences(startTime, endTime, projects, Optional.of(payer));
+    }
+
+    private List<TransactionOccurrence> getTransactionOccurrences(
+            ZonedDateTime startTime, ZonedDateTime endTime, List<Project> projects, Optional<String> payer) {
+        List<Transaction> recurringTransactions;
+        if (payer.isPresent()) {
+            recurringTransactions = this.transactionRepository
+                    .findRecurringTransactionsOfPayer(payer.get(), projects);
+        } else {
+            recurringTransactions = this.transactionRepository.findRecurringTransactions(projects);
+        }
+        List<TransactionOccurrence> occurrences = new ArrayList<>();
+        for (Transaction transaction : recurringTransactions) {
+            occurrences.addAll(DaoHelper.getTransactionOccurrences(transaction, startTime, endTime));
+        }
+        return occurrences;
     }
 
     private List<Transaction> getRecurringTransactions(
@@ -151,6 +283,7 @@ public class TransactionDaoJpa extends ProjectItemDaoJpa<TransactionContent> {
         transaction.setName(createTransaction.getName());
         transaction.setPayer(createTransaction.getPayer());
         transaction.setAmount(createTransaction.getAmount());
+        transaction.setCurrency(createTransaction.getCurrency());
         transaction.setDate(createTransaction.getDate());
         transaction.setRecurrenceRule(createTransaction.getRecurrenceRule());
 
@@ -249,6 +382,9 @@ public class TransactionDaoJpa extends ProjectItemDaoJpa<TransactionContent> {
         DaoHelper.updateIfPresent(updateTransactionParams.hasAmount(), updateTransactionParams.getAmount(),
                 transaction::setAmount);
 
+        DaoHelper.updateIfPresent(updateTransactionParams.hasCurrency(),
+                StringUtils.defaultIfEmpty(updateTransactionParams.getCurrency(), null), transaction::setCurrency);
+
         DaoHelper.updateIfPresent(updateTransactionParams.hasDate(), updateTransactionParams.getDate(),
                 transaction::setDate);
 
@@ -326,6 +462,7 @@ public class TransactionDaoJpa extends ProjectItemDaoJpa<TransactionContent> {
         }
 
         this.transactionRepository.delete(transaction);
+        DaoHelper.invalidateTransactionOccurrences(transaction.getId());
         return Pair.of(generateEvents(transaction, requester, project), transaction);
     }
 
@@ -1,11 +1,28 @@
 package com.bulletjournal.repository;
 
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.repository.models.Transaction;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TransactionRepositoryCustom {
-    List<Transaction> findTransactionsByLabelIds(List<Long> labelIds);
+    /**
+     * Find items carrying the labels in projects of the given groups
+     *
+     * @param labelIds   the label ids
+     * @param labelMatch whether items need all or any of the labels
+     * @param groupIds   the groups whose projects are searched
+     * @return List<Transaction> - matching items
+     */
+    List<Transaction> findTransactionsByLabelIds(List<Long> labelIds, LabelMatch labelMatch, Collection<Long> groupIds);
 
-    List<Transaction> findTransactionsByLabelId(Long labelId);
+    /**
+     * Remove a label from at most limit items in one statement
+     *
+     * @param labelId the label id
+     * @param limit   the maximum number of items updated
+     * @return int - number of updated items
+     */
+    int removeLabelFromTransactions(Long labelId, int limit);
 }
@@ -1,14 +1,15 @@
 package com.bulletjournal.repository;
 
-
+import com.bulletjournal.controller.models.LabelMatch;
 import com.bulletjournal.repository.models.Transaction;
-import com.google.common.collect.ImmutableList;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,20 +20,28 @@ public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
     EntityManager entityManager;
 
     @Override
-    public List<Transaction> findTransactionsByLabelIds(List<Long> labelIds) {
-        StringBuilder queryString = new StringBuilder("SELECT * FROM transactions WHERE ? = ANY(transactions.labels)");
-        for (int i = 1; i < labelIds.size(); i++) {
-            queryString.append(" and ? = ANY(transactions.labels)");
-        }
-        Query query = entityManager.createNativeQuery(queryString.toString(), Transaction.class);
-        for (int i = 1; i <= labelIds.size(); i++) {
-            query.setParameter(i, labelIds.get(i - 1));
+    public List<Transaction> findTransactionsByLabelIds(List<Long> labelIds, LabelMatch labelMatch,
+                                                        Collection<Long> groupIds) {
+        if (labelIds.isEmpty() || groupIds.isEmpty()) {
+            // callers append shared items to the result
+            return new ArrayList<>();
         }
+        Query query = entityManager.createNativeQuery("SELECT * FROM transactions WHERE transactions.labels "
+                + labelMatch.getOperator() + " CAST(ARRAY[:labelIds] AS bigint[]) AND transactions.project_id IN "
+                + "(SELECT projects.id FROM projects WHERE projects.group_id IN (:groupIds))", Transaction.class);
+        query.setParameter("labelIds", labelIds);
+        query.setParameter("groupIds", groupIds);
         return query.getResultList();
     }
 
     @Override
-    public List<Transaction> findTransactionsByLabelId(Long labelId) {
-        return findTransactionsByLabelIds(ImmutableList.of(labelId));
+    public int removeLabelFromTransactions(Long labelId, int limit) {
+        Query query = entityManager.createNativeQuery("UPDATE transactions "
+                + "SET labels = array_remove(transactions.labels, CAST(:labelId AS bigint)) "
+                + "WHERE transactions.id IN (SELECT id FROM transactions "
+                + "WHERE transactions.labels @> CAST(ARRAY[:labelId] AS bigint[]) LIMIT :limit)");
+        query.setParameter("labelId", labelId);
+        query.setParameter("limit", limit);
+        return query.executeUpdate();
     }
 }
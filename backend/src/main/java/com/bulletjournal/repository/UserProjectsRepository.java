@@ -2,8 +2,12 @@ package com.bulletjournal.repository;
 
 import com.bulletjournal.repository.models.UserProjects;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserProjectsRepository extends JpaRepository<UserProjects, String> {
+    @Query("SELECT userProjects.hierarchyVersion FROM UserProjects userProjects WHERE userProjects.owner = :owner")
+    Long getHierarchyVersion(@Param("owner") String owner);
 }
@@ -0,0 +1,27 @@
+package com.bulletjournal.repository.auditing;
+
+import com.bulletjournal.authz.AuthorizationService;
+import com.bulletjournal.repository.models.SharedProjectItem;
+import com.bulletjournal.repository.models.UserGroup;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+public class AuthorizationEntityListeners {
+
+    @Autowired
+    AuthorizationService authorizationService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void postChange(Object entity) {
+        if (entity instanceof SharedProjectItem) {
+            this.authorizationService.invalidateContext(((SharedProjectItem) entity).getUsername());
+        } else if (entity instanceof UserGroup) {
+            this.authorizationService.invalidateContext(((UserGroup) entity).getUser().getName());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.bulletjournal.repository.auditing;
+
+import com.bulletjournal.redis.RedisProjectVersionDaoJpa;
+import com.bulletjournal.repository.models.ProjectItemModel;
+import com.bulletjournal.repository.models.ProjectNotes;
+import com.bulletjournal.repository.models.ProjectTasks;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+public class ProjectItemEntityListeners {
+
+    @Autowired
+    RedisProjectVersionDaoJpa redisProjectVersionDaoJpa;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void postChange(Object entity) {
+        Long projectId = null;
+        if (entity instanceof ProjectItemModel) {
+            projectId = ((ProjectItemModel) entity).getProject().getId();
+        } else if (entity instanceof ProjectTasks) {
+            projectId = ((ProjectTasks) entity).getProjectId();
+        } else if (entity instanceof ProjectNotes) {
+            projectId = ((ProjectNotes) entity).getProjectId();
+        }
+        this.redisProjectVersionDaoJpa.bumpOnCommit(projectId);
+    }
+}
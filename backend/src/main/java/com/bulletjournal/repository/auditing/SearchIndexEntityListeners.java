@@ -0,0 +1,100 @@
+package com.bulletjournal.repository.auditing;
+
+import com.bulletjournal.config.SpringESConfig;
+import com.bulletjournal.es.SearchIndexType;
+import com.bulletjournal.notifications.IndexElasticsearchDocumentEvent;
+import com.bulletjournal.notifications.NotificationService;
+import com.bulletjournal.repository.models.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Refreshes search index documents of changed project items, contents and sharings once the change
+ * commits, one event per transaction
+ */
+public class SearchIndexEntityListeners {
+
+    @Autowired
+    NotificationService notificationService;
+
+    @Autowired
+    SpringESConfig springESConfig;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void postChange(Object entity) {
+        if (!Boolean.TRUE.equals(this.springESConfig.getEnable())) {
+            return;
+        }
+        String documentId = getDocumentId(entity);
+        if (documentId != null) {
+            indexAfterCommit(documentId);
+        }
+    }
+
+    private static String getDocumentId(Object entity) {
+        if (entity instanceof Task) {
+            return SearchIndexType.TASK.documentId(((Task) entity).getId());
+        } else if (entity instanceof Note) {
+            return SearchIndexType.NOTE.documentId(((Note) entity).getId());
+        } else if (entity instanceof Transaction) {
+            return SearchIndexType.TRANSACTION.documentId(((Transaction) entity).getId());
+        } else if (entity instanceof TaskContent) {
+            return SearchIndexType.TASK_CONTENT.documentId(((TaskContent) entity).getId());
+        } else if (entity instanceof NoteContent) {
+            return SearchIndexType.NOTE_CONTENT.documentId(((NoteContent) entity).getId());
+        } else if (entity instanceof TransactionContent) {
+            return SearchIndexType.TRANSACTION_CONTENT.documentId(((TransactionContent) entity).getId());
+        } else if (entity instanceof SharedProjectItem) {
+            // sharing changes the acl of the item and its contents
+            SharedProjectItem sharedProjectItem = (SharedProjectItem) entity;
+            if (sharedProjectItem.getTask() != null) {
+                return SearchIndexType.TASK.documentId(sharedProjectItem.getTask().getId());
+            } else if (sharedProjectItem.getNote() != null) {
+                return SearchIndexType.NOTE.documentId(sharedProjectItem.getNote().getId());
+            } else if (sharedProjectItem.getTransaction() != null) {
+                return SearchIndexType.TRANSACTION.documentId(sharedProjectItem.getTransaction().getId());
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void indexAfterCommit(String documentId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.notificationService.indexESDocument(
+                    new IndexElasticsearchDocumentEvent(Collections.singletonList(documentId)));
+            return;
+        }
+        Set<String> documentIds = (Set<String>) TransactionSynchronizationManager
+                .getResource(SearchIndexEntityListeners.class);
+        if (documentIds == null) {
+            Set<String> changed = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(SearchIndexEntityListeners.class, changed);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    notificationService.indexESDocument(
+                            new IndexElasticsearchDocumentEvent(new ArrayList<>(changed)));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SearchIndexEntityListeners.class);
+                }
+            });
+            documentIds = changed;
+        }
+        documentIds.add(documentId);
+    }
+}
@@ -1,13 +1,17 @@
 package com.bulletjournal.repository.models;
 
 import com.bulletjournal.controller.models.Content;
+import com.bulletjournal.controller.models.Revision;
 import com.bulletjournal.controller.models.User;
 import com.google.gson.annotations.Expose;
 
 import javax.persistence.Column;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Transient;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
+import java.util.Collections;
+import java.util.List;
 
 @MappedSuperclass
 public abstract class ContentModel<T extends ProjectItemModel> extends AuditModel {
@@ -25,9 +29,13 @@ public abstract class ContentModel<T extends ProjectItemModel> extends AuditMode
     @Column(columnDefinition = "TEXT")
     private String baseText;
 
+    // legacy revisions JSON, moved into content_revisions on the next append
     @Column(columnDefinition = "TEXT")
     private String revisions;
 
+    @Transient
+    private List<Revision> revisionHistory = Collections.emptyList();
+
     public abstract Long getId();
 
     public abstract T getProjectItem();
@@ -66,11 +74,19 @@ public abstract class ContentModel<T extends ProjectItemModel> extends AuditMode
         this.revisions = revisions;
     }
 
+    public List<Revision> getRevisionHistory() {
+        return revisionHistory;
+    }
+
+    public void setRevisionHistory(List<Revision> revisionHistory) {
+        this.revisionHistory = revisionHistory;
+    }
+
     public Content toPresentationModel() {
         return new Content(
                 this.getId(), new User(this.getOwner()), this.getText(),
                 this.getBaseText(), this.getCreatedAt() == null ? null : this.getCreatedAt().getTime(),
                 this.getUpdatedAt() == null ? null : this.getUpdatedAt().getTime(),
-                this.getRevisions());
+                this.getRevisionHistory());
     }
 }
@@ -0,0 +1,100 @@
+package com.bulletjournal.repository.models;
+
+import com.bulletjournal.contents.ContentType;
+import com.bulletjournal.controller.models.Revision;
+import com.bulletjournal.controller.models.User;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+
+@Entity
+@Table(name = "content_revisions")
+public class ContentRevision {
+
+    @Id
+    @GeneratedValue(generator = "content_revision_generator")
+    @SequenceGenerator(
+            name = "content_revision_generator",
+            sequenceName = "content_revision_sequence",
+            initialValue = 1
+    )
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "content_type", length = 20, nullable = false, updatable = false)
+    private ContentType contentType;
+
+    @Column(name = "content_id", nullable = false, updatable = false)
+    private Long contentId;
+
+    @Column(name = "revision_id", nullable = false, updatable = false)
+    private Long revisionId;
+
+    // diff from the previous revision's text
+    @Column(columnDefinition = "TEXT")
+    private String diff;
+
+    // full text of this revision, null unless this revision is a snapshot
+    @Column(columnDefinition = "TEXT")
+    private String snapshot;
+
+    @Column(length = 100, nullable = false, updatable = false)
+    private String username;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Timestamp createdAt;
+
+    public ContentRevision() {
+    }
+
+    public ContentRevision(ContentType contentType, Long contentId, Long revisionId, String diff,
+                           String snapshot, String username, Timestamp createdAt) {
+        this.contentType = contentType;
+        this.contentId = contentId;
+        this.revisionId = revisionId;
+        this.diff = diff;
+        this.snapshot = snapshot;
+        this.username = username;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public ContentType getContentType() {
+        return contentType;
+    }
+
+    public Long getContentId() {
+        return contentId;
+    }
+
+    public Long getRevisionId() {
+        return revisionId;
+    }
+
+    public String getDiff() {
+        return diff;
+    }
+
+    public String getSnapshot() {
+        return snapshot;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot != null;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public Revision toPresentationModel() {
+        return new Revision(this.revisionId, this.diff, this.createdAt.getTime(), new User(this.username));
+    }
+}
@@ -3,6 +3,8 @@ package com.bulletjournal.repository.models;
 import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.controller.models.Label;
 import com.bulletjournal.controller.models.User;
+import com.bulletjournal.repository.auditing.ProjectItemEntityListeners;
+import com.bulletjournal.repository.auditing.SearchIndexEntityListeners;
 
 import javax.persistence.*;
 import java.util.List;
@@ -12,6 +14,7 @@ import java.util.stream.Collectors;
  * This class is for ProjectType.NOTE
  */
 @Entity
+@EntityListeners(value = {ProjectItemEntityListeners.class, SearchIndexEntityListeners.class})
 @Table(name = "notes")
 public class Note extends ProjectItemModel<com.bulletjournal.controller.models.Note> {
     @Id
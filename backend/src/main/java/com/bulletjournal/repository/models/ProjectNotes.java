@@ -1,11 +1,16 @@
 package com.bulletjournal.repository.models;
 
+import com.bulletjournal.repository.auditing.ProjectItemEntityListeners;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
+@EntityListeners(value = {ProjectItemEntityListeners.class})
 @Table(name = "user_project_notes")
 public class ProjectNotes extends AuditModel {
 
@@ -18,6 +23,15 @@ public class ProjectNotes extends AuditModel {
     @Column(length = 10485760)
     private String notes;
 
+    /**
+     * Store subNotes' hierarchy encoded by {@link com.bulletjournal.hierarchy.HierarchyCodec}
+     */
+    @Column(columnDefinition = "bytea")
+    private byte[] notesHierarchy;
+
+    @Version
+    private Long hierarchyVersion;
+
     public ProjectNotes() {
     }
 
@@ -40,4 +54,20 @@ public class ProjectNotes extends AuditModel {
     public void setNotes(String notes) {
         this.notes = notes;
     }
-}
\ No newline at end of file
+
+    public byte[] getNotesHierarchy() {
+        return notesHierarchy;
+    }
+
+    public void setNotesHierarchy(byte[] notesHierarchy) {
+        this.notesHierarchy = notesHierarchy;
+    }
+
+    public Long getHierarchyVersion() {
+        return hierarchyVersion;
+    }
+
+    public void setHierarchyVersion(Long hierarchyVersion) {
+        this.hierarchyVersion = hierarchyVersion;
+    }
+}
@@ -1,11 +1,16 @@
 package com.bulletjournal.repository.models;
 
+import com.bulletjournal.repository.auditing.ProjectItemEntityListeners;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
+@EntityListeners(value = {ProjectItemEntityListeners.class})
 @Table(name = "user_project_tasks")
 public class ProjectTasks extends AuditModel {
 
@@ -18,6 +23,15 @@ public class ProjectTasks extends AuditModel {
     @Column(length = 10485760)
     private String tasks;
 
+    /**
+     * Store Tasks' hierarchy encoded by {@link com.bulletjournal.hierarchy.HierarchyCodec}
+     */
+    @Column(columnDefinition = "bytea")
+    private byte[] tasksHierarchy;
+
+    @Version
+    private Long hierarchyVersion;
+
     public ProjectTasks() {
     }
 
@@ -40,4 +54,20 @@ public class ProjectTasks extends AuditModel {
     public void setTasks(String tasks) {
         this.tasks = tasks;
     }
-}
\ No newline at end of file
+
+    public byte[] getTasksHierarchy() {
+        return tasksHierarchy;
+    }
+
+    public void setTasksHierarchy(byte[] tasksHierarchy) {
+        this.tasksHierarchy = tasksHierarchy;
+    }
+
+    public Long getHierarchyVersion() {
+        return hierarchyVersion;
+    }
+
+    public void setHierarchyVersion(Long hierarchyVersion) {
+        this.hierarchyVersion = hierarchyVersion;
+    }
+}
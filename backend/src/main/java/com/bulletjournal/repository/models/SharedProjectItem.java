@@ -1,5 +1,7 @@
 package com.bulletjournal.repository.models;
 
+import com.bulletjournal.repository.auditing.AuthorizationEntityListeners;
+import com.bulletjournal.repository.auditing.SearchIndexEntityListeners;
 import com.bulletjournal.repository.utils.LongArrayType;
 import org.hibernate.annotations.*;
 
@@ -17,6 +19,7 @@ import java.util.List;
         ),
 })
 @Entity
+@EntityListeners(value = {AuthorizationEntityListeners.class, SearchIndexEntityListeners.class})
 @Table(name = "shared_project_items")
 public class SharedProjectItem extends AuditModel {
 
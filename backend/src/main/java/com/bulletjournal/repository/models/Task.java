@@ -3,6 +3,8 @@ package com.bulletjournal.repository.models;
 import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.controller.models.Label;
 import com.bulletjournal.controller.models.TaskStatus;
+import com.bulletjournal.repository.auditing.ProjectItemEntityListeners;
+import com.bulletjournal.repository.auditing.SearchIndexEntityListeners;
 import com.bulletjournal.templates.repository.model.SampleTask;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
@@ -14,6 +16,7 @@ import java.util.List;
  * This class is for ProjectType.TODO
  */
 @Entity
+@EntityListeners(value = {ProjectItemEntityListeners.class, SearchIndexEntityListeners.class})
 @Table(name = "tasks", uniqueConstraints = { @UniqueConstraint(columnNames = { "google_calendar_event_id" }) })
 public class Task extends TaskModel {
     @Id
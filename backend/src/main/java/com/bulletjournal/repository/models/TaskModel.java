@@ -245,7 +245,7 @@ public abstract class TaskModel extends ProjectItemModel<com.bulletjournal.contr
         }
     }
 
-    private Timestamp getReminderDateTime(Timestamp startTime, Integer before) {
+    static Timestamp getReminderDateTime(Timestamp startTime, Integer before) {
         Instant reminderInstant;
         switch (before) {
             case 0:
@@ -0,0 +1,119 @@
+package com.bulletjournal.repository.models;
+
+import com.bulletjournal.controller.models.Label;
+import com.bulletjournal.controller.utils.ZonedDateTimeHelper;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * A single occurrence of a recurring {@link Task}.
+ * <p>
+ * It references the parent task and only carries the shifted start and end time, so expanding a
+ * recurrence rule does not copy the task entity per instance.
+ */
+public class TaskOccurrence {
+
+    private final Task task;
+
+    private final long startTime;
+
+    private final long endTime;
+
+    public TaskOccurrence(Task task, long startTime, long endTime) {
+        this.task = task;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public Long getId() {
+        return this.task.getId();
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public String getDueDate() {
+        return ZonedDateTimeHelper.getDate(getZonedStartTime());
+    }
+
+    public String getDueTime() {
+        return ZonedDateTimeHelper.getTime(getZonedEndTime());
+    }
+
+    public Timestamp getReminderDateTime() {
+        if (this.task.hasReminderBeforeTask()) {
+            return TaskModel.getReminderDateTime(new Timestamp(this.startTime), this.task.getReminderBeforeTask());
+        }
+        return this.task.getReminderDateTime();
+    }
+
+    public boolean hasReminderDateTime() {
+        return getReminderDateTime() != null;
+    }
+
+    public com.bulletjournal.controller.models.Task toPresentationModel() {
+        return withOccurrenceTime(this.task.toPresentationModel());
+    }
+
+    public com.bulletjournal.controller.models.Task toPresentationModel(List<Label> labels) {
+        return withOccurrenceTime(this.task.toPresentationModel(labels));
+    }
+
+    /**
+     * Materialize this occurrence as a detached copy of the parent task, for callers that need a {@link Task}
+     *
+     * @return Task - a task cloned from parent task with the occurrence's due date time and reminder
+     */
+    public Task toTask() {
+        Task cloned;
+        try {
+            cloned = (Task) this.task.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Clone new Task failed");
+        }
+        cloned.setDueDate(getDueDate());
+        cloned.setDueTime(getDueTime());
+        cloned.setStartTime(new Timestamp(this.startTime));
+        cloned.setEndTime(new Timestamp(this.endTime));
+        cloned.setReminderDateTime(getReminderDateTime());
+        return cloned;
+    }
+
+    private com.bulletjournal.controller.models.Task withOccurrenceTime(com.bulletjournal.controller.models.Task task) {
+        task.setDueDate(getDueDate());
+        task.setDueTime(getDueTime());
+        Timestamp reminderDateTime = getReminderDateTime();
+        task.setReminderDateTime(reminderDateTime == null ? null : reminderDateTime.getTime());
+        return task;
+    }
+
+    private ZonedDateTime getZonedStartTime() {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(this.startTime), ZoneId.of(this.task.getTimezone()));
+    }
+
+    private ZonedDateTime getZonedEndTime() {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(this.endTime), ZoneId.of(this.task.getTimezone()));
+    }
+
+    @Override
+    public String toString() {
+        return "TaskOccurrence{" +
+                "taskId=" + getId() +
+                ", startTime=" + startTime +
+                ", endTime=" + endTime +
+                '}';
+    }
+}
@@ -3,7 +3,10 @@ package com.bulletjournal.repository.models;
 import com.bulletjournal.contents.ContentType;
 import com.bulletjournal.controller.models.Label;
 import com.bulletjournal.controller.models.User;
+import com.bulletjournal.exceptions.BadRequestException;
+import com.bulletjournal.ledger.Money;
 import com.bulletjournal.ledger.TransactionType;
+import com.bulletjournal.repository.auditing.SearchIndexEntityListeners;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.persistence.*;
@@ -18,6 +21,7 @@ import java.util.stream.Collectors;
  * This class is for ProjectType.LEDGER
  */
 @Entity
+@EntityListeners(value = {SearchIndexEntityListeners.class})
 @Table(name = "transactions")
 public class Transaction extends ProjectItemModel<com.bulletjournal.controller.models.Transaction> {
     @Id
@@ -34,9 +38,11 @@ public class Transaction extends ProjectItemModel<com.bulletjournal.controller.m
     @Column(length = 100)
     private String payer;
 
-    @NotNull
-    @Column(nullable = false)
-    private Double amount;
+    @Column(name = "amount_minor", nullable = false)
+    private long amountMinor;
+
+    @Column(length = 3)
+    private String currency;
 
     @NotNull
     @Column(nullable = false)
@@ -83,12 +89,41 @@ public class Transaction extends ProjectItemModel<com.bulletjournal.controller.m
         this.payer = payer;
     }
 
+    /**
+     * @return Double - the decimal amount, see {@link #getAmountMinor()}
+     */
     public Double getAmount() {
-        return amount;
+        return Money.toAmount(this.amountMinor);
     }
 
     public void setAmount(Double amount) {
-        this.amount = amount;
+        try {
+            this.amountMinor = Money.toMinorUnits(amount);
+        } catch (ArithmeticException ex) {
+            throw new BadRequestException("Amount " + amount + " is out of range", ex);
+        }
+    }
+
+    /**
+     * @return long - the amount in minor units of {@link Money#SCALE} decimal places
+     */
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public void setAmountMinor(long amountMinor) {
+        this.amountMinor = amountMinor;
+    }
+
+    /**
+     * @return String - ISO 4217 code of the amount's currency, null for the owner's default currency
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
     }
 
     public TransactionType getTransactionType() {
@@ -192,6 +227,7 @@ public class Transaction extends ProjectItemModel<com.bulletjournal.controller.m
                 this.getProject(),
                 new User(this.getPayer()),
                 this.getAmount(),
+                this.getCurrency(),
                 this.getDate(),
                 this.getTime(),
                 this.getTimezone(),
@@ -0,0 +1,107 @@
+package com.bulletjournal.repository.models;
+
+import com.bulletjournal.controller.models.Label;
+import com.bulletjournal.controller.utils.ZonedDateTimeHelper;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * A single occurrence of a recurring {@link Transaction}.
+ * <p>
+ * It references the parent transaction and only carries the shifted start and end time, so expanding a
+ * recurrence rule does not copy the transaction entity per instance.
+ */
+public class TransactionOccurrence {
+
+    private final Transaction transaction;
+
+    private final long startTime;
+
+    private final long endTime;
+
+    public TransactionOccurrence(Transaction transaction, long startTime, long endTime) {
+        this.transaction = transaction;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public Long getId() {
+        return this.transaction.getId();
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public String getDate() {
+        return ZonedDateTimeHelper.getDate(getZonedStartTime());
+    }
+
+    public String getTime() {
+        return ZonedDateTimeHelper.getTime(getZonedEndTime());
+    }
+
+    public com.bulletjournal.controller.models.Transaction toPresentationModel() {
+        return withOccurrenceTime(this.transaction.toPresentationModel());
+    }
+
+    public com.bulletjournal.controller.models.Transaction toPresentationModel(List<Label> labels) {
+        return withOccurrenceTime(this.transaction.toPresentationModel(labels));
+    }
+
+    /**
+     * Materialize this occurrence as a detached copy of the parent transaction, for callers that need a
+     * {@link Transaction}
+     *
+     * @return Transaction - a transaction cloned from parent transaction with the occurrence's date time
+     */
+    public Transaction toTransaction() {
+        Transaction cloned;
+        try {
+            cloned = (Transaction) this.transaction.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Clone new Transaction failed");
+        }
+        cloned.setDate(getDate());
+        cloned.setTime(getTime());
+        cloned.setStartTime(new Timestamp(this.startTime));
+        cloned.setEndTime(new Timestamp(this.endTime));
+        return cloned;
+    }
+
+    private com.bulletjournal.controller.models.Transaction withOccurrenceTime(
+            com.bulletjournal.controller.models.Transaction transaction) {
+        transaction.setDate(getDate());
+        transaction.setTime(getTime());
+        return transaction;
+    }
+
+    private ZonedDateTime getZonedStartTime() {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(this.startTime), ZoneId.of(this.transaction.getTimezone()));
+    }
+
+    private ZonedDateTime getZonedEndTime() {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(this.endTime), ZoneId.of(this.transaction.getTimezone()));
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionOccurrence{" +
+                "transactionId=" + getId() +
+                ", startTime=" + startTime +
+                ", endTime=" + endTime +
+                '}';
+    }
+}
@@ -4,6 +4,7 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Table(name = "user_projects")
@@ -18,6 +19,15 @@ public class UserProjects extends AuditModel {
     @Column(length = 10485760)
     private String ownedProjects;
 
+    /**
+     * Store self-owned projects' hierarchy encoded by {@link com.bulletjournal.hierarchy.HierarchyCodec}
+     */
+    @Column(columnDefinition = "bytea")
+    private byte[] ownedProjectsHierarchy;
+
+    @Version
+    private Long hierarchyVersion;
+
     /**
      * Stores projects shared with me - order of project owners
      */
@@ -54,4 +64,20 @@ public class UserProjects extends AuditModel {
     public void setSharedProjects(String sharedProjects) {
         this.sharedProjects = sharedProjects;
     }
+
+    public byte[] getOwnedProjectsHierarchy() {
+        return ownedProjectsHierarchy;
+    }
+
+    public void setOwnedProjectsHierarchy(byte[] ownedProjectsHierarchy) {
+        this.ownedProjectsHierarchy = ownedProjectsHierarchy;
+    }
+
+    public Long getHierarchyVersion() {
+        return hierarchyVersion;
+    }
+
+    public void setHierarchyVersion(Long hierarchyVersion) {
+        this.hierarchyVersion = hierarchyVersion;
+    }
 }
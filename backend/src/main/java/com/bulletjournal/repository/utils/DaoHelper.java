@@ -1,25 +1,35 @@
 package com.bulletjournal.repository.utils;
 
+import com.bulletjournal.controller.models.UpdateOrderParams;
 import com.bulletjournal.controller.utils.ZonedDateTimeHelper;
 import com.bulletjournal.daemon.models.ReminderRecord;
+import com.bulletjournal.exceptions.BadRequestException;
+import com.bulletjournal.exceptions.ConflictException;
+import com.bulletjournal.hierarchy.HierarchyCodec;
 import com.bulletjournal.repository.models.Task;
+import com.bulletjournal.repository.models.TaskOccurrence;
 import com.bulletjournal.repository.models.Transaction;
-import com.bulletjournal.util.BuJoRecurrenceRule;
+import com.bulletjournal.repository.models.TransactionOccurrence;
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang3.StringUtils;
 import org.dmfs.rfc5545.DateTime;
 import org.dmfs.rfc5545.recur.InvalidRecurrenceRuleException;
-import org.dmfs.rfc5545.recur.RecurrenceRuleIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
-import java.sql.Timestamp;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class DaoHelper {
     private static final Logger LOGGER = LoggerFactory.getLogger(DaoHelper.class);
+    private static final OccurrenceIndex TASK_OCCURRENCES = new OccurrenceIndex();
+    private static final OccurrenceIndex TRANSACTION_OCCURRENCES = new OccurrenceIndex();
 
     public static <T> void updateIfPresent(Boolean isPresent, T value, Consumer<T> getter) {
         if (isPresent) {
@@ -27,6 +37,62 @@ public class DaoHelper {
         }
     }
 
+    /**
+     * Apply one edit to an encoded hierarchy after checking the version it is based on
+     *
+     * @param hierarchy the current encoded hierarchy
+     * @param version   the current hierarchy version, null if never saved
+     * @param params    the edit
+     * @return byte[] - the edited hierarchy
+     */
+    public static byte[] editHierarchy(byte[] hierarchy, Long version, UpdateOrderParams params) {
+        long current = version == null ? 0L : version;
+        if (params.hasVersion() && params.getVersion() != current) {
+            throw new ConflictException("Hierarchy version " + params.getVersion() + " is stale, latest is " + current);
+        }
+        try {
+            if (params.getAction() == UpdateOrderParams.Action.REMOVE) {
+                return HierarchyCodec.remove(hierarchy, params.getId());
+            }
+            return HierarchyCodec.move(hierarchy, params.getId(), params.getParentId(), params.getPosition());
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Save a versioned hierarchy, failing instead of overwriting a concurrent edit
+     *
+     * @param repository the repository of the hierarchy
+     * @param hierarchy  the hierarchy entity
+     * @return T - the saved entity with its new version
+     */
+    public static <T> T saveHierarchy(JpaRepository<T, ?> repository, T hierarchy) {
+        try {
+            return repository.saveAndFlush(hierarchy);
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            throw new ConflictException("Hierarchy has been changed concurrently", ex);
+        }
+    }
+
+    /**
+     * Drop materialized occurrences of a task whose recurrence is gone
+     *
+     * @param taskId the task id
+     */
+    public static void invalidateTaskOccurrences(Long taskId) {
+        TASK_OCCURRENCES.invalidate(taskId);
+    }
+
+    /**
+     * Drop materialized occurrences of a transaction whose recurrence is gone
+     *
+     * @param transactionId the transaction id
+     */
+    public static void invalidateTransactionOccurrences(Long transactionId) {
+        TRANSACTION_OCCURRENCES.invalidate(transactionId);
+    }
+
     /**
      * Get all reminder records from given task
      * - For recurring task, return list of ReminderRecord in [startTime, endTime]
@@ -69,34 +135,40 @@ public class DaoHelper {
      * @return List<Task> - a list of task based on recurrence rule
      */
     public static List<Transaction> getRecurringTransaction(Transaction transaction, ZonedDateTime startTime, ZonedDateTime endTime) {
+        return getTransactionOccurrences(transaction, startTime, endTime).stream()
+                .map(TransactionOccurrence::toTransaction).collect(Collectors.toList());
+    }
+
+    /**
+     * Fetch all occurrences within [startTime, endTime] based on transaction's recurrence rule
+     *
+     * @param transaction the target transaction contains recurrence rule
+     * @param startTime   the requested time range starting time
+     * @param endTime     the requested time range ending time
+     * @return List<TransactionOccurrence> - a list of occurrences referencing the transaction
+     */
+    public static List<TransactionOccurrence> getTransactionOccurrences(
+            Transaction transaction, ZonedDateTime startTime, ZonedDateTime endTime) {
+        if (StringUtils.isBlank(transaction.getRecurrenceRule())) {
+            LOGGER.error("Transaction {} does not have RecurrenceRule", transaction);
+            throw new IllegalArgumentException("Transaction " + transaction.getId() + " does not have RecurrenceRule");
+        }
         try {
             DateTime startDateTime = ZonedDateTimeHelper.getDateTime(startTime);
             DateTime endDateTime = ZonedDateTimeHelper.getDateTime(endTime);
-
-            List<Transaction> recurringTransactionsBetween = new ArrayList<>();
-            String recurrenceRule = transaction.getRecurrenceRule();
-            String timezone = transaction.getTimezone();
-            Set<String> deletedSlots = ZonedDateTimeHelper.parseDateTimeSet(transaction.getDeletedSlots());
-
-            BuJoRecurrenceRule rule = new BuJoRecurrenceRule(recurrenceRule, timezone);
-            RecurrenceRuleIterator it = rule.getIterator();
-
-            while (it.hasNext()) {
-                DateTime currDateTime = it.nextDateTime();
-                if (currDateTime.after(endDateTime)) {
-                    break;
-                }
-                if (currDateTime.before(startDateTime) || deletedSlots.contains(currDateTime.toString())) {
-                    continue;
-                }
-                Transaction cloned = cloneTransactionWithDateTime(transaction, timezone, currDateTime);
-                recurringTransactionsBetween.add(cloned);
+            ZoneId zoneId = ZoneId.of(transaction.getTimezone());
+
+            List<TransactionOccurrence> recurringTransactionsBetween = new ArrayList<>();
+            List<DateTime> occurrences = TRANSACTION_OCCURRENCES.getOccurrences(transaction.getId(),
+                    transaction.getRecurrenceRule(), transaction.getTimezone(), transaction.getDeletedSlots(),
+                    startDateTime, endDateTime);
+            for (DateTime currDateTime : occurrences) {
+                long time = shiftToTimezone(currDateTime, zoneId);
+                recurringTransactionsBetween.add(new TransactionOccurrence(transaction, time, time));
             }
             return recurringTransactionsBetween;
         } catch (InvalidRecurrenceRuleException | NumberFormatException e) {
             throw new IllegalArgumentException("Recurrence rule format invalid");
-        } catch (CloneNotSupportedException e) {
-            throw new IllegalStateException("Clone new Task failed");
         }
     }
 
@@ -109,34 +181,43 @@ public class DaoHelper {
      * @return List<Task> - a list of task based on recurrence rule
      */
     public static List<Task> getRecurringTask(Task task, ZonedDateTime startTime, ZonedDateTime endTime) {
+        return getTaskOccurrences(task, startTime, endTime).stream().map(o -> {
+            Task cloned = o.toTask();
+            if (!cloned.hasReminderDateTime()) {
+                LOGGER.warn("Task {} ReminderDateTime is null", task.getReminderSetting());
+            }
+            return cloned;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Fetch all occurrences within [startTime, endTime] based on task's recurrence rule
+     *
+     * @param task      the target task contains recurrence rule
+     * @param startTime the requested time range starting time
+     * @param endTime   the requested time range ending time
+     * @return List<TaskOccurrence> - a list of occurrences referencing the task
+     */
+    public static List<TaskOccurrence> getTaskOccurrences(Task task, ZonedDateTime startTime, ZonedDateTime endTime) {
+        if (StringUtils.isBlank(task.getRecurrenceRule())) {
+            LOGGER.error("Task {} does not have RecurrenceRule", task);
+            throw new IllegalArgumentException("Task " + task.getId() + " does not have RecurrenceRule");
+        }
         try {
             DateTime startDateTime = ZonedDateTimeHelper.getDateTime(startTime);
             DateTime endDateTime = ZonedDateTimeHelper.getDateTime(endTime);
-
-            List<Task> recurringTasksBetween = new ArrayList<>();
-            String recurrenceRule = task.getRecurrenceRule();
-            String timezone = task.getTimezone();
-            Set<String> completedSlots = ZonedDateTimeHelper.parseDateTimeSet(task.getCompletedSlots());
-
-            BuJoRecurrenceRule rule = new BuJoRecurrenceRule(recurrenceRule, timezone);
-            RecurrenceRuleIterator it = rule.getIterator();
-
-            while (it.hasNext()) {
-                DateTime currDateTime = it.nextDateTime();
-                if (currDateTime.after(endDateTime)) {
-                    break;
-                }
-                if (currDateTime.before(startDateTime) || completedSlots.contains(currDateTime.toString())) {
-                    continue;
-                }
-                Task cloned = cloneTaskWithDateTime(task, timezone, currDateTime);
-                recurringTasksBetween.add(cloned);
+            ZoneId zoneId = ZoneId.of(task.getTimezone());
+
+            List<TaskOccurrence> recurringTasksBetween = new ArrayList<>();
+            List<DateTime> occurrences = TASK_OCCURRENCES.getOccurrences(task.getId(),
+                    task.getRecurrenceRule(), task.getTimezone(), task.getCompletedSlots(), startDateTime, endDateTime);
+            for (DateTime currDateTime : occurrences) {
+                long time = shiftToTimezone(currDateTime, zoneId);
+                recurringTasksBetween.add(new TaskOccurrence(task, time, time));
             }
             return recurringTasksBetween;
         } catch (InvalidRecurrenceRuleException | NumberFormatException e) {
             throw new IllegalArgumentException("Recurrence rule format invalid");
-        } catch (CloneNotSupportedException e) {
-            throw new IllegalStateException("Clone new Task failed");
         }
     }
 
@@ -149,89 +230,20 @@ public class DaoHelper {
      */
     @VisibleForTesting
     public static Task cloneTaskWithDueDateTime(Task task, Long timestampMillis) {
-        try {
-            DateTime taskDateTime = ZonedDateTimeHelper.getDateTime(timestampMillis, task.getTimezone());
-            return cloneTaskWithDateTime(task, task.getTimezone(), taskDateTime);
-        } catch (CloneNotSupportedException e) {
-            throw new IllegalStateException("Clone new Task failed");
-        }
-    }
-
-    /**
-     * Clone a new transaction and set RFC 5545 DateTime as its [DueDate, DueTime] and [StartTime, EndTime]
-     * Only used for recurring transaction
-     * @param transaction  the target transaction needs to cloned
-     * @param timezone     the target timezone for cloned task's due date and due time
-     * @param currDateTime the RFC 5545 DateTime Object contains timing information
-     * @return Transaction a transaction cloned from original task with new Due DateTime and Timezone
-     * @throws CloneNotSupportedException
-     */
-    private static Transaction cloneTransactionWithDateTime(Transaction transaction, String timezone, DateTime currDateTime) throws CloneNotSupportedException {
-        if (StringUtils.isBlank(transaction.getRecurrenceRule())) {
-            LOGGER.error("Transaction {} does not have RecurrenceRule", transaction);
-            throw new IllegalArgumentException("Transaction " + transaction.getId() + " does not have RecurrenceRule");
-        }
-        Transaction cloned = (Transaction) transaction.clone();
-
-        String defaultDate = ZonedDateTimeHelper.getDate(currDateTime);
-        String defaultTime = ZonedDateTimeHelper.getTime(currDateTime);
-
-        // Shift to task's timezone
-        ZonedDateTime targetDate = ZonedDateTimeHelper.getStartTime(defaultDate, defaultTime, timezone);
-        ZonedDateTime targetTime = ZonedDateTimeHelper.getEndTime(defaultDate, defaultTime, timezone);
-
-        // Set due date and time
-        cloned.setDate(ZonedDateTimeHelper.getDate(targetDate));
-        cloned.setTime(ZonedDateTimeHelper.getTime(targetTime));
-
-        // Set start time and end time
-        cloned.setStartTime(Timestamp.from(targetDate.toInstant()));
-        cloned.setEndTime(Timestamp.from(targetTime.toInstant()));
-
-        // Set timezone
-        cloned.setTimezone(timezone);
-        return cloned;
+        DateTime taskDateTime = ZonedDateTimeHelper.getDateTime(timestampMillis, task.getTimezone());
+        long time = shiftToTimezone(taskDateTime, ZoneId.of(task.getTimezone()));
+        return new TaskOccurrence(task, time, time).toTask();
     }
 
     /**
-     * Clone a new task and set RFC 5545 DateTime as its [DueDate, DueTime] and [StartTime, EndTime]
-     * Only used for recurring task
-     * @param task         the target task needs to cloned
-     * @param timezone     the target timezone for cloned task's due date and due time
-     * @param currDateTime the RFC 5545 DateTime Object contains timing information
-     * @return Task a task cloned from original task with new Due DateTime and Timezone
-     * @throws CloneNotSupportedException
+     * Keep the wall clock date and minute of a RFC 5545 DateTime and shift it to the item's timezone
+     *
+     * @param dateTime the RFC 5545 DateTime Object contains timing information
+     * @param zoneId   the timezone of the recurring item
+     * @return long - epoch millis of the occurrence in item's timezone
      */
-    private static Task cloneTaskWithDateTime(Task task, String timezone, DateTime currDateTime) throws CloneNotSupportedException {
-        if (StringUtils.isBlank(task.getRecurrenceRule())) {
-            LOGGER.error("Task {} does not have RecurrenceRule", task);
-            throw new IllegalArgumentException("Task " + task.getId() + " does not have RecurrenceRule");
-        }
-        Task cloned = (Task) task.clone();
-
-        String defaultDate = ZonedDateTimeHelper.getDate(currDateTime);
-        String defaultTime = ZonedDateTimeHelper.getTime(currDateTime);
-
-        // Shift to task's timezone
-        ZonedDateTime targetDate = ZonedDateTimeHelper.getStartTime(defaultDate, defaultTime, timezone);
-        ZonedDateTime targetTime = ZonedDateTimeHelper.getEndTime(defaultDate, defaultTime, timezone);
-
-        // Set due date and time
-        cloned.setDueDate(ZonedDateTimeHelper.getDate(targetDate));
-        cloned.setDueTime(ZonedDateTimeHelper.getTime(targetTime));
-
-        // Set start time and end time
-        cloned.setStartTime(Timestamp.from(targetDate.toInstant()));
-        cloned.setEndTime(Timestamp.from(targetTime.toInstant()));
-
-        // Set timezone
-        cloned.setTimezone(timezone);
-
-        cloned.setReminderSetting(task.getReminderSetting()); // Set reminding setting to cloned
-
-        if (!cloned.hasReminderDateTime()) {
-            LOGGER.warn("Task {} ReminderDateTime is null", task.getReminderSetting());
-        }
-        return cloned;
+    private static long shiftToTimezone(DateTime dateTime, ZoneId zoneId) {
+        return ZonedDateTimeHelper.getZonedDateTime(dateTime).toLocalDateTime()
+                .truncatedTo(ChronoUnit.MINUTES).atZone(zoneId).toInstant().toEpochMilli();
     }
 }
@@ -0,0 +1,183 @@
+package com.bulletjournal.repository.utils;
+
+import com.bulletjournal.controller.utils.ZonedDateTimeHelper;
+import com.bulletjournal.util.BuJoRecurrenceRule;
+import org.dmfs.rfc5545.DateTime;
+import org.dmfs.rfc5545.recur.InvalidRecurrenceRuleException;
+import org.dmfs.rfc5545.recur.RecurrenceRuleIterator;
+
+import java.util.*;
+
+/**
+ * Materialized occurrences of recurring project items keyed by item id.
+ * <p>
+ * Each entry skips ahead to the first requested start time, keeps the recurrence iterator alive
+ * and rolls it forward only as far as the latest requested end time, so repeated range queries
+ * become a binary search over already expanded occurrence timestamps instead of a replay of the
+ * rule from DTSTART. A request starting before the covered range extends the entry backwards by
+ * expanding only the occurrences between the new start and the covered range.
+ * <p>
+ * An entry is rebuilt whenever the recurrence rule, timezone or excluded slots of the item change.
+ */
+public class OccurrenceIndex {
+
+    private static final int DEFAULT_MAX_ENTRIES = 20000;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<Long, Entry> entries;
+
+    public OccurrenceIndex() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public OccurrenceIndex(final int maxEntries) {
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<Long, Entry>(INITIAL_CAPACITY, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Get all occurrences in [startTime, endTime] that are not in excluded slots
+     *
+     * @param itemId         the project item id
+     * @param recurrenceRule the recurrence rule of project item
+     * @param timezone       the timezone of project item
+     * @param excludedSlots  the comma separated slots that are completed or deleted
+     * @param startTime      the requested time range starting time
+     * @param endTime        the requested time range ending time
+     * @return List<DateTime> - occurrences within the time range in ascending order
+     */
+    public List<DateTime> getOccurrences(Long itemId, String recurrenceRule, String timezone, String excludedSlots,
+                                         DateTime startTime, DateTime endTime) throws InvalidRecurrenceRuleException {
+        String fingerprint = recurrenceRule + '|' + timezone + '|' + excludedSlots;
+        Entry entry = itemId == null ? null : this.entries.get(itemId);
+        if (entry == null || !entry.fingerprint.equals(fingerprint)) {
+            BuJoRecurrenceRule rule = new BuJoRecurrenceRule(recurrenceRule, timezone);
+            entry = new Entry(fingerprint, rule, rule.getIterator(startTime),
+                    ZonedDateTimeHelper.parseDateTimeSet(excludedSlots), startTime.getTimestamp());
+            if (itemId != null) {
+                this.entries.put(itemId, entry);
+            }
+        }
+        return entry.range(startTime, endTime.getTimestamp());
+    }
+
+    public void invalidate(Long itemId) {
+        this.entries.remove(itemId);
+    }
+
+    public void clear() {
+        this.entries.clear();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final BuJoRecurrenceRule rule;
+        private final RecurrenceRuleIterator iterator;
+        private final Set<String> excludedSlots;
+        private long coveredFrom;
+
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private DateTime[] occurrences = new DateTime[INITIAL_CAPACITY];
+        private int size;
+        private long lastIterated = Long.MIN_VALUE;
+        private boolean exhausted;
+
+        Entry(String fingerprint, BuJoRecurrenceRule rule, RecurrenceRuleIterator iterator,
+              Set<String> excludedSlots, long coveredFrom) {
+            this.fingerprint = fingerprint;
+            this.rule = rule;
+            this.iterator = iterator;
+            this.excludedSlots = excludedSlots;
+            this.coveredFrom = coveredFrom;
+        }
+
+        synchronized List<DateTime> range(DateTime startTime, long end) {
+            long start = startTime.getTimestamp();
+            if (start < this.coveredFrom) {
+                extendBackward(startTime);
+            }
+            rollForward(end);
+            List<DateTime> result = new ArrayList<>();
+            for (int i = lowerBound(start); i < this.size && this.timestamps[i] <= end; i++) {
+                result.add(this.occurrences[i]);
+            }
+            return result;
+        }
+
+        private void rollForward(long end) {
+            while (!this.exhausted && this.lastIterated <= end) {
+                if (!this.iterator.hasNext()) {
+                    this.exhausted = true;
+                    break;
+                }
+                DateTime next = this.iterator.nextDateTime();
+                this.lastIterated = next.getTimestamp();
+                if (!this.excludedSlots.contains(next.toString())) {
+                    append(next);
+                }
+            }
+        }
+
+        /**
+         * Expand the occurrences in [startTime, coveredFrom) and put them ahead of the covered ones
+         */
+        private void extendBackward(DateTime startTime) {
+            List<DateTime> earlier = new ArrayList<>();
+            RecurrenceRuleIterator it = this.rule.getIterator(startTime);
+            while (it.hasNext()) {
+                DateTime next = it.nextDateTime();
+                if (next.getTimestamp() >= this.coveredFrom) {
+                    break;
+                }
+                if (!this.excludedSlots.contains(next.toString())) {
+                    earlier.add(next);
+                }
+            }
+            int capacity = Math.max(this.timestamps.length, this.size + earlier.size());
+            long[] timestamps = new long[capacity];
+            DateTime[] occurrences = new DateTime[capacity];
+            for (int i = 0; i < earlier.size(); i++) {
+                timestamps[i] = earlier.get(i).getTimestamp();
+                occurrences[i] = earlier.get(i);
+            }
+            System.arraycopy(this.timestamps, 0, timestamps, earlier.size(), this.size);
+            System.arraycopy(this.occurrences, 0, occurrences, earlier.size(), this.size);
+            this.timestamps = timestamps;
+            this.occurrences = occurrences;
+            this.size += earlier.size();
+            this.coveredFrom = startTime.getTimestamp();
+        }
+
+        private void append(DateTime occurrence) {
+            if (this.size == this.timestamps.length) {
+                this.timestamps = Arrays.copyOf(this.timestamps, this.size * 2);
+                this.occurrences = Arrays.copyOf(this.occurrences, this.size * 2);
+            }
+            this.timestamps[this.size] = occurrence.getTimestamp();
+            this.occurrences[this.size] = occurrence;
+            this.size++;
+        }
+
+        private int lowerBound(long start) {
+            int lo = 0;
+            int hi = this.size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (this.timestamps[mid] < start) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package com.bulletjournal.util;
 
 import org.dmfs.rfc5545.DateTime;
+import org.dmfs.rfc5545.recur.Freq;
 import org.dmfs.rfc5545.recur.InvalidRecurrenceRuleException;
 import org.dmfs.rfc5545.recur.RecurrenceRule;
 import org.dmfs.rfc5545.recur.RecurrenceRuleIterator;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.TimeZone;
+
 public class BuJoRecurrenceRule {
     private static final String DATETIME_START_KEY = "DTSTART:";
     private static final String DATETIME_END_KEY = "UTIL=";
@@ -38,6 +46,72 @@ public class BuJoRecurrenceRule {
         return this.rrule.iterator(start);
     }
 
+    /**
+     * Get an iterator whose first instance is the first occurrence at or after given instant
+     * <p>
+     * For DAILY, WEEKLY and MONTHLY rules without COUNT and BYSETPOS, the iteration is re-anchored
+     * arithmetically at a whole number of intervals after DTSTART, so the cost does not grow with the
+     * age of the rule. Other rules fall back to {@link RecurrenceRuleIterator#fastForward(DateTime)}.
+     *
+     * @param from the instant to skip ahead to
+     * @return RecurrenceRuleIterator - iterator positioned at or after from
+     */
+    public RecurrenceRuleIterator getIterator(DateTime from) {
+        if (from == null || !from.after(this.start)) {
+            return getIterator();
+        }
+        DateTime anchor = getSkipAheadAnchor(from);
+        RecurrenceRuleIterator it = this.rrule.iterator(anchor == null ? this.start : anchor);
+        it.fastForward(from);
+        return it;
+    }
+
+    /**
+     * Get DTSTART shifted by whole intervals to at least one interval before given instant,
+     * or null if the rule cannot be re-anchored without changing its instances
+     */
+    private DateTime getSkipAheadAnchor(DateTime from) {
+        if (this.start.isAllDay() || this.rrule.getCount() != null
+                || this.rrule.hasPart(RecurrenceRule.Part.BYSETPOS)) {
+            return null;
+        }
+        Freq freq = this.rrule.getFreq();
+        ChronoUnit unit;
+        switch (freq) {
+            case DAILY:
+                unit = ChronoUnit.DAYS;
+                break;
+            case WEEKLY:
+                unit = ChronoUnit.WEEKS;
+                break;
+            case MONTHLY:
+                // implicit BYMONTHDAY comes from DTSTART, which cannot move to a shorter month
+                if (this.start.getDayOfMonth() > 28 && !this.rrule.hasPart(RecurrenceRule.Part.BYMONTHDAY)
+                        && !this.rrule.hasPart(RecurrenceRule.Part.BYDAY)) {
+                    return null;
+                }
+                unit = ChronoUnit.MONTHS;
+                break;
+            default:
+                return null;
+        }
+
+        TimeZone timeZone = this.start.getTimeZone();
+        ZoneId zoneId = timeZone == null ? ZoneOffset.UTC : timeZone.toZoneId();
+        LocalDateTime startLocal = LocalDateTime.of(this.start.getYear(), this.start.getMonth() + 1,
+                this.start.getDayOfMonth(), this.start.getHours(), this.start.getMinutes(), this.start.getSeconds());
+        LocalDateTime fromLocal = LocalDateTime.ofInstant(Instant.ofEpochMilli(from.getTimestamp()), zoneId);
+
+        int interval = this.rrule.getInterval();
+        long periods = (unit.between(startLocal, fromLocal) / interval - 1) * interval;
+        if (periods <= 0) {
+            return null;
+        }
+        LocalDateTime anchor = startLocal.plus(periods, unit);
+        return new DateTime(timeZone, anchor.getYear(), anchor.getMonthValue() - 1, anchor.getDayOfMonth(),
+                anchor.getHour(), anchor.getMinute(), anchor.getSecond());
+    }
+
     public RecurrenceRule getRrule() {
         return rrule;
     }
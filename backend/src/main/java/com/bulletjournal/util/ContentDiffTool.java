@@ -3,30 +3,123 @@ package com.bulletjournal.util;
 import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.LinkedList;
-import java.util.List;
+import javax.annotation.PostConstruct;
+import java.util.*;
 
 @Component
 public class ContentDiffTool {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ContentDiffTool.class);
 
+    // leaves room for the remainder token of each text
+    private static final int MAX_LINES = Character.MAX_VALUE - 2;
+
     private DiffMatchPatch diffMatchPatch = new DiffMatchPatch();
 
+    // diffs running longer than this fall back to a coarser but still valid diff
+    @Value("${revision.diffTimeoutMillis:1000}")
+    private long diffTimeoutMillis;
+
+    // texts longer than this are diffed line by line
+    @Value("${revision.lineModeThreshold:10000}")
+    private int lineModeThreshold;
+
     private ContentDiffTool() {
     }
 
+    @PostConstruct
+    public void postConstruct() {
+        this.diffMatchPatch.diffTimeout = this.diffTimeoutMillis / 1000f;
+    }
+
+    /**
+     * Compute the diff from one content text to another.
+     * <p>
+     * Quill delta contents get a delta change, kept only when composing it onto the old text gives the
+     * new text back exactly; any other text gets a character patch.
+     *
+     * @param oldText the text before
+     * @param newText the text after
+     * @return String - a delta change as JSON or a patch text
+     */
     public String computeDiff(String oldText, String newText) {
-        return diffMatchPatch.patchToText(
-                diffMatchPatch.patchMake(
-                        diffMatchPatch.diffMain(oldText, newText)
-                )
-        );
+        try {
+            Delta change = new DeltaContent(oldText).toDelta().diff(
+                    new DeltaContent(newText).toDelta(), this::diffText);
+            String diff = change.toJson();
+            if (newText.equals(applyDelta(oldText, change))) {
+                return diff;
+            }
+        } catch (Exception ex) {
+            LOGGER.debug("Not a delta content, falling back to text diff", ex);
+        }
+        return computeTextDiff(oldText, newText);
+    }
+
+    private String computeTextDiff(String oldText, String newText) {
+        return diffMatchPatch.patchToText(diffMatchPatch.patchMake(oldText, diffText(oldText, newText)));
+    }
+
+    private LinkedList<DiffMatchPatch.Diff> diffText(String oldText, String newText) {
+        return Math.max(oldText.length(), newText.length()) > this.lineModeThreshold
+                ? diffLines(oldText, newText) : diffMatchPatch.diffMain(oldText, newText);
+    }
+
+    private static String applyDelta(String oldText, Delta change) {
+        DeltaContent content = new DeltaContent(oldText);
+        content.setDelta(content.toDelta().compose(change));
+        return content.toJSON();
+    }
+
+    /**
+     * Diff two texts as sequences of lines, each line mapped to one char so the diff runs on short strings.
+     * Quill deltas are mostly one line, so a JSON object closing before a comma also ends a line.
+     */
+    private LinkedList<DiffMatchPatch.Diff> diffLines(String oldText, String newText) {
+        List<String> lines = new ArrayList<>();
+        Map<String, Character> codes = new HashMap<>();
+        String chars1 = encodeLines(oldText, lines, codes);
+        String chars2 = encodeLines(newText, lines, codes);
+        LinkedList<DiffMatchPatch.Diff> diffs = diffMatchPatch.diffMain(chars1, chars2, false);
+        for (DiffMatchPatch.Diff diff : diffs) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < diff.text.length(); i++) {
+                text.append(lines.get(diff.text.charAt(i)));
+            }
+            diff.text = text.toString();
+        }
+        return diffs;
+    }
+
+    private static String encodeLines(String text, List<String> lines, Map<String, Character> codes) {
+        StringBuilder chars = new StringBuilder();
+        int start = 0;
+        while (start < text.length()) {
+            int end = start;
+            if (lines.size() >= MAX_LINES) {
+                end = text.length() - 1;
+            }
+            while (end < text.length() - 1 && text.charAt(end) != '\n'
+                    && !(text.charAt(end) == ',' && end > 0 && text.charAt(end - 1) == '}')) {
+                end++;
+            }
+            String line = text.substring(start, end + 1);
+            chars.append(codes.computeIfAbsent(line, l -> {
+                lines.add(l);
+                return (char) (lines.size() - 1);
+            }));
+            start = end + 1;
+        }
+        return chars.toString();
     }
 
     public String applyDiff(String oldText, String diff) {
+        if (Delta.isDelta(diff)) {
+            return applyDelta(oldText, Delta.fromJson(diff));
+        }
         List<DiffMatchPatch.Patch> patches = diffMatchPatch.patchFromText(diff);
         Object[] output = diffMatchPatch.patchApply(
                 (LinkedList<DiffMatchPatch.Patch>) patches, oldText);
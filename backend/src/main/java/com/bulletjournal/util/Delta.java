@@ -0,0 +1,416 @@
+package com.bulletjournal.util;
+
+import com.google.gson.*;
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
+
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Quill delta, the model behind {@link DeltaContent}.
+ * <p>
+ * A document is a list of insert ops; a change is a list of retain, insert and delete ops. diff and
+ * compose follow quill-delta, so a change computed here is the same a Quill client would produce and
+ * composing it onto the old document gives back the new one exactly.
+ */
+public class Delta {
+
+    // stands for an embed when diffing documents as strings
+    private static final String EMBED_CHAR = String.valueOf((char) 0);
+    private static final Gson GSON = new GsonBuilder().
+            registerTypeAdapter(Double.class, (JsonSerializer<Double>) (src, typeOfSrc, context) -> {
+                if (src == src.longValue())
+                    return new JsonPrimitive(src.longValue());
+                return new JsonPrimitive(src);
+            }).serializeNulls().disableHtmlEscaping().create();
+
+    private final List<Op> ops = new ArrayList<>();
+
+    public Delta() {
+    }
+
+    /**
+     * Read ops as parsed from JSON
+     *
+     * @param ops the ops, each a map of insert, delete or retain with optional attributes
+     * @return Delta - the delta of the ops
+     */
+    @SuppressWarnings("unchecked")
+    public static Delta fromOps(List<Map<String, Object>> ops) {
+        Delta delta = new Delta();
+        for (Map<String, Object> op : ops) {
+            Map<String, Object> attributes = (Map<String, Object>) op.get("attributes");
+            Object insert = op.get("insert");
+            if (insert instanceof String || insert instanceof Map) {
+                delta.insert(insert, attributes);
+            } else if (op.get("delete") instanceof Number) {
+                delta.delete(((Number) op.get("delete")).intValue());
+            } else if (op.get("retain") instanceof Number) {
+                delta.retain(((Number) op.get("retain")).intValue(), attributes);
+            } else {
+                throw new IllegalArgumentException("Unsupported delta op " + op);
+            }
+        }
+        return delta;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Delta fromJson(String json) {
+        Map<String, Object> map = GSON.fromJson(json, LinkedHashMap.class);
+        return fromOps((List<Map<String, Object>>) map.get("ops"));
+    }
+
+    public static boolean isDelta(String json) {
+        return json != null && json.startsWith("{");
+    }
+
+    public List<Map<String, Object>> toOps() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Op op : this.ops) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            if (op.insert != null) {
+                map.put("insert", op.insert);
+            } else if (op.delete != null) {
+                map.put("delete", op.delete);
+            } else {
+                map.put("retain", op.retain);
+            }
+            if (op.attributes != null) {
+                map.put("attributes", op.attributes);
+            }
+            list.add(map);
+        }
+        return list;
+    }
+
+    public String toJson() {
+        return GSON.toJson(Collections.singletonMap("ops", toOps()));
+    }
+
+    public List<Op> getOps() {
+        return Collections.unmodifiableList(this.ops);
+    }
+
+    public Delta insert(Object insert, Map<String, Object> attributes) {
+        if (insert instanceof String && ((String) insert).isEmpty()) {
+            return this;
+        }
+        return push(new Op(insert, null, null, attributes));
+    }
+
+    public Delta delete(int length) {
+        if (length <= 0) {
+            return this;
+        }
+        return push(new Op(null, length, null, null));
+    }
+
+    public Delta retain(int length, Map<String, Object> attributes) {
+        if (length <= 0) {
+            return this;
+        }
+        return push(new Op(null, null, length, attributes));
+    }
+
+    /**
+     * Append an op, merging it into the last one when possible and keeping inserts before deletes
+     */
+    private Delta push(Op op) {
+        Op newOp = new Op(op.insert, op.delete, op.retain, op.attributes);
+        int index = this.ops.size();
+        Op lastOp = index > 0 ? this.ops.get(index - 1) : null;
+        if (lastOp != null) {
+            if (lastOp.delete != null && newOp.delete != null) {
+                lastOp.delete += newOp.delete;
+                return this;
+            }
+            if (lastOp.delete != null && newOp.insert != null) {
+                index--;
+                lastOp = index > 0 ? this.ops.get(index - 1) : null;
+            }
+        }
+        if (lastOp != null && Objects.equals(newOp.attributes, lastOp.attributes)) {
+            if (newOp.insert instanceof String && lastOp.insert instanceof String) {
+                lastOp.insert = (String) lastOp.insert + newOp.insert;
+                return this;
+            }
+            if (newOp.retain != null && lastOp.retain != null) {
+                lastOp.retain += newOp.retain;
+                return this;
+            }
+        }
+        this.ops.add(index, newOp);
+        return this;
+    }
+
+    // drop a trailing retain that changes nothing
+    private Delta chop() {
+        if (!this.ops.isEmpty()) {
+            Op lastOp = this.ops.get(this.ops.size() - 1);
+            if (lastOp.retain != null && lastOp.attributes == null) {
+                this.ops.remove(this.ops.size() - 1);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Apply a change to this delta
+     *
+     * @param other the change
+     * @return Delta - this delta followed by the change
+     */
+    public Delta compose(Delta other) {
+        OpIterator thisIter = new OpIterator(this.ops);
+        OpIterator otherIter = new OpIterator(other.ops);
+        Delta delta = new Delta();
+        while (thisIter.hasNext() || otherIter.hasNext()) {
+            if (otherIter.peekType() == OpType.INSERT) {
+                delta.push(otherIter.next());
+            } else if (thisIter.peekType() == OpType.DELETE) {
+                delta.push(thisIter.next());
+            } else {
+                int length = Math.min(thisIter.peekLength(), otherIter.peekLength());
+                Op thisOp = thisIter.next(length);
+                Op otherOp = otherIter.next(length);
+                if (otherOp.retain != null) {
+                    Map<String, Object> attributes = composeAttributes(
+                            thisOp.attributes, otherOp.attributes, thisOp.retain != null);
+                    delta.push(thisOp.retain != null
+                            ? new Op(null, null, length, attributes)
+                            : new Op(thisOp.insert, null, null, attributes));
+                } else if (otherOp.delete != null && thisOp.retain != null) {
+                    delta.push(otherOp);
+                }
+            }
+        }
+        return delta.chop();
+    }
+
+    /**
+     * Compute the change turning this document into another
+     *
+     * @param other    the other document
+     * @param textDiff computes the character diff of the documents' text
+     * @return Delta - the change
+     */
+    public Delta diff(Delta other, BiFunction<String, String, List<DiffMatchPatch.Diff>> textDiff) {
+        Delta delta = new Delta();
+        List<DiffMatchPatch.Diff> diffs = textDiff.apply(this.documentText(), other.documentText());
+        OpIterator thisIter = new OpIterator(this.ops);
+        OpIterator otherIter = new OpIterator(other.ops);
+        for (DiffMatchPatch.Diff component : diffs) {
+            int length = component.text.length();
+            while (length > 0) {
+                int opLength;
+                switch (component.operation) {
+                    case INSERT:
+                        opLength = Math.min(otherIter.peekLength(), length);
+                        delta.push(otherIter.next(opLength));
+                        break;
+                    case DELETE:
+                        opLength = Math.min(length, thisIter.peekLength());
+                        thisIter.next(opLength);
+                        delta.delete(opLength);
+                        break;
+                    default:
+                        opLength = Math.min(Math.min(thisIter.peekLength(), otherIter.peekLength()), length);
+                        Op thisOp = thisIter.next(opLength);
+                        Op otherOp = otherIter.next(opLength);
+                        if (Objects.equals(thisOp.insert, otherOp.insert)) {
+                            delta.retain(opLength, diffAttributes(thisOp.attributes, otherOp.attributes));
+                        } else {
+                            delta.push(otherOp).delete(opLength);
+                        }
+                }
+                length -= opLength;
+            }
+        }
+        return delta.chop();
+    }
+
+    private String documentText() {
+        StringBuilder text = new StringBuilder();
+        for (Op op : this.ops) {
+            if (op.insert == null) {
+                throw new IllegalArgumentException("diff() called on a change instead of a document");
+            }
+            text.append(op.insert instanceof String ? (String) op.insert : EMBED_CHAR);
+        }
+        return text.toString();
+    }
+
+    private static Map<String, Object> composeAttributes(Map<String, Object> a, Map<String, Object> b,
+                                                         boolean keepNull) {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        if (b != null) {
+            b.forEach((key, value) -> {
+                if (keepNull || value != null) {
+                    attributes.put(key, value);
+                }
+            });
+        }
+        if (a != null) {
+            a.forEach((key, value) -> {
+                if (value != null && (b == null || !b.containsKey(key))) {
+                    attributes.put(key, value);
+                }
+            });
+        }
+        return attributes.isEmpty() ? null : attributes;
+    }
+
+    private static Map<String, Object> diffAttributes(Map<String, Object> a, Map<String, Object> b) {
+        Map<String, Object> from = a == null ? Collections.emptyMap() : a;
+        Map<String, Object> to = b == null ? Collections.emptyMap() : b;
+        Set<String> keys = new LinkedHashSet<>(from.keySet());
+        keys.addAll(to.keySet());
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (String key : keys) {
+            if (!Objects.equals(from.get(key), to.get(key))) {
+                attributes.put(key, to.get(key));
+            }
+        }
+        return attributes.isEmpty() ? null : attributes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return this.ops.equals(((Delta) o).ops);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.ops.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    private enum OpType {
+        INSERT, DELETE, RETAIN
+    }
+
+    public static class Op {
+        // String or embed map
+        private Object insert;
+        private Integer delete;
+        private Integer retain;
+        private Map<String, Object> attributes;
+
+        private Op(Object insert, Integer delete, Integer retain, Map<String, Object> attributes) {
+            this.insert = insert;
+            this.delete = delete;
+            this.retain = retain;
+            this.attributes = attributes == null || attributes.isEmpty() ? null : attributes;
+        }
+
+        public Object getInsert() {
+            return insert;
+        }
+
+        public Integer getDelete() {
+            return delete;
+        }
+
+        public Integer getRetain() {
+            return retain;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        int length() {
+            if (this.delete != null) {
+                return this.delete;
+            }
+            if (this.retain != null) {
+                return this.retain;
+            }
+            return this.insert instanceof String ? ((String) this.insert).length() : 1;
+        }
+
+        OpType type() {
+            if (this.delete != null) {
+                return OpType.DELETE;
+            }
+            return this.retain != null ? OpType.RETAIN : OpType.INSERT;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Op op = (Op) o;
+            return Objects.equals(insert, op.insert) && Objects.equals(delete, op.delete) &&
+                    Objects.equals(retain, op.retain) && Objects.equals(attributes, op.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(insert, delete, retain, attributes);
+        }
+    }
+
+    /**
+     * Walks ops by length, splitting them where needed
+     */
+    private static class OpIterator {
+        private final List<Op> ops;
+        private int index = 0;
+        private int offset = 0;
+
+        OpIterator(List<Op> ops) {
+            this.ops = ops;
+        }
+
+        boolean hasNext() {
+            return peekLength() < Integer.MAX_VALUE;
+        }
+
+        Op next() {
+            return next(Integer.MAX_VALUE);
+        }
+
+        Op next(int length) {
+            if (this.index >= this.ops.size()) {
+                return new Op(null, null, Integer.MAX_VALUE, null);
+            }
+            Op nextOp = this.ops.get(this.index);
+            int offset = this.offset;
+            int opLength = nextOp.length();
+            if (length >= opLength - offset) {
+                length = opLength - offset;
+                this.index++;
+                this.offset = 0;
+            } else {
+                this.offset += length;
+            }
+            if (nextOp.delete != null) {
+                return new Op(null, length, null, null);
+            }
+            if (nextOp.retain != null) {
+                return new Op(null, null, length, nextOp.attributes);
+            }
+            if (nextOp.insert instanceof String) {
+                return new Op(((String) nextOp.insert).substring(offset, offset + length), null, null,
+                        nextOp.attributes);
+            }
+            return new Op(nextOp.insert, null, null, nextOp.attributes);
+        }
+
+        int peekLength() {
+            return this.index < this.ops.size() ? this.ops.get(this.index).length() - this.offset : Integer.MAX_VALUE;
+        }
+
+        OpType peekType() {
+            return this.index < this.ops.size() ? this.ops.get(this.index).type() : OpType.RETAIN;
+        }
+    }
+}
@@ -71,6 +71,17 @@ public class DeltaContent {
         this.deltaMap = deltaMap;
     }
 
+    @SuppressWarnings("unchecked")
+    public Delta toDelta() {
+        return Delta.fromOps((List<Map<String, Object>>) this.deltaMap.get("ops"));
+    }
+
+    public void setDelta(Delta delta) {
+        Map<String, Object> opsMap = new LinkedHashMap<>();
+        opsMap.put("ops", delta.toOps());
+        this.deltaMap = opsMap;
+    }
+
     public List<Object> getDiff() {
         return diff;
     }
@@ -0,0 +1,103 @@
+package com.bulletjournal.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel holding items until their deadline.
+ * <p>
+ * Scheduling is O(1): an item lands in the bucket of its deadline tick and remembers how many full
+ * rotations remain. {@link #advance(long)} is driven by a single ticker and returns every item whose
+ * deadline has passed, so the caller can dispatch them as one batch.
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Timeout<T>>> buckets;
+    private final long startMillis;
+
+    private long currentTick;
+    private int size;
+
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            this.buckets.add(new LinkedList<>());
+        }
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * Schedule an item, an already passed deadline expires on the next advance
+     *
+     * @param item           the item to hold
+     * @param deadlineMillis the epoch millis at which item expires
+     */
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long tick = Math.max((deadlineMillis - this.startMillis) / this.tickMillis, this.currentTick);
+        long rounds = (tick - this.currentTick) / this.buckets.size();
+        this.buckets.get((int) (tick & this.mask)).add(new Timeout<>(item, deadlineMillis, rounds));
+        this.size++;
+    }
+
+    /**
+     * Move the wheel up to given time
+     *
+     * @param nowMillis the current epoch millis
+     * @return List<Timeout<T>> - all items whose deadline tick has been reached
+     */
+    public synchronized List<Timeout<T>> advance(long nowMillis) {
+        List<Timeout<T>> expired = new ArrayList<>();
+        long targetTick = (nowMillis - this.startMillis) / this.tickMillis;
+        while (this.currentTick <= targetTick) {
+            Iterator<Timeout<T>> it = this.buckets.get((int) (this.currentTick & this.mask)).iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                    continue;
+                }
+                it.remove();
+                expired.add(timeout);
+            }
+            this.currentTick++;
+        }
+        this.size -= expired.size();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    public static class Timeout<T> {
+        private final T item;
+        private final long deadline;
+        private long remainingRounds;
+
+        Timeout(T item, long deadline, long remainingRounds) {
+            this.item = item;
+            this.deadline = deadline;
+            this.remainingRounds = remainingRounds;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+CREATE SEQUENCE if not exists notification_journal_sequence
+INCREMENT BY 1
+MINVALUE 1
+MAXVALUE 9223372036854775807
+START 1
+CACHE 1
+NO CYCLE;
+
+create table notification_journal
+(
+ seq bigint not null
+  constraint notification_journal_pk
+   primary key,
+ event_type varchar(100) not null,
+ event_class varchar(255) not null,
+ payload text not null,
+ created_at timestamp without time zone default now() not null
+);
+
+create index notification_journal_event_type_seq_index
+ on notification_journal (event_type, seq);
+
+create table notification_journal_offsets
+(
+ consumer varchar(100) not null
+  constraint notification_journal_offsets_pk
+   primary key,
+ acked_seq bigint not null
+);
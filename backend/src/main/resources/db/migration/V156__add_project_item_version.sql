@@ -0,0 +1,107 @@
+alter table projects
+    add item_version bigint default 0 not null;
+
+-- bump item_version of every project touched by a statement on its items or their hierarchy
+create or replace function bump_project_item_version()
+    returns trigger
+    language plpgsql
+as
+$$
+begin
+    if (TG_OP = 'INSERT') then
+        update projects set item_version = item_version + 1
+        where id in (select distinct project_id from new_rows);
+    elsif (TG_OP = 'UPDATE') then
+        update projects set item_version = item_version + 1
+        where id in (select project_id from new_rows union select project_id from old_rows);
+    else
+        update projects set item_version = item_version + 1
+        where id in (select distinct project_id from old_rows);
+    end if;
+    return null;
+end
+$$;
+
+CREATE TRIGGER tasks_insert_item_version
+    AFTER INSERT
+    ON tasks
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER tasks_update_item_version
+    AFTER UPDATE
+    ON tasks
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER tasks_delete_item_version
+    AFTER DELETE
+    ON tasks
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER notes_insert_item_version
+    AFTER INSERT
+    ON notes
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER notes_update_item_version
+    AFTER UPDATE
+    ON notes
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER notes_delete_item_version
+    AFTER DELETE
+    ON notes
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER user_project_tasks_insert_item_version
+    AFTER INSERT
+    ON user_project_tasks
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER user_project_tasks_update_item_version
+    AFTER UPDATE
+    ON user_project_tasks
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER user_project_tasks_delete_item_version
+    AFTER DELETE
+    ON user_project_tasks
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER user_project_notes_insert_item_version
+    AFTER INSERT
+    ON user_project_notes
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER user_project_notes_update_item_version
+    AFTER UPDATE
+    ON user_project_notes
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
+
+CREATE TRIGGER user_project_notes_delete_item_version
+    AFTER DELETE
+    ON user_project_notes
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE bump_project_item_version();
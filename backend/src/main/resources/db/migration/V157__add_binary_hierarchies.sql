@@ -0,0 +1,9 @@
+-- preorder (id, depth) varints, rows still holding JSON are converted on their next read
+alter table user_project_tasks
+    add tasks_hierarchy bytea;
+
+alter table user_project_notes
+    add notes_hierarchy bytea;
+
+alter table user_projects
+    add owned_projects_hierarchy bytea;
@@ -0,0 +1,9 @@
+-- optimistic lock of incremental hierarchy edits
+alter table user_project_tasks
+    add hierarchy_version bigint default 0 not null;
+
+alter table user_project_notes
+    add hierarchy_version bigint default 0 not null;
+
+alter table user_projects
+    add hierarchy_version bigint default 0 not null;
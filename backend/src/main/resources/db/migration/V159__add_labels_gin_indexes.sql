@@ -0,0 +1,3 @@
+-- serve labels @> / && lookups of shared items, project items use the V18 (labels, project_id) indexes
+create index shared_project_items_labels_index
+    on shared_project_items using gin (labels);
@@ -0,0 +1,59 @@
+CREATE SEQUENCE if not exists content_revision_sequence
+INCREMENT BY 1
+MINVALUE 1
+MAXVALUE 9223372036854775807
+START 1
+CACHE 1
+NO CYCLE;
+
+-- one row per content revision, every few rows carry the full text
+create table content_revisions
+(
+ id bigint not null
+  constraint content_revisions_pk
+   primary key,
+ content_type varchar(20) not null,
+ content_id bigint not null,
+ revision_id bigint not null,
+ diff text,
+ snapshot text,
+ username varchar(100) not null,
+ created_at timestamp without time zone default now() not null
+);
+
+create unique index content_revisions_content_revision_uindex
+ on content_revisions (content_type, content_id, revision_id);
+
+-- contents are also removed by cascades from their project items
+create or replace function delete_content_revisions()
+    returns trigger
+    language plpgsql
+as
+$$
+begin
+    delete from content_revisions
+    where content_type = TG_ARGV[0] and content_id in (select id from old_rows);
+    return null;
+end
+$$;
+
+CREATE TRIGGER task_contents_delete_revisions
+    AFTER DELETE
+    ON task_contents
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE delete_content_revisions('TASK');
+
+CREATE TRIGGER note_contents_delete_revisions
+    AFTER DELETE
+    ON note_contents
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE delete_content_revisions('NOTE');
+
+CREATE TRIGGER transaction_contents_delete_revisions
+    AFTER DELETE
+    ON transaction_contents
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE delete_content_revisions('TRANSACTION');
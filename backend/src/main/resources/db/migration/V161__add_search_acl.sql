@@ -0,0 +1,25 @@
+-- acl of a project item in the search index: the group of its project, unless the project is a shared
+-- project, and the users it is shared with
+create index if not exists shared_project_items_transaction_index
+    on shared_project_items (transaction_id);
+
+create or replace function search_acl(item_type text, item_id bigint, item_project_id bigint)
+    returns text
+    language sql
+    stable
+as
+$$
+select array_to_string(array(
+        select 'g:' || projects.group_id
+        from projects
+        where projects.id = item_project_id
+          and not projects.shared
+        union all
+        select 'u:' || shared_project_items.username
+        from shared_project_items
+        where shared_project_items.username is not null
+          and ((item_type = 'task' and shared_project_items.task_id = item_id)
+            or (item_type = 'note' and shared_project_items.note_id = item_id)
+            or (item_type = 'transaction' and shared_project_items.transaction_id = item_id))
+    ), ',')
+$$;
@@ -0,0 +1,11 @@
+-- amounts as a long count of cents instead of double precision
+alter table transactions add amount_minor bigint;
+
+update transactions set amount_minor = round(amount::numeric, 2) * 100;
+
+alter table transactions alter column amount_minor set not null;
+
+alter table transactions drop column amount;
+
+-- ISO 4217 code of the amount's currency, null for the owner's default currency
+alter table transactions add currency varchar(3);
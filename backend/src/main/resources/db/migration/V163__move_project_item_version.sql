@@ -0,0 +1,35 @@
+-- item versions were bumped by triggers in the writing transaction, holding the project row lock until commit.
+-- They now live in their own table and are bumped after commit in a separate short transaction.
+drop trigger if exists tasks_insert_item_version on tasks;
+drop trigger if exists tasks_update_item_version on tasks;
+drop trigger if exists tasks_delete_item_version on tasks;
+drop trigger if exists notes_insert_item_version on notes;
+drop trigger if exists notes_update_item_version on notes;
+drop trigger if exists notes_delete_item_version on notes;
+drop trigger if exists user_project_tasks_insert_item_version on user_project_tasks;
+drop trigger if exists user_project_tasks_update_item_version on user_project_tasks;
+drop trigger if exists user_project_tasks_delete_item_version on user_project_tasks;
+drop trigger if exists user_project_notes_insert_item_version on user_project_notes;
+drop trigger if exists user_project_notes_update_item_version on user_project_notes;
+drop trigger if exists user_project_notes_delete_item_version on user_project_notes;
+
+drop function if exists bump_project_item_version();
+
+create table project_item_versions
+(
+ project_id bigint not null
+  constraint project_item_versions_pk
+   primary key
+  constraint project_item_versions_projects_id_fk
+   references projects
+    on delete cascade,
+ version bigint not null
+);
+
+insert into project_item_versions (project_id, version)
+select id, item_version
+from projects
+where item_version > 0;
+
+alter table projects
+    drop column item_version;
@@ -0,0 +1,12 @@
+-- journal events whose handler kept failing, moved aside so that they no longer hold back the offset
+create table notification_journal_dead_letters
+(
+ seq bigint not null
+  constraint notification_journal_dead_letters_pk
+   primary key,
+ event_type varchar(100) not null,
+ event_class varchar(255) not null,
+ payload text not null,
+ error text,
+ created_at timestamp without time zone default now() not null
+);
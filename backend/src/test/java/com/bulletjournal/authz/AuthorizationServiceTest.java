@@ -0,0 +1,160 @@
+package com.bulletjournal.authz;
+
+import com.bulletjournal.contents.ContentType;
+import com.bulletjournal.repository.SharedProjectItemRepository;
+import com.bulletjournal.repository.UserGroupRepository;
+import com.bulletjournal.repository.auditing.AuthorizationEntityListeners;
+import com.bulletjournal.repository.models.Group;
+import com.bulletjournal.repository.models.User;
+import com.bulletjournal.repository.models.UserGroup;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests {@link AuthorizationService} and {@link AuthorizationEntityListeners}
+ */
+public class AuthorizationServiceTest {
+
+    private static final String USER = "BulletJournal";
+
+    private SharedProjectItemRepository sharedProjectItemRepository;
+    private UserGroupRepository userGroupRepository;
+    private AuthorizationService authorizationService;
+    private AuthorizationEntityListeners authorizationEntityListeners;
+
+    @Before
+    public void setUp() {
+        this.sharedProjectItemRepository = mock(SharedProjectItemRepository.class);
+        this.userGroupRepository = mock(UserGroupRepository.class);
+        when(this.sharedProjectItemRepository.findSharedItemIdsByUsername(USER)).thenReturn(
+                Collections.singletonList(new Object[]{null, 7L, null}));
+        when(this.userGroupRepository.findAcceptedGroupIdsByUsername(USER)).thenReturn(
+                Collections.singletonList(1L));
+
+        this.authorizationService = new AuthorizationService();
+        ReflectionTestUtils.setField(this.authorizationService, "sharedProjectItemRepository",
+                this.sharedProjectItemRepository);
+        ReflectionTestUtils.setField(this.authorizationService, "userGroupRepository", this.userGroupRepository);
+        this.authorizationEntityListeners = new AuthorizationEntityListeners();
+        ReflectionTestUtils.setField(this.authorizationEntityListeners, "authorizationService",
+                this.authorizationService);
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testContextLoadedOncePerRequest() {
+        startRequest();
+        AuthorizationContext context = this.authorizationService.getContext(USER);
+        assertTrue(context.isShared(ContentType.NOTE, 7L));
+        assertFalse(context.isShared(ContentType.TASK, 7L));
+        assertTrue(context.isInGroup(1L));
+        assertSame(context, this.authorizationService.getContext(USER));
+        verify(this.userGroupRepository, times(1)).findAcceptedGroupIdsByUsername(USER);
+        verify(this.sharedProjectItemRepository, times(1)).findSharedItemIdsByUsername(USER);
+    }
+
+    @Test
+    public void testRequestContextsClearedBetweenRequests() {
+        ServletRequestAttributes first = startRequest();
+        AuthorizationContext context = this.authorizationService.getContext(USER);
+        first.requestCompleted();
+        RequestContextHolder.resetRequestAttributes();
+
+        // invalidated outside of any request, so only the shared cache is dropped
+        when(this.userGroupRepository.findAcceptedGroupIdsByUsername(USER)).thenReturn(Arrays.asList(1L, 2L));
+        this.authorizationService.invalidateContext(USER);
+        startRequest();
+        AuthorizationContext next = this.authorizationService.getContext(USER);
+        assertNotSame(context, next);
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), next.getAcceptedGroupIds());
+        verify(this.userGroupRepository, times(2)).findAcceptedGroupIdsByUsername(USER);
+    }
+
+    @Test
+    public void testContextSharedAcrossRequestsUntilInvalidated() {
+        startRequest();
+        AuthorizationContext context = this.authorizationService.getContext(USER);
+        startRequest();
+        assertSame(context, this.authorizationService.getContext(USER));
+        verify(this.userGroupRepository, times(1)).findAcceptedGroupIdsByUsername(USER);
+    }
+
+    @Test
+    public void testGroupMembershipChangeInvalidatesContext() {
+        startRequest();
+        assertFalse(this.authorizationService.getContext(USER).isInGroup(2L));
+
+        when(this.userGroupRepository.findAcceptedGroupIdsByUsername(USER)).thenReturn(Arrays.asList(1L, 2L));
+        this.authorizationEntityListeners.postChange(userGroup(2L));
+
+        // both the request map and the shared cache are dropped, within the same request
+        assertTrue(this.authorizationService.getContext(USER).isInGroup(2L));
+        startRequest();
+        assertTrue(this.authorizationService.getContext(USER).isInGroup(2L));
+        verify(this.userGroupRepository, times(2)).findAcceptedGroupIdsByUsername(USER);
+    }
+
+    @Test
+    public void testContextLoadedInTransactionDroppedOnCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        startRequest();
+        when(this.userGroupRepository.findAcceptedGroupIdsByUsername(USER)).thenReturn(Arrays.asList(1L, 2L));
+        this.authorizationEntityListeners.postChange(userGroup(2L));
+        // loaded before the membership change is committed
+        assertTrue(this.authorizationService.getContext(USER).isInGroup(2L));
+
+        when(this.userGroupRepository.findAcceptedGroupIdsByUsername(USER)).thenReturn(
+                Collections.singletonList(1L));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+        startRequest();
+        assertFalse(this.authorizationService.getContext(USER).isInGroup(2L));
+    }
+
+    @Test
+    public void testUnrelatedEntityIgnored() {
+        startRequest();
+        AuthorizationContext context = this.authorizationService.getContext(USER);
+        this.authorizationEntityListeners.postChange(new Group());
+        assertSame(context, this.authorizationService.getContext(USER));
+    }
+
+    private static ServletRequestAttributes startRequest() {
+        ServletRequestAttributes attributes = new ServletRequestAttributes(new MockHttpServletRequest());
+        RequestContextHolder.setRequestAttributes(attributes);
+        return attributes;
+    }
+
+    private static UserGroup userGroup(Long groupId) {
+        User user = new User();
+        user.setId(1L);
+        user.setName(USER);
+        Group group = new Group();
+        group.setId(groupId);
+        return new UserGroup(user, group, true);
+    }
+}
@@ -3,14 +3,18 @@ package com.bulletjournal.clients;
 import com.bulletjournal.config.SSOConfig;
 import com.bulletjournal.controller.models.User;
 import com.bulletjournal.redis.RedisUserRepository;
+import com.bulletjournal.repository.UserAliasDaoJpa;
 import com.bulletjournal.repository.UserDaoJpa;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.junit.Assert;
 import org.junit.Test;
+import org.slf4j.MDC;
 
+import java.util.Map;
 import java.util.Optional;
 
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 /**
  * Tests {@link UserClient}
@@ -44,4 +48,28 @@ public class UserClientTests {
                 user.getThumbnail());
         Assert.assertEquals(6475, user.getId().intValue());
     }
+
+    @Test
+    public void testGetUsers() throws Exception {
+        RedisUserRepository redisUserRepository = mock(RedisUserRepository.class);
+        when(redisUserRepository.findAllByNames(anyCollection())).thenReturn(
+                ImmutableList.of(new User("u1"), new User("u2")));
+        UserAliasDaoJpa userAliasDaoJpa = mock(UserAliasDaoJpa.class);
+        when(userAliasDaoJpa.getAliases("requester")).thenReturn(ImmutableMap.of("u2", "alias2"));
+
+        UserClient userClient = new UserClient(new SSOConfig(
+                "https://1o24bbs.com"), redisUserRepository, mock(UserDaoJpa.class), userAliasDaoJpa);
+        MDC.put(UserClient.USER_NAME_KEY, "requester");
+        try {
+            Map<String, User> users = userClient.getUsers(ImmutableList.of("u1", "u2", "u1"));
+            Assert.assertEquals(2, users.size());
+            Assert.assertEquals("u1", users.get("u1").getAlias());
+            Assert.assertEquals("alias2", users.get("u2").getAlias());
+            verify(redisUserRepository, times(1)).findAllByNames(anyCollection());
+            verify(userAliasDaoJpa, times(1)).getAliases("requester");
+            verify(redisUserRepository, never()).findById(anyString());
+        } finally {
+            MDC.remove(UserClient.USER_NAME_KEY);
+        }
+    }
 }
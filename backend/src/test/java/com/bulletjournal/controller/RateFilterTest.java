@@ -4,8 +4,7 @@ import com.bulletjournal.config.RateConfig;
 import com.bulletjournal.controller.models.*;
 import com.bulletjournal.controller.utils.TestHelpers;
 import com.bulletjournal.filters.rate.limiting.TokenBucket;
-import com.bulletjournal.redis.models.LockedUser;
-import com.bulletjournal.redis.RedisLockedUserRepository;
+import com.bulletjournal.redis.RedisLockDaoJpa;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -21,8 +20,6 @@ import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
-import java.util.Optional;
-
 import static org.junit.Assert.*;
 
 @RunWith(SpringRunner.class)
@@ -45,7 +42,7 @@ public class RateFilterTest {
     private RateConfig rateConfig;
 
     @Autowired
-    private RedisLockedUserRepository redisLockedUserRepository;
+    private RedisLockDaoJpa redisLockDaoJpa;
 
     @Autowired
     TokenBucket tokenBucket;
@@ -60,9 +57,8 @@ public class RateFilterTest {
     }
 
     private void clearLockedCache() {
-        Optional<LockedUser> lockedUserOptional = this.redisLockedUserRepository.findById(USER);
-        if (lockedUserOptional.isPresent()) {
-            this.redisLockedUserRepository.delete(lockedUserOptional.get());
+        if (this.redisLockDaoJpa.getLockedUser(USER).isPresent()) {
+            this.redisLockDaoJpa.unlockUser(USER);
         }
     }
 
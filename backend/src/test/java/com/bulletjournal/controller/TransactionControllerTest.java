@@ -204,6 +204,47 @@ public class TransactionControllerTest {
         assertEquals("2019 DECEMBER Week 4", transactionsSummaries.get(3).getName());
         assertEquals(Double.valueOf("-100.0"), transactionsSummaries.get(3).getBalance());
         assertTrue(Math.abs(transactionsSummaries.get(0).getIncomePercentage() - 71) < 1e-4);
+
+        // summaryOnly sums up transactions in the database, its summaries must match the full path
+        for (LedgerSummaryType ledgerSummaryType : LedgerSummaryType.values()) {
+            for (FrequencyType frequencyType : FrequencyType.values()) {
+                assertSummaryOnlyMatches(p1, ledgerSummaryType, frequencyType, "2018-09-01", "2019-12-31");
+            }
+        }
+    }
+
+    private void assertSummaryOnlyMatches(Project project, LedgerSummaryType ledgerSummaryType,
+                                          FrequencyType frequencyType, String startDate, String endDate) {
+        LedgerSummary full = getLedgerSummary(project, ledgerSummaryType, frequencyType, startDate, endDate, false);
+        LedgerSummary summaryOnly = getLedgerSummary(
+                project, ledgerSummaryType, frequencyType, startDate, endDate, true);
+        assertFalse(full.getTransactionsSummaries().isEmpty());
+        assertEquals(full.getTransactionsSummaries(), summaryOnly.getTransactionsSummaries());
+        assertEquals(full.getIncome(), summaryOnly.getIncome());
+        assertEquals(full.getExpense(), summaryOnly.getExpense());
+        assertEquals(full.getBalance(), summaryOnly.getBalance());
+        assertNull(summaryOnly.getTransactions());
+    }
+
+    private LedgerSummary getLedgerSummary(Project project, LedgerSummaryType ledgerSummaryType,
+                                           FrequencyType frequencyType, String startDate, String endDate,
+                                           boolean summaryOnly) {
+        String url = UriComponentsBuilder.fromHttpUrl(
+                ROOT_URL + randomServerPort + TransactionController.TRANSACTIONS_ROUTE)
+                .queryParam("frequencyType", frequencyType.name())
+                .queryParam("timezone", TIMEZONE)
+                .queryParam("ledgerSummaryType", ledgerSummaryType.name())
+                .queryParam("startDate", startDate)
+                .queryParam("endDate", endDate)
+                .queryParam("summaryOnly", summaryOnly)
+                .buildAndExpand(project.getId()).toUriString();
+        ResponseEntity<LedgerSummary> response = this.restTemplate.exchange(
+                url,
+                HttpMethod.GET,
+                TestHelpers.actAsOtherUser(null, USER),
+                LedgerSummary.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return response.getBody();
     }
 
     private Group createGroup() {
@@ -0,0 +1,32 @@
+package com.bulletjournal.daemon;
+
+import com.bulletjournal.daemon.models.ReminderRecord;
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link AssigneeReminderIndex}
+ */
+public class AssigneeReminderIndexTest {
+
+    @Test
+    public void testRangeLookup() {
+        AssigneeReminderIndex index = new AssigneeReminderIndex();
+        ReminderRecord r1 = new ReminderRecord(1L, 10_000L);
+        ReminderRecord r2 = new ReminderRecord(2L, 20_500L);
+        ReminderRecord r3 = new ReminderRecord(3L, 30_000L);
+        index.add(r1, ImmutableList.of("u1", "u2"));
+        index.add(r2, ImmutableList.of("u1"));
+        index.add(r3, ImmutableList.of("u1"));
+
+        Assert.assertEquals(ImmutableList.of(r1, r2), index.getRecords("u1", 10, 20));
+        Assert.assertEquals(ImmutableList.of(r1), index.getRecords("u2", 0, 100));
+        Assert.assertTrue(index.getRecords("u3", 0, 100).isEmpty());
+
+        index.remove(r1, ImmutableList.of("u1", "u2"));
+        Assert.assertEquals(ImmutableList.of(r2, r3), index.getRecords("u1", 0, 100));
+        Assert.assertTrue(index.getRecords("u2", 0, 100).isEmpty());
+        Assert.assertEquals(1, index.size());
+    }
+}
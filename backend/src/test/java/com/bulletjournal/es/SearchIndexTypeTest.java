@@ -0,0 +1,25 @@
+package com.bulletjournal.es;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchIndexTypeTest {
+
+    @Test
+    public void ofDocument() {
+        assertEquals(SearchIndexType.TASK, SearchIndexType.ofDocument("task@12"));
+        assertEquals(SearchIndexType.TRANSACTION_CONTENT, SearchIndexType.ofDocument("transaction_content@5"));
+        assertEquals(12L, (long) SearchIndexType.parseId("note@12"));
+        assertEquals("note_content@7", SearchIndexType.NOTE_CONTENT.documentId(7L));
+    }
+
+    @Test
+    public void contentType() {
+        assertEquals(SearchIndexType.TASK_CONTENT, SearchIndexType.TASK.getContentType());
+        assertEquals(SearchIndexType.NOTE, SearchIndexType.NOTE_CONTENT.getParent());
+        assertTrue(SearchIndexType.TRANSACTION_CONTENT.selectByParentIds()
+                .contains("JOIN transactions i ON i.id = c.transaction_id WHERE i.id IN (:ids)"));
+    }
+}
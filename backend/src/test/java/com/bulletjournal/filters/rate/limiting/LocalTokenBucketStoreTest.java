@@ -0,0 +1,85 @@
+package com.bulletjournal.filters.rate.limiting;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocalTokenBucketStoreTest {
+
+    private static final Duration PERIOD = Duration.ofMinutes(1);
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final LocalTokenBucketStore store = new LocalTokenBucketStore(this.now::get);
+
+    @Test
+    public void refillsOncePerPeriod() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(this.store.tryConsume("USER:a", 3, PERIOD));
+        }
+        assertFalse(this.store.tryConsume("USER:a", 3, PERIOD));
+        assertTrue(this.store.tryConsume("USER:b", 3, PERIOD));
+
+        this.now.addAndGet(PERIOD.toMillis() - 1);
+        assertFalse(this.store.tryConsume("USER:a", 3, PERIOD));
+
+        // unused periods do not accumulate tokens beyond capacity
+        this.now.addAndGet(PERIOD.toMillis() * 5);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(this.store.tryConsume("USER:a", 3, PERIOD));
+        }
+        assertFalse(this.store.tryConsume("USER:a", 3, PERIOD));
+    }
+
+    @Test
+    public void evictsIdleBuckets() {
+        assertTrue(this.store.tryConsume("USER:a", 1, PERIOD));
+        assertTrue(this.store.tryConsume("USER:b", 1, PERIOD));
+        this.now.addAndGet(PERIOD.toMillis() / 2);
+        assertTrue(this.store.tryConsume("USER:c", 1, PERIOD));
+
+        this.now.addAndGet(PERIOD.toMillis() / 2);
+        this.store.evictIdle();
+        assertEquals(1, this.store.size());
+        assertFalse(this.store.tryConsume("USER:c", 1, PERIOD));
+        assertTrue(this.store.tryConsume("USER:a", 1, PERIOD));
+    }
+
+    @Test
+    public void concurrentConsumersShareTokens() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger consumed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for (int j = 0; j < 1000; j++) {
+                        if (this.store.tryConsume("USER:a", 500, PERIOD)) {
+                            consumed.incrementAndGet();
+                        }
+                        if (j % 100 == 0) {
+                            this.store.evictIdle();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(500, consumed.get());
+    }
+}
@@ -0,0 +1,149 @@
+package com.bulletjournal.filters.rate.limiting;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link RedisTokenBucketStore}
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class RedisTokenBucketStoreTest {
+
+    private static final String KEY_PREFIX = "TokenBucket:";
+    private static final Duration PERIOD = Duration.ofMinutes(1);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final LocalTokenBucketStore localStore = new LocalTokenBucketStore(this.now::get);
+    private RedisTokenBucketStore store;
+    private String key;
+
+    @Before
+    public void setup() {
+        this.store = new RedisTokenBucketStore(this.stringRedisTemplate, this.localStore, 1, 1000);
+        this.key = "USER:" + UUID.randomUUID();
+    }
+
+    @After
+    public void tearDown() {
+        this.stringRedisTemplate.delete(KEY_PREFIX + this.key);
+    }
+
+    @Test
+    public void testConsumeAndRefill() throws Exception {
+        Duration period = Duration.ofMillis(500);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(this.store.tryConsume(this.key, 3, period));
+        }
+        assertFalse(this.store.tryConsume(this.key, 3, period));
+        assertEquals("0", this.stringRedisTemplate.opsForHash().get(KEY_PREFIX + this.key, "tokens"));
+        // the bucket lives in Redis, not in the local fallback
+        assertEquals(0, this.localStore.size());
+
+        Thread.sleep(period.toMillis() + 100);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(this.store.tryConsume(this.key, 3, period));
+        }
+        assertFalse(this.store.tryConsume(this.key, 3, period));
+    }
+
+    @Test
+    public void testBucketExpiresWhenIdle() {
+        assertTrue(this.store.tryConsume(this.key, 3, PERIOD));
+        long ttl = this.stringRedisTemplate.getExpire(KEY_PREFIX + this.key);
+        assertTrue(ttl > 0 && ttl <= PERIOD.getSeconds());
+    }
+
+    @Test
+    public void testLeasing() {
+        RedisTokenBucketStore leasingStore = new RedisTokenBucketStore(this.stringRedisTemplate, this.localStore,
+                4, 60000);
+        // the first request takes 4 tokens from Redis and the next 3 are served locally
+        assertTrue(leasingStore.tryConsume(this.key, 10, PERIOD));
+        assertEquals("6", this.stringRedisTemplate.opsForHash().get(KEY_PREFIX + this.key, "tokens"));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(leasingStore.tryConsume(this.key, 10, PERIOD));
+        }
+        assertEquals("6", this.stringRedisTemplate.opsForHash().get(KEY_PREFIX + this.key, "tokens"));
+
+        // a lease never exceeds what is left in Redis
+        assertTrue(leasingStore.tryConsume(this.key, 10, PERIOD));
+        assertEquals("2", this.stringRedisTemplate.opsForHash().get(KEY_PREFIX + this.key, "tokens"));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(leasingStore.tryConsume(this.key, 10, PERIOD));
+        }
+        assertTrue(leasingStore.tryConsume(this.key, 10, PERIOD));
+        assertEquals("0", this.stringRedisTemplate.opsForHash().get(KEY_PREFIX + this.key, "tokens"));
+        assertTrue(leasingStore.tryConsume(this.key, 10, PERIOD));
+        assertFalse(leasingStore.tryConsume(this.key, 10, PERIOD));
+
+        // another instance shares the same bucket
+        assertFalse(this.store.tryConsume(this.key, 10, PERIOD));
+    }
+
+    @Test
+    public void testFallbackWhileRedisUnreachable() {
+        JedisConnectionFactory unreachable = new JedisConnectionFactory(
+                new RedisStandaloneConfiguration("localhost", 1));
+        unreachable.afterPropertiesSet();
+        Logger logger = (Logger) LoggerFactory.getLogger(RedisTokenBucketStore.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            RedisTokenBucketStore fallbackStore = new RedisTokenBucketStore(
+                    new StringRedisTemplate(unreachable), this.localStore, 4, 60000);
+            assertTrue(fallbackStore.tryConsume(this.key, 2, PERIOD));
+            assertTrue(fallbackStore.tryConsume(this.key, 2, PERIOD));
+            assertFalse(fallbackStore.tryConsume(this.key, 2, PERIOD));
+            assertEquals(1, this.localStore.size());
+
+            // the outage is reported once, not on every request
+            assertEquals(1, appender.list.stream().filter(e -> e.getLevel() == Level.ERROR).count());
+        } finally {
+            logger.detachAppender(appender);
+            unreachable.destroy();
+        }
+    }
+
+    @Test
+    public void testClear() {
+        String other = "USER:" + UUID.randomUUID();
+        assertTrue(this.store.tryConsume(this.key, 1, PERIOD));
+        assertTrue(this.store.tryConsume(other, 1, PERIOD));
+        this.stringRedisTemplate.opsForValue().set("Unrelated:" + this.key, "1");
+        try {
+            this.store.clear();
+            assertFalse(this.stringRedisTemplate.hasKey(KEY_PREFIX + this.key));
+            assertFalse(this.stringRedisTemplate.hasKey(KEY_PREFIX + other));
+            assertTrue(this.stringRedisTemplate.hasKey("Unrelated:" + this.key));
+            assertTrue(this.store.tryConsume(this.key, 1, PERIOD));
+        } finally {
+            this.stringRedisTemplate.delete("Unrelated:" + this.key);
+        }
+    }
+}
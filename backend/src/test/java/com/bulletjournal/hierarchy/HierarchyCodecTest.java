@@ -0,0 +1,112 @@
+package com.bulletjournal.hierarchy;
+
+import com.bulletjournal.controller.models.Project;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link HierarchyCodec}
+ */
+public class HierarchyCodecTest {
+
+    @Test
+    public void testRoundTrip() {
+        List<Project> projectRelations = HierarchyProcessorProcessorTest.createSampleProjectRelations(
+                new Project(1L), new Project(2L), new Project(3L),
+                new Project(4L), new Project(5L), new Project(Long.MAX_VALUE));
+        byte[] encoded = ProjectRelationsProcessor.encode(projectRelations);
+
+        List<HierarchyItem> items = HierarchyCodec.decode(encoded);
+        assertEquals(2, items.size());
+        assertEquals(1L, items.get(0).getId().longValue());
+        assertEquals(2, items.get(0).getS().size());
+        assertEquals(2L, items.get(0).getS().get(0).getId().longValue());
+        assertEquals(3L, items.get(0).getS().get(0).getS().get(0).getId().longValue());
+        assertEquals(4L, items.get(0).getS().get(1).getId().longValue());
+        assertEquals(5L, items.get(1).getId().longValue());
+        assertEquals(Long.MAX_VALUE, items.get(1).getS().get(0).getId().longValue());
+
+        assertArrayEquals(encoded, HierarchyCodec.encode(items));
+        assertArrayEquals(encoded, HierarchyCodec.fromJson(
+                ProjectRelationsProcessor.processRelations(projectRelations)));
+    }
+
+    @Test
+    public void testDecodeDropsMissingSubtrees() {
+        List<Project> projectRelations = HierarchyProcessorProcessorTest.createSampleProjectRelations(
+                new Project(1L), new Project(2L), new Project(3L),
+                new Project(4L), new Project(5L), new Project(6L));
+        byte[] encoded = ProjectRelationsProcessor.encode(projectRelations);
+
+        Pair<List<HierarchyItem>, Set<Long>> ret = HierarchyCodec.<HierarchyItem>decode(
+                encoded, ImmutableSet.of(1L, 3L, 4L, 5L),
+                HierarchyItem::new, (parent, child) -> parent.getS().add(child));
+        assertEquals(2, ret.getLeft().size());
+        assertEquals(1, ret.getLeft().get(0).getS().size());
+        assertEquals(4L, ret.getLeft().get(0).getS().get(0).getId().longValue());
+        assertTrue(ret.getLeft().get(1).getS().isEmpty());
+        assertEquals(ImmutableSet.of(1L, 4L, 5L), ret.getRight());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, HierarchyCodec.encode(new ArrayList<>()).length);
+        assertTrue(HierarchyCodec.decode(new byte[0]).isEmpty());
+        assertTrue(HierarchyCodec.decode(null).isEmpty());
+        assertEquals(0, HierarchyCodec.fromJson(null).length);
+        assertEquals(0, HierarchyCodec.fromJson("[]").length);
+        assertEquals(Collections.emptyList(), HierarchyCodec.decode(HierarchyCodec.fromJson("[]")));
+    }
+
+    /**
+     * Tests {@link HierarchyCodec#move(byte[], long, Long, Integer)} and {@link HierarchyCodec#remove(byte[], long)}
+     */
+    @Test
+    public void testEdit() {
+        byte[] encoded = ProjectRelationsProcessor.encode(HierarchyProcessorProcessorTest.createSampleProjectRelations(
+                new Project(1L), new Project(2L), new Project(3L),
+                new Project(4L), new Project(5L), new Project(6L)));
+
+        // move p2 with its sub project p3 to the front of p5
+        assertEquals("[{1:[{4:[]}]},{5:[{2:[{3:[]}]},{6:[]}]}]", format(move(encoded, 2L, 5L, 0)));
+        // move a top level project before p1
+        assertEquals("[{5:[{6:[]}]},{1:[{2:[{3:[]}]},{4:[]}]}]", format(move(encoded, 5L, null, 0)));
+        // append to top level
+        assertEquals("[{5:[{6:[]}]},{1:[{2:[{3:[]}]},{4:[]}]}]", format(move(encoded, 1L, null, null)));
+        // insert a new project between p2 and p4
+        assertEquals("[{1:[{2:[{3:[]}]},{7:[]},{4:[]}]},{5:[{6:[]}]}]", format(move(encoded, 7L, 1L, 1)));
+        // remove p1, its sub projects take its place
+        assertEquals("[{2:[{3:[]}]},{4:[]},{5:[{6:[]}]}]", format(HierarchyCodec.remove(encoded, 1L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEditCycle() {
+        byte[] encoded = ProjectRelationsProcessor.encode(HierarchyProcessorProcessorTest.createSampleProjectRelations(
+                new Project(1L), new Project(2L), new Project(3L),
+                new Project(4L), new Project(5L), new Project(6L)));
+        move(encoded, 1L, 3L, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeCorrupted() {
+        // second node claims depth 2 right after a root
+        HierarchyCodec.decode(new byte[]{1, 0, 2, 2});
+    }
+
+    private static byte[] move(byte[] hierarchy, Long id, Long parentId, Integer position) {
+        return HierarchyCodec.move(hierarchy, id, parentId, position);
+    }
+
+    private static String format(byte[] hierarchy) {
+        return HierarchyProcessor.GSON.toJson(HierarchyCodec.decode(hierarchy))
+                .replaceAll("\\{\"id\":(\\d+),\"s\":", "{$1:");
+    }
+}
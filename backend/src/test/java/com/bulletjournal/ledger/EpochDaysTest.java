@@ -0,0 +1,35 @@
+package com.bulletjournal.ledger;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.assertEquals;
+
+public class EpochDaysTest {
+
+    @Test
+    public void epochDays() {
+        for (LocalDate date = LocalDate.of(1999, 12, 1); date.getYear() < 2030; date = date.plusDays(1)) {
+            int epochDay = EpochDays.parse(date.toString());
+            assertEquals(date.toEpochDay(), epochDay);
+            assertEquals(date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth(),
+                    EpochDays.toYearMonthDay(epochDay));
+            assertEquals(date.getDayOfWeek().getValue() % 7, EpochDays.dayOfWeek(epochDay));
+        }
+        assertEquals(-1, EpochDays.of(1969, 12, 31));
+    }
+
+    @Test
+    public void weekOfMonth() {
+        for (LocalDate date = LocalDate.of(2019, 1, 1); date.getYear() < 2024; date = date.plusDays(1)) {
+            Calendar cal = GregorianCalendar.from(date.atStartOfDay(ZoneId.of("America/Los_Angeles")));
+            cal.setFirstDayOfWeek(Calendar.SUNDAY);
+            assertEquals(date.toString(), cal.get(Calendar.WEEK_OF_MONTH),
+                    EpochDays.weekOfMonth((int) date.toEpochDay(), date.getDayOfMonth()));
+        }
+    }
+}
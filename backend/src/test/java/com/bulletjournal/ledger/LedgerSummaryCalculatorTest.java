@@ -0,0 +1,149 @@
+package com.bulletjournal.ledger;
+
+import com.bulletjournal.exceptions.BadRequestException;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Properties of {@link LedgerSummaryCalculator} checked over seeded random ledgers
+ */
+public class LedgerSummaryCalculatorTest {
+
+    private static final int RUNS = 200;
+    private static final String[] PAYERS = {"Alice", "Bob", "Carol"};
+    private static final String[] CURRENCIES = {null, "USD", "EUR"};
+    private static final ZonedDateTime START = ZonedDateTime.of(2018, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+
+    private final LedgerSummaryCalculator calculator = new LedgerSummaryCalculator();
+
+    @Test
+    public void summariesPartitionTotals() {
+        Random random = new Random(5);
+        for (int run = 0; run < RUNS; run++) {
+            List<Row> rows = randomRows(random);
+            long income = rows.stream().filter(r -> r.type == TransactionType.INCOME).mapToLong(r -> r.amount).sum();
+            long expense = rows.stream().filter(r -> r.type == TransactionType.EXPENSE).mapToLong(r -> r.amount).sum();
+            for (LedgerSummaryType summaryType : new LedgerSummaryType[]{LedgerSummaryType.DEFAULT,
+                    LedgerSummaryType.PAYER}) {
+                for (FrequencyType frequencyType : FrequencyType.values()) {
+                    LedgerSummary summary = summarize(rows, summaryType, frequencyType);
+                    assertEquals(Money.toAmount(income), summary.getIncome(), 0);
+                    assertEquals(Money.toAmount(expense), summary.getExpense(), 0);
+                    assertEquals(Money.toAmount(income - expense), summary.getBalance(), 0);
+                    long groupIncome = 0;
+                    long groupExpense = 0;
+                    int count = 0;
+                    for (TransactionsSummary transactionsSummary : summary.getTransactionsSummaries()) {
+                        groupIncome += Money.toMinorUnits(transactionsSummary.getIncome());
+                        groupExpense += Money.toMinorUnits(transactionsSummary.getExpense());
+                        count += transactionsSummary.getIncomeCount() + transactionsSummary.getExpenseCount();
+                    }
+                    assertEquals(income, groupIncome);
+                    assertEquals(expense, groupExpense);
+                    assertEquals(rows.stream().mapToInt(r -> r.count).sum(), count);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void summariesDoNotDependOnRowOrder() {
+        Random random = new Random(6);
+        for (int run = 0; run < RUNS; run++) {
+            List<Row> rows = randomRows(random);
+            for (LedgerSummaryType summaryType : LedgerSummaryType.values()) {
+                LedgerSummary summary = summarize(rows, summaryType, FrequencyType.WEEKLY);
+                Collections.shuffle(rows, random);
+                LedgerSummary shuffled = summarize(rows, summaryType, FrequencyType.WEEKLY);
+                assertEquals(summary.getBalance(), shuffled.getBalance());
+                assertEquals(summary.getTransactionsSummaries(), shuffled.getTransactionsSummaries());
+            }
+        }
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void overflowFails() {
+        List<Row> rows = new ArrayList<>();
+        rows.add(new Row("2020-01-01", Long.MAX_VALUE - 1, 1, TransactionType.INCOME, "Alice"));
+        rows.add(new Row("2020-01-02", 2, 1, TransactionType.INCOME, "Alice"));
+        summarize(rows, LedgerSummaryType.PAYER, FrequencyType.MONTHLY);
+    }
+
+    @Test
+    public void mixedCurrenciesSummarizedApart() {
+        Random random = new Random(7);
+        for (int run = 0; run < RUNS; run++) {
+            List<Row> rows = randomRows(random);
+            if (rows.size() < 2) {
+                continue;
+            }
+            rows.forEach(r -> r.currency = CURRENCIES[random.nextInt(CURRENCIES.length)]);
+            rows.get(0).currency = "USD";
+            rows.get(rows.size() - 1).currency = null;
+            for (LedgerSummaryType summaryType : LedgerSummaryType.values()) {
+                LedgerSummary summary = summarize(rows, summaryType, FrequencyType.MONTHLY);
+                assertNull(summary.getIncome());
+                assertTrue(summary.getTransactionsSummaries().isEmpty());
+                List<String> currencies = new ArrayList<>();
+                for (LedgerSummary currencySummary : summary.getCurrencySummaries()) {
+                    currencies.add(currencySummary.getCurrency());
+                    List<Row> currencyRows = new ArrayList<>();
+                    rows.stream().filter(r -> Objects.equals(r.currency, currencySummary.getCurrency()))
+                            .forEach(currencyRows::add);
+                    LedgerSummary expected = summarize(currencyRows, summaryType, FrequencyType.MONTHLY);
+                    assertEquals(currencySummary.getCurrency(), expected.getCurrency());
+                    assertEquals(expected.getIncome(), currencySummary.getIncome());
+                    assertEquals(expected.getExpense(), currencySummary.getExpense());
+                    assertEquals(expected.getTransactionsSummaries(), currencySummary.getTransactionsSummaries());
+                }
+                // the default currency comes first
+                assertNull(currencies.get(0));
+                assertTrue(currencies.contains("USD"));
+            }
+        }
+    }
+
+    private LedgerSummary summarize(List<Row> rows, LedgerSummaryType summaryType, FrequencyType frequencyType) {
+        LedgerColumns columns = new LedgerColumns();
+        rows.forEach(r -> columns.add(
+                r.date, r.amount, r.count, r.type, Collections.emptyList(), r.payer, r.currency));
+        return this.calculator.getLedgerSummary(summaryType, START, START.plusYears(3), columns, frequencyType);
+    }
+
+    private static List<Row> randomRows(Random random) {
+        List<Row> rows = new ArrayList<>();
+        int size = random.nextInt(50);
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row(
+                    LocalDate.of(2018, 1, 1).plusDays(random.nextInt(3 * 365)).toString(),
+                    random.nextInt(1000000),
+                    1 + random.nextInt(3),
+                    random.nextBoolean() ? TransactionType.INCOME : TransactionType.EXPENSE,
+                    PAYERS[random.nextInt(PAYERS.length)]));
+        }
+        return rows;
+    }
+
+    private static class Row {
+        final String date;
+        final long amount;
+        final int count;
+        final TransactionType type;
+        final String payer;
+        String currency;
+
+        Row(String date, long amount, int count, TransactionType type, String payer) {
+            this.date = date;
+            this.amount = amount;
+            this.count = count;
+            this.type = type;
+            this.payer = payer;
+        }
+    }
+}
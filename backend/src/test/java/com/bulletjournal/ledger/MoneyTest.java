@@ -0,0 +1,77 @@
+package com.bulletjournal.ledger;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Properties of {@link Money} checked over seeded random inputs
+ */
+public class MoneyTest {
+
+    private static final int RUNS = 10000;
+    // largest count of minor units whose decimal amount is exactly representable as a double
+    private static final long MAX_EXACT = (1L << 53) / 100;
+
+    @Test
+    public void minorUnitsRoundTrip() {
+        Random random = new Random(1);
+        for (int i = 0; i < RUNS; i++) {
+            long minorUnits = random.nextLong() % MAX_EXACT;
+            assertEquals(minorUnits, Money.toMinorUnits(Money.toAmount(minorUnits)));
+        }
+    }
+
+    @Test
+    public void toMinorUnitsRoundsHalfUp() {
+        Random random = new Random(2);
+        for (int i = 0; i < RUNS; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong() % 1000000000L, 3);
+            long expected = amount.setScale(Money.SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            assertEquals(amount.toString(), expected, Money.toMinorUnits(amount.doubleValue()));
+        }
+        assertEquals(101, Money.toMinorUnits(1.005));
+        assertEquals(-101, Money.toMinorUnits(-1.005));
+        assertEquals(30, Money.toMinorUnits(0.1 + 0.2));
+    }
+
+    @Test
+    public void addIsExact() {
+        Random random = new Random(3);
+        for (int i = 0; i < RUNS; i++) {
+            long a = random.nextLong();
+            long b = random.nextLong();
+            BigInteger sum = BigInteger.valueOf(a).add(BigInteger.valueOf(b));
+            if (sum.bitLength() < Long.SIZE) {
+                assertEquals(sum.longValue(), Money.add(a, b));
+            } else {
+                try {
+                    Money.add(a, b);
+                    fail("Expected overflow of " + a + " + " + b);
+                } catch (ArithmeticException ex) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    @Test
+    public void percentageIsBounded() {
+        Random random = new Random(4);
+        for (int i = 0; i < RUNS; i++) {
+            long total = Math.abs(random.nextLong() % MAX_EXACT) + 1;
+            long part = Math.abs(random.nextLong() % total);
+            double percentage = Money.percentage(part, total);
+            assertTrue(percentage >= 0 && percentage <= 100);
+            assertEquals(percentage, Math.round(percentage * 100) / 100.0, 0);
+        }
+        assertEquals(0, Money.percentage(0, 0), 0);
+        assertEquals(0, Money.percentage(100, 0), 0);
+        assertEquals(33.33, Money.percentage(1, 3), 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.bulletjournal.redis;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LockNearCacheTest {
+
+    private final Map<String, String> locks = new HashMap<>();
+    private final List<String> loaded = new ArrayList<>();
+    private final LockNearCache<String> cache = new LockNearCache<>(id -> {
+        this.loaded.add(id);
+        return Optional.ofNullable(this.locks.get(id));
+    }, 1000, 0.01, 100, 60);
+
+    @Test
+    public void lookups() {
+        assertFalse(this.cache.get("1.2.3.4").isPresent());
+        assertTrue(this.loaded.isEmpty());
+
+        this.locks.put("1.2.3.4", "reason");
+        this.cache.onWrite("1.2.3.4");
+        assertEquals("reason", this.cache.get("1.2.3.4").get());
+        assertEquals("reason", this.cache.get("1.2.3.4").get());
+        assertEquals(Collections.singletonList("1.2.3.4"), this.loaded);
+
+        this.locks.remove("1.2.3.4");
+        this.cache.onRemove("1.2.3.4");
+        assertFalse(this.cache.get("1.2.3.4").isPresent());
+        assertFalse(this.cache.get("1.2.3.4").isPresent());
+        assertEquals(2, this.loaded.size());
+
+        this.cache.rebuild(this.locks::keySet);
+        assertFalse(this.cache.get("1.2.3.4").isPresent());
+        assertEquals(2, this.loaded.size());
+    }
+
+    @Test
+    public void rebuild() {
+        this.locks.put("BulletJournal", "reason");
+        this.cache.rebuild(() -> {
+            // written while the ids are read
+            this.locks.put("Thinker", "reason");
+            this.cache.onWrite("Thinker");
+            return Collections.singletonList("BulletJournal");
+        });
+        assertTrue(this.cache.get("BulletJournal").isPresent());
+        assertTrue(this.cache.get("Thinker").isPresent());
+    }
+
+    @Test
+    public void mergeKeyspaceEvents() {
+        assertEquals("Kghx", RedisLockDaoJpa.mergeKeyspaceEvents("", "Kghx"));
+        assertEquals("ExKgh", RedisLockDaoJpa.mergeKeyspaceEvents("Ex", "Kghx"));
+        assertEquals("KEA", RedisLockDaoJpa.mergeKeyspaceEvents("KEA", "Kghx"));
+    }
+}
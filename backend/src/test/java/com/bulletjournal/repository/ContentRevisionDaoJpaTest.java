@@ -0,0 +1,276 @@
+package com.bulletjournal.repository;
+
+import com.bulletjournal.config.ContentRevisionConfig;
+import com.bulletjournal.contents.ContentType;
+import com.bulletjournal.controller.models.Revision;
+import com.bulletjournal.controller.models.User;
+import com.bulletjournal.repository.models.ContentRevision;
+import com.bulletjournal.repository.models.TaskContent;
+import com.bulletjournal.util.ContentDiffTool;
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests {@link ContentRevisionDaoJpa} against an in-memory content_revisions table
+ */
+public class ContentRevisionDaoJpaTest {
+
+    private static final ContentType TYPE = ContentType.TASK;
+    private static final String USER = "BulletJournal";
+
+    private final List<ContentRevision> rows = new ArrayList<>();
+    private long nextId = 1;
+    private ContentRevisionRepository repository;
+    private ContentRevisionConfig config;
+    private ContentRevisionDaoJpa contentRevisionDaoJpa;
+    private TaskContent content;
+
+    @Before
+    public void setUp() {
+        this.repository = mockRepository();
+        this.config = new ContentRevisionConfig();
+        this.config.setDiffThreads(1);
+        this.config.setSnapshotInterval(3);
+        this.config.setMaxRevisionNumber(100);
+
+        ContentDiffTool contentDiffTool = BeanUtils.instantiateClass(ContentDiffTool.class);
+        ReflectionTestUtils.setField(contentDiffTool, "diffTimeoutMillis", 1000L);
+        ReflectionTestUtils.setField(contentDiffTool, "lineModeThreshold", 10000);
+        contentDiffTool.postConstruct();
+
+        this.contentRevisionDaoJpa = new ContentRevisionDaoJpa();
+        ReflectionTestUtils.setField(this.contentRevisionDaoJpa, "contentRevisionRepository", this.repository);
+        ReflectionTestUtils.setField(this.contentRevisionDaoJpa, "revisionConfig", this.config);
+        ReflectionTestUtils.setField(this.contentRevisionDaoJpa, "contentDiffTool", contentDiffTool);
+        ReflectionTestUtils.setField(this.contentRevisionDaoJpa, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(this.contentRevisionDaoJpa, "entityManager", mock(EntityManager.class));
+        this.contentRevisionDaoJpa.postConstruct();
+
+        this.content = new TaskContent(text(0));
+        this.content.setId(1L);
+    }
+
+    @After
+    public void tearDown() {
+        this.contentRevisionDaoJpa.preDestroy();
+    }
+
+    @Test
+    public void testSnapshotIntervalAndPrune() throws Exception {
+        this.config.setMaxRevisionNumber(5);
+        appendRevisions(1, 8);
+        // revision 6 is a snapshot but 2 is still retained, so nothing is pruned yet
+        assertEquals(range(1, 8), revisionIds());
+        appendRevisions(9, 11);
+        // revision 9 keeps 5..9, from the snapshot at 3
+        assertEquals(range(3, 11), revisionIds());
+        appendRevisions(12, 12);
+        // revision 12 keeps 8..12, from the snapshot at 6
+        assertEquals(range(6, 12), revisionIds());
+        awaitDiffs();
+
+        assertEquals(Arrays.asList(6L, 9L, 12L), this.rows.stream().filter(ContentRevision::isSnapshot)
+                .map(ContentRevision::getRevisionId).collect(Collectors.toList()));
+        this.rows.forEach(row -> assertNotNull(row.getDiff()));
+        for (long revisionId = 6; revisionId <= 12; revisionId++) {
+            assertEquals(text(revisionId), getRevision(revisionId));
+        }
+    }
+
+    @Test
+    public void testFirstRevisionIsSnapshot() throws Exception {
+        appendRevisions(1, 2);
+        awaitDiffs();
+        assertTrue(this.rows.get(0).isSnapshot());
+        assertFalse(this.rows.get(1).isSnapshot());
+        assertEquals(text(0), this.content.getBaseText());
+    }
+
+    @Test
+    public void testRebuildFromNearestSnapshot() throws Exception {
+        appendRevisions(1, 8);
+        awaitDiffs();
+        for (long revisionId = 1; revisionId <= 8; revisionId++) {
+            assertEquals(text(revisionId), getRevision(revisionId));
+        }
+        // 8 is rebuilt from the snapshot at 6 rather than from the first revision
+        verify(this.repository).findByContentTypeAndContentIdAndRevisionIdBetweenOrderByRevisionId(
+                TYPE, 1L, 6L, 8L);
+    }
+
+    @Test
+    public void testLegacyRevisionsReadAndMigratedOnAppend() throws Exception {
+        ContentDiffTool contentDiffTool = (ContentDiffTool) ReflectionTestUtils.getField(
+                this.contentRevisionDaoJpa, "contentDiffTool");
+        Revision[] legacy = new Revision[4];
+        for (int i = 1; i <= 4; i++) {
+            legacy[i - 1] = new Revision((long) i, contentDiffTool.computeDiff(text(i - 1), text(i)),
+                    1000L * i, new User(USER));
+        }
+        this.content.setBaseText(text(0));
+        this.content.setText(text(4));
+        this.content.setRevisions(new Gson().toJson(legacy));
+
+        // reads decode the JSON without writing rows
+        for (long revisionId = 1; revisionId <= 4; revisionId++) {
+            assertEquals(text(revisionId), getRevision(revisionId));
+        }
+        this.contentRevisionDaoJpa.attachRevisions(TYPE, Collections.singletonList(this.content));
+        assertEquals(4, this.content.getRevisionHistory().size());
+        assertTrue(this.rows.isEmpty());
+        assertNotNull(this.content.getRevisions());
+
+        appendRevisions(5, 5);
+        awaitDiffs();
+        assertNull(this.content.getRevisions());
+        assertEquals(range(1, 5), revisionIds());
+        assertEquals(Arrays.asList(1L, 3L), this.rows.stream().filter(ContentRevision::isSnapshot)
+                .map(ContentRevision::getRevisionId).collect(Collectors.toList()));
+        for (long revisionId = 1; revisionId <= 5; revisionId++) {
+            assertEquals(text(revisionId), getRevision(revisionId));
+        }
+    }
+
+    @Test
+    public void testRevisionReadableBeforeDiffComputed() throws Exception {
+        appendRevisions(1, 1);
+        awaitDiffs();
+        CountDownLatch release = new CountDownLatch(1);
+        diffExecutor().execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        appendRevisions(2, 2);
+
+        // a new revision keeps its full text until its diff is computed
+        ContentRevision pending = this.rows.get(1);
+        assertNull(pending.getDiff());
+        assertEquals(text(2), pending.getSnapshot());
+        assertEquals(text(2), getRevision(2));
+
+        release.countDown();
+        awaitDiffs();
+        assertNotNull(pending.getDiff());
+        assertFalse(pending.isSnapshot());
+        assertEquals(text(2), getRevision(2));
+    }
+
+    private void appendRevisions(int from, int to) {
+        for (int i = from; i <= to; i++) {
+            String oldText = this.content.getText();
+            this.content.setText(text(i));
+            this.contentRevisionDaoJpa.append(TYPE, this.content, USER, oldText, this.content.getText());
+        }
+    }
+
+    private String getRevision(long revisionId) {
+        return this.contentRevisionDaoJpa.getRevision(TYPE, this.content, revisionId).getContent();
+    }
+
+    private void awaitDiffs() throws Exception {
+        // the executor has a single thread, so earlier diffs are done once this one runs
+        diffExecutor().submit(() -> {
+        }).get();
+    }
+
+    private ThreadPoolExecutor diffExecutor() {
+        return (ThreadPoolExecutor) ReflectionTestUtils.getField(this.contentRevisionDaoJpa, "diffExecutor");
+    }
+
+    private List<Long> revisionIds() {
+        return this.rows.stream().map(ContentRevision::getRevisionId).collect(Collectors.toList());
+    }
+
+    private static List<Long> range(long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (long i = from; i <= to; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    private static String text(long revisionId) {
+        StringBuilder text = new StringBuilder("Revision " + revisionId + "\n");
+        for (int line = 0; line < 5; line++) {
+            text.append("line ").append(line).append(line == revisionId % 5 ? " edited" : "").append('\n');
+        }
+        return text.toString();
+    }
+
+    private synchronized ContentRevision save(ContentRevision row) {
+        if (row.getId() == null) {
+            ReflectionTestUtils.setField(row, "id", this.nextId++);
+            this.rows.add(row);
+            this.rows.sort(Comparator.comparing(ContentRevision::getRevisionId));
+        }
+        return row;
+    }
+
+    private synchronized List<ContentRevision> select(Long contentId, long from, long to) {
+        return this.rows.stream()
+                .filter(r -> r.getContentId().equals(contentId))
+                .filter(r -> r.getRevisionId() >= from && r.getRevisionId() <= to)
+                .collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ContentRevisionRepository mockRepository() {
+        ContentRevisionRepository repository = mock(ContentRevisionRepository.class);
+        when(repository.save(any(ContentRevision.class))).thenAnswer(
+                invocation -> save((ContentRevision) invocation.getArguments()[0]));
+        when(repository.saveAll(any(Iterable.class))).thenAnswer(invocation -> {
+            List<ContentRevision> saved = new ArrayList<>();
+            ((Iterable<ContentRevision>) invocation.getArguments()[0]).forEach(row -> saved.add(save(row)));
+            return saved;
+        });
+        when(repository.findFirstByContentTypeAndContentIdOrderByRevisionIdDesc(any(ContentType.class), anyLong()))
+                .thenAnswer(invocation -> {
+                    List<ContentRevision> found = select((Long) invocation.getArguments()[1], 0, Long.MAX_VALUE);
+                    return found.isEmpty() ? Optional.empty() : Optional.of(found.get(found.size() - 1));
+                });
+        when(repository.findNearestSnapshot(any(ContentType.class), anyLong(), anyLong())).thenAnswer(invocation ->
+                select((Long) invocation.getArguments()[1], 0, (Long) invocation.getArguments()[2]).stream()
+                        .filter(ContentRevision::isSnapshot)
+                        .max(Comparator.comparing(ContentRevision::getRevisionId)));
+        when(repository.findByContentTypeAndContentIdAndRevisionIdBetweenOrderByRevisionId(
+                any(ContentType.class), anyLong(), anyLong(), anyLong())).thenAnswer(invocation ->
+                select((Long) invocation.getArguments()[1], (Long) invocation.getArguments()[2],
+                        (Long) invocation.getArguments()[3]));
+        when(repository.existsByContentTypeAndContentId(any(ContentType.class), anyLong())).thenAnswer(
+                invocation -> !select((Long) invocation.getArguments()[1], 0, Long.MAX_VALUE).isEmpty());
+        doAnswer(invocation -> {
+            synchronized (this) {
+                this.rows.stream().filter(r -> r.getId().equals(invocation.getArguments()[0])).forEach(r -> {
+                    ReflectionTestUtils.setField(r, "diff", invocation.getArguments()[1]);
+                    ReflectionTestUtils.setField(r, "snapshot", invocation.getArguments()[2]);
+                });
+            }
+            return null;
+        }).when(repository).setDiff(anyLong(), anyString(), any());
+        doAnswer(invocation -> {
+            synchronized (this) {
+                this.rows.removeIf(r -> r.getContentId().equals(invocation.getArguments()[1])
+                        && r.getRevisionId() < (Long) invocation.getArguments()[2]);
+            }
+            return null;
+        }).when(repository).deleteRevisionsBefore(any(ContentType.class), anyLong(), anyLong());
+        return repository;
+    }
+}
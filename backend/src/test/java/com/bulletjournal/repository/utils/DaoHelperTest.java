@@ -4,6 +4,7 @@ import com.bulletjournal.controller.models.ReminderSetting;
 import com.bulletjournal.controller.utils.TestHelpers;
 import com.bulletjournal.repository.models.Project;
 import com.bulletjournal.repository.models.Task;
+import com.bulletjournal.repository.models.TaskOccurrence;
 import com.bulletjournal.repository.models.Transaction;
 import org.junit.Test;
 import org.springframework.test.context.ActiveProfiles;
@@ -13,6 +14,7 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Tests {@link DaoHelperTest}
@@ -49,6 +51,33 @@ public class DaoHelperTest {
         assertEquals("2021-01-11", transactions.get(1).getDate());
     }
 
+    @Test
+    public void getTaskOccurrences() {
+        ProjectStub projectStub = new ProjectStub();
+        ReminderSetting reminderSetting = new ReminderSetting(null, null, 1);
+
+        Task task = TestHelpers.getTaskRepoModel(2L, "Michael_Zhou", null, null, "America/Los_Angeles", "t2", 0, projectStub, null, reminderSetting);
+        task.setRecurrenceRule("DTSTART:20200825T070000ZRRULE:FREQ=WEEKLY;BYDAY=TU;INTERVAL=1");
+        ZonedDateTime start = ZonedDateTime.parse("2021-01-01T07:00:00-08:00[America/Los_Angeles]");
+        ZonedDateTime end = ZonedDateTime.parse("2021-01-31T23:59:59-08:00[America/Los_Angeles]");
+
+        // DTSTART is read as wall time in the task's timezone, so every Tuesday at 07:00 in Los Angeles
+        String[] dueDates = {"2021-01-05", "2021-01-12", "2021-01-19", "2021-01-26"};
+        List<TaskOccurrence> occurrences = DaoHelper.getTaskOccurrences(task, start, end);
+        assertEquals(dueDates.length, occurrences.size());
+        for (int i = 0; i < occurrences.size(); i++) {
+            TaskOccurrence occurrence = occurrences.get(i);
+            long startTime = ZonedDateTime.parse(dueDates[i] + "T07:00:00-08:00[America/Los_Angeles]")
+                    .toInstant().toEpochMilli();
+            assertSame(task, occurrence.getTask());
+            assertEquals(dueDates[i], occurrence.getDueDate());
+            assertEquals("07:00", occurrence.getDueTime());
+            assertEquals(startTime, occurrence.getStartTime());
+            // reminder setting 1 is five minutes before the start
+            assertEquals(startTime - 5 * 60 * 1000, occurrence.getReminderDateTime().getTime());
+        }
+    }
+
     /*
      * Stub class for Project
      */
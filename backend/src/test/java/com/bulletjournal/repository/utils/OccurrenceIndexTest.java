@@ -0,0 +1,80 @@
+package com.bulletjournal.repository.utils;
+
+import com.bulletjournal.controller.utils.ZonedDateTimeHelper;
+import org.dmfs.rfc5545.DateTime;
+import org.junit.Test;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link OccurrenceIndex}
+ */
+public class OccurrenceIndexTest {
+
+    private static final String TIMEZONE = "America/Los_Angeles";
+    private static final String RULE = "DTSTART:20200101T170000ZRRULE:FREQ=DAILY;INTERVAL=1";
+
+    @Test
+    public void testRangeLookupAfterRollForward() throws Exception {
+        OccurrenceIndex index = new OccurrenceIndex();
+        List<DateTime> march = index.getOccurrences(1L, RULE, TIMEZONE, null,
+                dateTime("2020-03-01T00:00:00-08:00[America/Los_Angeles]"),
+                dateTime("2020-03-31T23:59:59-07:00[America/Los_Angeles]"));
+        assertEquals(31, march.size());
+
+        // served from already materialized occurrences
+        List<DateTime> january = index.getOccurrences(1L, RULE, TIMEZONE, null,
+                dateTime("2020-01-01T00:00:00-08:00[America/Los_Angeles]"),
+                dateTime("2020-01-10T23:59:59-08:00[America/Los_Angeles]"));
+        assertEquals(10, january.size());
+        assertEquals(1, index.size());
+
+        // the entry now covers January through March without gaps or duplicates
+        List<DateTime> quarter = index.getOccurrences(1L, RULE, TIMEZONE, null,
+                dateTime("2020-01-01T00:00:00-08:00[America/Los_Angeles]"),
+                dateTime("2020-03-31T23:59:59-07:00[America/Los_Angeles]"));
+        assertEquals(91, quarter.size());
+        for (int i = 1; i < quarter.size(); i++) {
+            assertTrue(quarter.get(i - 1).before(quarter.get(i)));
+        }
+        assertEquals(march, quarter.subList(60, 91));
+        assertEquals(january, quarter.subList(0, 10));
+    }
+
+    @Test
+    public void testExtendBackwardSkipsExcludedSlots() throws Exception {
+        OccurrenceIndex index = new OccurrenceIndex();
+        DateTime start = dateTime("2020-01-01T00:00:00-08:00[America/Los_Angeles]");
+        DateTime end = dateTime("2020-01-05T23:59:59-08:00[America/Los_Angeles]");
+        String completed = index.getOccurrences(2L, RULE, TIMEZONE, null, start, end).get(1).toString();
+
+        index.getOccurrences(1L, RULE, TIMEZONE, completed,
+                dateTime("2020-01-04T00:00:00-08:00[America/Los_Angeles]"), end);
+        List<DateTime> occurrences = index.getOccurrences(1L, RULE, TIMEZONE, completed, start, end);
+        assertEquals(4, occurrences.size());
+        assertTrue(occurrences.stream().noneMatch(o -> o.toString().equals(completed)));
+    }
+
+    @Test
+    public void testExcludedSlotsInvalidateEntry() throws Exception {
+        OccurrenceIndex index = new OccurrenceIndex();
+        DateTime start = dateTime("2020-01-01T00:00:00-08:00[America/Los_Angeles]");
+        DateTime end = dateTime("2020-01-03T23:59:59-08:00[America/Los_Angeles]");
+        List<DateTime> occurrences = index.getOccurrences(1L, RULE, TIMEZONE, null, start, end);
+        assertEquals(3, occurrences.size());
+
+        String completed = occurrences.get(1).toString();
+        List<DateTime> remaining = index.getOccurrences(1L, RULE, TIMEZONE, completed, start, end);
+        assertEquals(2, remaining.size());
+        assertEquals(occurrences.get(0), remaining.get(0));
+        assertEquals(occurrences.get(2), remaining.get(1));
+    }
+
+    private static DateTime dateTime(String zonedDateTime) {
+        return ZonedDateTimeHelper.getDateTime(ZonedDateTime.parse(zonedDateTime));
+    }
+}
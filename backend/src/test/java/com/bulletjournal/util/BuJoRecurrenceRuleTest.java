@@ -0,0 +1,44 @@
+package com.bulletjournal.util;
+
+import org.dmfs.rfc5545.DateTime;
+import org.dmfs.rfc5545.recur.RecurrenceRuleIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+/**
+ * Tests {@link BuJoRecurrenceRule}
+ */
+public class BuJoRecurrenceRuleTest {
+
+    private static final String TIMEZONE = "America/Los_Angeles";
+
+    @Test
+    public void testSkipAheadMatchesFullIteration() throws Exception {
+        String[] rules = {
+                "DTSTART:20170103T170000ZRRULE:FREQ=DAILY;INTERVAL=3",
+                "DTSTART:20170103T170000ZRRULE:FREQ=WEEKLY;BYDAY=MO,TH;INTERVAL=2",
+                "DTSTART:20170131T170000ZRRULE:FREQ=MONTHLY;INTERVAL=1",
+                "DTSTART:20170115T170000ZRRULE:FREQ=MONTHLY;INTERVAL=5",
+                "DTSTART:20170103T170000ZRRULE:FREQ=MONTHLY;BYDAY=1FR;BYSETPOS=1",
+                "DTSTART:20170103T170000ZRRULE:FREQ=DAILY;COUNT=2000",
+                "DTSTART:20170103T170000ZRRULE:FREQ=YEARLY;BYMONTH=3"
+        };
+        DateTime from = new DateTime(TimeZone.getTimeZone(TIMEZONE), 2020, 10, 7, 12, 0, 0);
+        for (String rule : rules) {
+            BuJoRecurrenceRule recurrenceRule = new BuJoRecurrenceRule(rule, TIMEZONE);
+            RecurrenceRuleIterator expected = recurrenceRule.getIterator();
+            DateTime next = expected.nextDateTime();
+            while (next.before(from)) {
+                next = expected.nextDateTime();
+            }
+
+            RecurrenceRuleIterator actual = recurrenceRule.getIterator(from);
+            for (int i = 0; i < 20; i++) {
+                Assert.assertEquals(rule, next.getTimestamp(), actual.nextDateTime().getTimestamp());
+                next = expected.nextDateTime();
+            }
+        }
+    }
+}
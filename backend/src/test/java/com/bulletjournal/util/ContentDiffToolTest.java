@@ -56,4 +56,31 @@ public class ContentDiffToolTest {
         String result34 = contentDiffTool.applyDiff(text3, diff34);
         Assert.assertEquals(text4, result34);
     }
+
+    @Test
+    public void testComputeLineDiff() {
+        // longer than the line mode threshold and not a delta, with lines ending in "}," as well as "\n"
+        StringBuilder oldText = new StringBuilder("items:\n");
+        StringBuilder newText = new StringBuilder("items:\n");
+        for (int i = 0; i < 1000; i++) {
+            String line = "{\"id\":" + i + ",\"name\":\"item " + i + "\"},";
+            if (i % 7 != 0) {
+                oldText.append(line);
+            }
+            newText.append(i % 11 == 0 ? line.replace("item", "renamed item") : line);
+            if (i % 50 == 0) {
+                oldText.append('\n');
+                newText.append('\n');
+            }
+        }
+        String text1 = oldText.toString();
+        String text2 = newText.toString();
+        Assert.assertTrue(text1.length() > 10000);
+
+        String diff12 = contentDiffTool.computeDiff(text1, text2);
+        String diff21 = contentDiffTool.computeDiff(text2, text1);
+        Assert.assertEquals(text2, contentDiffTool.applyDiff(text1, diff12));
+        Assert.assertEquals(text1, contentDiffTool.applyDiff(text2, diff21));
+        Assert.assertEquals("", contentDiffTool.applyDiff(text1, contentDiffTool.computeDiff(text1, "")));
+    }
 }
@@ -0,0 +1,40 @@
+package com.bulletjournal.util;
+
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link Delta}
+ */
+public class DeltaTest {
+
+    private final DiffMatchPatch diffMatchPatch = new DiffMatchPatch();
+
+    @Test
+    public void testDiffAndCompose() {
+        assertChange("{\"ops\":[{\"insert\":\"Hello world\\n\"}]}",
+                "{\"ops\":[{\"insert\":\"Hello brave world\\n\"}]}",
+                "{\"ops\":[{\"retain\":6},{\"insert\":\"brave \"}]}");
+        // formatting extended over more text
+        assertChange("{\"ops\":[{\"insert\":\"Hello\",\"attributes\":{\"bold\":true}},{\"insert\":\" world\\n\"}]}",
+                "{\"ops\":[{\"insert\":\"Hello world\",\"attributes\":{\"bold\":true}},{\"insert\":\"\\n\"}]}",
+                "{\"ops\":[{\"retain\":5},{\"retain\":6,\"attributes\":{\"bold\":true}}]}");
+        // removed attributes are nulls in the change
+        assertChange("{\"ops\":[{\"insert\":\"abc\",\"attributes\":{\"bold\":true,\"size\":2}},{\"insert\":\"\\n\"}]}",
+                "{\"ops\":[{\"insert\":\"abc\",\"attributes\":{\"size\":3}},{\"insert\":\"\\n\"}]}",
+                "{\"ops\":[{\"retain\":3,\"attributes\":{\"bold\":null,\"size\":3}}]}");
+        // a changed embed is replaced as a whole
+        assertChange("{\"ops\":[{\"insert\":\"Hi \"},{\"insert\":{\"image\":\"data:a\"}},{\"insert\":\"\\n\"}]}",
+                "{\"ops\":[{\"insert\":\"Hi \"},{\"insert\":{\"image\":\"data:b\"}},{\"insert\":\"\\n\"}]}",
+                "{\"ops\":[{\"retain\":3},{\"insert\":{\"image\":\"data:b\"}},{\"delete\":1}]}");
+        assertChange("{\"ops\":[{\"insert\":\"same\\n\"}]}", "{\"ops\":[{\"insert\":\"same\\n\"}]}", "{\"ops\":[]}");
+    }
+
+    private void assertChange(String from, String to, String expectedChange) {
+        Delta change = Delta.fromJson(from).diff(Delta.fromJson(to), this.diffMatchPatch::diffMain);
+        assertEquals(expectedChange, change.toJson());
+        assertEquals(to, Delta.fromJson(from).compose(Delta.fromJson(change.toJson())).toJson());
+    }
+}
@@ -0,0 +1,41 @@
+package com.bulletjournal.util;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests {@link HashedTimingWheel}
+ */
+public class HashedTimingWheelTest {
+
+    @Test
+    public void testAdvance() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, 0);
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 1050); // more than one rotation away
+        wheel.schedule("c", 300);
+        wheel.schedule("overdue", -500);
+        Assert.assertEquals(4, wheel.size());
+
+        Assert.assertEquals(ImmutableList.of("overdue"), items(wheel.advance(150)));
+        Assert.assertEquals(ImmutableList.of("a"), items(wheel.advance(250)));
+        Assert.assertEquals(ImmutableList.of("c"), items(wheel.advance(900)));
+        Assert.assertEquals(1, wheel.size());
+        Assert.assertEquals(ImmutableList.of("b"), items(wheel.advance(1000)));
+        Assert.assertTrue(wheel.advance(2000).isEmpty());
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWheelSizeMustBePowerOfTwo() {
+        new HashedTimingWheel<String>(100, 10, 0);
+    }
+
+    private static List<String> items(List<HashedTimingWheel.Timeout<String>> timeouts) {
+        return timeouts.stream().map(HashedTimingWheel.Timeout::getItem).collect(Collectors.toList());
+    }
+}
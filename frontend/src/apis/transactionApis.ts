@@ -22,6 +22,7 @@ export const fetchTransactions = (
   payer?: string,
   labelsToKeep?: number[],
   labelsToRemove?: number[],
+  summaryOnly?: boolean,
 ) => {
   // e.g. /api/projects/105/transactions?frequencyType=MONTHLY&timezone=America%2FLos_Angeles
   let url = `/api/projects/${projectId}/transactions?timezone=${encodeURIComponent(
@@ -43,6 +44,9 @@ export const fetchTransactions = (
   if (labelsToRemove && labelsToRemove.length > 0) {
     url += '&' + labelsToRemove.map(l => `labelsToRemove=${l}`).join('&');
   }
+  if (summaryOnly) {
+    url += '&summaryOnly=true';
+  }
   return doFetch(url)
     .then((res) => res)
     .catch((err) => {